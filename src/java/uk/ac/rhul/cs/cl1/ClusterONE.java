@@ -4,10 +4,13 @@ import java.util.*;
 import java.util.concurrent.*;
 
 import uk.ac.rhul.cs.cl1.growth.ClusterGrowthWorker;
+import uk.ac.rhul.cs.cl1.growth.SeedPipeline;
 import uk.ac.rhul.cs.cl1.merging.AbstractNodeSetMerger;
+import uk.ac.rhul.cs.cl1.seeding.MaximalCliqueSeedGenerator;
 import uk.ac.rhul.cs.cl1.seeding.Seed;
 import uk.ac.rhul.cs.cl1.seeding.SeedGenerator;
 import uk.ac.rhul.cs.cl1.seeding.SeedIterator;
+import uk.ac.rhul.cs.cl1.support.LookAheadWindow;
 import uk.ac.rhul.cs.cl1.support.OrderMaintainingQueue;
 import uk.ac.rhul.cs.cl1.support.UsedNodeSet;
 import uk.ac.rhul.cs.collections.IntObjectHashMap;
@@ -41,12 +44,18 @@ public class ClusterONE extends GraphAlgorithm implements Callable<Void>, TaskMo
 	/** The clustering result as a list of {@link ValuedNodeSet} objects */
 	protected ValuedNodeSetList result = null;
 	
+	/** Look-ahead window of the last run with the counters of accepted and discarded clusters */
+	protected LookAheadWindow lookAheadWindow = null;
+
 	/** Algorithm settings for this instance */
 	protected ClusterONEAlgorithmParameters parameters = null;
 
 	/** A task monitor where the algorithm will report its progress */
 	protected TaskMonitor monitor = new NullTaskMonitor();
 	
+	/** The workers of the current run; {@link #halt()} stops them too */
+	private volatile List<ClusterGrowthWorker> activeWorkers = null;
+	
 	/** Whether we are running on a Mac or not */
 	protected static boolean runningOnMac = false;
 	
@@ -105,6 +114,23 @@ public class ClusterONE extends GraphAlgorithm implements Callable<Void>, TaskMo
 		return null;
 	}
 	
+	/**
+	 * Non-blocking request to halt the algorithm when it is safe to do so.
+	 * 
+	 * The request is passed on to the workers of the current run, so they stop
+	 * growing their current clusters as well.
+	 */
+	@Override
+	public void halt() {
+		super.halt();
+		
+		List<ClusterGrowthWorker> workers = activeWorkers;
+		if (workers != null) {
+			for (ClusterGrowthWorker worker: workers)
+				worker.halt();
+		}
+	}
+	
 	/**
 	 * Returns the current parameter setting of the algorithm
 	 * 
@@ -114,6 +140,18 @@ public class ClusterONE extends GraphAlgorithm implements Callable<Void>, TaskMo
 		return parameters;
 	}
 
+	/**
+	 * Returns the look-ahead window of the last run or null if there was no clustering
+	 * executed so far.
+	 * 
+	 * The window counts the clusters that were accepted and the ones that were grown
+	 * speculatively but discarded because all the nodes of their seeds were used by
+	 * the time they were decided.
+	 */
+	public LookAheadWindow getLookAheadWindow() {
+		return lookAheadWindow;
+	}
+
 	/**
 	 * Returns the clustering results or null if there was no clustering executed so far
 	 */
@@ -177,6 +215,7 @@ public class ClusterONE extends GraphAlgorithm implements Callable<Void>, TaskMo
 			else {
 				TransitivityCalculator calc = new TransitivityCalculator(graph);
 				calc.setTaskMonitor(monitor);
+				calc.setNumThreads(parameters.getNumThreads());
 				if (calc.getGlobalTransitivity() < 0.1)
 					minDensity = 0.6;
 				else
@@ -191,29 +230,46 @@ public class ClusterONE extends GraphAlgorithm implements Callable<Void>, TaskMo
 			numThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
 		}
 		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		merger.setNumThreads(numThreads);
+
+		/* Let the workers take the seeds themselves if we were asked to do so */
+		if (parameters.getSeedBatchSize() > 0) {
+			runWithSeedPipeline(executor, numThreads, minDensity, merger);
+			return;
+		}
 
-		// Create the input and output queue for the workers.
-		// Limit the size of the seed queue so it does not run too much "ahead" the worker
-		// threads. This is useful for seed generators that depend on the clusters produced
-		// by the workers.
-		LinkedBlockingQueue<Ordered<Seed>> seedQueue = new LinkedBlockingQueue<Ordered<Seed>>(numThreads);
+		// Create the input and output queue for the workers. The number of seeds in the
+		// queues is limited by the look-ahead window instead of the capacity of the seed
+		// queue so it does not run too much "ahead" the worker threads. Seeds that are
+		// started too early waste work when all their nodes are used by the time their
+		// clusters are decided, so the window shrinks when this happens too often.
+		LinkedBlockingQueue<Ordered<Seed>> seedQueue = new LinkedBlockingQueue<Ordered<Seed>>();
 		LinkedBlockingQueue<Ordered<ValuedNodeSet>> clusterQueue = new LinkedBlockingQueue<Ordered<ValuedNodeSet>>();
 
 		/* Create the workers and post them to the executor */
+		List<ClusterGrowthWorker> workers = new ArrayList<ClusterGrowthWorker>();
 		for (int i = 0; i < numThreads; i++) {
 			ClusterGrowthWorker worker = new ClusterGrowthWorker(graph, parameters, minDensity,
 					seedQueue, clusterQueue);
 			worker.setDebugMode(debugMode);
-			executor.execute(worker);
+			workers.add(worker);
 		}
+		startWorkers(executor, workers);
 
 		// Get the seed generator from the parameters
 		SeedGenerator seedGenerator = parameters.getSeedGenerator();
 		seedGenerator.setGraph(graph);
+		if (seedGenerator instanceof MaximalCliqueSeedGenerator)
+			((MaximalCliqueSeedGenerator)seedGenerator).setNumThreads(numThreads);
 
 		// Create a used node set where we will mark nodes that have been used in clusters
 		usedNodes = new UsedNodeSet(graph);
 
+		// Create the look-ahead window. Growing more seeds than threads in advance keeps
+		// the threads busy; it is never needed to grow less than one seed at a time.
+		lookAheadWindow = new LookAheadWindow(1, 2 * numThreads,
+				parameters.shouldRejectSeedsWithOnlyUsedNodes());
+
 		// Set up the task monitor
 		if (numThreads > 1) {
 			monitor.setStatus("Growing clusters from seeds using " + numThreads + " threads...");
@@ -230,140 +286,164 @@ public class ClusterONE extends GraphAlgorithm implements Callable<Void>, TaskMo
 		numProcessedClusters = 0;
 		state = State.START;
 
-		// Start iterating over the seeds and collecting the clusters
-		while (!state.isTerminal) {
-			switch (state) {
-				case START:
-					state = State.GENERATING_SEEDS;
-					break;
-
-				case GENERATING_SEEDS:
-					// Try to fill the seed queue with seeds
-					boolean shouldEnqueue = true;
-					while (shouldEnqueue) {
-						// Get the next seed that is acceptable
-						boolean seedAccepted = false;
-
-						seed = null;
-						while (!seedAccepted) {
-							if (pendingSeed != null) {
-								seed = pendingSeed;
-								numGeneratedSeeds++;
-								pendingSeed = null;
-							} else if (it.hasNext()) {
-								seed = it.next();
-								numGeneratedSeeds++;
-							} else {
-								seed = null;
+		try {
+			// Start iterating over the seeds and collecting the clusters
+			while (!state.isTerminal) {
+				switch (state) {
+					case START:
+						state = State.GENERATING_SEEDS;
+						break;
+
+					case GENERATING_SEEDS:
+						// Try to fill the seed queue with seeds
+						boolean shouldEnqueue = true;
+						while (shouldEnqueue) {
+							// Get the next seed that is acceptable
+							boolean seedAccepted = false;
+
+							seed = null;
+							while (!seedAccepted) {
+								if (pendingSeed != null) {
+									seed = pendingSeed;
+									numGeneratedSeeds++;
+									pendingSeed = null;
+								} else if (it.hasNext()) {
+									seed = it.next();
+									numGeneratedSeeds++;
+								} else {
+									seed = null;
+								}
+								seedAccepted = (seed == null || !parameters.shouldRejectSeedsWithOnlyUsedNodes() ||
+										!usedNodes.areAllNodesUsedFromSeed(seed));
 							}
-							seedAccepted = (seed == null || !parameters.shouldRejectSeedsWithOnlyUsedNodes() ||
-									!usedNodes.areAllNodesUsedFromSeed(seed));
-						}
 
-						if (seed == null) {
-							state = State.NOTIFYING_WORKERS_NO_MORE_SEEDS;
-							shouldEnqueue = false;
-						} else {
-							// Offer the seed to the workers; if the queue is full, do nothing
-							if (seedQueue.offer(new Ordered<Seed>(numPostedSeeds, seed))) {
-								// Store the seed and increase the number of posted seeds
-								submittedSeeds.add(numPostedSeeds, seed);
-								numPostedSeeds++;
-							} else {
-								// Queue is full now. Store the seed so we can try it again in the next iteration.
-								pendingSeed = seed;
-								numGeneratedSeeds--;
+							if (seed == null) {
+								state = State.NOTIFYING_WORKERS_NO_MORE_SEEDS;
 								shouldEnqueue = false;
+							} else {
+								// Offer the seed to the workers; if the window is full, do nothing
+								if (lookAheadWindow.isOpen(submittedSeeds.size()) &&
+										seedQueue.offer(new Ordered<Seed>(numPostedSeeds, seed))) {
+									// Store the seed and increase the number of posted seeds
+									submittedSeeds.add(numPostedSeeds, seed);
+									numPostedSeeds++;
+								} else {
+									// Window is full now. Store the seed so we can try it again in the next iteration.
+									pendingSeed = seed;
+									numGeneratedSeeds--;
+									shouldEnqueue = false;
+								}
 							}
 						}
-					}
-					break;
+						break;
 
-				case NOTIFYING_WORKERS_NO_MORE_SEEDS:
-					// Iterator has just became null, so inform workers that there will
-					// be no more seeds.
-					if (seedQueue.offer(new Ordered<Seed>(numPostedSeeds, ClusterGrowthWorker.NO_MORE_SEEDS))) {
-						state = State.WAITING_FOR_CLUSTERS;
-					}
-					break;
+					case NOTIFYING_WORKERS_NO_MORE_SEEDS:
+						// Iterator has just became null, so inform workers that there will
+						// be no more seeds.
+						if (seedQueue.offer(new Ordered<Seed>(numPostedSeeds, ClusterGrowthWorker.NO_MORE_SEEDS))) {
+							state = State.WAITING_FOR_CLUSTERS;
+						}
+						break;
 
-				case WAITING_FOR_CLUSTERS:
-					// If we have processed all the seeds, switch to the FINISHED state
-					if (numPostedSeeds == numProcessedClusters) {
-						state = State.FINISHED;
-					}
-					break;
+					case WAITING_FOR_CLUSTERS:
+						// If we have processed all the seeds, switch to the FINISHED state
+						if (numPostedSeeds == numProcessedClusters) {
+							state = State.FINISHED;
+						}
+						break;
 
-				case FINISHED:
-				case CANCELLED:
-					// Nothing to do here; we should not get here anyway.
-			}
+					case FINISHED:
+					case CANCELLED:
+						// Nothing to do here; we should not get here anyway.
+				}
 
-			// Check for termination
-			if (shouldStop) {
-				state = State.CANCELLED;
-			}
+				// Check for termination
+				if (shouldStop) {
+					state = State.CANCELLED;
+				}
 
-			// In GENERATING_SEEDS, NOTIFYING_WORKERS_NO_MORE_SEEDS and WAITING_FOR_CLUSTERS states,
-			// try to read a cluster from the cluster queue if we still expect one.
-			if (state == State.GENERATING_SEEDS || state == State.NOTIFYING_WORKERS_NO_MORE_SEEDS ||
-					state == State.WAITING_FOR_CLUSTERS) {
-				// Try to get clusters from the incoming queue if we expect them
-				while (numProcessedClusters < numPostedSeeds) {
-					orderedCluster = null;
-
-					try {
-						orderedCluster = clusterQueue.take();
-					} catch (InterruptedException ignored) {
-					}
+				// In GENERATING_SEEDS, NOTIFYING_WORKERS_NO_MORE_SEEDS and WAITING_FOR_CLUSTERS states,
+				// try to read a cluster from the cluster queue if we still expect one.
+				if (state == State.GENERATING_SEEDS || state == State.NOTIFYING_WORKERS_NO_MORE_SEEDS ||
+						state == State.WAITING_FOR_CLUSTERS) {
+					// Try to get clusters from the incoming queue if we expect them
+					while (numProcessedClusters < numPostedSeeds) {
+						orderedCluster = null;
+
+						// Halted workers do not post the clusters they were growing, so
+						// do not wait for them indefinitely
+						try {
+							orderedCluster = clusterQueue.poll(100, TimeUnit.MILLISECONDS);
+						} catch (InterruptedException ex) {
+							// Treat the interrupt as a request to stop and keep it
+							Thread.currentThread().interrupt();
+							halt();
+						}
 
-					if (orderedCluster == null)
-						break;
+						if (orderedCluster == null)
+							break;
+
+						// Rethrow the exception of a worker that failed
+						if (orderedCluster.object == ClusterGrowthWorker.FAILED)
+							checkWorkers(workers);
 
-					// Add the cluster to the queue that will restore the ordering
-					// according to the sequence numbers
-					receivedClusters.add(orderedCluster);
-					numProcessedClusters++;
+						// Add the cluster to the queue that will restore the ordering
+						// according to the sequence numbers
+						receivedClusters.add(orderedCluster);
+						numProcessedClusters++;
 
-					// Try to retrieve a few clusters from receivedClusters; note that
-					// even though we have added a cluster above, the queue might still
-					// appear empty if the cluster with the _next_ sequence number we
-					// are waiting for has not arrived yet
-					while (!receivedClusters.isEmpty()) {
-						orderedCluster = receivedClusters.remove();
+						// Try to retrieve a few clusters from receivedClusters; note that
+						// even though we have added a cluster above, the queue might still
+						// appear empty if the cluster with the _next_ sequence number we
+						// are waiting for has not arrived yet
+						while (!receivedClusters.isEmpty()) {
+							orderedCluster = receivedClusters.remove();
 
-						cluster = orderedCluster.object;
-						if (cluster != ClusterGrowthWorker.EMPTY_CLUSTER) {
+							cluster = orderedCluster.object;
 							Seed originalSeed = (Seed) submittedSeeds.remove(orderedCluster.sequenceNumber);
-							// Check whether the cluster would have been generated at all if we were working
-							// sequentially.
-							if (!usedNodes.areAllNodesUsedFromSeed(originalSeed)) {
-								// Yes, so mark the nodes in the seed and the cluster as used and store the
+							if (cluster == ClusterGrowthWorker.EMPTY_CLUSTER) {
+								lookAheadWindow.recordEmpty();
+							} else if (!usedNodes.areAllNodesUsedFromSeed(originalSeed)) {
+								// The cluster would have been generated if we were working sequentially,
+								// so mark the nodes in the seed and the cluster as used and store the
 								// cluster.
 								result.add(cluster);
 								usedNodes.markSeedAsUsed(originalSeed);
 								usedNodes.markNodeSetAsUsed(cluster);
+								lookAheadWindow.recordAccepted();
+							} else {
+								// The growth of this seed was wasted
+								lookAheadWindow.recordDiscarded();
 							}
 						}
-					}
 
-					// We try to keep all our workers busy so we break out of the while
-					// loop here if the queue through which we feed the workers has some
-					// empty slots and we are still generating seeds.
-					if (state == State.GENERATING_SEEDS && seedQueue.remainingCapacity() > 0)
-						break;
+						// We try to keep all our workers busy so we break out of the while
+						// loop here if the look-ahead window has some empty slots and we are
+						// still generating seeds.
+						if (state == State.GENERATING_SEEDS && lookAheadWindow.isOpen(submittedSeeds.size()))
+							break;
+					}
 				}
-			}
 
-			// Report progress.
-			// Progress has to be calculated from numGeneratedSeeds and not numPostedSeeds
-			// because some seeds may be skipped before posting them to workers
-			monitor.setPercentCompleted((int) (numGeneratedSeeds * 100.0 / it.getEstimatedLength()));
+				// Report progress.
+				// Progress has to be calculated from numGeneratedSeeds and not numPostedSeeds
+				// because some seeds may be skipped before posting them to workers
+				reportProgress(numGeneratedSeeds, it.getEstimatedLength());
 
-			// Check for termination
-			if (shouldStop) {
-				state = State.CANCELLED;
+				// Check for termination
+				if (shouldStop) {
+					state = State.CANCELLED;
+				}
 			}
+		} finally {
+			// Stop the seed generator if we did not use all the seeds
+			it.close();
+
+			// Stop the workers if the run was cancelled or aborted by an exception;
+			// this also wakes up the workers waiting for seeds
+			if (state != State.FINISHED)
+				executor.shutdownNow();
+			activeWorkers = null;
 		}
 
 		if (state == State.FINISHED) {
@@ -375,13 +455,152 @@ public class ClusterONE extends GraphAlgorithm implements Callable<Void>, TaskMo
 
 		// Wait for the workers to terminate. 1 day is a reasonable upper bound on the timeout ;)
 		executor.shutdown();
+		boolean interrupted = false;
 		while (true) {
 			try {
 				executor.awaitTermination(1, TimeUnit.DAYS);
 				break;
-			} catch (InterruptedException ignored) {
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Grows the clusters using workers that take batches of seeds directly from the
+	 * seed generator, then merges the clusters.
+	 * 
+	 * Unlike the main loop of {@link #run()}, the main thread does not distribute the
+	 * seeds and does not collect the clusters here; it only reports the progress and
+	 * checks for cancellation while the workers are running. The clusters are accepted
+	 * in the order of their seeds by the {@link SeedPipeline}, so the result is the
+	 * same as the one of {@link #run()}.
+	 * 
+	 * @param  executor    the executor service that will run the workers
+	 * @param  numThreads  the number of workers to start
+	 * @param  minDensity  the minimum density of the clusters
+	 * @param  merger      the merger that will merge highly overlapping clusters
+	 */
+	private void runWithSeedPipeline(ExecutorService executor, int numThreads,
+			double minDensity, AbstractNodeSetMerger merger) {
+		// Get the seed generator from the parameters
+		SeedGenerator seedGenerator = parameters.getSeedGenerator();
+		seedGenerator.setGraph(graph);
+		if (seedGenerator instanceof MaximalCliqueSeedGenerator)
+			((MaximalCliqueSeedGenerator)seedGenerator).setNumThreads(numThreads);
+		SeedIterator it = seedGenerator.iterator();
+
+		// Let every worker have a batch in progress and another one taken in advance
+		int batchSize = parameters.getSeedBatchSize();
+		lookAheadWindow = new LookAheadWindow(1, 2 * numThreads * batchSize,
+				parameters.shouldRejectSeedsWithOnlyUsedNodes());
+		SeedPipeline pipeline = new SeedPipeline(it, new UsedNodeSet(graph),
+				parameters.shouldRejectSeedsWithOnlyUsedNodes(), batchSize, lookAheadWindow);
+
+		// Set up the task monitor
+		if (numThreads > 1) {
+			monitor.setStatus("Growing clusters from seeds using " + numThreads + " threads...");
+		} else {
+			monitor.setStatus("Growing clusters from seeds...");
+		}
+		monitor.setPercentCompleted(0);
+
+		List<ClusterGrowthWorker> workers = new ArrayList<ClusterGrowthWorker>();
+		boolean interrupted = false;
+		try {
+			/* Create the workers and post them to the executor */
+			for (int i = 0; i < numThreads; i++) {
+				ClusterGrowthWorker worker = new ClusterGrowthWorker(graph, parameters, minDensity,
+						pipeline);
+				worker.setDebugMode(debugMode);
+				workers.add(worker);
 			}
+			startWorkers(executor, workers);
+			executor.shutdown();
+
+			// Report progress until the workers terminate
+			while (true) {
+				try {
+					if (executor.awaitTermination(100, TimeUnit.MILLISECONDS))
+						break;
+				} catch (InterruptedException ex) {
+					// Treat the interrupt as a request to stop; it is restored below
+					interrupted = true;
+					halt();
+				}
+
+				if (shouldStop)
+					pipeline.cancel();
+
+				reportProgress(pipeline.getNumGeneratedSeeds(), pipeline.getEstimatedLength());
+			}
+
+			// Rethrow the exception of a worker that failed
+			checkWorkers(workers);
+		} finally {
+			// Stop the seed generator if we did not use all the seeds
+			it.close();
+			activeWorkers = null;
+			if (interrupted)
+				Thread.currentThread().interrupt();
 		}
+
+		if (!shouldStop && !pipeline.isCancelled() && pipeline.isDrained()) {
+			// Merge highly overlapping clusters
+			merger.setTaskMonitor(monitor);
+			this.result = merger.mergeOverlapping(pipeline.getResult(),
+					parameters.getSimilarityFunction(), parameters.getOverlapThreshold());
+		}
+	}
+	
+	/**
+	 * Posts the workers of a run to the executor.
+	 * 
+	 * The workers are registered first so that {@link #halt()} reaches them even
+	 * if it is called while they are being started.
+	 * 
+	 * @param  executor  the executor service that will run the workers
+	 * @param  workers   the workers to start
+	 */
+	private void startWorkers(ExecutorService executor, List<ClusterGrowthWorker> workers) {
+		activeWorkers = workers;
+		if (shouldStop) {
+			for (ClusterGrowthWorker worker: workers)
+				worker.halt();
+		}
+		
+		for (ClusterGrowthWorker worker: workers)
+			executor.execute(worker);
+	}
+	
+	/**
+	 * Rethrows the exception of the first worker that failed, if any.
+	 * 
+	 * @param  workers  the workers that grew the clusters
+	 */
+	private static void checkWorkers(List<ClusterGrowthWorker> workers) {
+		for (ClusterGrowthWorker worker: workers) {
+			Throwable failure = worker.getFailure();
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+		}
+	}
+	
+	/**
+	 * Reports the progress of the cluster growth to the task monitor.
+	 * 
+	 * @param  numGeneratedSeeds  the number of seeds taken from the seed iterator
+	 * @param  estimatedLength    the estimated number of seeds of the seed iterator
+	 */
+	private void reportProgress(int numGeneratedSeeds, int estimatedLength) {
+		if (estimatedLength > 0)
+			monitor.setPercentCompleted((int) Math.min(100, numGeneratedSeeds * 100.0 / estimatedLength));
+		else
+			monitor.setPercentCompleted(-1);
 	}
 	
 	/**
@@ -113,6 +113,36 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 	 */
 	protected int numThreads = 0;
 
+	/**
+	 * The number of nodes above which the node sets grown by the worker threads store
+	 * their per-node data in hash tables instead of arrays sized to the whole graph.
+	 * 
+	 * Arrays are faster, but each worker thread needs a few dozen bytes per node of
+	 * the graph for them. Zero means that hash tables are always used.
+	 */
+	protected int sparseNodeSetThreshold = 1000000;
+
+	/**
+	 * The number of seeds that a worker thread takes at once from the seed generator.
+	 * 
+	 * When positive, the worker threads take batches of seeds directly from the seed
+	 * generator and commit their clusters themselves. This avoids the bottleneck of a
+	 * single thread distributing the seeds one by one when the seeds are cheap to grow.
+	 * Zero means that the main thread distributes the seeds one by one. The result is
+	 * the same in both cases.
+	 */
+	protected int seedBatchSize = 0;
+
+	/**
+	 * Whether the candidates for addition are enumerated incrementally during growth.
+	 * 
+	 * When true, the external boundary nodes of the clusters being grown are kept in
+	 * a heap ordered by their internal weights, and the growth process skips the nodes
+	 * that cannot be better than the best candidate found so far. This pays off when
+	 * the clusters have large boundaries. The result is the same in both cases.
+	 */
+	protected boolean incrementalGrowth = false;
+
 	/**
 	 * Returns the k-core threshold used by the algorithm
 	 * 
@@ -166,6 +196,17 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		return numThreads;
 	}
 
+	/**
+	 * Returns the number of nodes above which the node sets grown by the worker threads
+	 * use sparse storage.
+	 * 
+	 * @return the node count threshold
+	 * @see MutableNodeSet#MutableNodeSet(uk.ac.rhul.cs.graph.Graph, boolean)
+	 */
+	public int getSparseNodeSetThreshold() {
+		return sparseNodeSetThreshold;
+	}
+
 	/**
 	 * Returns the penalty value associated with each node.
 	 * 
@@ -208,6 +249,16 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		return new CohesivenessFunction(nodePenalty);
 	}
 	
+	/**
+	 * Returns the number of seeds that a worker thread takes at once from the seed
+	 * generator, or zero if the seeds are distributed one by one by the main thread.
+	 * 
+	 * @return the seed batch size
+	 */
+	public int getSeedBatchSize() {
+		return seedBatchSize;
+	}
+	
 	/**
 	 * Returns the seed generation method of the algorithm.
 	 * @return the seed generation method
@@ -249,6 +300,16 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		return keepInitialSeeds;
 	}
 	
+	/**
+	 * Returns whether the candidates for addition are enumerated incrementally
+	 * during growth.
+	 * 
+	 * @see uk.ac.rhul.cs.cl1.growth.GreedyClusterGrowthProcess#setIncremental(boolean)
+	 */
+	public boolean isIncrementalGrowth() {
+		return incrementalGrowth;
+	}
+	
 	/**
 	 * Sets the k-core threshold.
 	 * 
@@ -286,6 +347,16 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		this.haircutThreshold = haircutThreshold;
 	}
 
+	/**
+	 * Sets whether the candidates for addition are enumerated incrementally
+	 * during growth.
+	 * 
+	 * @param  incrementalGrowth  whether to enumerate the candidates incrementally
+	 */
+	public void setIncrementalGrowth(boolean incrementalGrowth) {
+		this.incrementalGrowth = incrementalGrowth;
+	}
+
 	/**
 	 * Sets the name of the merging method that will be used by the algorithm.
 	 * 
@@ -336,6 +407,17 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		this.numThreads = Math.max(0, numThreads);
 	}
 
+	/**
+	 * Sets the number of nodes above which the node sets grown by the worker threads
+	 * use sparse storage. Zero means that sparse storage is always used, negative
+	 * numbers are treated as zero.
+	 * 
+	 * @param  sparseNodeSetThreshold  the new node count threshold
+	 */
+	public void setSparseNodeSetThreshold(int sparseNodeSetThreshold) {
+		this.sparseNodeSetThreshold = Math.max(0, sparseNodeSetThreshold);
+	}
+
 	/**
 	 * Sets the overlap threshold of the algorithm.
 	 * 
@@ -354,6 +436,17 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		this.rejectSeedsWithOnlyUsedNodes = rejectSeedsWithOnlyUsedNodes;
 	}
 
+	/**
+	 * Sets the number of seeds that a worker thread takes at once from the seed
+	 * generator. Zero means that the seeds are distributed one by one by the main
+	 * thread. Negative numbers are treated as zero.
+	 * 
+	 * @param  seedBatchSize  the new seed batch size
+	 */
+	public void setSeedBatchSize(int seedBatchSize) {
+		this.seedBatchSize = Math.max(0, seedBatchSize);
+	}
+
 	/**
 	 * Sets the seed generation method of the algorithm from a string specification
 	 * 
@@ -417,6 +510,16 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		return (haircutThreshold > 0.0 && haircutThreshold <= 1.0);
 	}
 	
+	/**
+	 * Returns whether the node sets grown on a graph with the given number of nodes
+	 * should use sparse storage.
+	 * 
+	 * @param  nodeCount  the number of nodes in the graph
+	 */
+	public boolean isSparseNodeSetNeeded(int nodeCount) {
+		return nodeCount > sparseNodeSetThreshold;
+	}
+	
 	/**
 	 * Returns a nice string summary of the algorithm parameters.
 	 */
@@ -433,6 +536,9 @@ public class ClusterONEAlgorithmParameters implements Serializable {
 		sb.append("Similarity function: " + similarityFunction.getName() + "\n");
 		sb.append("Initial seeds kept: " + keepInitialSeeds + "\n");
 		sb.append("Reject seeds with only used nodes: " + rejectSeedsWithOnlyUsedNodes + "\n");
+		sb.append("Sparse node set threshold: " + sparseNodeSetThreshold + "\n");
+		sb.append("Seed batch size: " + seedBatchSize + "\n");
+		sb.append("Incremental growth: " + incrementalGrowth + "\n");
 		
 		return sb.toString();
 	}
@@ -2,19 +2,19 @@ package uk.ac.rhul.cs.cl1;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
 import com.sosnoski.util.array.IntArray;
-import uk.ac.rhul.cs.collections.Multiset;
-import uk.ac.rhul.cs.collections.TreeMultiset;
+import uk.ac.rhul.cs.collections.IntIntHashMap;
 import uk.ac.rhul.cs.graph.Directedness;
 import uk.ac.rhul.cs.graph.Edge;
 import uk.ac.rhul.cs.graph.Graph;
 import uk.ac.rhul.cs.stats.independentsamples.MannWhitneyTest;
 import uk.ac.rhul.cs.stats.tests.H1;
-
-import com.sosnoski.util.hashset.IntHashSet;
+import uk.ac.rhul.cs.utils.IntArrayIterator;
+import uk.ac.rhul.cs.utils.IntBitmap;
 
 /**
  * A mutable subset of the nodes of a given graph.
@@ -23,32 +23,102 @@ import com.sosnoski.util.hashset.IntHashSet;
  * node. The node set gives facilities to query the total weight of internal and boundary
  * edges or to iterate over the set of external boundary nodes.
  * 
+ * Unlike {@link NodeSet}, this class does not use the <code>members</code> array
+ * of its superclass. The members and the external boundary nodes are kept in unordered
+ * primitive arrays instead, and a position index over all the nodes of the graph makes
+ * membership checks, additions and removals constant time operations. Methods that
+ * return the members or the boundary nodes as an array or an iterator still return
+ * them in ascending order; the allocation-free accessors ({@link #getMemberAt(int)} and
+ * {@link #getExternalBoundaryNodeAt(int)}) enumerate them in no particular order.
+ *
+ * The per-node data (positions, boundary edge counts and weights) is stored in one of two
+ * ways. By default, it is kept in arrays indexed by node and sized to the whole graph.
+ * This is the fastest option, but each node set then needs a few dozen bytes per node of
+ * the graph, which adds up quickly on huge graphs when every growth thread owns a node
+ * set. Node sets constructed with sparse storage keep the same data in arrays that only
+ * have an entry (a <em>slot</em>) for the nodes touched since the last reset, and map
+ * nodes to slots with a hash table. Either way, clearing the node set costs time
+ * proportional to the size of its neighborhood, not to the size of the graph.
+ *
  * @see NodeSet
  * @author Tamas Nepusz <tamas@cs.rhul.ac.uk>
  */
 public class MutableNodeSet extends NodeSet {
 	/**
-	 * Multiset that keeps track of the external boundary nodes of the subset.
+	 * The members of the set in no particular order
 	 */
-	protected Multiset<Integer> externalBoundaryNodes = new TreeMultiset<Integer>();
+	protected IntArray memberList = new IntArray();
 
 	/**
-	 * A hash of node indices in the set for quick membership checks
+	 * The external boundary nodes of the set in no particular order, or in heap order
+	 * if <code>boundaryOrdered</code> is true
 	 */
-	protected IntHashSet memberHashSet = new IntHashSet();
+	protected IntArray externalBoundaryNodeList = new IntArray();
 	
 	/**
-	 * Auxiliary array used when adding/removing nodes
+	 * Whether <code>externalBoundaryNodeList</code> is kept as a binary max-heap
+	 * keyed by the internal weights of the nodes
+	 */
+	protected boolean boundaryOrdered = false;
+
+	/**
+	 * Maps node indices to slots in the per-node arrays when the nodeset uses
+	 * sparse storage. null if the per-node arrays are indexed by node directly.
+	 */
+	protected IntIntHashMap slots = null;
+
+	/**
+	 * The number of slots in use in the per-node arrays when the nodeset uses
+	 * sparse storage.
+	 */
+	protected int slotCount = 0;
+
+	/**
+	 * Position of each node of the graph in <code>memberList</code> or
+	 * <code>externalBoundaryNodeList</code>, indexed by slot.
+	 *
+	 * Nonnegative values are positions in <code>memberList</code>. Values less than
+	 * or equal to -2 encode position p in <code>externalBoundaryNodeList</code> as -p-2.
+	 * -1 means that the node is neither a member nor an external boundary node.
+	 *
+	 * This and the other per-node arrays are indexed by the slot of the node, which
+	 * is the index of the node itself unless the nodeset uses sparse storage.
+	 */
+	protected int[] positions = null;
+
+	/**
+	 * Stores the number of edges between each external node and the members of the set,
+	 * indexed by slot.
+	 *
+	 * A node is an external boundary node if and only if it is not a member and its
+	 * count is positive. The count of members is always zero.
+	 */
+	protected int[] externalBoundaryCounts = null;
+
+	/**
+	 * Auxiliary array used when adding/removing nodes, indexed by slot
 	 * 
 	 * For nodes within the set, this array stores the total weight of internal
 	 * edges incident on the node. For nodes outside the set, this array stores
-	 * the total weight of boundary edges incident on the node.
+	 * the total weight of boundary edges incident on the node. The entry of a
+	 * node that is neither a member nor an external boundary node is zero, apart
+	 * from the rounding errors left behind when the node leaves the neighborhood
+	 * of the set (see <code>staleSlots</code>).
+	 */
+	protected double[] inWeights = null;
+
+	/**
+	 * Slots of the nodes that left the neighborhood of the set since the last reset
+	 * with a nonzero entry in <code>inWeights</code> due to rounding errors. These
+	 * entries are cleared on the next reset along with those of the members and the
+	 * external boundary nodes.
 	 */
-	public double[] inWeights = null;
+	protected IntArray staleSlots = new IntArray();
 	
 	/**
 	 * Stores the total weight of each node, i.e. the sum of all the weights
-	 * incident on the given node. This array is useful because it holds that:
+	 * incident on the given node, indexed by slot. This array is useful because
+	 * it holds that:
 	 *
 	 * <ul>
 	 *     <li>For nodes within the set, this array stores the total weight
@@ -57,7 +127,33 @@ public class MutableNodeSet extends NodeSet {
 	 *     of <em>external</em> edges incident on the node.</li>
 	 * </ul>
 	 */
-	public double[] totalWeights = null;
+	protected double[] totalWeights = null;
+
+	/**
+	 * Whether <code>cutVertexFlags</code> and <code>componentCount</code> are up-to-date
+	 */
+	private boolean cutVerticesValid = false;
+
+	/**
+	 * Number of connected components of the subgraph induced by the nodeset. Valid only
+	 * if <code>cutVerticesValid</code> is true.
+	 */
+	private int componentCount = 0;
+
+	/**
+	 * Whether the removal of the member at a given position of <code>memberList</code>
+	 * would make the nodeset disconnected. Valid only if <code>cutVerticesValid</code>
+	 * is true.
+	 */
+	private boolean[] cutVertexFlags = null;
+
+	/**
+	 * Auxiliary arrays of the depth first search that finds the cut vertices, indexed
+	 * by positions in <code>memberList</code>. They are kept between searches to avoid
+	 * allocations.
+	 */
+	private int[] discoveryTimes = null, lowpoints = null, dfsParents = null,
+		dfsNeighborPointers = null, dfsStack = null;
 	
 	/**
 	 * Constructs a new, empty mutable nodeset on the given graph.
@@ -65,8 +161,21 @@ public class MutableNodeSet extends NodeSet {
 	 * @param graph  the graph on which the nodeset is created
 	 */
 	public MutableNodeSet(Graph graph) {
+		this(graph, false);
+	}
+
+	/**
+	 * Constructs a new, empty mutable nodeset on the given graph, choosing how
+	 * the per-node data is stored.
+	 *
+	 * @param graph   the graph on which the nodeset is created
+	 * @param sparse  whether to use sparse storage whose size is proportional to the
+	 *                neighborhood of the set instead of the size of the graph
+	 */
+	public MutableNodeSet(Graph graph, boolean sparse) {
 		super(graph);
-		this.members = new TreeSet<Integer>();
+		if (sparse)
+			slots = new IntIntHashMap();
 		initializeInAndTotalWeights();
 	}
 	
@@ -100,61 +209,156 @@ public class MutableNodeSet extends NodeSet {
 	private MutableNodeSet(MutableNodeSet nodeSet) {
 		super(nodeSet.graph);
 
-		this.members = new TreeSet<Integer>(nodeSet.members);
-		for (int member: members) {
-			this.memberHashSet.add(member);
-		}
+		memberList = new IntArray(nodeSet.memberList);
+		externalBoundaryNodeList = new IntArray(nodeSet.externalBoundaryNodeList);
+		staleSlots = new IntArray(nodeSet.staleSlots);
+		boundaryOrdered = nodeSet.boundaryOrdered;
+		positions = nodeSet.positions.clone();
+		externalBoundaryCounts = nodeSet.externalBoundaryCounts.clone();
 
 		totalInternalEdgeWeight = nodeSet.totalInternalEdgeWeight;
 		totalBoundaryEdgeWeight = nodeSet.totalBoundaryEdgeWeight;
 
 		inWeights = nodeSet.inWeights.clone();
 
-		// totalWeights does not have to be cloned because the graph is the same,
-		// therefore totalWeights is also the same
-		totalWeights = nodeSet.totalWeights;
+		if (nodeSet.slots != null) {
+			slots = new IntIntHashMap(nodeSet.slots);
+			slotCount = nodeSet.slotCount;
+			totalWeights = nodeSet.totalWeights.clone();
+		} else {
+			// totalWeights does not have to be cloned because the graph is the same,
+			// therefore totalWeights is also the same
+			totalWeights = nodeSet.totalWeights;
+		}
 	}
 
 	/**
-	 * Constructs a new mutable nodeset from the given non-mutable nodeset
+	 * Constructs a new mutable nodeset from the given non-mutable nodeset.
+	 *
+	 * If the given nodeset is a mutable nodeset with sparse storage, the new
+	 * nodeset will also use sparse storage.
 	 * 
 	 * @param nodeSet  the original, non-mutable nodeset
 	 */
 	public MutableNodeSet(NodeSet nodeSet) {
-		this(nodeSet.getGraph(), nodeSet.getMembers());
+		this(nodeSet.getGraph(), nodeSet instanceof MutableNodeSet &&
+				((MutableNodeSet)nodeSet).isSparse());
+		this.setMembers(nodeSet.toArray());
 	}
 	
+	/**
+	 * Resets the per-node data of the nodeset.
+	 *
+	 * Only members, external boundary nodes and the nodes in <code>staleSlots</code>
+	 * may have non-default entries in the per-node arrays, so resetting them takes
+	 * time proportional to the size of the neighborhood of the set. The per-node
+	 * arrays are allocated on the first call.
+	 */
 	protected void initializeInAndTotalWeights() {
-		int n = graph.getNodeCount();
+		int i, n;
 
 		totalInternalEdgeWeight = 0.0;
 		totalBoundaryEdgeWeight = 0.0;
 		
-		if (inWeights == null) {
-			inWeights = new double[n];
-		} else {
-			// Optimization here: we can be sure that the only nonzero elements in inWeights are
-			// for internal or boundary nodes, so it is enough to iterate over them if the graph
-			// is large. Otherwise it is probably faster to simply fill the entire array with zeros.
-			if (n >= 5000 && members.size() < n / 4) {
-				for (int member: members) {
-					inWeights[member] = 0.0;
-				}
-				for (int boundaryNode: externalBoundaryNodes.elementSet()) {
-					inWeights[boundaryNode] = 0.0;
-				}
+		if (slots != null) {
+			staleSlots.clear();
+			if (positions == null) {
+				n = 16;
+				positions = new int[n];
+				externalBoundaryCounts = new int[n];
+				inWeights = new double[n];
+				totalWeights = new double[n];
 			} else {
-				Arrays.fill(inWeights, 0.0);
+				slots.clear();
 			}
+			slotCount = 0;
+			return;
 		}
 
-		if (totalWeights == null) {
+		if (positions == null) {
+			n = graph.getNodeCount();
+			positions = new int[n];
+			externalBoundaryCounts = new int[n];
+			inWeights = new double[n];
 			totalWeights = new double[n];
+			Arrays.fill(positions, -1);
 			for (Edge e: graph) {
 				totalWeights[e.source] += e.weight;
 				totalWeights[e.target] += e.weight;
 			}
+			return;
+		}
+
+		for (i = 0, n = memberList.size(); i < n; i++) {
+			int node = memberList.get(i);
+			positions[node] = -1;
+			inWeights[node] = 0.0;
+		}
+		for (i = 0, n = externalBoundaryNodeList.size(); i < n; i++) {
+			int node = externalBoundaryNodeList.get(i);
+			positions[node] = -1;
+			externalBoundaryCounts[node] = 0;
+			inWeights[node] = 0.0;
+		}
+		for (i = 0, n = staleSlots.size(); i < n; i++) {
+			inWeights[staleSlots.get(i)] = 0.0;
+		}
+		staleSlots.clear();
+	}
+
+	/**
+	 * Returns the slot of the given node in the per-node arrays, or -1 if the node
+	 * has no slot because it was not touched since the last reset.
+	 */
+	private int getSlot(int node) {
+		if (slots == null)
+			return node;
+
+		int slot = slots.get(node);
+		return slot == IntIntHashMap.DEFAULT_NOT_FOUND ? -1 : slot;
+	}
+
+	/**
+	 * Returns the slot of the given node in the per-node arrays, assigning a new
+	 * slot to the node if it does not have one yet.
+	 */
+	private int getOrCreateSlot(int node) {
+		if (slots == null)
+			return node;
+
+		int slot = slots.get(node);
+		if (slot != IntIntHashMap.DEFAULT_NOT_FOUND)
+			return slot;
+
+		slot = slotCount++;
+		if (slot == positions.length) {
+			int n = 2 * slot;
+			positions = Arrays.copyOf(positions, n);
+			externalBoundaryCounts = Arrays.copyOf(externalBoundaryCounts, n);
+			inWeights = Arrays.copyOf(inWeights, n);
+			totalWeights = Arrays.copyOf(totalWeights, n);
 		}
+		slots.add(node, slot);
+
+		positions[slot] = -1;
+		externalBoundaryCounts[slot] = 0;
+		inWeights[slot] = 0.0;
+		totalWeights[slot] = calculateTotalWeight(node);
+
+		return slot;
+	}
+
+	/**
+	 * Calculates the total weight of the edges incident on the given node.
+	 *
+	 * Loop edges are counted twice, just like in <code>totalWeights</code>.
+	 */
+	private double calculateTotalWeight(int node) {
+		double result = 0.0;
+		int i, n = graph.getDegree(node, Directedness.ALL);
+		for (i = 0; i < n; i++)
+			result += graph.getAdjacentEdgeWeight(node, i, Directedness.ALL);
+		return result;
 	}
 	
 	/**
@@ -164,7 +368,8 @@ public class MutableNodeSet extends NodeSet {
 	 * @return  true if the node was added, false if the node was already a member
 	 */
 	public boolean add(int node) {
-		if (memberHashSet.contains(node))
+		int slot = getOrCreateSlot(node);
+		if (positions[slot] >= 0)
 			return false;
 		
 		/* Things will change, invalidate the cached values */
@@ -174,26 +379,35 @@ public class MutableNodeSet extends NodeSet {
 		 * appropriate amounts. Here we are actually increasing totalBoundaryEdgeWeight
 		 * by outWeights[node] - inWeights[node] but make use of the fact that
 		 * outWeights[node] = totalWeights[node] - inWeights[node] */
-		totalInternalEdgeWeight += inWeights[node];
-		totalBoundaryEdgeWeight += totalWeights[node] - 2 * inWeights[node];
+		totalInternalEdgeWeight += inWeights[slot];
+		totalBoundaryEdgeWeight += totalWeights[slot] - 2 * inWeights[slot];
 		
 		/* For each edge incident on the given node, make some adjustments to inWeights */
-		for (int adjEdge: graph.getAdjacentEdgeIndicesArray(node, Directedness.ALL)) {
-			int adjNode = graph.getEdgeEndpoint(adjEdge, node);
+		int i, n = graph.getDegree(node, Directedness.ALL);
+		for (i = 0; i < n; i++) {
+			int adjNode = graph.getAdjacentNodeIndex(node, i, Directedness.ALL);
 			if (adjNode == node)
 				continue;
 			
-			inWeights[adjNode] += graph.getEdgeWeight(adjEdge);
+			int adjSlot = getOrCreateSlot(adjNode);
+			inWeights[adjSlot] += graph.getAdjacentEdgeWeight(node, i, Directedness.ALL);
 
-			if (!memberHashSet.contains(adjNode)) {
-				externalBoundaryNodes.add(adjNode);
+			if (positions[adjSlot] < 0) {
+				if (externalBoundaryCounts[adjSlot] == 0)
+					addToExternalBoundary(adjNode, adjSlot);
+				else if (boundaryOrdered)
+					siftUp(-positions[adjSlot] - 2);
+				externalBoundaryCounts[adjSlot]++;
 			}
 		}
 		
 		/* Add the node to the nodeset */
-		memberHashSet.add(node);
-		members.add(node);
-		externalBoundaryNodes.setCount(node, 0);
+		if (externalBoundaryCounts[slot] > 0) {
+			removeFromExternalBoundary(slot);
+			externalBoundaryCounts[slot] = 0;
+		}
+		positions[slot] = memberList.size();
+		memberList.add(node);
 		
 		return true;
 	}
@@ -214,6 +428,104 @@ public class MutableNodeSet extends NodeSet {
 		return result;
 	}
 	
+	/**
+	 * Appends a non-member node to the external boundary list.
+	 */
+	private void addToExternalBoundary(int node, int slot) {
+		int position = externalBoundaryNodeList.size();
+		positions[slot] = -position - 2;
+		externalBoundaryNodeList.add(node);
+		if (boundaryOrdered)
+			siftUp(position);
+	}
+
+	/**
+	 * Removes the node in the given slot from the external boundary list by moving
+	 * the last node in its place.
+	 */
+	private void removeFromExternalBoundary(int slot) {
+		int position = -positions[slot] - 2;
+		int lastIndex = externalBoundaryNodeList.size() - 1;
+		int lastNode = externalBoundaryNodeList.get(lastIndex);
+		externalBoundaryNodeList.set(position, lastNode);
+		positions[getSlot(lastNode)] = -position - 2;
+		externalBoundaryNodeList.setSize(lastIndex);
+		positions[slot] = -1;
+
+		if (boundaryOrdered && position < lastIndex) {
+			siftUp(position);
+			siftDown(position);
+		}
+	}
+
+	/**
+	 * Returns the internal weight of the external boundary node at the given position
+	 */
+	private double getBoundaryWeightAt(int position) {
+		return inWeights[getSlot(externalBoundaryNodeList.get(position))];
+	}
+
+	/**
+	 * Moves the external boundary node at the given position towards the root of the
+	 * heap until its parent has at least the same weight.
+	 */
+	private void siftUp(int position) {
+		int node = externalBoundaryNodeList.get(position);
+		double weight = getBoundaryWeightAt(position);
+
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (getBoundaryWeightAt(parent) >= weight)
+				break;
+			moveBoundaryNode(parent, position);
+			position = parent;
+		}
+
+		externalBoundaryNodeList.set(position, node);
+		positions[getSlot(node)] = -position - 2;
+	}
+
+	/**
+	 * Moves the external boundary node at the given position towards the leaves of the
+	 * heap until none of its children have a larger weight.
+	 */
+	private void siftDown(int position) {
+		int n = externalBoundaryNodeList.size();
+		int node = externalBoundaryNodeList.get(position);
+		double weight = getBoundaryWeightAt(position);
+
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= n)
+				break;
+			double childWeight = getBoundaryWeightAt(child);
+			if (child + 1 < n) {
+				double otherWeight = getBoundaryWeightAt(child + 1);
+				if (otherWeight > childWeight) {
+					child++;
+					childWeight = otherWeight;
+				}
+			}
+			if (childWeight <= weight)
+				break;
+			moveBoundaryNode(child, position);
+			position = child;
+		}
+
+		externalBoundaryNodeList.set(position, node);
+		positions[getSlot(node)] = -position - 2;
+	}
+
+	/**
+	 * Moves the external boundary node at the given position to another position
+	 * in the heap, overwriting the node there.
+	 */
+	private void moveBoundaryNode(int from, int to) {
+		int node = externalBoundaryNodeList.get(from);
+		externalBoundaryNodeList.set(to, node);
+		positions[getSlot(node)] = -to - 2;
+	}
+
 	/**
 	 * Clears the nodeset
 	 */
@@ -224,9 +536,8 @@ public class MutableNodeSet extends NodeSet {
 		/* This must be called _before_ we clear the members because it uses the old members */
 		initializeInAndTotalWeights();
 
-		externalBoundaryNodes.clear();
-		members.clear();
-		memberHashSet.clear();
+		externalBoundaryNodeList.clear();
+		memberList.clear();
 	}
 
 	/**
@@ -236,11 +547,22 @@ public class MutableNodeSet extends NodeSet {
 		return new MutableNodeSet(this);
 	}
 
+	/**
+	 * Checks whether a node is a member of the nodeset or not
+	 * @param    idx   index of the node being tested
+	 * @return   true if the node is a member of the set, false otherwise
+	 */
+	@Override
+	public boolean contains(int idx) {
+		int slot = getSlot(idx);
+		return slot >= 0 && positions[slot] >= 0;
+	}
+
 	/**
 	 * Freezes the nodeset (i.e. converts it to a non-mutable NodeSet)
 	 */
 	public NodeSet freeze() {
-		return new NodeSet(this.graph, this.members);
+		return new NodeSet(this.graph, this.toArray());
 	}
 	
 	/**
@@ -255,18 +577,101 @@ public class MutableNodeSet extends NodeSet {
 	 */
 	@Override
 	public double getCommitment(int nodeIndex) {
-		double den = this.totalWeights[nodeIndex];
-		return den == 0 ? 0 : (this.inWeights[nodeIndex] / den);
+		int slot = getSlot(nodeIndex);
+		if (slot < 0)
+			return 0;
+
+		double den = this.totalWeights[slot];
+		return den == 0 ? 0 : (this.inWeights[slot] / den);
 	}
 
+	/**
+	 * Returns the external boundary nodes of this set in ascending order
+	 */
 	@Override
 	public int[] getExternalBoundaryNodes() {
-		Set<Integer> nodes = externalBoundaryNodes.elementSet();
-		int[] result = new int[nodes.size()];
-		int i = 0;
-		for (int member: nodes) {
-			result[i++] = member;
+		int[] result = externalBoundaryNodeList.toArray();
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Returns the number of external boundary nodes of this set
+	 */
+	public int getExternalBoundaryNodeCount() {
+		return externalBoundaryNodeList.size();
+	}
+
+	/**
+	 * Returns the external boundary node at the given position without allocating an array.
+	 *
+	 * The external boundary nodes are not sorted and their order changes when the nodeset
+	 * is modified. However, if the boundary is ordered (see {@link #setBoundaryOrdered(boolean)}),
+	 * the node at position i has at least the same internal weight as the nodes at positions
+	 * 2i+1 and 2i+2, so the node at position zero has the largest internal weight.
+	 *
+	 * @param  position  a number between zero (inclusive) and the number of external boundary
+	 *                   nodes (exclusive)
+	 */
+	public int getExternalBoundaryNodeAt(int position) {
+		return externalBoundaryNodeList.get(position);
+	}
+
+	/**
+	 * Returns the member at the given position without allocating an array.
+	 *
+	 * The members are not sorted and their order changes when the nodeset is modified.
+	 *
+	 * @param  position  a number between zero (inclusive) and the size of the set (exclusive)
+	 */
+	public int getMemberAt(int position) {
+		return memberList.get(position);
+	}
+
+	/**
+	 * Returns the size of the intersection between this nodeset and another
+	 *
+	 * The members of the smaller nodeset are looked up in the larger one, using
+	 * the slot table of this nodeset when it is the larger one, so the members of
+	 * this nodeset do not have to be sorted.
+	 */
+	@Override
+	public int getIntersectionSizeWith(NodeSet other) {
+		int i, n = memberList.size(), result = 0;
+
+		if (other.size() > n) {
+			if (other instanceof MutableNodeSet)
+				return other.getIntersectionSizeWith(this);
+			for (i = 0; i < n; i++)
+				if (other.contains(memberList.get(i)))
+					result++;
+			return result;
 		}
+
+		for (int member: other.getSortedMemberArray())
+			if (contains(member))
+				result++;
+
+		return result;
+	}
+
+	/**
+	 * Returns null since the members change too often to keep a bitmap of them
+	 */
+	@Override
+	protected IntBitmap getMemberBitmap() {
+		return null;
+	}
+
+	/**
+	 * Returns the members of this nodeset
+	 * @return the members
+	 */
+	@Override
+	public SortedSet<Integer> getMembers() {
+		SortedSet<Integer> result = new TreeSet<Integer>();
+		for (int i = 0; i < memberList.size(); i++)
+			result.add(memberList.get(i));
 		return result;
 	}
 
@@ -275,7 +680,7 @@ public class MutableNodeSet extends NodeSet {
 	 */
 	@Override
 	public double getInternalWeight(int nodeIndex) {
-		return this.inWeights[nodeIndex];
+		return getTotalAdjacentInternalWeight(nodeIndex);
 	}
 	
 	/**
@@ -290,39 +695,257 @@ public class MutableNodeSet extends NodeSet {
 	 * @param   nodeIndex   the index of the node
 	 */
 	public double getTotalAdjacentInternalWeight(int nodeIndex) {
-		return this.inWeights[nodeIndex];
+		int slot = getSlot(nodeIndex);
+		return slot >= 0 ? this.inWeights[slot] : 0.0;
 	}
 	
 	/**
-	 * Returns an IntHashSet for efficient repeated membership checks
+	 * Returns the total weight of the edges incident on the given node.
 	 * 
-	 * MutableNodeSet maintains memberHashSet in parallel with the ordinary members
-	 * variable, so we just return it here.
+	 * For internal nodes, this is the sum of the internal and the boundary edge weights
+	 * of the node. For external nodes, this is the sum of the boundary and the external
+	 * edge weights of the node. Loop edges are counted twice.
+	 *
+	 * @param   nodeIndex   the index of the node
 	 */
-	protected IntHashSet getMemberHashSet() {
-		return memberHashSet;
+	public double getTotalWeight(int nodeIndex) {
+		int slot = getSlot(nodeIndex);
+		return slot >= 0 ? this.totalWeights[slot] : calculateTotalWeight(nodeIndex);
 	}
 	
 	protected double getSignificanceReal() {
-		int i, n = members.size();
+		int[] members = toArray();
+		int i, n = members.length;
 		double[] memberInWeights = new double[n];
 		double[] memberOutWeights = new double[n];
 
-		i = 0;
-		for (int member: members) {
-			memberInWeights[i] = inWeights[member];
-			memberOutWeights[i] = totalWeights[member] - memberInWeights[i];
-			i++;
+		for (i = 0; i < n; i++) {
+			int slot = getSlot(members[i]);
+			memberInWeights[i] = inWeights[slot];
+			memberOutWeights[i] = totalWeights[slot] - memberInWeights[i];
 		}
 
 		MannWhitneyTest test = new MannWhitneyTest(memberInWeights, memberOutWeights, H1.GREATER_THAN);
 		return test.getSP();
 	}
 	
+	/**
+	 * Returns the hash code of this nodeset
+	 *
+	 * The hash code is consistent with the one calculated by {@link NodeSet}.
+	 */
+	@Override
+	public int hashCode() {
+		int result = graph.hashCode();
+		for (int i = 0; i < memberList.size(); i++)
+			result += memberList.get(i);
+		return result;
+	}
+
 	/**
 	 * Invalidates the cached member variables when the nodeset changes
 	 */
 	private void invalidateCache() {
+		cutVerticesValid = false;
+	}
+
+	/**
+	 * Finds the connected components and the cut vertices of the nodeset.
+	 *
+	 * This is an iterative version of the depth first search of Hopcroft and Tarjan
+	 * that calculates the lowpoint of every member in a single pass. The search
+	 * does not allocate memory unless the nodeset has grown since the last search.
+	 */
+	private void findCutVertices() {
+		int i, n = memberList.size();
+
+		if (cutVertexFlags == null || cutVertexFlags.length < n) {
+			int capacity = Math.max(n, 16);
+			cutVertexFlags = new boolean[capacity];
+			discoveryTimes = new int[capacity];
+			lowpoints = new int[capacity];
+			dfsParents = new int[capacity];
+			dfsNeighborPointers = new int[capacity];
+			dfsStack = new int[capacity];
+		}
+
+		for (i = 0; i < n; i++) {
+			cutVertexFlags[i] = false;
+			discoveryTimes[i] = 0;
+		}
+
+		boolean hasSingletonComponent = false;
+		int time = 0;
+		componentCount = 0;
+
+		for (int root = 0; root < n; root++) {
+			if (discoveryTimes[root] > 0)
+				continue;
+
+			int rootChildren = 0, stackSize = 1;
+			componentCount++;
+			discoveryTimes[root] = lowpoints[root] = ++time;
+			dfsParents[root] = -1;
+			dfsNeighborPointers[root] = 0;
+			dfsStack[0] = root;
+
+			while (stackSize > 0) {
+				int u = dfsStack[stackSize - 1];
+				int node = memberList.get(u);
+
+				if (dfsNeighborPointers[u] < graph.getDegree(node, Directedness.ALL)) {
+					int neighbor = graph.getAdjacentNodeIndex(node, dfsNeighborPointers[u]++, Directedness.ALL);
+					int slot = getSlot(neighbor);
+					if (slot < 0)
+						continue;
+
+					int v = positions[slot];
+					if (v < 0 || v == u)
+						continue;
+
+					if (discoveryTimes[v] == 0) {
+						/* Tree edge; descend into the subtree of the neighbor */
+						discoveryTimes[v] = lowpoints[v] = ++time;
+						dfsParents[v] = u;
+						dfsNeighborPointers[v] = 0;
+						dfsStack[stackSize++] = v;
+						if (u == root)
+							rootChildren++;
+					} else if (discoveryTimes[v] < lowpoints[u]) {
+						lowpoints[u] = discoveryTimes[v];
+					}
+				} else {
+					/* Leaving the subtree of u */
+					stackSize--;
+					int parent = dfsParents[u];
+					if (parent >= 0) {
+						if (lowpoints[u] < lowpoints[parent])
+							lowpoints[parent] = lowpoints[u];
+						if (parent != root && lowpoints[u] >= discoveryTimes[parent])
+							cutVertexFlags[parent] = true;
+					}
+				}
+			}
+
+			if (rootChildren >= 2)
+				cutVertexFlags[root] = true;
+			else if (rootChildren == 0)
+				hasSingletonComponent = true;
+		}
+
+		if (componentCount >= 3) {
+			/* Removing any node leaves at least two components */
+			Arrays.fill(cutVertexFlags, 0, n, true);
+		} else if (componentCount == 2) {
+			/* Removing a node leaves a single component only if the node was an
+			 * isolated node on its own */
+			for (i = 0; i < n; i++)
+				cutVertexFlags[i] = true;
+			if (hasSingletonComponent) {
+				for (i = 0; i < n; i++) {
+					if (dfsParents[i] == -1 && isIsolatedMember(i))
+						cutVertexFlags[i] = false;
+				}
+			}
+		}
+
+		cutVerticesValid = true;
+	}
+
+	/**
+	 * Returns whether the member at the given position of <code>memberList</code> has no
+	 * neighbors within the nodeset.
+	 */
+	private boolean isIsolatedMember(int position) {
+		int node = memberList.get(position);
+		int i, n = graph.getDegree(node, Directedness.ALL);
+		for (i = 0; i < n; i++) {
+			int neighbor = graph.getAdjacentNodeIndex(node, i, Directedness.ALL);
+			if (neighbor != node && contains(neighbor))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the nodeset is connected.
+	 *
+	 * For undirected graphs, the result is calculated by the same depth first search
+	 * that finds the cut vertices and it is cached until the nodeset changes.
+	 */
+	@Override
+	public boolean isConnected() {
+		if (graph.isDirected())
+			return super.isConnected();
+		if (this.size() < 2)
+			return true;
+
+		if (!cutVerticesValid)
+			findCutVertices();
+		return componentCount == 1;
+	}
+
+	/**
+	 * Checks whether the given node is a cut vertex of the nodeset.
+	 *
+	 * A vertex is a cut vertex of the nodeset if its removal would make the
+	 * nodeset disconnected. For undirected graphs, the cut vertices are found
+	 * by a single depth first search when this method is called for the first
+	 * time after a change in the nodeset, and the subsequent calls are answered
+	 * in constant time.
+	 */
+	@Override
+	public boolean isCutVertex(int index) {
+		if (graph.isDirected())
+			return super.isCutVertex(index);
+		if (this.isEmpty())
+			return false;
+
+		if (!cutVerticesValid)
+			findCutVertices();
+
+		int slot = getSlot(index);
+		if (slot < 0 || positions[slot] < 0) {
+			/* Not a member; the nodeset stays the same if we remove it */
+			return componentCount > 1;
+		}
+
+		return cutVertexFlags[positions[slot]];
+	}
+
+	/**
+	 * Returns whether the nodeset is empty or not
+	 */
+	@Override
+	public boolean isEmpty() {
+		return memberList.size() == 0;
+	}
+
+	/**
+	 * Returns whether the external boundary nodes are kept in heap order
+	 *
+	 * @see #setBoundaryOrdered(boolean)
+	 */
+	public boolean isBoundaryOrdered() {
+		return boundaryOrdered;
+	}
+
+	/**
+	 * Returns whether the nodeset uses sparse storage for its per-node data
+	 */
+	public boolean isSparse() {
+		return slots != null;
+	}
+
+	/**
+	 * Iterates over the members of this nodeset in ascending order.
+	 *
+	 * The iterator works on a snapshot of the members, so the nodeset may be
+	 * modified while iterating.
+	 */
+	@Override
+	public Iterator<Integer> iterator() {
+		return new IntArrayIterator(toArray());
 	}
 
 	/**
@@ -332,7 +955,8 @@ public class MutableNodeSet extends NodeSet {
 	 * @return  true if the node was removed, false if the node was not a member
 	 */
 	public boolean remove(int node) {
-		if (!memberHashSet.contains(node))
+		int slot = getSlot(node);
+		if (slot < 0 || positions[slot] < 0)
 			return false;
 
 		/* Things will change, invalidate the cached values */
@@ -342,27 +966,50 @@ public class MutableNodeSet extends NodeSet {
 		 * appropriate amounts. Here we are actually decreasing totalBoundaryEdgeWeight
 		 * by outWeights[node] - inWeights[node] but make use of the fact that
 		 * outWeights[node] = totalWeights[node] - inWeights[node] */
-		totalInternalEdgeWeight -= inWeights[node];
-		totalBoundaryEdgeWeight -= totalWeights[node] - 2 * inWeights[node];
+		totalInternalEdgeWeight -= inWeights[slot];
+		totalBoundaryEdgeWeight -= totalWeights[slot] - 2 * inWeights[slot];
+
+		/* Remove the node from the nodeset */
+		int position = positions[slot];
+		int lastIndex = memberList.size() - 1;
+		int lastNode = memberList.get(lastIndex);
+		memberList.set(position, lastNode);
+		positions[getSlot(lastNode)] = position;
+		memberList.setSize(lastIndex);
+		positions[slot] = -1;
 		
 		/* For each edge incident on the given node, make some adjustments to inWeights */
-		for (int adjEdge: graph.getAdjacentEdgeIndicesArray(node, Directedness.ALL)) {
-			int adjNode = graph.getEdgeEndpoint(adjEdge, node);
+		int i, n = graph.getDegree(node, Directedness.ALL);
+		for (i = 0; i < n; i++) {
+			int adjNode = graph.getAdjacentNodeIndex(node, i, Directedness.ALL);
 			if (adjNode == node)
 				continue;
 			
-			inWeights[adjNode] -= graph.getEdgeWeight(adjEdge);
+			/* The neighbor is either a member or an external boundary node here,
+			 * so it surely has a slot */
+			int adjSlot = getSlot(adjNode);
+			inWeights[adjSlot] -= graph.getAdjacentEdgeWeight(node, i, Directedness.ALL);
 
-			if (memberHashSet.contains(adjNode)) {
-				externalBoundaryNodes.add(node);
+			if (positions[adjSlot] >= 0) {
+				externalBoundaryCounts[slot]++;
 			} else {
-				externalBoundaryNodes.remove(adjNode);
+				externalBoundaryCounts[adjSlot]--;
+				if (externalBoundaryCounts[adjSlot] == 0) {
+					/* Not adjacent to the set any more */
+					removeFromExternalBoundary(adjSlot);
+					if (inWeights[adjSlot] != 0.0)
+						staleSlots.add(adjSlot);
+				} else if (boundaryOrdered) {
+					siftDown(-positions[adjSlot] - 2);
+				}
 			}
 		}
 		
-		/* Remove the node from the nodeset */
-		memberHashSet.remove(node);
-		members.remove(node);
+		/* The node becomes an external boundary node if it is adjacent to any of the members */
+		if (externalBoundaryCounts[slot] > 0)
+			addToExternalBoundary(node, slot);
+		else if (inWeights[slot] != 0.0)
+			staleSlots.add(slot);
 
 		return true;
 	}
@@ -376,6 +1023,28 @@ public class MutableNodeSet extends NodeSet {
 		for (int i: nodes)
 			this.remove(i);
 	}
+
+	/**
+	 * Sets whether the external boundary nodes should be kept in heap order.
+	 *
+	 * When the boundary is ordered, the external boundary nodes form a binary max-heap
+	 * keyed by their internal weights (see {@link #getExternalBoundaryNodeAt(int)}).
+	 * This allows growth processes to enumerate the most promising candidates for
+	 * addition first at the cost of a logarithmic overhead whenever the internal weight
+	 * of a boundary node changes.
+	 *
+	 * @param  boundaryOrdered  whether the boundary should be kept in heap order
+	 */
+	public void setBoundaryOrdered(boolean boundaryOrdered) {
+		if (this.boundaryOrdered == boundaryOrdered)
+			return;
+
+		this.boundaryOrdered = boundaryOrdered;
+		if (boundaryOrdered) {
+			for (int i = externalBoundaryNodeList.size() / 2 - 1; i >= 0; i--)
+				siftDown(i);
+		}
+	}
 	
 	/**
 	 * Sets the members of this nodeset
@@ -395,4 +1064,32 @@ public class MutableNodeSet extends NodeSet {
 		for (int member: members)
 			this.add(member);
 	}
+
+	/**
+	 * Returns the number of nodes in this nodeset
+	 */
+	@Override
+	public int size() {
+		return memberList.size();
+	}
+
+	/**
+	 * Returns the members of this nodeset as a new array sorted in ascending order
+	 *
+	 * The array is not cached since the members may change at any time.
+	 */
+	@Override
+	public int[] getSortedMemberArray() {
+		return toArray();
+	}
+
+	/**
+	 * Returns the members of this nodeset as an array, sorted in ascending order.
+	 */
+	@Override
+	public int[] toArray() {
+		int[] result = memberList.toArray();
+		Arrays.sort(result);
+		return result;
+	}
 }
@@ -3,7 +3,6 @@ package uk.ac.rhul.cs.cl1;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -12,6 +11,9 @@ import uk.ac.rhul.cs.graph.Directedness;
 import uk.ac.rhul.cs.graph.Graph;
 import uk.ac.rhul.cs.stats.independentsamples.MannWhitneyTest;
 import uk.ac.rhul.cs.stats.tests.H1;
+import uk.ac.rhul.cs.utils.IntArrayIterator;
+import uk.ac.rhul.cs.utils.IntBitmap;
+import uk.ac.rhul.cs.utils.SortedIntArrays;
 import uk.ac.rhul.cs.utils.StringUtils;
 import uk.ac.rhul.cs.utils.UniqueIDGenerator;
 
@@ -42,11 +44,37 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	protected Graph graph = null;
 	
 	/**
-	 * The set of node indices in the set.
+	 * The node indices in the set.
 	 * 
-	 * This list is always sorted in ascending order.
+	 * This array is always sorted in ascending order and contains no duplicates.
+	 * It is never modified in place; {@link #setMembers(int[])} replaces it, so it
+	 * can be handed out by {@link #getSortedMemberArray()}. Subclasses that store
+	 * their members differently (such as {@link MutableNodeSet}) leave it empty,
+	 * but then they must override every method that accesses it directly.
 	 */
-	protected SortedSet<Integer> members = null;
+	protected int[] members = NO_MEMBERS;
+	
+	/**
+	 * Empty member array shared by all the empty nodesets
+	 */
+	private static final int[] NO_MEMBERS = new int[0];
+	
+	/**
+	 * Bitmap of the members, built on demand for large nodesets whose members
+	 * are close to each other. See {@link #getMemberBitmap()}.
+	 */
+	private volatile IntBitmap memberBitmap = null;
+	
+	/**
+	 * The external boundary nodes of the nodeset, calculated on demand by
+	 * {@link #getExternalBoundaryNodes()} and discarded when the members change.
+	 */
+	private volatile int[] externalBoundaryNodes = null;
+	
+	/**
+	 * The hash code of the nodeset; zero if it has not been calculated yet.
+	 */
+	private int hashCode = 0;
 	
 	/**
 	 * Total weight of the internal edges
@@ -105,25 +133,18 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * Compares a nodeset with another (lexicographical order).
 	 */
 	public int compareTo(NodeSet other) {
-		if (this.members == null && other.members == null)
-			return 0;
-		if (this.members == null)
-			return -1;
-		if (other.members == null)
-			return 1;
-		
-		Iterator<Integer> it1 = this.members.iterator();
-		Iterator<Integer> it2 = other.members.iterator();
-		while (it1.hasNext() && it2.hasNext()) {
-			Integer i1 = it1.next(), i2 = it2.next();
-			if (i1 < i2)
+		int[] array1 = this.getSortedMemberArray();
+		int[] array2 = other.getSortedMemberArray();
+		int i, n = Math.min(array1.length, array2.length);
+		for (i = 0; i < n; i++) {
+			if (array1[i] < array2[i])
 				return -1;
-			if (i1 > i2)
+			if (array1[i] > array2[i])
 				return 1;
 		}
-		if (it1.hasNext())
+		if (array1.length > n)
 			return 1;
-		if (it2.hasNext())
+		if (array2.length > n)
 			return -1;
 		return 0;
 	}
@@ -134,7 +155,7 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * @return   true if the node is a member of the set, false otherwise
 	 */
 	public boolean contains(int idx) {
-		return members.contains(idx);
+		return Arrays.binarySearch(members, idx) >= 0;
 	}
 	
 	/**
@@ -144,7 +165,7 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 */
 	public boolean containsAny(Collection<Integer> idxs) {
 		for (Integer i: idxs)
-			if (this.members.contains(i))
+			if (this.contains(i))
 				return true;
 		return false;
 	}
@@ -155,7 +176,10 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * @return   true if all the nodes are a member of the set, false otherwise
 	 */
 	public boolean containsAll(Collection<Integer> idxs) {
-		return this.members.containsAll(idxs);
+		for (Integer i: idxs)
+			if (!this.contains(i))
+				return false;
+		return true;
 	}
 	
 	/**
@@ -172,7 +196,9 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 			return false;
 
 		NodeSet other = (NodeSet)o;
-		return other.graph.equals(this.graph) && other.members.equals(this.members);
+		if (!other.graph.equals(this.graph) || other.size() != this.size())
+			return false;
+		return Arrays.equals(other.getSortedMemberArray(), this.getSortedMemberArray());
 	}
 	
 	/**
@@ -186,13 +212,13 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * @return the commitment of the node
 	 */
 	public double getCommitment(int nodeIndex) {
-		IntHashSet memberHashSet = this.getMemberHashSet();
 		double in = 0.0, out = 0.0;
-		int[] edgeIdxs = this.graph.getAdjacentEdgeIndicesArray(nodeIndex, Directedness.ALL);
-		for (int edgeIdx: edgeIdxs) {
+		int k, degree = this.graph.getDegree(nodeIndex, Directedness.ALL);
+		for (k = 0; k < degree; k++) {
+			int edgeIdx = this.graph.getAdjacentEdgeIndex(nodeIndex, k, Directedness.ALL);
 			double weight = this.graph.getEdgeWeight(edgeIdx);
 			int endpoint = this.graph.getEdgeEndpoint(edgeIdx, nodeIndex);
-			if (memberHashSet.contains(endpoint)) {
+			if (this.contains(endpoint)) {
 				/* This is an internal edge */
 				in += weight;
 			} else {
@@ -220,17 +246,50 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	protected IntHashSet getMemberHashSet() {
 		// We use an IntHashSet for membership checks, it's more efficient
 		IntHashSet memberSet = new IntHashSet();
-		for (int i: members)
+		for (int i: this.getSortedMemberArray())
 			memberSet.add(i);
 		return memberSet;
 	}
 	
+	/**
+	 * Returns a bitmap of the members of this nodeset for fast intersections
+	 * 
+	 * The bitmap is built on the first call if the nodeset is large and its
+	 * members are close enough to each other for the bitmap to be compact.
+	 * 
+	 * @return  the bitmap or null if it is not worth building one
+	 */
+	protected IntBitmap getMemberBitmap() {
+		IntBitmap result = memberBitmap;
+		if (result == null) {
+			int[] array = getSortedMemberArray();
+			if (!IntBitmap.isWorthBuilding(array))
+				return null;
+			result = new IntBitmap(array);
+			memberBitmap = result;
+		}
+		return result;
+	}
+	
 	/**
 	 * Returns the members of this nodeset
 	 * @return the members
 	 */
 	public SortedSet<Integer> getMembers() {
-		return new TreeSet<Integer>(members);
+		SortedSet<Integer> result = new TreeSet<Integer>();
+		for (int member: members)
+			result.add(member);
+		return result;
+	}
+	
+	/**
+	 * Returns the members of this nodeset as an array sorted in ascending order
+	 * 
+	 * Unlike {@link #toArray()}, this method returns the same array every time
+	 * until the members change, so the caller must not modify it.
+	 */
+	public int[] getSortedMemberArray() {
+		return members;
 	}
 	
 	/**
@@ -238,10 +297,10 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * @return the names of the members
 	 */
 	public String[] getMemberNames() {
-		String[] result = new String[this.members.size()];
+		String[] result = new String[this.size()];
 		int i = 0;
 		
-		for (Integer member: this.members) {
+		for (int member: this.getSortedMemberArray()) {
 			result[i] = this.graph.getNodeName(member);
 			i++;
 		}
@@ -252,24 +311,33 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	/**
 	 * Returns the hash code of this nodeset
 	 * 
-	 * This class is overridden to ensure that equal nodesets have equal hash codes
+	 * This class is overridden to ensure that equal nodesets have equal hash codes.
+	 * The hash code is the same as the one of a sorted set of the members plus the
+	 * hash code of the graph, and it is calculated only once.
 	 */
 	public int hashCode() {
-		return graph.hashCode() + members.hashCode();
+		int result = hashCode;
+		if (result == 0) {
+			result = graph.hashCode();
+			for (int member: members)
+				result += member;
+			hashCode = result;
+		}
+		return result;
 	}
 	
 	/**
 	 * Checks whether the nodeset is connected in the graph
 	 */
 	public boolean isConnected() {
-		if (this.members.size() < 2)
+		if (this.size() < 2)
 			return true;
 		
-		BreadthFirstSearch bfs = new BreadthFirstSearch(this.graph, this.members.first());
-		Integer[] dummy = {};
-		bfs.restrictToSubgraph(this.members.toArray(dummy));
+		int[] memberArray = this.getSortedMemberArray();
+		BreadthFirstSearch bfs = new BreadthFirstSearch(this.graph, memberArray[0]);
+		bfs.restrictToSubgraph(memberArray);
 		
-		return bfs.toArray().length == this.members.size();
+		return bfs.toArray().length == memberArray.length;
 	}
 	
 	/**
@@ -279,11 +347,11 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * nodeset disconnected.
 	 */
 	public boolean isCutVertex(int index) {
-		if (this.members.isEmpty())
+		if (this.isEmpty())
 			return false;
 
 		IntArray newMembers = new IntArray();
-		for (int member: this.members)
+		for (int member: this.getSortedMemberArray())
 			if (member != index)
 				newMembers.add(member);
 
@@ -300,40 +368,64 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * Returns whether the nodeset is empty or not
 	 */
 	public boolean isEmpty() {
-		return this.members.isEmpty();
+		return this.members.length == 0;
 	}
 	
 	/**
 	 * Returns the number of nodes in this nodeset
 	 */
 	public int size() {
-		return this.members.size();
+		return this.members.length;
 	}
 	
 	/**
 	 * Sets the members of this nodeset
 	 */
 	protected void setMembers(Iterable<Integer> members) {
-		this.members = new TreeSet<Integer>();
-		if (members == null)
-			return;
-		
-		for (Integer member: members)
-			this.members.add(member);
+		IntArray array = new IntArray();
+		if (members != null) {
+			for (Integer member: members)
+				array.add(member);
+		}
 		
-		recalculate();
+		setSortedMembers(array.toArray());
 	}
 	
 	/**
 	 * Sets the members of this nodeset
 	 */
 	protected void setMembers(int[] members) {
-		this.members = new TreeSet<Integer>();
-		if (members == null)
-			return;
+		setSortedMembers(members == null ? NO_MEMBERS : members.clone());
+	}
+	
+	/**
+	 * Sets the members of this nodeset from an array that is owned by the nodeset
+	 * from now on.
+	 * 
+	 * The array is sorted and the duplicates are removed unless it is sorted in
+	 * strictly ascending order already.
+	 */
+	private void setSortedMembers(int[] array) {
+		int i, n = array.length;
 		
-		for (int member: members)
-			this.members.add(member);
+		for (i = 1; i < n; i++)
+			if (array[i-1] >= array[i])
+				break;
+		
+		if (i < n) {
+			Arrays.sort(array);
+			n = 0;
+			for (i = 0; i < array.length; i++)
+				if (n == 0 || array[n-1] != array[i])
+					array[n++] = array[i];
+			if (n < array.length)
+				array = Arrays.copyOf(array, n);
+		}
+		
+		this.members = (n == 0) ? NO_MEMBERS : array;
+		this.memberBitmap = null;
+		this.externalBoundaryNodes = null;
+		this.hashCode = 0;
 		
 		recalculate();
 	}
@@ -342,17 +434,16 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * Recalculate some internal variables when the member set changes
 	 */
 	protected void recalculate() {
-		IntHashSet memberHashSet = this.getMemberHashSet();
-		
 		this.totalBoundaryEdgeWeight = 0.0;
 		this.totalInternalEdgeWeight = 0.0;
 		
 		for (int i: members) {
-			int[] edgeIdxs = this.graph.getAdjacentEdgeIndicesArray(i, Directedness.ALL);
-			for (int edgeIdx: edgeIdxs) {
+			int k, degree = this.graph.getDegree(i, Directedness.ALL);
+			for (k = 0; k < degree; k++) {
+				int edgeIdx = this.graph.getAdjacentEdgeIndex(i, k, Directedness.ALL);
 				double weight = this.graph.getEdgeWeight(edgeIdx);
 				int endpoint = this.graph.getEdgeEndpoint(edgeIdx, i);
-				if (memberHashSet.contains(endpoint)) {
+				if (this.contains(endpoint)) {
 					/* This is an internal edge */
 					this.totalInternalEdgeWeight += weight;
 				} else {
@@ -380,13 +471,13 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * Returns the internal weight of a given node
 	 */
 	public double getInternalWeight(int nodeIndex) {
-		IntHashSet memberHashSet = this.getMemberHashSet();
 		double result = 0.0;
-		int[] edgeIdxs = this.graph.getAdjacentEdgeIndicesArray(nodeIndex, Directedness.ALL);
-		for (int edgeIdx: edgeIdxs) {
+		int k, degree = this.graph.getDegree(nodeIndex, Directedness.ALL);
+		for (k = 0; k < degree; k++) {
+			int edgeIdx = this.graph.getAdjacentEdgeIndex(nodeIndex, k, Directedness.ALL);
 			double weight = this.graph.getEdgeWeight(edgeIdx);
 			int endpoint = this.graph.getEdgeEndpoint(edgeIdx, nodeIndex);
-			if (memberHashSet.contains(endpoint)) {
+			if (this.contains(endpoint)) {
 				/* This is an internal edge */
 				result += weight;
 			}
@@ -399,19 +490,15 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * Returns the intersection of this nodeset with another
 	 */
 	public NodeSet getIntersectionWith(NodeSet other) {
-		Set<Integer> smaller;
-		IntHashSet larger;
+		NodeSet smaller = this, larger = other;
 		IntArray intersection = new IntArray();
 		
-		if (this.size() < other.size()) {
-			smaller = this.members;
-			larger = other.getMemberHashSet();
-		} else {
-			smaller = other.members;
-			larger = this.getMemberHashSet();
+		if (this.size() > other.size()) {
+			smaller = other;
+			larger = this;
 		}
 		
-		for (int member: smaller)
+		for (int member: smaller.getSortedMemberArray())
 			if (larger.contains(member))
 				intersection.add(member);
 		
@@ -420,25 +507,38 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	
 	/**
 	 * Returns the size of the intersection between this nodeset and another
+	 * 
+	 * The intersection is calculated on the sorted member arrays of the two
+	 * nodesets. If the larger nodeset has a member bitmap, the members of the
+	 * smaller one are looked up in the bitmap, or the two bitmaps are ANDed
+	 * if both nodesets have one. Otherwise the arrays are merged, or the larger
+	 * one is searched by galloping if the sizes are very different; see
+	 * {@link SortedIntArrays#getIntersectionSize(int[], int[])}.
 	 */
 	public int getIntersectionSizeWith(NodeSet other) {
-		int isectSize = 0;
-		Set<Integer> smaller;
-		Set<Integer> larger;
-
-		if (this.size() < other.size()) {
-			smaller = this.members;
-			larger = other.members;
-		} else {
-			smaller = other.members;
-			larger = this.members;
+		NodeSet smaller = this, larger = other;
+		int[] smallerArray = this.getSortedMemberArray();
+		int[] largerArray = other.getSortedMemberArray();
+		
+		if (smallerArray.length > largerArray.length) {
+			smaller = other;
+			larger = this;
+			int[] tmp = smallerArray; smallerArray = largerArray; largerArray = tmp;
 		}
 		
-		for (int member: smaller)
-			if (larger.contains(member))
-				isectSize++;
+		int n = smallerArray.length, m = largerArray.length;
+		if (n == 0 || smallerArray[n-1] < largerArray[0] || largerArray[m-1] < smallerArray[0])
+			return 0;
 		
-		return isectSize;
+		IntBitmap largerBitmap = larger.getMemberBitmap();
+		if (largerBitmap != null) {
+			IntBitmap smallerBitmap = smaller.getMemberBitmap();
+			if (smallerBitmap != null)
+				return largerBitmap.getIntersectionSize(smallerBitmap);
+			return largerBitmap.countContained(smallerArray);
+		}
+		
+		return SortedIntArrays.getIntersectionSize(smallerArray, largerArray);
 	}
 	
 	/**
@@ -460,7 +560,6 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	protected double getSignificanceReal() {
 		double[] inWeights = new double[this.size()];
 		double[] outWeights = new double[this.size()];
-		IntHashSet memberHashSet = this.getMemberHashSet();
 		int j;
 		
 		Arrays.fill(inWeights, 0.0);
@@ -468,11 +567,12 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 		
 		j = 0;
 		for (int i: members) {
-			int[] edgeIdxs = this.graph.getAdjacentEdgeIndicesArray(i, Directedness.ALL);
-			for (int edgeIdx: edgeIdxs) {
+			int k, degree = this.graph.getDegree(i, Directedness.ALL);
+			for (k = 0; k < degree; k++) {
+				int edgeIdx = this.graph.getAdjacentEdgeIndex(i, k, Directedness.ALL);
 				double weight = this.graph.getEdgeWeight(edgeIdx);
 				int endpoint = this.graph.getEdgeEndpoint(edgeIdx, i);
-				if (memberHashSet.contains(endpoint)) {
+				if (this.contains(endpoint)) {
 					/* This is an internal edge */
 					inWeights[j] += weight;
 				} else {
@@ -496,16 +596,16 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	public Graph getSubgraph() {
 		boolean directed = this.getGraph().isDirected();
 		Graph result = new Graph(directed);
-		IntHashSet memberSet = this.getMemberHashSet();
 		UniqueIDGenerator<Integer> idGen = new UniqueIDGenerator<Integer>(result);
 		
-		for (int i: members) {
+		for (int i: this.getSortedMemberArray()) {
 			int srcId = idGen.get(i);
-			int[] edgeIdxs = this.graph.getAdjacentEdgeIndicesArray(i, Directedness.OUT);
-			for (int edgeIdx: edgeIdxs) {
+			int k, degree = this.graph.getDegree(i, Directedness.OUT);
+			for (k = 0; k < degree; k++) {
+				int edgeIdx = this.graph.getAdjacentEdgeIndex(i, k, Directedness.OUT);
 				int endpoint = this.graph.getEdgeEndpoint(edgeIdx, i);
 				/* If not an internal edge, continue */
-				if (!memberSet.contains(endpoint))
+				if (!this.contains(endpoint))
 					continue;
 				/* Avoid creating each edge twice in undirected graphs */
 				if (!directed && i > endpoint)
@@ -534,14 +634,31 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	
 	/**
 	 * Returns a set of all the external boundary nodes of this set
+	 * 
+	 * The boundary nodes are calculated on the first call only; later calls
+	 * return a copy of the same array.
 	 */
 	public int[] getExternalBoundaryNodes() {
-		IntHashSet seen = new IntHashSet(this.getMemberHashSet());
+		int[] result = externalBoundaryNodes;
+		if (result == null) {
+			result = calculateExternalBoundaryNodes();
+			externalBoundaryNodes = result;
+		}
+		return result.clone();
+	}
+	
+	/**
+	 * Finds the external boundary nodes of this set in the order they are reached
+	 * from the members
+	 */
+	private int[] calculateExternalBoundaryNodes() {
+		IntHashSet seen = this.getMemberHashSet();
 		IntArray result = new IntArray();
 
 		for (int i: members) {
-			int[] edgeIdxs = this.graph.getAdjacentEdgeIndicesArray(i, Directedness.ALL);
-			for (int edgeIdx: edgeIdxs) {
+			int k, degree = this.graph.getDegree(i, Directedness.ALL);
+			for (k = 0; k < degree; k++) {
+				int edgeIdx = this.graph.getAdjacentEdgeIndex(i, k, Directedness.ALL);
 				int endpoint = this.graph.getEdgeEndpoint(edgeIdx, i);
 				if (!seen.contains(endpoint)) {
 					/* This is an external boundary node that we haven't seen yet */
@@ -558,19 +675,14 @@ public class NodeSet implements Iterable<Integer>, Intersectable<NodeSet>, Sized
 	 * Iterates over the members of this nodeset
 	 */
 	public Iterator<Integer> iterator() {
-		return this.members.iterator();
+		return new IntArrayIterator(this.members);
 	}
 
 	/**
 	 * Returns the members of this nodeset as an array.
 	 */
 	public int[] toArray() {
-		int i = 0;
-		int[] result = new int[members.size()];
-		for (int member: members) {
-			result[i++] = member;
-		}
-		return result;
+		return this.members.clone();
 	}
 
 	/**
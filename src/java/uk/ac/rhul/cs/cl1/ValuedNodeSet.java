@@ -1,11 +1,10 @@
 package uk.ac.rhul.cs.cl1;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import uk.ac.rhul.cs.graph.Graph;
 
-import com.sosnoski.util.hashmap.ObjectIntHashMap;
-
 /**
  * Nodeset with a value associated to each node
  * 
@@ -14,13 +13,22 @@ import com.sosnoski.util.hashmap.ObjectIntHashMap;
  * cohesive subgroups a given node participated in when merging overlapping
  * cohesive subgroups.
  * 
+ * The values are stored in an array aligned with {@link #getSortedMemberArray()},
+ * so only the members of the nodeset may have a value.
+ * 
  * @author tamas
  */
 public class ValuedNodeSet extends NodeSet {
 	/**
-	 * Storage area for the node values
+	 * Marker of the members that have no associated value
+	 */
+	public static final int NO_VALUE = Integer.MIN_VALUE;
+
+	/**
+	 * Storage area for the node values. Element i belongs to the i-th element
+	 * of the sorted member array; null if no node has a value yet.
 	 */
-	protected ObjectIntHashMap values;
+	protected int[] values;
 
 	/**
 	 * Constructs a new, empty valued nodeset that does not belong to a graph.
@@ -29,7 +37,7 @@ public class ValuedNodeSet extends NodeSet {
 		super();
 		init();
 	}
-
+	
 	/**
 	 * Constructs a new, empty valued nodeset on the given graph.
 	 * 
@@ -62,16 +70,41 @@ public class ValuedNodeSet extends NodeSet {
 		init();
 	}
 	
+	/**
+	 * Constructs a new valued nodeset on the given graph with a value for
+	 * each member.
+	 * 
+	 * This is the cheapest way to create a valued nodeset when all the values
+	 * are known in advance. The value array is used directly, so the caller
+	 * must not modify it afterwards.
+	 * 
+	 * @param graph    the graph on which the nodeset is created
+	 * @param members  the member IDs in strictly ascending order
+	 * @param values   the value of each member, in the same order
+	 */
+	public ValuedNodeSet(Graph graph, int[] members, int[] values) {
+		super(graph, members);
+		if (members.length != values.length)
+			throw new IllegalArgumentException("members and values must have the same length");
+		for (int i = 1; i < members.length; i++)
+			if (members[i-1] >= members[i])
+				throw new IllegalArgumentException("members must be sorted and distinct");
+		this.values = values;
+	}
+	
 	/**
 	 * Constructs a valued nodeset from a non-valued one using a default
 	 * value of 1 for each node.
 	 * 
+	 * If the nodeset is a valued nodeset, its values are copied instead.
+	 * 
 	 * @param  nodeset    the non-valued nodeset
 	 */
 	public ValuedNodeSet(NodeSet nodeset) {
 		this(nodeset, 1);
 		if (nodeset instanceof ValuedNodeSet) {
-			this.values = (ObjectIntHashMap)((ValuedNodeSet) nodeset).values.clone();
+			int[] otherValues = ((ValuedNodeSet) nodeset).values;
+			this.values = (otherValues == null) ? null : otherValues.clone();
 		}
 	}
 	
@@ -83,9 +116,9 @@ public class ValuedNodeSet extends NodeSet {
 	 * @param  value      the default value
 	 */
 	public ValuedNodeSet(NodeSet nodeset, int value) {
-		this(nodeset.getGraph(), nodeset.getMembers());
-		for (int idx: this.members)
-			setValue(idx, value);
+		this(nodeset.getGraph(), nodeset.getSortedMemberArray());
+		this.values = new int[this.size()];
+		Arrays.fill(this.values, value);
 	}
 	
 	/**
@@ -106,24 +139,60 @@ public class ValuedNodeSet extends NodeSet {
 	 * @return the value itself
 	 */
 	public int getValue(int nodeIndex, int defaultValue) {
-		int result = values.get(nodeIndex);
-		if (result == ObjectIntHashMap.DEFAULT_NOT_FOUND)
-			result = defaultValue;
+		if (values == null)
+			return defaultValue;
+
+		int pos = Arrays.binarySearch(getSortedMemberArray(), nodeIndex);
+		if (pos < 0 || values[pos] == NO_VALUE)
+			return defaultValue;
+		return values[pos];
+	}
+	
+	/**
+	 * Returns the values of the members in the order of {@link #getSortedMemberArray()}
+	 * 
+	 * Members without a value get the given default value.
+	 * 
+	 * @param  defaultValue  the value of the members that have no value
+	 * @return a new array containing the values
+	 */
+	public int[] getValueArray(int defaultValue) {
+		int[] result;
+
+		if (values == null) {
+			result = new int[this.size()];
+			Arrays.fill(result, defaultValue);
+			return result;
+		}
+
+		result = values.clone();
+		for (int i = 0; i < result.length; i++)
+			if (result[i] == NO_VALUE)
+				result[i] = defaultValue;
 		return result;
 	}
 	
 	protected void init() {
-		values = new ObjectIntHashMap();
+		values = null;
 	}
 	
 	/**
 	 * Removes the value associated to the given node
 	 * 
-	 * @return the value that was associated to the given node or null if
-	 *         there was no value associated
+	 * @return the value that was associated to the given node or {@link #NO_VALUE}
+	 *         if there was no value associated
 	 */
 	public int removeValue(int nodeIndex) {
-		return values.remove(nodeIndex);
+		if (values == null)
+			return NO_VALUE;
+
+		int pos = Arrays.binarySearch(getSortedMemberArray(), nodeIndex);
+		if (pos < 0)
+			return NO_VALUE;
+
+		int result = values[pos];
+		values[pos] = NO_VALUE;
+		return result;
 	}
 	
 	/**
@@ -131,8 +200,17 @@ public class ValuedNodeSet extends NodeSet {
 	 * 
 	 * @param  nodeIndex    index of the node whose value is being set
 	 * @param  value        the value itself
+	 * @throws IllegalArgumentException  if the node is not a member of the nodeset
 	 */
 	public void setValue(int nodeIndex, int value) {
-		values.add(nodeIndex, value);
+		int pos = Arrays.binarySearch(getSortedMemberArray(), nodeIndex);
+		if (pos < 0)
+			throw new IllegalArgumentException("node " + nodeIndex + " is not a member of the nodeset");
+
+		if (values == null) {
+			values = new int[this.size()];
+			Arrays.fill(values, NO_VALUE);
+		}
+		values[pos] = value;
 	}
 }
@@ -1,6 +1,10 @@
 package uk.ac.rhul.cs.cl1;
 
 import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+
+import uk.ac.rhul.cs.utils.ParallelUtils;
+import uk.ac.rhul.cs.utils.ParallelUtils.RangeTask;
 
 /**
  * A list of {@link ValuedNodeSet} objects, typically used as a result object in ClusterONE.
@@ -12,4 +16,36 @@ import java.util.ArrayList;
  * @author ntamas
  */
 public class ValuedNodeSetList extends ArrayList<ValuedNodeSet> {
+	/**
+	 * The number of nodesets a thread takes at once in {@link #getSignificances(int)}
+	 */
+	private static final int SIGNIFICANCE_CHUNK_SIZE = 32;
+	
+	/**
+	 * Returns the statistical significance of each nodeset in the list.
+	 * 
+	 * The significances are calculated by {@link NodeSet#getSignificance()}, so
+	 * they are also cached in the nodesets themselves. The nodesets are processed
+	 * in parallel by the given number of threads; the result does not depend on
+	 * the number of threads.
+	 * 
+	 * @param  numThreads  the number of threads to use. Zero or negative numbers
+	 *                     mean one thread per available processor.
+	 * @return an array containing the significance of the i-th nodeset at index i
+	 * @throws CancellationException  if the calling thread was interrupted; the
+	 *                                interrupted status of the thread is kept
+	 */
+	public double[] getSignificances(int numThreads) {
+		final double[] result = new double[this.size()];
+		
+		ParallelUtils.runInChunks(result.length, SIGNIFICANCE_CHUNK_SIZE, numThreads,
+				new RangeTask() {
+					public void run(int from, int to) {
+						for (int i = from; i < to; i++)
+							result[i] = get(i).getSignificance();
+					}
+				}, null);
+		
+		return result;
+	}
 }
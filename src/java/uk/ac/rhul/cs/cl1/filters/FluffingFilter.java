@@ -1,7 +1,5 @@
 package uk.ac.rhul.cs.cl1.filters;
 
-import java.util.SortedSet;
-
 import com.sosnoski.util.array.IntArray;
 
 import uk.ac.rhul.cs.cl1.MutableNodeSet;
@@ -44,16 +42,14 @@ public class FluffingFilter implements NodeSetFilter {
 		
 		do {
 			int minCount = (int)Math.floor(2.0 * nodeSet.size() / 3.0);
-			SortedSet<Integer> members = nodeSet.getMembers();
 			toAdd.clear();
 
 			for (int node: nodeSet.getExternalBoundaryNodes()) {
-				int[] neis =
-					graph.getAdjacentNodeIndicesArray(node, Directedness.ALL);
+				int i, n = graph.getDegree(node, Directedness.ALL);
 				
 				int intersectionSize = 0;
-				for (int neighbor: neis)
-					if (members.contains(neighbor))
+				for (i = 0; i < n; i++)
+					if (nodeSet.contains(graph.getAdjacentNodeIndex(node, i, Directedness.ALL)))
 						intersectionSize++;
 				
 				if (intersectionSize >= minCount)
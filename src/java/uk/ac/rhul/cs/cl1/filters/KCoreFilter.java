@@ -52,11 +52,11 @@ public class KCoreFilter implements NodeSetFilter {
 			IntArray toRemove = new IntArray();
 			
 			for (int i: nodeSetCopy) {
-				int[] neis = graph.getAdjacentNodeIndicesArray(i, Directedness.ALL);
+				int j, n = graph.getDegree(i, Directedness.ALL);
 				int numNeis = 0;
 				
-				for (int nei: neis) {
-					if (nodeSetCopy.contains(nei))
+				for (j = 0; j < n; j++) {
+					if (nodeSetCopy.contains(graph.getAdjacentNodeIndex(i, j, Directedness.ALL)))
 						numNeis++;
 				}
 				
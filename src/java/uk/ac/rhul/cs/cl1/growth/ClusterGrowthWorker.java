@@ -10,6 +10,8 @@ import uk.ac.rhul.cs.graph.Graph;
 import uk.ac.rhul.cs.graph.GraphAlgorithm;
 import uk.ac.rhul.cs.utils.Ordered;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 
 /**
@@ -20,6 +22,14 @@ import java.util.concurrent.BlockingQueue;
  * each seed is accompanied with a sequence number. The same sequence number must be passed
  * back in the output queue together with the cluster generated from the seed. Accordingly,
  * the output queue of the worker accepts {@link Ordered&lt;ValuedNodeSet&gt;} objects.
+ *
+ * Alternatively, the worker may take batches of seeds directly from a {@link SeedPipeline}
+ * and commit the grown clusters back to the pipeline without the involvement of the
+ * main thread.
+ *
+ * If the worker fails with an exception, it stores the exception (see {@link #getFailure()})
+ * and terminates. Before terminating, it posts {@link #FAILED} to its output queue or
+ * cancels its pipeline so the main thread and the other workers do not wait for it.
  */
 public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
     /**
@@ -35,6 +45,13 @@ public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
      */
     public static final ValuedNodeSet EMPTY_CLUSTER = new ValuedNodeSet();
 
+    /**
+     * Sentinel value that the worker posts to its output queue when it fails with an
+     * exception. The main thread should call {@link #getFailure()} on the workers when
+     * it finds this value in the queue.
+     */
+    public static final ValuedNodeSet FAILED = new ValuedNodeSet();
+
     /**
      * The input queue where the seeds to process are posted to the worker.
      */
@@ -45,6 +62,12 @@ public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
      */
     private BlockingQueue<Ordered<ValuedNodeSet>> outputQueue;
 
+    /**
+     * The pipeline that the worker takes its seeds from and commits its clusters to;
+     * null if the worker uses the queues.
+     */
+    private SeedPipeline pipeline;
+
     /**
      * A mutable node set that the worker uses (and reuses) during the growth process.
      */
@@ -72,6 +95,11 @@ public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
      */
     private QualityFunction qualityFunction;
 
+    /**
+     * The exception that stopped the worker, or null if the worker did not fail.
+     */
+    private volatile Throwable failure = null;
+
     /**
      * Constructs a new worker that uses the given queues to communicate with
      * the main thread.
@@ -92,6 +120,32 @@ public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
         this.outputQueue = outputQueue;
     }
 
+    /**
+     * Constructs a new worker that takes its seeds from the given pipeline.
+     *
+     * @param  graph        the graph that the worker will work on
+     * @param  parameters   the parameters of the ClusterONE algorithm being run
+     * @param  minDensity   the minimum density of each generated cluster
+     * @param  pipeline     the pipeline that provides the seeds and receives the clusters
+     */
+    public ClusterGrowthWorker(Graph graph, ClusterONEAlgorithmParameters parameters,
+                               double minDensity, SeedPipeline pipeline) {
+        super(graph);
+        this.parameters = parameters;
+        this.minDensity = minDensity;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Returns the exception that stopped the worker.
+     *
+     * @return a {@link RuntimeException} or an {@link Error}, or null if the worker did
+     *         not fail
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
     protected void prepare() {
 		// Get the quality function from the parameters
         qualityFunction = parameters.getQualityFunction();
@@ -110,20 +164,98 @@ public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
             postFilters.add(new KCoreFilter(parameters.getKCoreThreshold()));
         }
 
-        // Construct the initial mutable node set
-        cluster = new MutableNodeSet(graph);
+        // Construct the initial mutable node set. On huge graphs, we use sparse storage
+        // so that the memory footprint of the worker does not scale with the graph
+        cluster = new MutableNodeSet(graph,
+                parameters.isSparseNodeSetNeeded(graph.getNodeCount()));
+    }
+
+    /**
+     * Grows a cluster from the given seed.
+     *
+     * @param  seed  the seed to grow the cluster from
+     * @return the grown cluster, {@link #EMPTY_CLUSTER} if the cluster was rejected by
+     *         the filters or null if the worker was stopped while growing the cluster
+     */
+    protected ValuedNodeSet growCluster(Seed seed) {
+        boolean growthProcessRunning;
+
+        /* Initialize the node set from the seed */
+        seed.initializeMutableNodeSet(cluster);
+
+        /* Construct a growth process from the seed */
+        GreedyClusterGrowthProcess growthProcess =
+                new GreedyClusterGrowthProcess(cluster, minDensity, qualityFunction);
+        growthProcess.setDebugMode(debugMode);
+        growthProcess.setKeepInitialSeeds(parameters.isKeepInitialSeeds());
+        growthProcess.setIncremental(parameters.isIncrementalGrowth());
+
+        /* Run the growth process */
+        growthProcessRunning = true;
+        while (!shouldStop && growthProcessRunning) {
+            growthProcessRunning = growthProcess.step();
+        }
+
+        /* Were we interrupted by the user? */
+        if (shouldStop)
+            return null;
+
+        /* Do a haircut operation, then check the size and density of the cluster */
+        if (!postFilters.filter(cluster)) {
+            /* Filter rejected the cluster; send back an empty cluster instead */
+            return EMPTY_CLUSTER;
+        }
+
+        return new ValuedNodeSet(cluster, 1);
     }
 
     @Override
     public void run() {
+        try {
+            if (cluster == null) {
+                prepare();
+            }
+
+            if (pipeline != null) {
+                runOnPipeline();
+            } else {
+                runOnQueues();
+            }
+        } catch (RuntimeException ex) {
+            fail(ex);
+        } catch (Error ex) {
+            fail(ex);
+        }
+    }
+
+    /**
+     * Stores the exception that stopped the worker and notifies the main thread.
+     */
+    private void fail(Throwable ex) {
+        failure = ex;
+        halt();
+
+        if (pipeline != null) {
+            pipeline.cancel();
+            return;
+        }
+
+        while (true) {
+            try {
+                outputQueue.put(new Ordered<ValuedNodeSet>(-1, FAILED));
+                break;
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Main loop of the worker when it communicates with the main thread via the queues.
+     */
+    private void runOnQueues() {
         Ordered<Seed> orderedSeed;
         Seed seed;
         ValuedNodeSet result;
-        boolean growthProcessRunning;
-
-        if (cluster == null) {
-            prepare();
-        }
 
         // Enter the main loop
         while (!shouldStop) {
@@ -149,33 +281,11 @@ public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
                 break;
             }
 
-			/* Initialize the node set from the seed */
-            seed.initializeMutableNodeSet(cluster);
-
-			/* Construct a growth process from the seed */
-            GreedyClusterGrowthProcess growthProcess =
-                    new GreedyClusterGrowthProcess(cluster, minDensity, qualityFunction);
-            growthProcess.setDebugMode(debugMode);
-            growthProcess.setKeepInitialSeeds(parameters.isKeepInitialSeeds());
-
-			/* Run the growth process */
-            growthProcessRunning = true;
-            while (!shouldStop && growthProcessRunning) {
-                growthProcessRunning = growthProcess.step();
-            }
-
-			/* Were we interrupted by the user? */
-            if (shouldStop)
+			/* Grow the cluster; null means that we were interrupted by the user */
+            result = growCluster(seed);
+            if (result == null)
                 break;
 
-			/* Do a haircut operation, then check the size and density of the cluster */
-            if (!postFilters.filter(cluster)) {
-                /* Filter rejected the cluster; send back an empty cluster instead */
-                result = EMPTY_CLUSTER;
-            } else {
-                result = new ValuedNodeSet(cluster, 1);
-            }
-
 			/* Post the cluster back to the main thread */
             while (true) {
                 try {
@@ -186,4 +296,23 @@ public class ClusterGrowthWorker extends GraphAlgorithm implements Runnable {
             }
         }
     }
+
+    /**
+     * Main loop of the worker when it takes its seeds from a pipeline.
+     */
+    private void runOnPipeline() {
+        List<Ordered<Seed>> batch = new ArrayList<Ordered<Seed>>();
+        List<Ordered<ValuedNodeSet>> clusters = new ArrayList<Ordered<ValuedNodeSet>>();
+
+        while (!shouldStop && pipeline.takeBatch(batch)) {
+            clusters.clear();
+            for (Ordered<Seed> orderedSeed: batch) {
+                ValuedNodeSet result = growCluster(orderedSeed.object);
+                if (result == null)
+                    return;
+                clusters.add(new Ordered<ValuedNodeSet>(orderedSeed.sequenceNumber, result));
+            }
+            pipeline.commit(clusters);
+        }
+    }
 }
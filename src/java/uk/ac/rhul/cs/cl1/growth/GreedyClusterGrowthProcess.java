@@ -1,13 +1,11 @@
 package uk.ac.rhul.cs.cl1.growth;
 
 import java.util.Arrays;
-import java.util.Set;
 
 import com.sosnoski.util.array.IntArray;
 import uk.ac.rhul.cs.cl1.MutableNodeSet;
 import uk.ac.rhul.cs.cl1.NodeSet;
 import uk.ac.rhul.cs.cl1.quality.QualityFunction;
-import uk.ac.rhul.cs.graph.TarjanCutVertexFinder;
 
 /**
  * Greedy growth process that chooses a locally optimal step to improve some goal function
@@ -38,11 +36,29 @@ public class GreedyClusterGrowthProcess extends ClusterGrowthProcess {
 	 * Whether the initial seed nodes should always be kept as part of the cluster
 	 */
 	protected boolean keepInitialSeeds = false;
+
+	/**
+	 * Whether the candidates for addition are enumerated incrementally from the heap
+	 * of external boundary nodes instead of scanning the entire boundary in every step
+	 */
+	protected boolean incremental = false;
 	
 	/**
 	 * The set of initial seed nodes
 	 */
 	private NodeSet initialSeeds = null;
+
+	/**
+	 * The nodes that are the best candidates for addition or removal in the current step.
+	 * Kept as a member to avoid allocating a new array in every step.
+	 */
+	private IntArray bestNodes = new IntArray();
+
+	/**
+	 * Stack of heap positions that remain to be visited when enumerating the candidates
+	 * for addition incrementally. Kept as a member to avoid allocations.
+	 */
+	private IntArray candidateStack = new IntArray();
 	
 	/**
 	 * Creates a new greedy growth process that operates on the given nodeset
@@ -77,6 +93,31 @@ public class GreedyClusterGrowthProcess extends ClusterGrowthProcess {
 		this.contractionAllowed = contractionAllowed;
 	}
 	
+	/**
+	 * @return whether the candidates for addition are enumerated incrementally
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Sets whether the candidates for addition are enumerated incrementally.
+	 * 
+	 * In incremental mode, the external boundary nodes of the nodeset are kept in a
+	 * heap ordered by their internal weights, which is updated by the nodeset itself
+	 * for the neighbors of the added or removed nodes only. The growth process then
+	 * visits the heap from the top and skips the subtrees whose internal weights
+	 * are too low to satisfy the density limit or to beat the best candidate found
+	 * so far according to {@link QualityFunction#getAdditionAffinityUpperBound}.
+	 * The suggested actions are exactly the same as in the non-incremental mode.
+	 * 
+	 * @param incremental  whether to enumerate the candidates incrementally
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		nodeSet.setBoundaryOrdered(incremental);
+	}
+	
 	/**
 	 * @return whether it is allowed to remove seed nodes during contraction
 	 */
@@ -134,13 +175,13 @@ public class GreedyClusterGrowthProcess extends ClusterGrowthProcess {
 	 */
 	@Override
 	public ClusterGrowthAction getSuggestedAction() {
-		IntArray bestNodes = new IntArray();
 		final double quality = qualityFunction.calculate(nodeSet);
 		double bestAffinity;
 		boolean bestIsAddition = true;
 		
 		int n = nodeSet.size();
 		
+		bestNodes.clear();
 		if (n == 0)
 			return ClusterGrowthAction.terminate();
 
@@ -159,29 +200,48 @@ public class GreedyClusterGrowthProcess extends ClusterGrowthProcess {
 		
 		/* Try the addition of some nodes */
 		bestAffinity = quality;
-		for (int node: nodeSet.getExternalBoundaryNodes()) {
-			double internalWeight = nodeSet.getTotalAdjacentInternalWeight(node);
-			if (n >= 4 && internalWeight < internalWeightLimit)
-				continue;
-			
-			double affinity = qualityFunction.getAdditionAffinity(nodeSet, node);
-			if (debugMode) {
-				System.err.println("Considering addition of " + node + ", affinity = " + affinity);
+		if (incremental) {
+			int numBoundaryNodes = nodeSet.getExternalBoundaryNodeCount();
+			candidateStack.clear();
+			if (numBoundaryNodes > 0)
+				candidateStack.add(0);
+			while (candidateStack.size() > 0) {
+				int position = candidateStack.get(candidateStack.size() - 1);
+				candidateStack.setSize(candidateStack.size() - 1);
+
+				/* The nodes below this one in the heap have at most the same internal
+				 * weight, so if the weight rules out this node, it rules out its subtree
+				 * as well */
+				int node = nodeSet.getExternalBoundaryNodeAt(position);
+				double internalWeight = nodeSet.getTotalAdjacentInternalWeight(node);
+				if (n >= 4 && internalWeight < internalWeightLimit)
+					continue;
+				if (qualityFunction.getAdditionAffinityUpperBound(nodeSet, internalWeight) < bestAffinity)
+					continue;
+
+				if (2 * position + 1 < numBoundaryNodes)
+					candidateStack.add(2 * position + 1);
+				if (2 * position + 2 < numBoundaryNodes)
+					candidateStack.add(2 * position + 2);
+
+				bestAffinity = considerAddition(node, bestAffinity);
 			}
-			if (affinity > bestAffinity) {
-				bestAffinity = affinity;
-				bestNodes.clear();
-				bestNodes.add(node);
-			} else if (affinity == bestAffinity) {
-				bestNodes.add(node);
+		} else {
+			for (int i = 0, numBoundaryNodes = nodeSet.getExternalBoundaryNodeCount(); i < numBoundaryNodes; i++) {
+				int node = nodeSet.getExternalBoundaryNodeAt(i);
+				double internalWeight = nodeSet.getTotalAdjacentInternalWeight(node);
+				if (n >= 4 && internalWeight < internalWeightLimit)
+					continue;
+				
+				bestAffinity = considerAddition(node, bestAffinity);
 			}
 		}
 		
 		if (this.isContractionAllowed() && this.nodeSet.size() > 1) {
 			/* Try removing nodes. Can we do better than adding nodes? */
-			// Set<Integer> cutVertices = null;
+			for (int i = 0; i < n; i++) {
+				int node = nodeSet.getMemberAt(i);
 
-			for (Integer node: nodeSet) {
 				// Don't process nodes that were in the initial seed
 				if (keepInitialSeeds && initialSeeds.contains(node))
 					continue;
@@ -202,22 +262,11 @@ public class GreedyClusterGrowthProcess extends ClusterGrowthProcess {
 				
 				// The following condition is necessary to avoid cases when a
 				// tree-like cluster becomes disconnected due to the removal
-				// of a non-leaf node
+				// of a non-leaf node. The nodeset finds all its cut vertices
+				// with a single DFS the first time we ask, so this is cheap.
 				if (nodeSet.isCutVertex(node))
 					continue;
 
-				// Note to self: the above code uses BFS to decide whether the given node is a cut
-				// vertex or not. Theoretically, it would be better to use a DFS because a single
-				// DFS could provide us all the cut vertices at once. However, in practice it
-				// seems to be slower. If you want to try, uncomment the fragment below:
-				/*
-				if (cutVertices == null) {
-					cutVertices = findCutVerticesForNodeSet(nodeSet);
-				}
-				if (cutVertices.contains(node))
-					continue;
-				*/
-
 				if (affinity > bestAffinity) {
 					bestAffinity = affinity;
 					bestNodes.clear();
@@ -240,27 +289,44 @@ public class GreedyClusterGrowthProcess extends ClusterGrowthProcess {
 			return ClusterGrowthAction.terminate();
 		}
 		
-		if (bestNodes.size() > 1 && onlySingleNode)
-			bestNodes.setSize(1);
+		/* The candidates were enumerated in no particular order; sort them so that the
+		 * outcome of the step (including tie-breaking) is deterministic */
+		int[] result = bestNodes.toArray();
+		Arrays.sort(result);
+		if (result.length > 1 && onlySingleNode)
+			result = new int[] { result[0] };
 		
 		if (bestIsAddition) {
 			if (debugMode)
-				System.err.println("Proposing addition of " + Arrays.toString(bestNodes.toArray()));
-			return ClusterGrowthAction.addition(bestNodes.toArray());
+				System.err.println("Proposing addition of " + Arrays.toString(result));
+			return ClusterGrowthAction.addition(result);
 		} else {
 			if (debugMode)
-				System.err.println("Proposing removal of " + Arrays.toString(bestNodes.toArray()));
-			return ClusterGrowthAction.removal(bestNodes.toArray());
+				System.err.println("Proposing removal of " + Arrays.toString(result));
+			return ClusterGrowthAction.removal(result);
 		}
 	}
 
 	/**
-	 * Finds all the cut vertices in the given nodeset.
+	 * Calculates the addition affinity of a node and records it in <code>bestNodes</code>
+	 * if it is at least as good as the best affinity seen so far.
+	 * 
+	 * @param  node          the node to consider
+	 * @param  bestAffinity  the best affinity seen so far
+	 * @return the new best affinity
 	 */
-	private Set<Integer> findCutVerticesForNodeSet(NodeSet nodeSet) {
-		TarjanCutVertexFinder finder = new TarjanCutVertexFinder();
-		finder.setGraph(nodeSet.getGraph());
-		finder.restrictToSubgraph(nodeSet.toArray());
-		return finder.findCutVertices();
+	private double considerAddition(int node, double bestAffinity) {
+		double affinity = qualityFunction.getAdditionAffinity(nodeSet, node);
+		if (debugMode) {
+			System.err.println("Considering addition of " + node + ", affinity = " + affinity);
+		}
+		if (affinity > bestAffinity) {
+			bestNodes.clear();
+			bestNodes.add(node);
+			return affinity;
+		} else if (affinity == bestAffinity) {
+			bestNodes.add(node);
+		}
+		return bestAffinity;
 	}
 }
@@ -0,0 +1,235 @@
+package uk.ac.rhul.cs.cl1.growth;
+
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.cl1.seeding.Seed;
+import uk.ac.rhul.cs.cl1.seeding.SeedIterator;
+import uk.ac.rhul.cs.cl1.support.LookAheadWindow;
+import uk.ac.rhul.cs.cl1.support.OrderMaintainingQueue;
+import uk.ac.rhul.cs.cl1.support.UsedNodeSet;
+import uk.ac.rhul.cs.collections.IntObjectHashMap;
+import uk.ac.rhul.cs.utils.Ordered;
+
+import java.util.List;
+
+/**
+ * Shared seed source and result sink for worker threads that pull their seeds directly
+ * from the seed generator instead of being fed by a coordinator thread.
+ *
+ * Workers call {@link #takeBatch(List)} to grab a batch of seeds, grow a cluster from each
+ * of them and hand the clusters back in a single {@link #commit(List)} call. Each seed is
+ * given a sequence number when it is taken, and the clusters are accepted strictly in the
+ * order of these sequence numbers using an {@link OrderMaintainingQueue}, exactly like the
+ * main loop of {@link uk.ac.rhul.cs.cl1.ClusterONE} does. Therefore, the result does not
+ * depend on the number of workers or the batch size.
+ *
+ * The number of seeds taken but not decided yet is limited by a {@link LookAheadWindow};
+ * workers wait in {@link #takeBatch(List)} while the window is full.
+ *
+ * All the methods are synchronized on the pipeline. Since the workers touch the pipeline
+ * only once per batch, the lock is not contended much even if seeds are cheap to grow.
+ */
+public class SeedPipeline {
+    /**
+     * The iterator that yields the seeds.
+     */
+    private SeedIterator seedIterator;
+
+    /**
+     * The set of nodes that have been used in the accepted clusters so far.
+     */
+    private UsedNodeSet usedNodes;
+
+    /**
+     * Whether seeds that consist of used nodes only should be skipped without growing them.
+     */
+    private boolean rejectSeedsWithOnlyUsedNodes;
+
+    /**
+     * The maximum number of seeds handed out in a single batch.
+     */
+    private int batchSize;
+
+    /**
+     * The window that limits the number of seeds taken but not decided yet.
+     */
+    private LookAheadWindow lookAheadWindow;
+
+    /**
+     * The seeds that have been taken but whose clusters have not been accepted or rejected
+     * yet, keyed by their sequence numbers.
+     */
+    private IntObjectHashMap submittedSeeds = new IntObjectHashMap();
+
+    /**
+     * Queue that restores the order of the clusters committed by the workers.
+     */
+    private OrderMaintainingQueue<ValuedNodeSet> receivedClusters =
+            new OrderMaintainingQueue<ValuedNodeSet>();
+
+    /**
+     * The clusters accepted so far, in the order of their seeds.
+     */
+    private ValuedNodeSetList result = new ValuedNodeSetList();
+
+    /**
+     * The number of seeds pulled from the seed iterator so far, including the rejected ones.
+     */
+    private int numGeneratedSeeds = 0;
+
+    /**
+     * The number of seeds handed out to the workers so far.
+     */
+    private int numPostedSeeds = 0;
+
+    /**
+     * Whether the pipeline was cancelled.
+     */
+    private boolean cancelled = false;
+
+    /**
+     * Constructs a new pipeline.
+     *
+     * @param  seedIterator  the iterator that yields the seeds
+     * @param  usedNodes     the set of used nodes that the pipeline will update
+     * @param  rejectSeedsWithOnlyUsedNodes  whether seeds consisting of used nodes only
+     *                       should be skipped without growing them
+     * @param  batchSize     the maximum number of seeds in a batch
+     * @param  lookAheadWindow  the window that limits the number of seeds taken but not
+     *                       decided yet; it also counts the accepted and discarded clusters
+     */
+    public SeedPipeline(SeedIterator seedIterator, UsedNodeSet usedNodes,
+                        boolean rejectSeedsWithOnlyUsedNodes, int batchSize,
+                        LookAheadWindow lookAheadWindow) {
+        this.seedIterator = seedIterator;
+        this.usedNodes = usedNodes;
+        this.rejectSeedsWithOnlyUsedNodes = rejectSeedsWithOnlyUsedNodes;
+        this.batchSize = Math.max(1, batchSize);
+        this.lookAheadWindow = lookAheadWindow;
+    }
+
+    /**
+     * Cancels the pipeline; subsequent calls to {@link #takeBatch(List)} will return
+     * no seeds.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        notifyAll();
+    }
+
+    /**
+     * Accepts the clusters grown by a worker.
+     *
+     * The clusters are put aside until the clusters of all the seeds with smaller sequence
+     * numbers have arrived. A cluster is then accepted if the nodes of its seed are not
+     * all used by the clusters accepted before it.
+     *
+     * @param  clusters  the clusters grown from a batch of seeds, each with the sequence
+     *                   number of its seed. Seeds that yielded no cluster must be represented
+     *                   by {@link ClusterGrowthWorker#EMPTY_CLUSTER}.
+     */
+    public synchronized void commit(List<Ordered<ValuedNodeSet>> clusters) {
+        receivedClusters.addAll(clusters);
+
+        while (!receivedClusters.isEmpty()) {
+            Ordered<ValuedNodeSet> orderedCluster = receivedClusters.remove();
+            Seed originalSeed = (Seed) submittedSeeds.remove(orderedCluster.sequenceNumber);
+            ValuedNodeSet cluster = orderedCluster.object;
+
+            if (cluster == ClusterGrowthWorker.EMPTY_CLUSTER) {
+                lookAheadWindow.recordEmpty();
+            } else if (!usedNodes.areAllNodesUsedFromSeed(originalSeed)) {
+                result.add(cluster);
+                usedNodes.markSeedAsUsed(originalSeed);
+                usedNodes.markNodeSetAsUsed(cluster);
+                lookAheadWindow.recordAccepted();
+            } else {
+                lookAheadWindow.recordDiscarded();
+            }
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Returns the estimated number of seeds of the seed iterator.
+     *
+     * The estimate is read under the lock of the pipeline since the workers advance the
+     * iterator concurrently.
+     */
+    public synchronized int getEstimatedLength() {
+        return seedIterator.getEstimatedLength();
+    }
+
+    /**
+     * Returns the number of seeds pulled from the seed iterator so far.
+     */
+    public synchronized int getNumGeneratedSeeds() {
+        return numGeneratedSeeds;
+    }
+
+    /**
+     * Returns the clusters accepted so far.
+     *
+     * The returned list is complete only after all the workers have committed their
+     * last batch.
+     */
+    public synchronized ValuedNodeSetList getResult() {
+        return result;
+    }
+
+    /**
+     * Returns whether the pipeline was cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns whether all the seeds handed out have been committed and accepted or rejected.
+     */
+    public synchronized boolean isDrained() {
+        return submittedSeeds.size() == 0;
+    }
+
+    /**
+     * Takes the next batch of seeds from the seed iterator.
+     *
+     * Blocks while the look-ahead window is full. The batch is smaller than the batch
+     * size if the window does not have enough free slots. If the calling thread is
+     * interrupted while waiting, the pipeline is cancelled and the interrupted status
+     * of the thread is kept.
+     *
+     * @param  batch  the list where the seeds will be placed, each with its sequence
+     *                number. The list is cleared first.
+     * @return whether there were any seeds left; false if the pipeline was cancelled
+     */
+    public synchronized boolean takeBatch(List<Ordered<Seed>> batch) {
+        batch.clear();
+
+        /* Seeds in flight are always committed eventually, so the window will open */
+        while (!cancelled && !lookAheadWindow.isOpen(submittedSeeds.size())) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+        }
+
+        int limit = Math.min(batchSize, lookAheadWindow.getSize() - submittedSeeds.size());
+        while (!cancelled && batch.size() < limit && seedIterator.hasNext()) {
+            Seed seed = seedIterator.next();
+            numGeneratedSeeds++;
+
+            if (rejectSeedsWithOnlyUsedNodes && usedNodes.areAllNodesUsedFromSeed(seed))
+                continue;
+
+            submittedSeeds.add(numPostedSeeds, seed);
+            batch.add(new Ordered<Seed>(numPostedSeeds, seed));
+            numPostedSeeds++;
+        }
+
+        return !batch.isEmpty();
+    }
+}
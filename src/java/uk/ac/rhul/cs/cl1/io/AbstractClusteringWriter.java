@@ -1,8 +1,12 @@
 package uk.ac.rhul.cs.cl1.io;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.List;
 
 import uk.ac.rhul.cs.cl1.NodeSet;
@@ -11,9 +15,36 @@ import uk.ac.rhul.cs.cl1.NodeSet;
  * Default implementation for some of the methods of {@link ClusteirngWriter}
  * that will just call {@link writeClustering(List<NodeSet>, OutputStream)} anyway.
  * 
+ * {@link writeClustering(List<NodeSet>, OutputStream)} itself passes the clusters
+ * one by one to the sink returned by {@link #open(OutputStream)}, so subclasses
+ * only have to implement the latter.
+ * 
  * @author tamas
  */
-public abstract class AbstractClusteringWriter implements ClusteringWriter {
+public abstract class AbstractClusteringWriter implements StreamingClusteringWriter {
+	/**
+	 * The size of the buffer between the writers and the output stream, in characters
+	 */
+	public static final int BUFFER_SIZE = 65536;
+	
+	/**
+	 * Writes the clustering to the given stream
+	 * 
+	 * @param clustering   the clustering to be written
+	 * @param stream       the stream to write to
+	 * @throws IOException
+	 */
+	public void writeClustering(List<? extends NodeSet> clustering, OutputStream stream)
+			throws IOException {
+		ClusteringSink sink = open(stream);
+		try {
+			for (NodeSet nodeSet: clustering)
+				sink.add(nodeSet);
+		} finally {
+			sink.close();
+		}
+	}
+	
 	/**
 	 * Writes the clustering to the given file
 	 * 
@@ -36,8 +67,22 @@ public abstract class AbstractClusteringWriter implements ClusteringWriter {
 	public void writeClustering(List<? extends NodeSet> clustering, File file)
 			throws IOException {
 		FileOutputStream os = new FileOutputStream(file);
-		writeClustering(clustering, os);
-		os.close();
+		try {
+			writeClustering(clustering, os);
+		} finally {
+			os.close();
+		}
+	}
+	
+	/**
+	 * Creates a buffered writer for the given stream
+	 * 
+	 * The writer is not flushed until its buffer is full or the sink is closed,
+	 * so the output reaches the stream in large blocks.
+	 * 
+	 * @param stream    the stream to write to
+	 */
+	protected static PrintWriter createWriter(OutputStream stream) {
+		return new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream), BUFFER_SIZE));
 	}
-
 }
@@ -0,0 +1,336 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import uk.ac.rhul.cs.cl1.TaskMonitor;
+import uk.ac.rhul.cs.cl1.TaskMonitorSupport;
+import uk.ac.rhul.cs.graph.FrozenGraph;
+import uk.ac.rhul.cs.graph.Graph;
+import uk.ac.rhul.cs.graph.NodeNameDictionary;
+
+/**
+ * Reads a graph from a binary snapshot written by {@link BinaryGraphWriter}
+ *
+ * Snapshots are binary, therefore they cannot be read from a {@link Reader};
+ * use {@link #readGraph(File)} or {@link #readGraph(InputStream)} instead.
+ * Files are memory-mapped and every section of the snapshot is copied into its
+ * array with a single bulk copy, including the compressed adjacency lists and the
+ * encoded node names. The graph is then built from these arrays as they are, so
+ * loading a snapshot is much faster than parsing the same graph from an edge list.
+ *
+ * @author tamas
+ */
+public class BinaryGraphReader implements GraphReader, TaskMonitorSupport {
+	/**
+	 * The number of bytes read at once when a snapshot is read from a stream
+	 */
+	private static final int STREAM_CHUNK_SIZE = 65536;
+
+	/**
+	 * Task monitor that will be used by the reader to report its progress.
+	 */
+	private TaskMonitor taskMonitor;
+
+	/**
+	 * The arrays of a snapshot
+	 */
+	private static class Snapshot {
+		boolean directed;
+		int numNodes, numEdges;
+		int[] edgesOut, edgesIn;
+		double[] weights;
+		int[] outOffsets, outEdges, outNeighbors;
+		int[] inOffsets, inEdges, inNeighbors;
+		int[] nameLengths;
+		byte[] names;
+
+		/**
+		 * Returns the number of entries in the outgoing adjacency lists
+		 */
+		int getOutAdjacencySize() {
+			return directed ? numEdges : 2 * numEdges;
+		}
+	}
+
+	/**
+	 * Snapshots cannot be read from a character stream.
+	 *
+	 * @throws IOException  always
+	 */
+	public Graph readGraph(Reader reader) throws IOException {
+		throw new IOException("binary graph snapshots cannot be read from a character stream");
+	}
+
+	/**
+	 * Reads a graph from the given snapshot file using memory mapping
+	 *
+	 * @param  file  the snapshot file
+	 * @return the graph, which is already frozen
+	 */
+	public FrozenGraph readGraph(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		FileChannel channel = randomAccessFile.getChannel();
+
+		try {
+			long fileSize = channel.size();
+			if (fileSize < BinaryGraphWriter.HEADER_SIZE)
+				throw new IOException("file is too short to be a graph snapshot");
+
+			ByteBuffer header = map(channel, 0, BinaryGraphWriter.HEADER_SIZE);
+			Snapshot snapshot = readHeader(header.getInt(), header.getInt(), header.getInt(),
+					header.getInt(), header.getInt());
+			int numNodes = snapshot.numNodes, numEdges = snapshot.numEdges;
+			long adjacencySize = 4L * (numNodes + 1) + 8L * snapshot.getOutAdjacencySize();
+			if (snapshot.directed)
+				adjacencySize += 4L * (numNodes + 1) + 8L * numEdges;
+
+			long pos = BinaryGraphWriter.HEADER_SIZE;
+			if (fileSize < pos + 16L * numEdges + adjacencySize + 4L * numNodes)
+				throw new IOException("graph snapshot is truncated");
+
+			setStatus("Reading edges...", 0);
+			snapshot.edgesOut = new int[numEdges];
+			pos = readInts(channel, pos, snapshot.edgesOut);
+			snapshot.edgesIn = new int[numEdges];
+			pos = readInts(channel, pos, snapshot.edgesIn);
+			snapshot.weights = new double[numEdges];
+			map(channel, pos, 8L * numEdges).asDoubleBuffer().get(snapshot.weights);
+			pos += 8L * numEdges;
+
+			setStatus("Reading adjacency lists...", 40);
+			snapshot.outOffsets = new int[numNodes + 1];
+			pos = readInts(channel, pos, snapshot.outOffsets);
+			snapshot.outEdges = new int[snapshot.getOutAdjacencySize()];
+			pos = readInts(channel, pos, snapshot.outEdges);
+			snapshot.outNeighbors = new int[snapshot.getOutAdjacencySize()];
+			pos = readInts(channel, pos, snapshot.outNeighbors);
+			if (snapshot.directed) {
+				snapshot.inOffsets = new int[numNodes + 1];
+				pos = readInts(channel, pos, snapshot.inOffsets);
+				snapshot.inEdges = new int[numEdges];
+				pos = readInts(channel, pos, snapshot.inEdges);
+				snapshot.inNeighbors = new int[numEdges];
+				pos = readInts(channel, pos, snapshot.inNeighbors);
+			}
+
+			setStatus("Reading node names...", 80);
+			snapshot.nameLengths = new int[numNodes];
+			pos = readInts(channel, pos, snapshot.nameLengths);
+			long namesSize = getNamesSize(snapshot.nameLengths);
+			if (fileSize - pos < namesSize)
+				throw new IOException("graph snapshot is truncated");
+			snapshot.names = new byte[(int) namesSize];
+			map(channel, pos, namesSize).get(snapshot.names);
+
+			return createGraph(snapshot);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Reads a graph from a snapshot that is available as a stream only
+	 *
+	 * @param  stream  the stream to read the snapshot from
+	 * @return the graph, which is already frozen
+	 */
+	public FrozenGraph readGraph(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, STREAM_CHUNK_SIZE));
+		byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+
+		Snapshot snapshot = readHeader(in.readInt(), in.readInt(), in.readInt(),
+				in.readInt(), in.readInt());
+		int numNodes = snapshot.numNodes, numEdges = snapshot.numEdges;
+
+		setStatus("Reading edges...", 0);
+		snapshot.edgesOut = readInts(in, buffer, new int[numEdges]);
+		snapshot.edgesIn = readInts(in, buffer, new int[numEdges]);
+		snapshot.weights = new double[numEdges];
+		for (int done = 0; done < numEdges; ) {
+			int count = Math.min(numEdges - done, buffer.length / 8);
+			in.readFully(buffer, 0, 8 * count);
+			ByteBuffer.wrap(buffer).asDoubleBuffer().get(snapshot.weights, done, count);
+			done += count;
+		}
+
+		setStatus("Reading adjacency lists...", 40);
+		snapshot.outOffsets = readInts(in, buffer, new int[numNodes + 1]);
+		snapshot.outEdges = readInts(in, buffer, new int[snapshot.getOutAdjacencySize()]);
+		snapshot.outNeighbors = readInts(in, buffer, new int[snapshot.getOutAdjacencySize()]);
+		if (snapshot.directed) {
+			snapshot.inOffsets = readInts(in, buffer, new int[numNodes + 1]);
+			snapshot.inEdges = readInts(in, buffer, new int[numEdges]);
+			snapshot.inNeighbors = readInts(in, buffer, new int[numEdges]);
+		}
+
+		setStatus("Reading node names...", 80);
+		snapshot.nameLengths = readInts(in, buffer, new int[numNodes]);
+		snapshot.names = new byte[(int) getNamesSize(snapshot.nameLengths)];
+		in.readFully(snapshot.names);
+
+		return createGraph(snapshot);
+	}
+
+	public void setTaskMonitor(TaskMonitor taskMonitor) {
+		this.taskMonitor = taskMonitor;
+	}
+
+	/**
+	 * Creates the graph from the arrays read from the snapshot after validating them.
+	 *
+	 * Every index in the edges and the adjacency lists is range checked, so a corrupted
+	 * snapshot cannot produce a graph whose methods fail with an exception later on.
+	 */
+	private FrozenGraph createGraph(Snapshot snapshot) throws IOException {
+		int i, numNodes = snapshot.numNodes, numEdges = snapshot.numEdges;
+		int[] edgesOut = snapshot.edgesOut, edgesIn = snapshot.edgesIn;
+
+		setStatus("Checking the graph...", 90);
+		for (i = 0; i < numEdges; i++) {
+			int source = edgesOut[i], target = edgesIn[i];
+			if (source < 0 || source >= numNodes || target < 0 || target >= numNodes)
+				throw new IOException("graph snapshot contains an invalid edge");
+		}
+
+		checkAdjacencyLists(snapshot.outOffsets, snapshot.outEdges, snapshot.outNeighbors, numEdges);
+		if (snapshot.directed)
+			checkAdjacencyLists(snapshot.inOffsets, snapshot.inEdges, snapshot.inNeighbors, numEdges);
+
+		NodeNameDictionary nodeNames;
+		try {
+			nodeNames = new NodeNameDictionary(snapshot.names, snapshot.nameLengths);
+		} catch (IllegalArgumentException ex) {
+			throw new IOException("graph snapshot contains invalid node names");
+		}
+
+		FrozenGraph result = new FrozenGraph(snapshot.directed, nodeNames,
+				edgesOut, edgesIn, snapshot.weights,
+				snapshot.outOffsets, snapshot.outEdges, snapshot.outNeighbors,
+				snapshot.inOffsets, snapshot.inEdges, snapshot.inNeighbors);
+		setStatus(null, 100);
+		return result;
+	}
+
+	/**
+	 * Checks that the compressed adjacency lists of a snapshot refer to valid indices.
+	 *
+	 * The lists are only scanned sequentially; an entry that is within range but does
+	 * not match the endpoints of its edge is not detected. Such a snapshot is only
+	 * produced by corrupting the file after it was written.
+	 *
+	 * @param  offsets     the offsets of the adjacency lists
+	 * @param  edges       the edges in the adjacency lists
+	 * @param  neighbors   the neighbors in the adjacency lists
+	 * @param  numEdges    the number of edges in the graph
+	 */
+	private static void checkAdjacencyLists(int[] offsets, int[] edges, int[] neighbors,
+			int numEdges) throws IOException {
+		int i, numNodes = offsets.length - 1;
+
+		if (offsets[0] != 0 || offsets[numNodes] != edges.length)
+			throw new IOException("graph snapshot contains invalid adjacency lists");
+		for (i = 0; i < numNodes; i++) {
+			if (offsets[i + 1] < offsets[i])
+				throw new IOException("graph snapshot contains invalid adjacency lists");
+		}
+		for (i = 0; i < edges.length; i++) {
+			if (edges[i] < 0 || edges[i] >= numEdges || neighbors[i] < 0 || neighbors[i] >= numNodes)
+				throw new IOException("graph snapshot contains invalid adjacency lists");
+		}
+	}
+
+	/**
+	 * Returns the total size of the encoded node names with the given lengths.
+	 */
+	private static long getNamesSize(int[] lengths) throws IOException {
+		long result = 0;
+		for (int length: lengths) {
+			if (length < -1)
+				throw new IOException("graph snapshot contains invalid node names");
+			if (length > 0)
+				result += length;
+		}
+		if (result > Integer.MAX_VALUE - 8)
+			throw new IOException("graph snapshot has too many node names");
+		return result;
+	}
+
+	/**
+	 * Maps the given section of a file into memory.
+	 */
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("graph snapshot section is too large to be mapped");
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * Fills an array with integers from the given position of a file.
+	 *
+	 * @return the position after the integers
+	 */
+	private static long readInts(FileChannel channel, long position, int[] result)
+			throws IOException {
+		map(channel, position, 4L * result.length).asIntBuffer().get(result);
+		return position + 4L * result.length;
+	}
+
+	/**
+	 * Fills an array with integers from a stream, using the given buffer.
+	 *
+	 * @return the array itself
+	 */
+	private static int[] readInts(DataInputStream in, byte[] buffer, int[] result)
+			throws IOException {
+		for (int done = 0; done < result.length; ) {
+			int count = Math.min(result.length - done, buffer.length / 4);
+			in.readFully(buffer, 0, 4 * count);
+			ByteBuffer.wrap(buffer).asIntBuffer().get(result, done, count);
+			done += count;
+		}
+		return result;
+	}
+
+	/**
+	 * Checks the header of a snapshot.
+	 *
+	 * @return a new snapshot with the fields of the header filled in
+	 */
+	private static Snapshot readHeader(int magic, int version, int flags, int numNodes,
+			int numEdges) throws IOException {
+		if (magic != BinaryGraphWriter.MAGIC)
+			throw new IOException("file is not a graph snapshot");
+		if (version != BinaryGraphWriter.VERSION)
+			throw new IOException("unsupported graph snapshot version: " + version);
+
+		boolean directed = (flags & BinaryGraphWriter.FLAG_DIRECTED) != 0;
+		if (numNodes < 0 || numEdges < 0 || numNodes == Integer.MAX_VALUE ||
+				(!directed && numEdges > Integer.MAX_VALUE / 2))
+			throw new IOException("graph snapshot is corrupted");
+
+		Snapshot result = new Snapshot();
+		result.directed = directed;
+		result.numNodes = numNodes;
+		result.numEdges = numEdges;
+		return result;
+	}
+
+	/**
+	 * Reports the progress to the task monitor if there is one.
+	 */
+	private void setStatus(String status, int percent) {
+		if (taskMonitor == null)
+			return;
+		if (status != null)
+			taskMonitor.setStatus(status);
+		taskMonitor.setPercentCompleted(percent);
+	}
+}
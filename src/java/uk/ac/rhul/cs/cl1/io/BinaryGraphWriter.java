@@ -0,0 +1,122 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import uk.ac.rhul.cs.graph.Directedness;
+import uk.ac.rhul.cs.graph.Edge;
+import uk.ac.rhul.cs.graph.FrozenGraph;
+import uk.ac.rhul.cs.graph.Graph;
+import uk.ac.rhul.cs.graph.NodeNameDictionary;
+
+/**
+ * Writes a graph in the binary snapshot format of ClusterONE to an output stream
+ *
+ * The snapshot contains the edge arrays, the weights, the compressed adjacency lists
+ * and the node names of the graph in a layout that {@link BinaryGraphReader} can load
+ * from a memory-mapped file with bulk copies only, without any parsing or rebuilding.
+ * All the numbers are big-endian. The layout is as follows:
+ *
+ * <ul>
+ * <li>the magic number {@link #MAGIC} and the format version {@link #VERSION} (4 bytes each)</li>
+ * <li>flags (4 bytes); bit 0 is set if the graph is directed</li>
+ * <li>the number of nodes and the number of edges (4 bytes each)</li>
+ * <li>the source nodes of the edges, then the target nodes (4 bytes per edge each)</li>
+ * <li>the weights of the edges (8 bytes per edge)</li>
+ * <li>the outgoing adjacency lists in the layout of {@link FrozenGraph}: the offsets
+ *     (4 bytes per node plus 4 bytes), then the edge indices and the neighbor indices
+ *     (4 bytes per entry each; there are two entries per edge in undirected graphs
+ *     and one in directed graphs)</li>
+ * <li>for directed graphs only, the incoming adjacency lists in the same layout</li>
+ * <li>the length of the name of each node in bytes, or -1 if the node has no name
+ *     (4 bytes per node)</li>
+ * <li>the string table: the UTF-8 encoded names of the nodes, concatenated</li>
+ * </ul>
+ *
+ * @author tamas
+ */
+public class BinaryGraphWriter extends AbstractGraphWriter {
+	/**
+	 * Magic number at the start of every snapshot (the characters <tt>CL1G</tt>)
+	 */
+	public static final int MAGIC = 0x434C3147;
+
+	/**
+	 * The version of the snapshot format written by this class
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * Flag that is set if the graph is directed
+	 */
+	public static final int FLAG_DIRECTED = 1;
+
+	/**
+	 * The size of the header in bytes
+	 */
+	public static final int HEADER_SIZE = 20;
+
+	/**
+	 * Writes the binary snapshot of a graph to the given stream
+	 *
+	 * @param  graph   the graph being written
+	 * @param  stream  the stream being written to
+	 */
+	public void writeGraph(Graph graph, OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 65536));
+		int i, numNodes = graph.getNodeCount(), numEdges = graph.getEdgeCount();
+		NodeNameDictionary dictionary = graph.getNodeNameDictionary();
+		byte[][] names = new byte[numNodes][];
+
+		/* The dictionary stores the names in UTF-8 already */
+		for (i = 0; i < numNodes; i++)
+			names[i] = dictionary.getBytes(i);
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(graph.isDirected() ? FLAG_DIRECTED : 0);
+		out.writeInt(numNodes);
+		out.writeInt(numEdges);
+
+		for (Edge e: graph)
+			out.writeInt(e.source);
+		for (Edge e: graph)
+			out.writeInt(e.target);
+		for (i = 0; i < numEdges; i++)
+			out.writeDouble(graph.getEdgeWeight(i));
+
+		writeAdjacencyLists(graph, Directedness.OUT, out);
+		if (graph.isDirected())
+			writeAdjacencyLists(graph, Directedness.IN, out);
+
+		for (i = 0; i < numNodes; i++)
+			out.writeInt(names[i] == null ? -1 : names[i].length);
+		for (i = 0; i < numNodes; i++)
+			if (names[i] != null)
+				out.write(names[i]);
+
+		out.flush();
+	}
+
+	/**
+	 * Writes the adjacency lists of the given direction in the layout of {@link FrozenGraph}
+	 */
+	private void writeAdjacencyLists(Graph graph, Directedness mode, DataOutputStream out)
+			throws IOException {
+		int i, j, n, numNodes = graph.getNodeCount(), offset = 0;
+
+		out.writeInt(0);
+		for (i = 0; i < numNodes; i++) {
+			offset += graph.getDegree(i, mode);
+			out.writeInt(offset);
+		}
+		for (i = 0; i < numNodes; i++)
+			for (j = 0, n = graph.getDegree(i, mode); j < n; j++)
+				out.writeInt(graph.getAdjacentEdgeIndex(i, j, mode));
+		for (i = 0; i < numNodes; i++)
+			for (j = 0, n = graph.getDegree(i, mode); j < n; j++)
+				out.writeInt(graph.getAdjacentNodeIndex(i, j, mode));
+	}
+}
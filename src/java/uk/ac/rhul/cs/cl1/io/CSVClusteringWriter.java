@@ -1,9 +1,16 @@
 package uk.ac.rhul.cs.cl1.io;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import uk.ac.rhul.cs.cl1.quality.DummyQualityFunction;
 import uk.ac.rhul.cs.cl1.NodeSet;
@@ -16,6 +23,11 @@ import uk.ac.rhul.cs.utils.StringUtils;
  * The table will contain some basic statistics about the clusters such as
  * their size, density, internal and boundary weight etc.
  * 
+ * Computing the statistics (especially the P-values) is the expensive part of
+ * writing the table, so the clusters are collected in batches and the rows of a
+ * batch are formatted by multiple threads if the writer is allowed to use more
+ * than one thread. The rows are still written in the order of the clusters.
+ * 
  * @author ntamas
  */
 public class CSVClusteringWriter extends AbstractClusteringWriter {
@@ -26,6 +38,16 @@ public class CSVClusteringWriter extends AbstractClusteringWriter {
 	
 	private QualityFunction qualityFunction = null;
 	
+	/**
+	 * The number of threads used to format the rows
+	 */
+	private int numThreads = 1;
+	
+	/**
+	 * The number of clusters formatted in one go by each thread
+	 */
+	public static final int BATCH_SIZE_PER_THREAD = 64;
+	
 	public CSVClusteringWriter() {
 		this(",", "\"");
 	}
@@ -37,6 +59,13 @@ public class CSVClusteringWriter extends AbstractClusteringWriter {
 		this.setQualityFunction(null);
 	}
 	
+	/**
+	 * Returns the number of threads used to format the rows of the table
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+	
 	public void setColumnSeparator(String columnSep) {
 		this.columnSep = columnSep;
 		this.quoteTriggers = " " + this.columnSep + this.quoteChar;
@@ -48,40 +77,149 @@ public class CSVClusteringWriter extends AbstractClusteringWriter {
 		this.qualityFunction = qualityFunction;
 	}
 	
+	/**
+	 * Sets the number of threads used to format the rows of the table
+	 * 
+	 * @param numThreads  the number of threads; zero or negative numbers mean one
+	 *                    thread per available processor
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		this.numThreads = Math.max(1, numThreads);
+	}
+	
 	public void setQuoteChar(String quoteChar) {
 		this.quoteChar = quoteChar;
 		this.quoteTriggers = " " + this.columnSep + this.quoteChar;
 		this.doubleQuoteChar = this.quoteChar + this.quoteChar;
 	}
 	
-	public void writeClustering(List<? extends NodeSet> clustering,
-			OutputStream stream) throws IOException {
-		PrintWriter wr = new PrintWriter(stream);
-		String[] parts = {
+	public ClusteringSink open(OutputStream stream) throws IOException {
+		PrintWriter wr = createWriter(stream);
+		String[] header = {
 				"Cluster", "Size", "Density", "Internal weight",
 				"Boundary weight", "Quality", "P-value", "Members"
 		};
 		
-		int clusterIndex = 0;
+		wr.println(StringUtils.join(header, columnSep));
+		
+		return new Sink(wr);
+	}
+	
+	/**
+	 * Formats the row of the table that belongs to the given cluster
+	 * 
+	 * @param nodeSet       the cluster
+	 * @param clusterIndex  the index of the cluster, starting from 1
+	 */
+	protected String formatRow(NodeSet nodeSet, int clusterIndex) {
+		String[] parts = new String[8];
+		
+		parts[0] = Integer.toString(clusterIndex);
+		parts[1] = Integer.toString(nodeSet.size());
+		parts[2] = quote(String.format("%.4g", nodeSet.getDensity()));
+		parts[3] = quote(String.format("%.4g", nodeSet.getTotalInternalEdgeWeight()));
+		parts[4] = quote(String.format("%.4g", nodeSet.getTotalBoundaryEdgeWeight()));
+		parts[5] = quote(String.format("%.4g", qualityFunction.calculate(nodeSet)));
+		parts[6] = quote(String.format("%g", nodeSet.getSignificance()));
+		parts[7] = quote(nodeSet.toString(" "));
+		
+		return StringUtils.join(parts, columnSep);
+	}
+	
+	/**
+	 * Sink that collects the clusters in batches and formats the rows of a batch
+	 * in parallel
+	 */
+	private class Sink implements ClusteringSink {
+		private PrintWriter wr;
+		private ExecutorService executor = null;
+		private List<NodeSet> batch = new ArrayList<NodeSet>();
+		private int batchSize;
+		private int numWrittenClusters = 0;
+		
+		Sink(PrintWriter wr) {
+			this.wr = wr;
+			this.batchSize = numThreads * BATCH_SIZE_PER_THREAD;
+			if (numThreads > 1)
+				executor = Executors.newFixedThreadPool(numThreads);
+		}
 		
-		wr.println(StringUtils.join(parts, columnSep));
+		public void add(NodeSet cluster) throws IOException {
+			batch.add(cluster);
+			if (batch.size() >= batchSize)
+				writeBatch();
+		}
 		
-		for (NodeSet nodeSet: clustering) {
-			clusterIndex++;
+		public void close() throws IOException {
+			try {
+				writeBatch();
+				if (wr.checkError())
+					throw new IOException("error while writing the clusters");
+			} finally {
+				if (executor != null)
+					executor.shutdown();
+			}
+		}
+		
+		/**
+		 * Formats and writes the clusters in the current batch
+		 */
+		private void writeBatch() throws IOException {
+			int i, n = batch.size();
 			
-			parts[0] = Integer.toString(clusterIndex);
-			parts[1] = Integer.toString(nodeSet.size());
-			parts[2] = quote(String.format("%.4g", nodeSet.getDensity()));
-			parts[3] = quote(String.format("%.4g", nodeSet.getTotalInternalEdgeWeight()));
-			parts[4] = quote(String.format("%.4g", nodeSet.getTotalBoundaryEdgeWeight()));
-			parts[5] = quote(String.format("%.4g", qualityFunction.calculate(nodeSet)));
-			parts[6] = quote(String.format("%g", nodeSet.getSignificance()));
-			parts[7] = quote(nodeSet.toString(" "));
+			if (executor == null || n < 2) {
+				for (i = 0; i < n; i++)
+					wr.println(formatRow(batch.get(i), ++numWrittenClusters));
+			} else {
+				List<Future<String[]>> futures = new ArrayList<Future<String[]>>();
+				int chunkSize = (n + numThreads - 1) / numThreads;
+				
+				for (i = 0; i < n; i += chunkSize) {
+					final int from = i, to = Math.min(n, i + chunkSize);
+					final int firstIndex = numWrittenClusters + from + 1;
+					futures.add(executor.submit(new Callable<String[]>() {
+						public String[] call() {
+							String[] rows = new String[to - from];
+							for (int j = from; j < to; j++)
+								rows[j - from] = formatRow(batch.get(j), firstIndex + j - from);
+							return rows;
+						}
+					}));
+				}
+				
+				for (Future<String[]> future: futures) {
+					for (String row: getRows(future))
+						wr.println(row);
+				}
+				numWrittenClusters += n;
+			}
 			
-			wr.println(StringUtils.join(parts, columnSep));
+			batch.clear();
 		}
 		
-		wr.flush();
+		/**
+		 * Waits for the rows formatted by a thread
+		 * 
+		 * @throws InterruptedIOException  if the calling thread was interrupted; the
+		 *                                 interrupted status of the thread is kept
+		 */
+		private String[] getRows(Future<String[]> future) throws IOException {
+			try {
+				return future.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while formatting the clusters");
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IOException(cause.getMessage());
+			}
+		}
 	}
 	
 	private String quote(String str) {
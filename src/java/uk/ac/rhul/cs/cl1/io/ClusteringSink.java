@@ -0,0 +1,33 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import java.io.IOException;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+
+/**
+ * Receives the clusters of a clustering one by one and writes them to a stream.
+ * 
+ * Sinks are obtained from {@link StreamingClusteringWriter#open(java.io.OutputStream)}.
+ * Clusters may be added as soon as they are finalized; the sink may keep some of
+ * them in a buffer, but all of them are written when the sink is closed.
+ * 
+ * @author tamas
+ */
+public interface ClusteringSink {
+	/**
+	 * Adds the next cluster of the clustering
+	 * 
+	 * @param cluster   the cluster to be written
+	 * @throws IOException
+	 */
+	public void add(NodeSet cluster) throws IOException;
+	
+	/**
+	 * Writes the clusters that are still buffered and flushes the stream.
+	 * 
+	 * The underlying stream is not closed.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException;
+}
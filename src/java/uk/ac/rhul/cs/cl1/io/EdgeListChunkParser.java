@@ -0,0 +1,354 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+
+import com.sosnoski.util.array.DoubleArray;
+import com.sosnoski.util.array.IntArray;
+
+import uk.ac.rhul.cs.graph.NodeNameDictionary;
+
+/**
+ * Parses a chunk of an edge list file directly from its bytes.
+ *
+ * The chunk must start at the beginning of a line and end at the end of a line.
+ * The parser follows the same rules as {@link EdgeListReader#readGraph(java.io.Reader)}:
+ * lines starting with <tt>#</tt> or <tt>%</tt> are comments, tokens are separated
+ * by spaces or Tabs and the rest of the line after the second token is the weight.
+ *
+ * Node names are collected in a dictionary local to the chunk; each distinct name
+ * gets a local ID in the order of its first occurrence in the chunk and the edges
+ * refer to the nodes by their local IDs. The names are never decoded from UTF-8;
+ * the local dictionaries of the chunks are merged by {@link EdgeListReader} into
+ * the {@link NodeNameDictionary} of the graph.
+ *
+ * @author tamas
+ */
+class EdgeListChunkParser implements Callable<EdgeListChunkParser> {
+	/**
+	 * Powers of ten that are exactly representable as doubles
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * The charset of the input
+	 */
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	/**
+	 * The bytes of the chunk
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Offset of the first byte of each distinct name in the buffer, indexed by local ID
+	 */
+	private IntArray nameOffsets = new IntArray();
+
+	/**
+	 * Length of each distinct name in bytes, indexed by local ID
+	 */
+	private IntArray nameLengths = new IntArray();
+
+	/**
+	 * Hash code of each distinct name, indexed by local ID
+	 */
+	private IntArray nameHashes = new IntArray();
+
+	/**
+	 * Open addressing hash table that maps names to their local IDs plus one; zero
+	 * marks an empty slot. The length is always a power of two.
+	 */
+	private int[] table = new int[1024];
+
+	/**
+	 * The local ID of the source node of each edge
+	 */
+	private IntArray sources = new IntArray();
+
+	/**
+	 * The local ID of the target node of each edge
+	 */
+	private IntArray targets = new IntArray();
+
+	/**
+	 * The weight of each edge
+	 */
+	private DoubleArray weights = new DoubleArray();
+
+	/**
+	 * Constructs a parser for the given chunk.
+	 *
+	 * @param  buffer  the bytes of the chunk from its position to its limit
+	 */
+	public EdgeListChunkParser(ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+	}
+
+	/**
+	 * Parses the chunk and returns the parser itself.
+	 *
+	 * @throws NumberFormatException  if a weight cannot be parsed
+	 */
+	public EdgeListChunkParser call() {
+		int pos = 0, length = buffer.limit();
+
+		while (pos < length) {
+			int lineEnd = pos;
+			byte b;
+			while (lineEnd < length && (b = buffer.get(lineEnd)) != '\n' && b != '\r')
+				lineEnd++;
+			parseLine(pos, lineEnd);
+			pos = lineEnd + 1;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns the number of edges in the chunk.
+	 */
+	public int getEdgeCount() {
+		return sources.size();
+	}
+
+	/**
+	 * Returns the number of distinct node names in the chunk.
+	 */
+	public int getNodeCount() {
+		return nameOffsets.size();
+	}
+
+	/**
+	 * Adds the node names in the chunk to the given dictionary.
+	 *
+	 * The names are copied to the dictionary as they are in the file, without
+	 * decoding them first.
+	 *
+	 * @param  dictionary  the dictionary to add the names to
+	 * @return the index of each name in the dictionary, indexed by local ID
+	 */
+	public int[] addNodeNames(NodeNameDictionary dictionary) {
+		int n = nameOffsets.size();
+		int[] result = new int[n];
+		byte[] bytes = new byte[256];
+
+		for (int i = 0; i < n; i++) {
+			int length = nameLengths.get(i);
+			if (bytes.length < length)
+				bytes = new byte[length];
+			int offset = nameOffsets.get(i);
+			for (int j = 0; j < length; j++)
+				bytes[j] = buffer.get(offset + j);
+			result[i] = dictionary.getOrAdd(bytes, 0, length);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the local ID of the source node of each edge.
+	 */
+	public IntArray getSources() {
+		return sources;
+	}
+
+	/**
+	 * Returns the local ID of the target node of each edge.
+	 */
+	public IntArray getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Returns the weight of each edge.
+	 */
+	public DoubleArray getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Parses a line between the given offsets.
+	 */
+	private void parseLine(int start, int end) {
+		int node1, node2, tokenStart, tokenEnd;
+		double weight;
+
+		if (start == end)
+			return;
+
+		byte first = buffer.get(start);
+		if (first == '#' || first == '%')
+			return;
+
+		tokenStart = nextNonWhitespace(start, end);
+		if (tokenStart == end)
+			return;
+
+		tokenEnd = nextWhitespace(tokenStart, end);
+		if (tokenEnd == end)
+			return;
+
+		node1 = getLocalID(tokenStart, tokenEnd);
+		tokenStart = nextNonWhitespace(tokenEnd, end);
+		if (tokenStart == end)
+			return;
+
+		tokenEnd = nextWhitespace(tokenStart, end);
+		if (tokenEnd == end) {
+			node2 = getLocalID(tokenStart, end);
+			weight = 1.0;
+		} else {
+			node2 = getLocalID(tokenStart, tokenEnd);
+			tokenStart = nextNonWhitespace(tokenEnd, end);
+			if (tokenStart == end)
+				weight = 1.0;
+			else
+				weight = parseWeight(tokenStart, end);
+		}
+
+		sources.add(node1);
+		targets.add(node2);
+		weights.add(weight);
+	}
+
+	/**
+	 * Returns the local ID of the name between the given offsets, assigning a new
+	 * one if the name was not seen before in this chunk.
+	 */
+	private int getLocalID(int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++)
+			hash = 31 * hash + buffer.get(i);
+
+		int mask = table.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		int length = end - start;
+		while (table[slot] != 0) {
+			int id = table[slot] - 1;
+			if (nameHashes.get(id) == hash && nameLengths.get(id) == length &&
+					bytesEqual(nameOffsets.get(id), start, length))
+				return id;
+			slot = (slot + 1) & mask;
+		}
+
+		int id = nameOffsets.size();
+		nameOffsets.add(start);
+		nameLengths.add(length);
+		nameHashes.add(hash);
+		table[slot] = id + 1;
+
+		/* Keep the load factor below one half */
+		if (2 * nameOffsets.size() > table.length)
+			rehash();
+
+		return id;
+	}
+
+	/**
+	 * Checks whether the given byte ranges of the buffer are equal.
+	 */
+	private boolean bytesEqual(int offset1, int offset2, int length) {
+		for (int i = 0; i < length; i++)
+			if (buffer.get(offset1 + i) != buffer.get(offset2 + i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Doubles the size of the hash table.
+	 */
+	private void rehash() {
+		int[] newTable = new int[table.length * 2];
+		int mask = newTable.length - 1;
+		for (int id = 0, n = nameHashes.size(); id < n; id++) {
+			int hash = nameHashes.get(id);
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (newTable[slot] != 0)
+				slot = (slot + 1) & mask;
+			newTable[slot] = id + 1;
+		}
+		table = newTable;
+	}
+
+	/**
+	 * Parses a weight from the given range of the buffer.
+	 *
+	 * Plain decimal numbers with at most 15 significant digits are converted directly;
+	 * since both the digits and the power of ten are exact doubles in this case, the
+	 * single division gives exactly the same result as {@link Double#parseDouble}.
+	 * Everything else is left to {@link Double#parseDouble}, which also throws the
+	 * exception for invalid input.
+	 */
+	private double parseWeight(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		long mantissa = 0;
+		int numDigits = 0, numFractionDigits = 0;
+		boolean seenPoint = false;
+
+		/* Double.parseDouble ignores trailing whitespace and control characters */
+		while (end > start && (buffer.get(end - 1) & 0xff) <= ' ')
+			end--;
+
+		if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+
+		for (; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				numDigits++;
+				if (seenPoint)
+					numFractionDigits++;
+			} else if (b == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				break;
+			}
+		}
+
+		if (i == end && numDigits > 0 && numDigits <= 15 &&
+				numFractionDigits < POWERS_OF_TEN.length) {
+			double result = mantissa / POWERS_OF_TEN[numFractionDigits];
+			return negative ? -result : result;
+		}
+
+		byte[] bytes = new byte[end - start];
+		for (i = start; i < end; i++)
+			bytes[i - start] = buffer.get(i);
+		return Double.parseDouble(new String(bytes, UTF8));
+	}
+
+	/**
+	 * Returns the first offset from the given one where a space or Tab occurs,
+	 * or <code>end</code> if there is none.
+	 */
+	private int nextWhitespace(int from, int end) {
+		for (int i = from; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b == ' ' || b == '\t')
+				return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the first offset from the given one where anything else than a space
+	 * or Tab occurs, or <code>end</code> if there is none.
+	 */
+	private int nextNonWhitespace(int from, int end) {
+		for (int i = from; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b != ' ' && b != '\t')
+				return i;
+		}
+		return end;
+	}
+}
@@ -1,13 +1,27 @@
 package uk.ac.rhul.cs.cl1.io;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.sosnoski.util.array.DoubleArray;
+import com.sosnoski.util.array.IntArray;
 import uk.ac.rhul.cs.cl1.TaskMonitor;
 import uk.ac.rhul.cs.cl1.TaskMonitorSupport;
+import uk.ac.rhul.cs.graph.FrozenGraph;
 import uk.ac.rhul.cs.graph.Graph;
-import uk.ac.rhul.cs.utils.UniqueIDGenerator;
+import uk.ac.rhul.cs.graph.NodeNameDictionary;
 
 /**
  * Reads a graph specified by an edge list representation from an input stream
@@ -19,6 +33,24 @@ public class EdgeListReader implements GraphReader, TaskMonitorSupport {
 	 */
 	private TaskMonitor taskMonitor;
 
+	/**
+	 * The number of threads used by {@link #readGraph(File)}.
+	 */
+	private int numThreads = 1;
+
+	/**
+	 * The approximate size of the chunks parsed by the threads in {@link #readGraph(File)},
+	 * in bytes. Zero means that the size is chosen automatically.
+	 */
+	int chunkSize = 0;
+
+	/**
+	 * Returns the number of threads used when reading a file.
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
 	/**
 	 * Reads a graph specified by an edge list representation
 	 * from the given reader object.
@@ -27,7 +59,6 @@ public class EdgeListReader implements GraphReader, TaskMonitorSupport {
 	 */
 	public Graph readGraph(Reader reader) throws IOException {
 		Graph result = new Graph();
-		UniqueIDGenerator<String> nodeGen = new UniqueIDGenerator<String>(result);
 		BufferedReader bufferedReader = new BufferedReader(reader);
 		String line;
 
@@ -49,26 +80,26 @@ public class EdgeListReader implements GraphReader, TaskMonitorSupport {
 			if (line.charAt(0) == '#' || line.charAt(0) == '%')
 				continue;
 
-			startIndex = nextNonWhitespace(line, 0);
+			startIndex = LineTokenizer.nextNonWhitespace(line, 0);
 			if (startIndex == -1)
 				continue;
 
-			endIndex = nextWhitespace(line, startIndex);
+			endIndex = LineTokenizer.nextWhitespace(line, startIndex);
 			if (endIndex == -1)
 				continue;
 
-			node1 = nodeGen.get(line.substring(startIndex, endIndex));
-			startIndex = nextNonWhitespace(line, endIndex);
+			node1 = result.getOrCreateNode(line.substring(startIndex, endIndex));
+			startIndex = LineTokenizer.nextNonWhitespace(line, endIndex);
 			if (startIndex == -1)
 				continue;
 
-			endIndex = nextWhitespace(line, startIndex);
+			endIndex = LineTokenizer.nextWhitespace(line, startIndex);
 			if (endIndex == -1) {
-				node2 = nodeGen.get(line.substring(startIndex));
+				node2 = result.getOrCreateNode(line.substring(startIndex));
 				weight = 1.0;
 			} else {
-				node2 = nodeGen.get(line.substring(startIndex, endIndex));
-				startIndex = nextNonWhitespace(line, endIndex);
+				node2 = result.getOrCreateNode(line.substring(startIndex, endIndex));
+				startIndex = LineTokenizer.nextNonWhitespace(line, endIndex);
 				if (startIndex == -1) {
 					weight = 1.0;
 				} else {
@@ -93,55 +124,165 @@ public class EdgeListReader implements GraphReader, TaskMonitorSupport {
 		return result;
 	}
 
+	/**
+	 * Reads a graph specified by an edge list representation from the given file.
+	 * 
+	 * The file is memory-mapped and split into chunks on line boundaries. The chunks
+	 * are parsed in parallel directly from the bytes of the file, each with its own
+	 * node name dictionary. The dictionaries and edges of the chunks are then merged
+	 * in the order of the chunks, and the graph is built in one go from the merged
+	 * edge arrays. The nodes and edges get the same indices as they would get from
+	 * {@link #readGraph(Reader)} on a UTF-8 reader of the same file.
+	 * 
+	 * @param  file  the file being read
+	 * @return the graph, which is already frozen
+	 */
+	public FrozenGraph readGraph(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		FileChannel channel = randomAccessFile.getChannel();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+		NodeNameDictionary nodeNames = new NodeNameDictionary();
+		IntArray edgesOut = new IntArray(32, 536870912 /* = 2^29 */);
+		IntArray edgesIn = new IntArray(32, 536870912 /* = 2^29 */);
+		DoubleArray weights = new DoubleArray(32, 536870912 /* = 2^29 */);
+
+		if (taskMonitor != null) {
+			taskMonitor.setPercentCompleted(0);
+			taskMonitor.setStatus("Reading graph...");
+		}
+
+		try {
+			long[] boundaries = findChunkBoundaries(channel);
+			List<Future<EdgeListChunkParser>> futures = new ArrayList<Future<EdgeListChunkParser>>();
+
+			for (int i = 0; i < boundaries.length - 1; i++) {
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i],
+						boundaries[i + 1] - boundaries[i]);
+				futures.add(executor.submit(new EdgeListChunkParser(buffer)));
+			}
+
+			/* Merge the chunks in order while the later ones are still being parsed */
+			for (int i = 0; i < futures.size(); i++) {
+				EdgeListChunkParser chunk = getChunk(futures.get(i));
+				futures.set(i, null);
+
+				int[] localToGlobal = chunk.addNodeNames(nodeNames);
+
+				IntArray sources = chunk.getSources(), targets = chunk.getTargets();
+				DoubleArray chunkWeights = chunk.getWeights();
+				int numEdges = chunk.getEdgeCount();
+				edgesOut.ensureCapacity(edgesOut.size() + numEdges);
+				edgesIn.ensureCapacity(edgesIn.size() + numEdges);
+				weights.ensureCapacity(weights.size() + numEdges);
+				for (int j = 0; j < numEdges; j++) {
+					edgesOut.add(localToGlobal[sources.get(j)]);
+					edgesIn.add(localToGlobal[targets.get(j)]);
+					weights.add(chunkWeights.get(j));
+				}
+
+				if (taskMonitor != null) {
+					taskMonitor.setPercentCompleted((int) (100.0 * boundaries[i + 1] / boundaries[boundaries.length - 1]));
+					taskMonitor.setStatus(nodeNames.size() + " node(s), " + edgesOut.size() + " edge(s)");
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			randomAccessFile.close();
+		}
+
+		return new FrozenGraph(false, nodeNames, edgesOut, edgesIn, weights);
+	}
+
+	/**
+	 * Sets the number of threads used when reading a file.
+	 * 
+	 * @param  numThreads  the number of threads; zero or negative numbers mean one
+	 *                     thread per available processor
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		this.numThreads = Math.max(1, numThreads);
+	}
+
 	public void setTaskMonitor(TaskMonitor taskMonitor) {
 		this.taskMonitor = taskMonitor;
 	}
 
 	/**
-	 * Given a string and a starting index, returns the next index where
-	 * a space or Tab character occurs.
-	 *
-	 * @param  string      the string
-	 * @param  fromIndex   the start index
-	 * @return the smallest index no smaller than startIndex such that the char
-	 *         at the given index is a space or a Tab, or -1 if there are
-	 *         no whitespace characters after the given start index
+	 * Splits the file into chunks that start right after a newline character.
+	 * 
+	 * @return the offsets where the chunks start, followed by the size of the file
 	 */
-	private int nextWhitespace(String string, int fromIndex) {
-		int i, n = string.length();
-		char ch;
-
-		for (i = fromIndex; i < n; i++) {
-			ch = string.charAt(i);
-			if (ch == ' ' || ch == '\t') {
-				return i;
+	private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long targetSize = chunkSize;
+		List<Long> boundaries = new ArrayList<Long>();
+		ByteBuffer buffer = ByteBuffer.allocate(65536);
+
+		/* Aim for a few chunks per thread so the threads are balanced, but keep the
+		 * chunks large enough to make the overhead of mapping them negligible */
+		if (targetSize <= 0)
+			targetSize = Math.max(1 << 22, Math.min(1 << 26, size / (4 * numThreads) + 1));
+
+		long start = 0;
+		boundaries.add(start);
+		while (start < size) {
+			long pos = start + targetSize;
+			if (pos >= size) {
+				start = size;
+			} else {
+				/* Find the next newline at or after pos */
+				start = size;
+				while (pos < size) {
+					buffer.clear();
+					int n = channel.read(buffer, pos);
+					if (n <= 0)
+						break;
+					int i;
+					for (i = 0; i < n; i++) {
+						if (buffer.get(i) == '\n')
+							break;
+					}
+					if (i < n) {
+						start = pos + i + 1;
+						break;
+					}
+					pos += n;
+				}
 			}
+			boundaries.add(start);
 		}
 
-		return -1;
+		long[] result = new long[boundaries.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = boundaries.get(i);
+		if (result.length == 1)
+			result = new long[] { 0, 0 };
+		return result;
 	}
 
 	/**
-	 * Given a string and a starting index, returns the next index where
-	 * anything else than a space or Tab character occurs.
-	 *
-	 * @param  string      the string
-	 * @param  fromIndex   the start index
-	 * @return the smallest index no smaller than startIndex such that the char
-	 *         at the given index is not a space or a Tab, or -1 if there are
-	 *         no non-whitespace characters after the given start index
+	 * Waits for a chunk to be parsed and returns the parser.
+	 * 
+	 * @throws InterruptedIOException  if the calling thread was interrupted; the
+	 *                                 interrupted status of the thread is kept and
+	 *                                 the read is aborted
 	 */
-	private int nextNonWhitespace(String string, int fromIndex) {
-		int i, n = string.length();
-		char ch;
-
-		for (i = fromIndex; i < n; i++) {
-			ch = string.charAt(i);
-			if (ch != ' ' && ch != '\t') {
-				return i;
-			}
+	private EdgeListChunkParser getChunk(Future<EdgeListChunkParser> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while reading the graph");
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause.getMessage());
 		}
-
-		return -1;
 	}
 }
@@ -3,7 +3,6 @@ package uk.ac.rhul.cs.cl1.io;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.util.List;
 
 import uk.ac.rhul.cs.cl1.NodeSet;
 import uk.ac.rhul.cs.graph.Graph;
@@ -18,24 +17,27 @@ import uk.ac.rhul.cs.graph.Graph;
  * @author tamas
  */
 public class GeneProClusteringWriter extends AbstractClusteringWriter {
-	public void writeClustering(List<? extends NodeSet> clustering,
-			OutputStream stream) throws IOException {
-		PrintWriter wr = new PrintWriter(stream);
+	public ClusteringSink open(OutputStream stream) throws IOException {
+		final PrintWriter wr = createWriter(stream);
 		
-		int clusterIndex = 0;
-		String clusterName;
-		
-		for (NodeSet nodeSet: clustering) {
-			Graph graph = nodeSet.getGraph();
+		return new ClusteringSink() {
+			int clusterIndex = 0;
 			
-			clusterIndex++;
-			clusterName = "Cluster " + clusterIndex;
+			public void add(NodeSet nodeSet) {
+				Graph graph = nodeSet.getGraph();
+				String clusterName;
+				
+				clusterIndex++;
+				clusterName = "Cluster " + clusterIndex;
+				
+				for (int nodeIndex: nodeSet) {
+					wr.printf("%s\t%s\n", clusterName, graph.getNodeName(nodeIndex));
+				}
+			}
 			
-			for (int nodeIndex: nodeSet) {
-				wr.printf("%s\t%s\n", clusterName, graph.getNodeName(nodeIndex));
+			public void close() {
+				wr.flush();
 			}
-		}
-		
-		wr.flush();
+		};
 	}
 }
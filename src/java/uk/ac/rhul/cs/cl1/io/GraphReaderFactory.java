@@ -1,6 +1,7 @@
 package uk.ac.rhul.cs.cl1.io;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.TreeSet;
 
 import uk.ac.rhul.cs.utils.StringUtils;
@@ -12,7 +13,7 @@ import uk.ac.rhul.cs.utils.StringUtils;
  */
 public class GraphReaderFactory {
 	public enum Format {
-		EDGE_LIST(), SIF("sif");
+		EDGE_LIST(), SIF("sif"), BINARY("cl1g");
 		
 		TreeSet<String> extensions = null;
 		
@@ -27,7 +28,18 @@ public class GraphReaderFactory {
 			this.extensions = new TreeSet<String>(Arrays.asList(extensions));
 		}
 		
+		/**
+		 * Returns the format of a file based on its extension
+		 * 
+		 * The compression extension of compressed files is ignored, so
+		 * <tt>network.sif.gz</tt> is a SIF file.
+		 * 
+		 * @param filename   the name of the file
+		 */
 		public static Format fromFilename(String filename) {
+			if (isCompressed(filename))
+				filename = filename.substring(0, filename.lastIndexOf('.'));
+			
 			String ext = StringUtils.getFileExtension(filename);
 			for (Format format: Format.values()) {
 				if (format.extensions != null && format.extensions.contains(ext))
@@ -38,6 +50,22 @@ public class GraphReaderFactory {
 		}
 	}
 	
+	/**
+	 * The extension of gzip-compressed files
+	 */
+	public static final String GZIP_EXTENSION = "gz";
+	
+	/**
+	 * Returns whether the file with the given name is compressed, based on its extension
+	 * 
+	 * @param filename   the name of the file
+	 */
+	public static boolean isCompressed(String filename) {
+		if (filename == null)
+			return false;
+		return GZIP_EXTENSION.equals(StringUtils.getFileExtension(filename));
+	}
+	
 	/**
 	 * Constructs a {@link GraphReader} from the given {@link Format}
 	 * 
@@ -49,18 +77,48 @@ public class GraphReaderFactory {
 			return new SIFReader();
 		case EDGE_LIST:
 			return new EdgeListReader();
+		case BINARY:
+			return new BinaryGraphReader();
 		default:
 			return null;
 		}
 	}
 	
+	/**
+	 * Constructs a {@link GraphReader} from the given {@link Format} with the given
+	 * options for SIF files
+	 * 
+	 * The options are passed to {@link SIFReader#setInteractionTypes(Collection)} and
+	 * {@link SIFReader#setWeightColumn(int)}; they are ignored for other formats.
+	 * 
+	 * @param format            the format for which we need a {@link GraphReader}
+	 * @param interactionTypes  the interaction types to keep from a SIF file, or null
+	 *                          to keep all the interactions
+	 * @param weightColumn      the index of the weight column of a SIF file, or -1 if
+	 *                          there are no weights
+	 * @throws IllegalArgumentException  if the weight column is the source node or the
+	 *                                   interaction type
+	 */
+	public static GraphReader fromFormat(Format format, Collection<String> interactionTypes,
+			int weightColumn) {
+		GraphReader reader = fromFormat(format);
+		if (reader instanceof SIFReader) {
+			((SIFReader)reader).setInteractionTypes(interactionTypes);
+			((SIFReader)reader).setWeightColumn(weightColumn);
+		}
+		return reader;
+	}
+	
 	/**
 	 * Constructs a {@link GraphReader} based on the given filename
 	 * 
 	 * The {@link GraphReader} returned depends on the extension of the
 	 * given filename. If the extension is <tt>.sif</tt>, a
-	 * {@link SIFReader} will be returned. All other extensions simply
-	 * return an {@link EdgeListReader}.
+	 * {@link SIFReader} will be returned. <tt>.cl1g</tt> files are binary
+	 * snapshots written by {@link BinaryGraphWriter} and they are read by a
+	 * {@link BinaryGraphReader}. All other extensions simply return an
+	 * {@link EdgeListReader}. A <tt>.gz</tt> extension after any of these
+	 * is ignored; see {@link #isCompressed(String)}.
 	 * 
 	 * @param filename   the name of the file for which we need a graph reader
 	 */
@@ -0,0 +1,156 @@
+package uk.ac.rhul.cs.cl1.io;
+
+/**
+ * Hand-written tokenizer for the lines of the text-based graph formats
+ *
+ * The tokenizer is used instead of {@link String#split(String)} by the graph
+ * readers; it does not compile a regular expression and does not allocate any
+ * substrings until a token is actually requested. The token boundaries are kept
+ * in arrays that are reused from one line to the next.
+ *
+ * @author tamas
+ */
+class LineTokenizer {
+	/**
+	 * The line being tokenized
+	 */
+	private String line;
+
+	/**
+	 * The start offsets of the tokens in the line
+	 */
+	private int[] starts = new int[16];
+
+	/**
+	 * The end offsets of the tokens in the line
+	 */
+	private int[] ends = new int[16];
+
+	/**
+	 * The number of tokens in the line
+	 */
+	private int count = 0;
+
+	/**
+	 * Splits a line at every separator character.
+	 *
+	 * The result is the same as the result of <code>line.split("\\t")</code> if
+	 * <code>tabsOnly</code> is true and <code>line.split("\\s")</code> otherwise:
+	 * consecutive separators delimit empty tokens, but empty tokens at the end of
+	 * the line are dropped.
+	 *
+	 * @param  line      the line to split
+	 * @param  tabsOnly  whether only Tab characters are separators
+	 * @return the number of tokens
+	 */
+	public int split(String line, boolean tabsOnly) {
+		int i, n = line.length(), tokenStart = 0;
+
+		this.line = line;
+		count = 0;
+
+		for (i = 0; i < n; i++) {
+			if (isSeparator(line.charAt(i), tabsOnly)) {
+				addToken(tokenStart, i);
+				tokenStart = i + 1;
+			}
+		}
+		addToken(tokenStart, n);
+
+		while (count > 0 && starts[count - 1] == ends[count - 1])
+			count--;
+
+		return count;
+	}
+
+	/**
+	 * Returns the number of tokens found in the last line.
+	 */
+	public int getTokenCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the token with the given index from the last line.
+	 */
+	public String getToken(int index) {
+		return line.substring(starts[index], ends[index]);
+	}
+
+	/**
+	 * Given a string and a starting index, returns the next index where
+	 * a space or Tab character occurs.
+	 *
+	 * @param  string      the string
+	 * @param  fromIndex   the start index
+	 * @return the smallest index no smaller than startIndex such that the char
+	 *         at the given index is a space or a Tab, or -1 if there are
+	 *         no whitespace characters after the given start index
+	 */
+	public static int nextWhitespace(String string, int fromIndex) {
+		int i, n = string.length();
+		char ch;
+
+		for (i = fromIndex; i < n; i++) {
+			ch = string.charAt(i);
+			if (ch == ' ' || ch == '\t') {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Given a string and a starting index, returns the next index where
+	 * anything else than a space or Tab character occurs.
+	 *
+	 * @param  string      the string
+	 * @param  fromIndex   the start index
+	 * @return the smallest index no smaller than startIndex such that the char
+	 *         at the given index is not a space or a Tab, or -1 if there are
+	 *         no non-whitespace characters after the given start index
+	 */
+	public static int nextNonWhitespace(String string, int fromIndex) {
+		int i, n = string.length();
+		char ch;
+
+		for (i = fromIndex; i < n; i++) {
+			ch = string.charAt(i);
+			if (ch != ' ' && ch != '\t') {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Appends a token to the token arrays.
+	 */
+	private void addToken(int start, int end) {
+		if (count == starts.length) {
+			int[] newStarts = new int[count * 2], newEnds = new int[count * 2];
+			System.arraycopy(starts, 0, newStarts, 0, count);
+			System.arraycopy(ends, 0, newEnds, 0, count);
+			starts = newStarts;
+			ends = newEnds;
+		}
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+	}
+
+	/**
+	 * Returns whether the given character is a separator. If not only Tabs are
+	 * separators, the separators are the characters matched by <tt>\s</tt> in a
+	 * regular expression.
+	 */
+	private static boolean isSeparator(char ch, boolean tabsOnly) {
+		if (ch == '\t')
+			return true;
+		if (tabsOnly)
+			return false;
+		return ch == ' ' || ch == '\n' || ch == '\r' || ch == '\f' || ch == '\u000B';
+	}
+}
@@ -0,0 +1,292 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Input stream that decompresses gzip data on a separate thread
+ *
+ * The decompressor thread fills blocks of a fixed size and hands them over to the
+ * reading thread through a bounded queue; empty blocks are handed back through
+ * another queue and reused. This way the parser of a graph reader and the
+ * decompressor run in parallel, and the memory used by the pipeline is limited
+ * to the given number of blocks no matter how much faster one side is than the
+ * other.
+ *
+ * The decompressor thread closes the gzip stream (and thus the compressed stream)
+ * as soon as it reaches the end of the data, fails or is stopped.
+ *
+ * The stream also keeps track of the time spent by the decompressor thread and
+ * the time the reading thread spent waiting for data, so the costs of
+ * decompression and parsing can be told apart.
+ *
+ * @author tamas
+ */
+public class PipedGZIPInputStream extends InputStream {
+	/**
+	 * The default size of a block in bytes
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+	/**
+	 * The default number of blocks in the pipeline
+	 */
+	public static final int DEFAULT_BLOCK_COUNT = 16;
+
+	/**
+	 * A block of decompressed data
+	 */
+	private static class Block {
+		/** The data itself */
+		byte[] data;
+
+		/** The number of valid bytes in the data, or -1 if the block marks the end of the stream */
+		int length;
+
+		Block(int size) {
+			data = new byte[size];
+		}
+	}
+
+	/**
+	 * The compressed stream
+	 */
+	private InputStream compressedStream;
+
+	/**
+	 * Blocks that are waiting to be filled by the decompressor
+	 */
+	private BlockingQueue<Block> emptyBlocks;
+
+	/**
+	 * Blocks that are waiting to be consumed by the reader
+	 */
+	private BlockingQueue<Block> fullBlocks;
+
+	/**
+	 * The block being consumed by the reader
+	 */
+	private Block currentBlock = null;
+
+	/**
+	 * The position of the next byte to be read in the current block
+	 */
+	private int position = 0;
+
+	/**
+	 * The thread that decompresses the data
+	 */
+	private Thread decompressorThread;
+
+	/**
+	 * The exception thrown by the decompressor, if any
+	 */
+	private volatile IOException decompressorException = null;
+
+	/**
+	 * Whether the end of the stream has been reached or the stream has been closed
+	 */
+	private boolean finished = false;
+
+	/**
+	 * The time spent by the decompressor thread, in nanoseconds
+	 */
+	private volatile long decompressionTime = 0;
+
+	/**
+	 * The time spent by the reading thread while waiting for data, in nanoseconds
+	 */
+	private long waitingTime = 0;
+
+	/**
+	 * Constructs a stream that decompresses the given stream with the default
+	 * block size and block count.
+	 *
+	 * @param  compressedStream  the gzip-compressed stream
+	 */
+	public PipedGZIPInputStream(InputStream compressedStream) throws IOException {
+		this(compressedStream, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT);
+	}
+
+	/**
+	 * Constructs a stream that decompresses the given stream.
+	 *
+	 * @param  compressedStream  the gzip-compressed stream
+	 * @param  blockSize         the size of a block in bytes
+	 * @param  blockCount        the number of blocks in the pipeline; at least two
+	 *                           blocks are needed for the threads to run in parallel
+	 */
+	public PipedGZIPInputStream(InputStream compressedStream, int blockSize, int blockCount) throws IOException {
+		blockCount = Math.max(2, blockCount);
+
+		this.compressedStream = compressedStream;
+		emptyBlocks = new ArrayBlockingQueue<Block>(blockCount);
+		fullBlocks = new ArrayBlockingQueue<Block>(blockCount);
+		for (int i = 0; i < blockCount; i++)
+			emptyBlocks.add(new Block(Math.max(1, blockSize)));
+
+		/* Read the header here so that invalid input is reported right away */
+		final GZIPInputStream gzipStream = new GZIPInputStream(compressedStream, Math.max(512, blockSize));
+
+		decompressorThread = new Thread("gzip decompressor") {
+			public void run() {
+				decompress(gzipStream);
+			}
+		};
+		decompressorThread.setDaemon(true);
+		decompressorThread.start();
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (currentBlock == null || currentBlock.length < 0)
+			return 0;
+		return currentBlock.length - position;
+	}
+
+	/**
+	 * Closes the stream and stops the decompressor thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!finished) {
+			finished = true;
+			decompressorThread.interrupt();
+		}
+		compressedStream.close();
+	}
+
+	/**
+	 * Returns the time spent by the decompressor thread so far in milliseconds,
+	 * including the time it took to read the compressed data.
+	 */
+	public long getDecompressionTime() {
+		return decompressionTime / 1000000;
+	}
+
+	/**
+	 * Returns the time the reading thread spent waiting for decompressed data so
+	 * far in milliseconds.
+	 */
+	public long getWaitingTime() {
+		return waitingTime / 1000000;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!ensureData())
+			return -1;
+		return currentBlock.data[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		if (!ensureData())
+			return -1;
+
+		length = Math.min(length, currentBlock.length - position);
+		System.arraycopy(currentBlock.data, position, buffer, offset, length);
+		position += length;
+		return length;
+	}
+
+	/**
+	 * Body of the decompressor thread.
+	 */
+	private void decompress(InputStream gzipStream) {
+		long startTime = System.nanoTime();
+		Block block = null;
+
+		try {
+			while (true) {
+				/* Waiting for an empty block is not counted as decompression time */
+				decompressionTime += System.nanoTime() - startTime;
+				block = emptyBlocks.take();
+				startTime = System.nanoTime();
+
+				/* Fill the block as much as possible to keep the number of handovers low */
+				int length = 0, n = 0;
+				while (length < block.data.length &&
+						(n = gzipStream.read(block.data, length, block.data.length - length)) >= 0)
+					length += n;
+
+				if (length > 0) {
+					block.length = length;
+					fullBlocks.put(block);
+					block = null;
+				}
+
+				if (n < 0)
+					break;
+			}
+		} catch (IOException ex) {
+			decompressorException = ex;
+		} catch (InterruptedException ex) {
+			/* The stream was closed */
+			return;
+		} finally {
+			decompressionTime += System.nanoTime() - startTime;
+			try {
+				gzipStream.close();
+			} catch (IOException ignored) {
+			}
+		}
+
+		/* Mark the end of the stream; there is always a block left for this since
+		 * the reader returns each block before taking the next one */
+		try {
+			if (block == null)
+				block = emptyBlocks.take();
+			block.length = -1;
+			fullBlocks.put(block);
+		} catch (InterruptedException ex) {
+			/* The stream was closed */
+		}
+	}
+
+	/**
+	 * Makes sure that there is at least one unread byte in the current block.
+	 *
+	 * @return false if the end of the stream was reached
+	 * @throws InterruptedIOException  if the calling thread was interrupted; the
+	 *                                 interrupted status of the thread is kept
+	 */
+	private boolean ensureData() throws IOException {
+		if (finished)
+			return false;
+
+		if (currentBlock != null && position < currentBlock.length)
+			return true;
+
+		if (currentBlock != null) {
+			emptyBlocks.add(currentBlock);
+			currentBlock = null;
+		}
+
+		long startTime = System.nanoTime();
+		try {
+			currentBlock = fullBlocks.take();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for decompressed data");
+		} finally {
+			waitingTime += System.nanoTime() - startTime;
+		}
+		position = 0;
+
+		if (currentBlock.length < 0) {
+			finished = true;
+			if (decompressorException != null)
+				throw decompressorException;
+			return false;
+		}
+
+		return true;
+	}
+}
@@ -3,7 +3,6 @@ package uk.ac.rhul.cs.cl1.io;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.util.List;
 
 import uk.ac.rhul.cs.cl1.NodeSet;
 
@@ -16,12 +15,17 @@ import uk.ac.rhul.cs.cl1.NodeSet;
  * @author tamas
  */
 public class PlainTextClusteringWriter extends AbstractClusteringWriter {
-	public void writeClustering(List<? extends NodeSet> clustering,
-			OutputStream stream) throws IOException {
-		PrintWriter wr = new PrintWriter(stream);
-		for (NodeSet cluster: clustering) {
-			wr.println(cluster.toString("\t"));
-		}
-		wr.flush();
+	public ClusteringSink open(OutputStream stream) throws IOException {
+		final PrintWriter wr = createWriter(stream);
+		
+		return new ClusteringSink() {
+			public void add(NodeSet cluster) {
+				wr.println(cluster.toString("\t"));
+			}
+			
+			public void close() {
+				wr.flush();
+			}
+		};
 	}
 }
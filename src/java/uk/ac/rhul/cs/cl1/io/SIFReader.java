@@ -3,14 +3,24 @@ package uk.ac.rhul.cs.cl1.io;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import uk.ac.rhul.cs.cl1.TaskMonitor;
 import uk.ac.rhul.cs.cl1.TaskMonitorSupport;
 import uk.ac.rhul.cs.graph.Graph;
-import uk.ac.rhul.cs.utils.UniqueIDGenerator;
 
 /**
  * Reads a graph specified in SIF format from an input stream
+ * 
+ * Each line of a SIF file contains a source node, an interaction type and one or
+ * more target nodes. The tokens are separated by whitespace; as soon as the first
+ * Tab character is seen, the reader switches to Tab mode and only Tabs separate
+ * the tokens from then on, so node names may contain spaces. The reader can be
+ * restricted to some of the interaction types, and the weights of the edges can
+ * be taken from one of the columns.
+ * 
  * @author ntamas
  */
 public class SIFReader implements GraphReader, TaskMonitorSupport {
@@ -19,6 +29,31 @@ public class SIFReader implements GraphReader, TaskMonitorSupport {
 	 */
 	private TaskMonitor taskMonitor;
 
+	/**
+	 * The interaction types to keep, or null if all the interactions are kept
+	 */
+	private Set<String> interactionTypes = null;
+
+	/**
+	 * The index of the column that contains the weights, or -1 if there are no weights
+	 */
+	private int weightColumn = -1;
+
+	/**
+	 * Returns the interaction types that are kept, or null if all the interactions are kept
+	 */
+	public Set<String> getInteractionTypes() {
+		return interactionTypes;
+	}
+
+	/**
+	 * Returns the index of the column that contains the weights, or -1 if all the
+	 * weights are equal to 1
+	 */
+	public int getWeightColumn() {
+		return weightColumn;
+	}
+
 	/**
 	 * Reads a graph specified in SIF format from the given reader object
 	 * 
@@ -26,12 +61,11 @@ public class SIFReader implements GraphReader, TaskMonitorSupport {
 	 */
 	public Graph readGraph(Reader reader) throws IOException {
 		Graph result = new Graph();
-		UniqueIDGenerator<String> nodeGen = new UniqueIDGenerator<String>(result);
 		BufferedReader bufferedReader = new BufferedReader(reader);
 		
 		String line;
-		String[] parts;
-		String separator = "\\s";
+		LineTokenizer tokenizer = new LineTokenizer();
+		boolean tabMode = false;
 		
 		int node1, node2, n;
 		int numEdges = 0;
@@ -47,22 +81,30 @@ public class SIFReader implements GraphReader, TaskMonitorSupport {
 			if (line.length() == 0)
 				continue;
 			
-			if (line.contains("\t")) {
+			if (!tabMode && line.indexOf('\t') >= 0) {
 				/* As soon as the first Tab character is seen, the
 				 * parser switches to Tab mode. */
-				separator = "\\t";
+				tabMode = true;
 			}
 			
-			parts = line.split(separator);
-			n = parts.length;
+			n = tokenizer.split(line, tabMode);
 			if (n < 3)
 				continue;
 			
-			node1 = nodeGen.get(parts[0]);
-			weight = 1.0;
+			if (interactionTypes != null && !interactionTypes.contains(tokenizer.getToken(1)))
+				continue;
+			
+			if (weightColumn >= 0 && weightColumn < n)
+				weight = Double.parseDouble(tokenizer.getToken(weightColumn));
+			else
+				weight = 1.0;
+			
+			node1 = result.getOrCreateNode(tokenizer.getToken(0));
 			
 			for (int i = 2; i < n; i++) {
-				node2 = nodeGen.get(parts[i]);
+				if (i == weightColumn)
+					continue;
+				node2 = result.getOrCreateNode(tokenizer.getToken(i));
 				result.createEdge(node1, node2, weight);
 				numEdges++;
 			}
@@ -81,8 +123,38 @@ public class SIFReader implements GraphReader, TaskMonitorSupport {
 		return result;
 	}
 
+	/**
+	 * Restricts the reader to the given interaction types.
+	 * 
+	 * @param  interactionTypes  the interaction types to keep (e.g., <tt>pp</tt>), or
+	 *                           null to keep all the interactions
+	 */
+	public void setInteractionTypes(Collection<String> interactionTypes) {
+		if (interactionTypes == null)
+			this.interactionTypes = null;
+		else
+			this.interactionTypes = new HashSet<String>(interactionTypes);
+	}
+
 	public void setTaskMonitor(TaskMonitor taskMonitor) {
 		this.taskMonitor = taskMonitor;
 	}
 
+	/**
+	 * Sets the index of the column that contains the weights of the edges.
+	 * 
+	 * The columns are indexed from zero; the first two columns are the source node
+	 * and the interaction type. All the other columns of a line except the weight
+	 * column are target nodes, and all the edges of the line get the same weight.
+	 * Lines that are too short to have a weight column get a weight of 1.
+	 * 
+	 * @param  weightColumn  the index of the weight column, or -1 if there are no weights
+	 * @throws IllegalArgumentException  if the column is the source node or the
+	 *                                   interaction type
+	 */
+	public void setWeightColumn(int weightColumn) {
+		if (weightColumn == 0 || weightColumn == 1)
+			throw new IllegalArgumentException("weight column cannot be the source node or the interaction type");
+		this.weightColumn = Math.max(-1, weightColumn);
+	}
 }
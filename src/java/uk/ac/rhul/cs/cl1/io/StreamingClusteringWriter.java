@@ -0,0 +1,24 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Interface specification for clustering writers that accept the clusters
+ * incrementally instead of as a complete list.
+ * 
+ * @author tamas
+ */
+public interface StreamingClusteringWriter extends ClusteringWriter {
+	/**
+	 * Starts writing a clustering to the given stream
+	 * 
+	 * The header of the format (if any) is written immediately; the clusters
+	 * are written as they are added to the returned sink.
+	 * 
+	 * @param stream       the stream to write to
+	 * @return the sink that accepts the clusters
+	 * @throws IOException
+	 */
+	public ClusteringSink open(OutputStream stream) throws IOException;
+}
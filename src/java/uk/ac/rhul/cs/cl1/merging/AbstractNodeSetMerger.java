@@ -1,7 +1,16 @@
 package uk.ac.rhul.cs.cl1.merging;
 
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
 import uk.ac.rhul.cs.cl1.TaskMonitor;
 import uk.ac.rhul.cs.cl1.TaskMonitorSupport;
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.graph.Graph;
+import uk.ac.rhul.cs.utils.ParallelUtils;
+import uk.ac.rhul.cs.utils.ParallelUtils.RangeTask;
+
+import com.sosnoski.util.array.IntArray;
 
 /**
  * Abstract node set merger from which concrete node set mergers will derive.
@@ -14,6 +23,18 @@ public abstract class AbstractNodeSetMerger implements NodeSetMerger, TaskMonito
 	 */
 	protected TaskMonitor taskMonitor;
 	
+	/**
+	 * The number of threads the merger may use.
+	 */
+	protected int numThreads = 1;
+	
+	/**
+	 * Returns the number of threads the merger may use.
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+	
 	/**
 	 * Returns the task monitor this merger reports its progress to.
 	 */
@@ -31,6 +52,64 @@ public abstract class AbstractNodeSetMerger implements NodeSetMerger, TaskMonito
 		this.taskMonitor = monitor;
 	}
 	
+	/**
+	 * Sets the number of threads the merger may use. Zero or negative numbers
+	 * mean one thread per available processor.
+	 * 
+	 * @param numThreads  the number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		this.numThreads = Math.max(1, numThreads);
+	}
+	
+	/**
+	 * Runs a task on the items from zero (inclusive) to n (exclusive) using the
+	 * threads of the merger; see {@link ParallelUtils#runInChunks}. The progress
+	 * is reported to the task monitor of the merger (if any).
+	 * 
+	 * @param  n          the number of items
+	 * @param  chunkSize  the number of items in a chunk
+	 * @param  task       the task to run on the chunks
+	 * @throws CancellationException  if the calling thread was interrupted; the
+	 *                                interrupted status of the thread is kept and
+	 *                                the remaining chunks are not processed
+	 */
+	protected void runInParallel(int n, int chunkSize, RangeTask task) {
+		ParallelUtils.runInChunks(n, chunkSize, numThreads, task, taskMonitor);
+	}
+	
+	/**
+	 * Creates a valued nodeset from the memberships of the nodes in the nodesets
+	 * being merged.
+	 * 
+	 * The value of each node in the result is the number of times it occurs in
+	 * the given array, i.e. the number of merged nodesets that contain it.
+	 * 
+	 * @param  graph        the graph of the nodesets
+	 * @param  memberships  the members of the merged nodesets, concatenated
+	 * @return the merged nodeset
+	 */
+	protected static ValuedNodeSet createMergedNodeSet(Graph graph, IntArray memberships) {
+		int[] members = memberships.toArray();
+		int[] values = new int[members.length];
+		int n = 0;
+		
+		Arrays.sort(members);
+		for (int i = 0; i < members.length; i++) {
+			if (n > 0 && members[n-1] == members[i]) {
+				values[n-1]++;
+			} else {
+				members[n] = members[i];
+				values[n] = 1;
+				n++;
+			}
+		}
+		
+		return new ValuedNodeSet(graph, Arrays.copyOf(members, n), Arrays.copyOf(values, n));
+	}
+	
 	/**
 	 * Constructs a nodeset merger from a string specification.
 	 */
@@ -41,6 +120,8 @@ public abstract class AbstractNodeSetMerger implements NodeSetMerger, TaskMonito
 				return new SinglePassNodeSetMerger();
 			else if (spec.equals("multi"))
 				return new MultiPassNodeSetMerger();
+			else if (spec.equals("lsh") || spec.equals("minhash"))
+				return new MinHashNodeSetMerger();
 			else if (spec.equals("none"))
 				return new DummyNodeSetMerger();
 			else if (spec.equals("dummy"))
@@ -0,0 +1,310 @@
+package uk.ac.rhul.cs.cl1.merging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.sosnoski.util.array.IntArray;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.cl1.similarity.DiceSimilarity;
+import uk.ac.rhul.cs.cl1.similarity.JaccardSimilarity;
+import uk.ac.rhul.cs.cl1.similarity.MatchingScore;
+import uk.ac.rhul.cs.cl1.similarity.SimilarityFunction;
+import uk.ac.rhul.cs.collections.ConcurrentUnionFind;
+import uk.ac.rhul.cs.utils.ParallelUtils.RangeTask;
+
+/**
+ * Merges highly overlapping node sets in a single pass, using locality
+ * sensitive hashing to find the candidate pairs.
+ *
+ * {@link SinglePassNodeSetMerger} scores every pair of nodesets that share at
+ * least one node, which is dominated by the pairs sharing a hub node when there
+ * are millions of nodesets. This merger computes a MinHash sketch of each nodeset
+ * instead and splits the sketches into bands. Only the nodesets that agree on all
+ * the values in at least one band become candidate pairs; the candidates are then
+ * scored exactly with the similarity function and the similar ones are merged
+ * just like in the single-pass merger.
+ *
+ * The number of bands is chosen such that a pair of nodesets whose similarity
+ * reaches the threshold becomes a candidate with at least the probability given
+ * by {@link #getRecall()}. This needs a lower bound on the Jaccard similarity of
+ * such pairs, which is known for the matching score, the Jaccard similarity and
+ * the Dice similarity. For any other similarity function (e.g., the Simpson
+ * coefficient, which is high for a small nodeset inside a large one), this
+ * merger falls back to the exact single-pass algorithm.
+ *
+ * The hash functions are seeded with a constant, so the result does not depend
+ * on the number of threads or on previous runs.
+ *
+ * @author tamas
+ */
+public class MinHashNodeSetMerger extends SinglePassNodeSetMerger {
+	/**
+	 * The largest number of bands that the merger uses
+	 */
+	public static final int MAX_BANDS = 64;
+
+	/**
+	 * The seed of the random generator that creates the hash functions
+	 */
+	private static final long HASH_SEED = 0x5EEDL;
+
+	/**
+	 * The probability that a pair above the similarity threshold becomes a candidate
+	 */
+	private double recall = 0.99;
+
+	/**
+	 * The number of MinHash values in a band
+	 */
+	private int rowsPerBand = 4;
+
+	/**
+	 * Returns a lower bound on the Jaccard similarity of two sets whose similarity
+	 * reaches the given threshold according to the given similarity function.
+	 *
+	 * For the matching score, the bound is attained when one set is inside the
+	 * other one; for the Dice similarity, it follows from J = D / (2 - D).
+	 *
+	 * @return  the bound or zero if no bound is known for the similarity function
+	 */
+	public static double getJaccardLowerBound(SimilarityFunction<?> similarityFunc,
+			double threshold) {
+		if (similarityFunc instanceof MatchingScore || similarityFunc instanceof JaccardSimilarity)
+			return Math.min(threshold, 1.0);
+		if (similarityFunc instanceof DiceSimilarity)
+			return Math.min(threshold, 1.0) / (2 - Math.min(threshold, 1.0));
+		return 0.0;
+	}
+
+	/**
+	 * Returns the probability that a pair above the similarity threshold becomes
+	 * a candidate
+	 */
+	public double getRecall() {
+		return recall;
+	}
+
+	/**
+	 * Returns the number of MinHash values in a band
+	 */
+	public int getRowsPerBand() {
+		return rowsPerBand;
+	}
+
+	/**
+	 * Sets the probability that a pair above the similarity threshold becomes a
+	 * candidate.
+	 *
+	 * Higher values mean more bands, i.e. more hashing and more candidate pairs.
+	 *
+	 * @param  recall  the probability, larger than zero and smaller than one
+	 */
+	public void setRecall(double recall) {
+		if (recall <= 0 || recall >= 1)
+			throw new IllegalArgumentException("recall must be between 0 and 1");
+		this.recall = recall;
+	}
+
+	/**
+	 * Sets the number of MinHash values in a band.
+	 *
+	 * More rows per band mean fewer candidate pairs below the similarity threshold,
+	 * but more bands are needed to reach the same recall. The merger uses fewer rows
+	 * if it could not reach the recall with {@link #MAX_BANDS} bands otherwise.
+	 *
+	 * @param  rowsPerBand  the number of rows, at least one
+	 */
+	public void setRowsPerBand(int rowsPerBand) {
+		if (rowsPerBand < 1)
+			throw new IllegalArgumentException("rowsPerBand must be at least 1");
+		this.rowsPerBand = rowsPerBand;
+	}
+
+	/**
+	 * Merges highly overlapping nodesets and returns a new nodeset list.
+	 *
+	 * @param  similarityFunc  specifies the similarity function to use
+	 * @param  threshold  the overlap threshold. Nodesets will be merged
+	 *                    if their overlap is at least as large as the
+	 *                    given threshold.
+	 *
+	 * @return  a new nodeset list where, with high probability, no two nodesets
+	 *          have an overlap larger than or equal to the given threshold
+	 */
+	@Override
+	public ValuedNodeSetList mergeOverlapping(
+			final ValuedNodeSetList nodeSets,
+			final SimilarityFunction<NodeSet> similarityFunc,
+			final double threshold) {
+		final int numNodeSets = nodeSets.size();
+		double jaccardThreshold = getJaccardLowerBound(similarityFunc, threshold);
+
+		if (numNodeSets == 0 || threshold <= 0 || jaccardThreshold <= 0)
+			return super.mergeOverlapping(nodeSets, similarityFunc, threshold);
+
+		/* Choose the number of rows and bands */
+		int rows = rowsPerBand, bands = countBands(jaccardThreshold, rows);
+		while (bands > MAX_BANDS && rows > 1) {
+			rows--;
+			bands = countBands(jaccardThreshold, rows);
+		}
+		bands = Math.min(bands, MAX_BANDS);
+
+		final int numRows = rows, numBands = bands, numHashes = rows * bands;
+		final ConcurrentUnionFind components = new ConcurrentUnionFind(numNodeSets);
+
+		/* Create the hash functions */
+		final long[] multipliers = new long[numHashes];
+		final long[] increments = new long[numHashes];
+		Random random = new Random(HASH_SEED);
+		for (int i = 0; i < numHashes; i++) {
+			multipliers[i] = random.nextLong() | 1L;
+			increments[i] = random.nextLong();
+		}
+
+		/* Compute the sketches; only the hash of each band is kept */
+		if (taskMonitor != null) {
+			taskMonitor.setStatus("Hashing clusters...");
+			taskMonitor.setPercentCompleted(0);
+		}
+
+		final int[] bandHashes = new int[numNodeSets * numBands];
+		runInParallel(numNodeSets, 256, new RangeTask() {
+			public void run(int from, int to) {
+				int[] sketch = new int[numHashes];
+
+				for (int i = from; i < to; i++) {
+					Arrays.fill(sketch, Integer.MAX_VALUE);
+					for (int member: nodeSets.get(i).getSortedMemberArray()) {
+						for (int h = 0; h < numHashes; h++) {
+							int value = (int) ((member * multipliers[h] + increments[h]) >>> 33);
+							if (value < sketch[h])
+								sketch[h] = value;
+						}
+					}
+
+					for (int band = 0; band < numBands; band++) {
+						long hash = band;
+						for (int row = band * numRows; row < (band + 1) * numRows; row++)
+							hash = (hash + sketch[row]) * 0x9E3779B97F4A7C15L;
+						bandHashes[i * numBands + band] = (int) (hash >>> 32);
+					}
+				}
+			}
+		});
+
+		/* Find the candidate pairs in each band and score them */
+		if (taskMonitor != null) {
+			taskMonitor.setStatus("Finding highly overlapping clusters...");
+			taskMonitor.setPercentCompleted(0);
+		}
+
+		runInParallel(numBands, 1, new RangeTask() {
+			public void run(int from, int to) {
+				for (int band = from; band < to; band++)
+					findSimilarPairsInBand(band, numBands, bandHashes, nodeSets,
+							similarityFunc, threshold, components);
+			}
+		});
+
+		return mergeComponents(nodeSets, components);
+	}
+
+	/**
+	 * Returns the number of bands needed to reach the recall for pairs with the
+	 * given Jaccard similarity.
+	 *
+	 * Two sets with Jaccard similarity j agree on all the rows of a band with
+	 * probability j<sup>r</sup>, so they are missed by all the b bands with
+	 * probability (1 - j<sup>r</sup>)<sup>b</sup>.
+	 */
+	private int countBands(double jaccard, int rows) {
+		double bandProbability = Math.pow(jaccard, rows);
+		if (bandProbability >= 1)
+			return 1;
+		double bands = Math.log(1 - recall) / Math.log(1 - bandProbability);
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(bands)));
+	}
+
+	/**
+	 * Finds the nodesets that agree on all the rows of the given band and merges
+	 * the pairs among them that are similar enough.
+	 *
+	 * The nodesets of a bucket are kept in groups that belong to the same
+	 * component. A nodeset is compared to the members of each other group until
+	 * it is similar to one of them, so a bucket of k copies of the same nodeset
+	 * needs k - 1 comparisons instead of k<sup>2</sup> / 2. Every pair that is
+	 * not in the same component is still checked, so the result is the same as
+	 * if all the pairs in the bucket were scored.
+	 */
+	private void findSimilarPairsInBand(int band, int numBands, int[] bandHashes,
+			ValuedNodeSetList nodeSets, SimilarityFunction<NodeSet> similarityFunc,
+			double threshold, ConcurrentUnionFind components) {
+		int i, numNodeSets = nodeSets.size(), numKeys = 0;
+		long[] keys = new long[numNodeSets];
+		List<IntArray> groups = new ArrayList<IntArray>();
+		List<IntArray> joinedGroups = new ArrayList<IntArray>();
+
+		/* The hash of the band goes into the upper half of the key and the index
+		 * of the nodeset into the lower half, so sorting the keys groups the
+		 * nodesets into buckets in increasing order of their indices. Hash
+		 * collisions only add candidates that fail the exact check. */
+		for (i = 0; i < numNodeSets; i++) {
+			if (!nodeSets.get(i).isEmpty())
+				keys[numKeys++] = ((long) bandHashes[i * numBands + band] << 32) | i;
+		}
+		Arrays.sort(keys, 0, numKeys);
+
+		for (int start = 0, end; start < numKeys; start = end) {
+			long bucket = keys[start] >>> 32;
+			end = start + 1;
+			while (end < numKeys && (keys[end] >>> 32) == bucket)
+				end++;
+			if (end - start < 2)
+				continue;
+
+			groups.clear();
+			for (i = start; i < end; i++) {
+				int current = (int) keys[i];
+				NodeSet nodeSet = nodeSets.get(current);
+
+				joinedGroups.clear();
+				for (IntArray group: groups) {
+					if (!components.isSameSet(current, group.get(0))) {
+						boolean similar = false;
+						for (int k = 0, n = group.size(); k < n && !similar; k++)
+							similar = similarityFunc.getSimilarity(nodeSets.get(group.get(k)),
+									nodeSet) >= threshold;
+						if (!similar)
+							continue;
+						components.union(group.get(0), current);
+					}
+					joinedGroups.add(group);
+				}
+
+				/* The groups that the current nodeset joined are in the same
+				 * component now, so they are merged into the largest one */
+				IntArray joinedGroup = null;
+				for (IntArray group: joinedGroups)
+					if (joinedGroup == null || group.size() > joinedGroup.size())
+						joinedGroup = group;
+				if (joinedGroup == null) {
+					joinedGroup = new IntArray();
+					groups.add(joinedGroup);
+				}
+				for (IntArray group: joinedGroups) {
+					if (group == joinedGroup)
+						continue;
+					for (int k = 0, n = group.size(); k < n; k++)
+						joinedGroup.add(group.get(k));
+					groups.remove(group);
+				}
+				joinedGroup.add(current);
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package uk.ac.rhul.cs.cl1.merging;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -7,15 +8,16 @@ import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
 
+import com.sosnoski.util.array.DoubleArray;
+import com.sosnoski.util.array.IntArray;
 import uk.ac.rhul.cs.cl1.NodeSet;
 import uk.ac.rhul.cs.cl1.similarity.SimilarityFunction;
 import uk.ac.rhul.cs.cl1.ValuedNodeSet;
 import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
 import uk.ac.rhul.cs.graph.Graph;
 import uk.ac.rhul.cs.collections.HashMultimap;
-import uk.ac.rhul.cs.collections.Multiset;
 import uk.ac.rhul.cs.utils.StringUtils;
-import uk.ac.rhul.cs.collections.TreeMultiset;
+import uk.ac.rhul.cs.utils.ParallelUtils.RangeTask;
 import uk.ac.rhul.cs.utils.UnorderedPair;
 
 /**
@@ -118,15 +120,11 @@ public class MultiPassNodeSetMerger extends AbstractNodeSetMerger {
 
 	public ValuedNodeSetList mergeOverlapping(ValuedNodeSetList nodeSets,
 			SimilarityFunction<NodeSet> similarityFunc, double threshold) {
-		int i, j, n = nodeSets.size();
+		int i, n = nodeSets.size();
 		double similarity;
 		ValuedNodeSetList result = new ValuedNodeSetList();
 		HashSet<ValuedNodeSet> activeNodesets = new HashSet<ValuedNodeSet>();
-
-		// The step counting is a bit tricky; instead of storing the actual number of
-		// node set pairs that we have to check in stepsTotal, we divide it by n and
-		// store that to avoid overflows in an integer when n is large.
-		double stepsTotal = (n-1) / 2.0, stepsTaken = 0.0;
+		double stepsTaken = 0.0;
 
 		if (n == 0)
 			return result;
@@ -146,39 +144,26 @@ public class MultiPassNodeSetMerger extends AbstractNodeSetMerger {
 			taskMonitor.setPercentCompleted(0);
 		}
 		
+		// Score only the pairs that share at least one node (the similarity of the
+		// other pairs is zero), then index the pairs in the same order as if we had
+		// scored all of them one by one so that ties are broken the same way
+		int[][] partners = new int[n][];
+		double[][] similarities = new double[n][];
+		findOverlappingPairs(nodeSets, similarityFunc, partners, similarities);
+		
 		for (i = 0; i < n; i++) {
 			ValuedNodeSet v1 = nodeSets.get(i);
-			for (j = i+1; j < n; j++) {
-				ValuedNodeSet v2 = nodeSets.get(j);
-				similarity = similarityFunc.getSimilarity(v1, v2);
-				if (similarity > 0) {
-					NodeSetPair pair = new NodeSetPair(v1, v2, similarity);
-					pairs.add(pair);
-					// debug("  Adding " + pair + " to pairs of " + v1);
-					nodesetsToPairs.put(v1, pair);
-					// debug("  Pairs of " + v1 + " are now " + nodesetsToPairs.get(v1));
-					// qdebug("  Adding " + pair + " to pairs of " + v2);
-					nodesetsToPairs.put(v2, pair);
-					// debug("  Pairs of " + v2 + " are now " + nodesetsToPairs.get(v2));
-				}
+			for (int k = 0; k < partners[i].length; k++) {
+				ValuedNodeSet v2 = nodeSets.get(partners[i][k]);
+				NodeSetPair pair = new NodeSetPair(v1, v2, similarities[i][k]);
+				pairs.add(pair);
+				nodesetsToPairs.put(v1, pair);
+				nodesetsToPairs.put(v2, pair);
 			}
 			if (!nodesetsToPairs.containsKey(v1)) {
 				// No other node set is similar to v1, so add it to the result
 				result.add(v1);
 			}
-
-			stepsTaken += (n - i - 1) / (double)(n);
-			if (stepsTaken > stepsTotal) {
-				stepsTaken = stepsTotal;
-			}
-
-			if (taskMonitor != null) {
-				taskMonitor.setPercentCompleted((int)(100 * (((float)stepsTaken) / stepsTotal)));
-			}
-		}
-
-		if (taskMonitor != null) {
-			taskMonitor.setPercentCompleted(100);
 		}
 
 		// Store which nodesets are still active (i.e. unmerged)
@@ -237,16 +222,7 @@ public class MultiPassNodeSetMerger extends AbstractNodeSetMerger {
 			nodesetsToPairs.remove(v2, pair);
 			
 			// Merge v1 and v2
-			Multiset<Integer> unionMembers = new TreeMultiset<Integer>();
-			unionMembers.addAll(v1.getMembers());
-			unionMembers.addAll(v2.getMembers());
-			
-			ValuedNodeSet unionNodeset = new ValuedNodeSet(graph, unionMembers.elementSet());
-			for (Multiset.Entry<Integer> entry: unionMembers.entrySet()) {
-				Integer elt = entry.getElement();
-				int count = v1.getValue(elt, 0) + v2.getValue(elt, 0);
-				unionNodeset.setValue(elt, count);
-			}
+			ValuedNodeSet unionNodeset = createUnion(graph, v1, v2);
 			
 			// Update the NodeSetPairs related to either v1 or v2
 			boolean v1SubsetOfv2 = unionNodeset.equals(v2);
@@ -432,6 +408,93 @@ public class MultiPassNodeSetMerger extends AbstractNodeSetMerger {
 		return result;
 	}
 	
+	/**
+	 * Creates the union of two valued nodesets.
+	 * 
+	 * The value of each node in the union is the sum of its values in the two
+	 * nodesets. The sorted member arrays are merged directly, so this takes
+	 * linear time.
+	 */
+	private static ValuedNodeSet createUnion(Graph graph, ValuedNodeSet v1, ValuedNodeSet v2) {
+		int[] members1 = v1.getSortedMemberArray(), values1 = v1.getValueArray(0);
+		int[] members2 = v2.getSortedMemberArray(), values2 = v2.getValueArray(0);
+		int[] members = new int[members1.length + members2.length];
+		int[] values = new int[members.length];
+		int i = 0, j = 0, n = 0;
+		
+		while (i < members1.length || j < members2.length) {
+			if (j == members2.length || (i < members1.length && members1[i] < members2[j])) {
+				members[n] = members1[i];
+				values[n] = values1[i++];
+			} else if (i == members1.length || members1[i] > members2[j]) {
+				members[n] = members2[j];
+				values[n] = values2[j++];
+			} else {
+				members[n] = members1[i];
+				values[n] = values1[i++] + values2[j++];
+			}
+			n++;
+		}
+		
+		return new ValuedNodeSet(graph, Arrays.copyOf(members, n), Arrays.copyOf(values, n));
+	}
+	
+	/**
+	 * Finds all the pairs of nodesets with a positive similarity.
+	 * 
+	 * Only the nodesets that share at least one node with a given nodeset are scored;
+	 * these are looked up in a {@link NodeSetIndex}.
+	 * The nodesets are scored in parallel if the merger may use multiple threads.
+	 * 
+	 * @param  nodeSets        the nodesets
+	 * @param  similarityFunc  the similarity function
+	 * @param  partners        array where the indices of the nodesets with a larger index
+	 *                         and a positive similarity will be stored for each nodeset,
+	 *                         in increasing order
+	 * @param  similarities    array where the corresponding similarities will be stored
+	 */
+	private void findOverlappingPairs(final ValuedNodeSetList nodeSets,
+			final SimilarityFunction<NodeSet> similarityFunc,
+			final int[][] partners, final double[][] similarities) {
+		final int n = nodeSets.size();
+		final NodeSetIndex index = new NodeSetIndex(nodeSets);
+		
+		runInParallel(n, 64, new RangeTask() {
+			// Auxiliary arrays for the index; each thread has its own
+			private ThreadLocal<int[]> lastSeenArrays = new ThreadLocal<int[]>() {
+				protected int[] initialValue() {
+					return new int[n];
+				}
+			};
+			
+			public void run(int from, int to) {
+				int[] lastSeen = lastSeenArrays.get();
+				IntArray candidates = new IntArray();
+				IntArray overlapping = new IntArray();
+				DoubleArray candidateSimilarities = new DoubleArray();
+				
+				for (int i = from; i < to; i++) {
+					ValuedNodeSet v1 = nodeSets.get(i);
+					
+					index.findOverlappingNodeSetsAfter(i, lastSeen, overlapping);
+					candidates.clear();
+					candidateSimilarities.clear();
+					for (int k = 0, m = overlapping.size(); k < m; k++) {
+						int j = overlapping.get(k);
+						double similarity = similarityFunc.getSimilarity(v1, nodeSets.get(j));
+						if (similarity > 0) {
+							candidates.add(j);
+							candidateSimilarities.add(similarity);
+						}
+					}
+					
+					partners[i] = candidates.toArray();
+					similarities[i] = candidateSimilarities.toArray();
+				}
+			}
+		});
+	}
+	
 	/**
 	 * Prepares the input nodeset for verification later on.
 	 */
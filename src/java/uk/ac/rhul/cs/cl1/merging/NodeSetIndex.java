@@ -0,0 +1,97 @@
+package uk.ac.rhul.cs.cl1.merging;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.sosnoski.util.array.IntArray;
+import uk.ac.rhul.cs.cl1.NodeSet;
+
+/**
+ * Index that maps the nodes of a graph to the nodesets containing them.
+ *
+ * The index is used by the mergers to find the nodesets that share at least one
+ * node with a given nodeset without looking at all the other nodesets. Once the
+ * index is built, it is read-only and can be queried from multiple threads.
+ *
+ * @author tamas
+ */
+class NodeSetIndex {
+	/**
+	 * The nodesets being indexed.
+	 */
+	private List<? extends NodeSet> nodeSets;
+
+	/**
+	 * For each node, the indices of the nodesets containing the node in increasing order.
+	 * Null for nodes that are not contained in any nodeset.
+	 */
+	private IntArray[] nodesToNodeSetIndexes;
+
+	/**
+	 * Builds an index for the given nodesets.
+	 *
+	 * @param  nodeSets  the nodesets; they must all belong to the same graph
+	 */
+	public NodeSetIndex(List<? extends NodeSet> nodeSets) {
+		this.nodeSets = nodeSets;
+
+		if (nodeSets.isEmpty()) {
+			nodesToNodeSetIndexes = new IntArray[0];
+			return;
+		}
+
+		nodesToNodeSetIndexes = new IntArray[nodeSets.get(0).getGraph().getNodeCount()];
+		for (int i = 0, n = nodeSets.size(); i < n; i++) {
+			for (int member: nodeSets.get(i)) {
+				if (nodesToNodeSetIndexes[member] == null)
+					nodesToNodeSetIndexes[member] = new IntArray();
+				nodesToNodeSetIndexes[member].add(i);
+			}
+		}
+	}
+
+	/**
+	 * Finds the nodesets with a larger index than the given one that share at least
+	 * one node with it.
+	 *
+	 * @param  index      the index of the nodeset
+	 * @param  lastSeen   auxiliary array with at least as many elements as there are
+	 *                    nodesets. The caller must not modify it between calls, and it
+	 *                    must be filled with zeros or negative numbers before the first
+	 *                    call. Threads querying the index concurrently need their own
+	 *                    arrays.
+	 * @param  result     the indices of the nodesets found will be stored here in
+	 *                    increasing order. The array is cleared first.
+	 */
+	public void findOverlappingNodeSetsAfter(int index, int[] lastSeen, IntArray result) {
+		result.clear();
+		for (int member: nodeSets.get(index)) {
+			IntArray array = nodesToNodeSetIndexes[member];
+			for (int k = array.size() - 1; k >= 0; k--) {
+				int j = array.get(k);
+				if (j <= index)
+					break;
+				if (lastSeen[j] != index + 1) {
+					lastSeen[j] = index + 1;
+					result.add(j);
+				}
+			}
+		}
+
+		int n = result.size();
+		if (n > 1) {
+			int[] items = result.toArray();
+			Arrays.sort(items);
+			result.clear();
+			for (int i = 0; i < n; i++)
+				result.add(items[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of nodesets in the index.
+	 */
+	public int size() {
+		return nodeSets.size();
+	}
+}
@@ -8,10 +8,10 @@ import uk.ac.rhul.cs.cl1.NodeSet;
 import uk.ac.rhul.cs.cl1.similarity.SimilarityFunction;
 import uk.ac.rhul.cs.cl1.ValuedNodeSet;
 import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.collections.ConcurrentUnionFind;
 import uk.ac.rhul.cs.graph.BreadthFirstSearch;
 import uk.ac.rhul.cs.graph.Graph;
-import uk.ac.rhul.cs.collections.Multiset;
-import uk.ac.rhul.cs.collections.TreeMultiset;
+import uk.ac.rhul.cs.utils.ParallelUtils.RangeTask;
 
 /**
  * Merges highly overlapping node sets in a node set list in a single
@@ -50,7 +50,7 @@ public class SinglePassNodeSetMerger extends AbstractNodeSetMerger {
 			ValuedNodeSetList nodeSets,
 			SimilarityFunction<NodeSet> similarityFunc,
 			double threshold) {
-		return mergeOverlappingNew(nodeSets, similarityFunc, threshold);
+		return mergeOverlappingParallel(nodeSets, similarityFunc, threshold);
 	}
 
 	public ValuedNodeSetList mergeOverlappingOld(
@@ -111,17 +111,14 @@ public class SinglePassNodeSetMerger extends AbstractNodeSetMerger {
 				visited.set(i);
 			} else {
 				BreadthFirstSearch bfs = new BreadthFirstSearch(overlapGraph, i);
-				Multiset<Integer> members = new TreeMultiset<Integer>();
+				IntArray members = new IntArray();
 				for (int j: bfs) {
-					SortedSet<Integer> newMembers = nodeSets.get(j).getMembers();
-					members.addAll(newMembers);
+					for (int member: nodeSets.get(j).getSortedMemberArray())
+						members.add(member);
 					nodeSets.set(j, null);
 					visited.set(j);
 				}
-				ValuedNodeSet newNodeSet = new ValuedNodeSet(graph, members.elementSet());
-				for (Multiset.Entry<Integer> entry: members.entrySet())
-					newNodeSet.setValue(entry.getElement(), entry.getCount());
-				result.add(newNodeSet);
+				result.add(createMergedNodeSet(graph, members));
 			}
 			
 			if (taskMonitor != null) {
@@ -198,7 +195,7 @@ public class SinglePassNodeSetMerger extends AbstractNodeSetMerger {
 
 		BitSet visited = new BitSet(numNodeSets);
 		IntQueue q = new IntQueue();
-		Multiset<Integer> members = new TreeMultiset<Integer>();
+		IntArray members = new IntArray();
 		// TODO: if we used a Multiset for potentialNeighbors, we could get the intersection
 		// sizes for "free"
 		Set<Integer> potentialNeighbors = new HashSet<Integer>();
@@ -219,7 +216,8 @@ public class SinglePassNodeSetMerger extends AbstractNodeSetMerger {
 				NodeSet currentNodeSet = nodeSets.get(nodeSetIndex);
 
 				// Merge the current nodeset into 'members'
-				members.addAll(currentNodeSet.getMembers());
+				for (int member: currentNodeSet.getSortedMemberArray())
+					members.add(member);
 
 				// Look at the index and find the potential neighbors of the nodeset in the
 				// similarity graph by looking up each of its nodes.
@@ -260,11 +258,7 @@ public class SinglePassNodeSetMerger extends AbstractNodeSetMerger {
 			}
 
 			// Construct a new ValuedNodeSet from 'members' and store it in the result
-			ValuedNodeSet newNodeSet = new ValuedNodeSet(graph, members.elementSet());
-			for (Multiset.Entry<Integer> entry: members.entrySet()) {
-				newNodeSet.setValue(entry.getElement(), entry.getCount());
-			}
-			result.add(newNodeSet);
+			result.add(createMergedNodeSet(graph, members));
 
 			// Update the progress bar
 			if (taskMonitor != null) {
@@ -278,4 +272,156 @@ public class SinglePassNodeSetMerger extends AbstractNodeSetMerger {
 
 		return result;
 	}
+
+	/**
+	 * Merges highly overlapping nodesets using multiple threads.
+	 * 
+	 * The result is the same as the one of {@link #mergeOverlappingNew}, but the
+	 * connected components of the similarity graph are found differently. The
+	 * nodesets sharing at least one node are looked up in a {@link NodeSetIndex}
+	 * and scored concurrently, and the pairs that are similar enough are merged in a
+	 * {@link ConcurrentUnionFind}. Pairs that are already in the same component are
+	 * not scored at all. Finally, the merged nodesets are built concurrently using
+	 * per-thread arrays that count how many nodesets each node occurred in.
+	 * 
+	 * Unlike {@link #mergeOverlappingNew}, this method does not modify the input list.
+	 */
+	public ValuedNodeSetList mergeOverlappingParallel(
+			final ValuedNodeSetList nodeSets,
+			final SimilarityFunction<NodeSet> similarityFunc,
+			final double threshold) {
+		final int numNodeSets = nodeSets.size();
+
+		if (numNodeSets == 0)
+			return new ValuedNodeSetList();
+
+		final ConcurrentUnionFind components = new ConcurrentUnionFind(numNodeSets);
+
+		if (taskMonitor != null) {
+			taskMonitor.setStatus("Indexing clusters...");
+			taskMonitor.setPercentCompleted(0);
+		}
+
+		final NodeSetIndex index = new NodeSetIndex(nodeSets);
+
+		if (taskMonitor != null) {
+			taskMonitor.setPercentCompleted(100);
+			taskMonitor.setStatus("Finding highly overlapping clusters...");
+			taskMonitor.setPercentCompleted(0);
+		}
+
+		runInParallel(numNodeSets, 64, new RangeTask() {
+			// Auxiliary arrays for the index; each thread has its own
+			private ThreadLocal<int[]> lastSeenArrays = new ThreadLocal<int[]>() {
+				protected int[] initialValue() {
+					return new int[numNodeSets];
+				}
+			};
+
+			public void run(int from, int to) {
+				int[] lastSeen = lastSeenArrays.get();
+				IntArray candidates = new IntArray();
+
+				for (int i = from; i < to; i++) {
+					NodeSet nodeSet = nodeSets.get(i);
+					index.findOverlappingNodeSetsAfter(i, lastSeen, candidates);
+					for (int k = 0, n = candidates.size(); k < n; k++) {
+						int j = candidates.get(k);
+						if (components.isSameSet(i, j))
+							continue;
+						if (similarityFunc.getSimilarity(nodeSet, nodeSets.get(j)) >= threshold)
+							components.union(i, j);
+					}
+				}
+			}
+		});
+
+		return mergeComponents(nodeSets, components);
+	}
+
+	/**
+	 * Merges the nodesets in each component of the given union-find structure.
+	 * 
+	 * The merged nodesets are built concurrently using per-thread arrays that
+	 * count how many nodesets each node occurred in; these counts become the
+	 * values of the nodes in the merged nodesets.
+	 * 
+	 * @param  nodeSets    the nodesets to merge
+	 * @param  components  the components of the nodesets
+	 * @return the merged nodesets in the order of the smallest nodeset index in
+	 *         each component
+	 */
+	protected ValuedNodeSetList mergeComponents(final ValuedNodeSetList nodeSets,
+			ConcurrentUnionFind components) {
+		final int numNodeSets = nodeSets.size();
+		final Graph graph = nodeSets.get(0).getGraph();
+		ValuedNodeSetList result = new ValuedNodeSetList();
+
+		// Collect the members of each component. Since the root of each component is
+		// its smallest member, the components are numbered in the order of their
+		// smallest members, which is the order in which mergeOverlappingNew finds them.
+		int[] componentIndexes = new int[numNodeSets];
+		int numComponents = 0;
+		for (int i = 0; i < numNodeSets; i++) {
+			int root = components.find(i);
+			componentIndexes[i] = (root == i) ? numComponents++ : componentIndexes[root];
+		}
+
+		final int[] componentStarts = new int[numComponents + 1];
+		for (int i = 0; i < numNodeSets; i++)
+			componentStarts[componentIndexes[i] + 1]++;
+		for (int i = 0; i < numComponents; i++)
+			componentStarts[i + 1] += componentStarts[i];
+
+		final int[] componentMembers = new int[numNodeSets];
+		int[] nextPositions = componentStarts.clone();
+		for (int i = 0; i < numNodeSets; i++)
+			componentMembers[nextPositions[componentIndexes[i]]++] = i;
+
+		// Build the merged nodesets
+		if (taskMonitor != null) {
+			taskMonitor.setStatus("Merging highly overlapping clusters...");
+			taskMonitor.setPercentCompleted(0);
+		}
+
+		final ValuedNodeSet[] mergedNodeSets = new ValuedNodeSet[numComponents];
+		runInParallel(numComponents, 256, new RangeTask() {
+			// Number of nodesets in the current component containing each node; each
+			// thread has its own array which is cleared after each component
+			private ThreadLocal<int[]> countArrays = new ThreadLocal<int[]>() {
+				protected int[] initialValue() {
+					return new int[graph.getNodeCount()];
+				}
+			};
+
+			public void run(int from, int to) {
+				int[] counts = countArrays.get();
+				IntArray nodes = new IntArray();
+
+				for (int c = from; c < to; c++) {
+					nodes.clear();
+					for (int k = componentStarts[c]; k < componentStarts[c + 1]; k++) {
+						for (int member: nodeSets.get(componentMembers[k])) {
+							if (counts[member] == 0)
+								nodes.add(member);
+							counts[member]++;
+						}
+					}
+
+					int[] members = nodes.toArray();
+					int[] values = new int[members.length];
+					Arrays.sort(members);
+
+					for (int k = 0; k < members.length; k++) {
+						values[k] = counts[members[k]];
+						counts[members[k]] = 0;
+					}
+					mergedNodeSets[c] = new ValuedNodeSet(graph, members, values);
+				}
+			}
+		});
+
+		result.addAll(Arrays.asList(mergedNodeSets));
+		return result;
+	}
 }
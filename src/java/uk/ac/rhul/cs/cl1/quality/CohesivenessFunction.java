@@ -74,15 +74,40 @@ public class CohesivenessFunction implements QualityFunction {
 	 */
 	public double getAdditionAffinity(MutableNodeSet nodeSet, int index) {
 		double num, den;
+		double inWeight = nodeSet.getTotalAdjacentInternalWeight(index);
 		
-		num = nodeSet.totalInternalEdgeWeight + nodeSet.inWeights[index];
+		num = nodeSet.totalInternalEdgeWeight + inWeight;
 		den = nodeSet.totalInternalEdgeWeight + nodeSet.totalBoundaryEdgeWeight +
-				(nodeSet.totalWeights[index] - nodeSet.inWeights[index]) +
+				(nodeSet.getTotalWeight(index) - inWeight) +
 				(nodeSet.size() + 1) * penalty;
 		
 		return num/den;
 	}
 	
+	/**
+	 * Returns an upper bound on the addition affinity of external nodes with a given
+	 * internal weight or less.
+	 * 
+	 * Since the external weight of a node is never negative, the denominator of the
+	 * addition affinity is at least the denominator that we would get for a node whose
+	 * edges all lead to the nodeset. The bound is inflated a tiny bit to account for
+	 * rounding errors in the internal weights that are maintained incrementally.
+	 * This assumes nonnegative edge weights.
+	 * 
+	 * @param   nodeSet         the nodeset being checked
+	 * @param   internalWeight  the total weight of edges between the node being added
+	 *                          and the nodeset
+	 */
+	public double getAdditionAffinityUpperBound(MutableNodeSet nodeSet, double internalWeight) {
+		double num, den;
+		
+		num = nodeSet.totalInternalEdgeWeight + internalWeight;
+		den = nodeSet.totalInternalEdgeWeight + nodeSet.totalBoundaryEdgeWeight +
+				(nodeSet.size() + 1) * penalty;
+		
+		return (num/den) * (1 + 1e-9);
+	}
+	
 	/**
 	 * Returns the removal affinity of a node to this nodeset
 	 * 
@@ -95,10 +120,11 @@ public class CohesivenessFunction implements QualityFunction {
 	 */
 	public double getRemovalAffinity(MutableNodeSet nodeSet, int index) {
 		double num, den;
+		double inWeight = nodeSet.getTotalAdjacentInternalWeight(index);
 		
-		num = nodeSet.totalInternalEdgeWeight - nodeSet.inWeights[index];
+		num = nodeSet.totalInternalEdgeWeight - inWeight;
 		den = nodeSet.totalInternalEdgeWeight + nodeSet.totalBoundaryEdgeWeight -
-				(nodeSet.totalWeights[index] - nodeSet.inWeights[index]) +
+				(nodeSet.getTotalWeight(index) - inWeight) +
 				(nodeSet.size() - 1) * penalty;
 
 		return num/den;
@@ -6,6 +6,9 @@ import uk.ac.rhul.cs.cl1.NodeSet;
 /**
  * Dummy quality function that returns NaN for everything.
  * 
+ * The only exception is the upper bound of the addition affinity, which is
+ * positive infinity since no bound is known.
+ * 
  * @author ntamas
  */
 public class DummyQualityFunction implements QualityFunction {
@@ -17,6 +20,10 @@ public class DummyQualityFunction implements QualityFunction {
 		return Double.NaN;
 	}
 
+	public double getAdditionAffinityUpperBound(MutableNodeSet nodeSet, double internalWeight) {
+		return Double.POSITIVE_INFINITY;
+	}
+
 	public double getRemovalAffinity(MutableNodeSet nodeSet, int index) {
 		return Double.NaN;
 	}
@@ -80,6 +80,10 @@ public class LogLikelihoodFunction implements QualityFunction {
 		return calculate(copy);
 	}
 
+	public double getAdditionAffinityUpperBound(MutableNodeSet nodeSet, double internalWeight) {
+		return Double.POSITIVE_INFINITY;
+	}
+
 	public double getRemovalAffinity(MutableNodeSet nodeSet, int index) {
 		// TODO more efficient implementation
 		if (!nodeSet.contains(index))
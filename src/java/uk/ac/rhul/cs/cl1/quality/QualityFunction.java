@@ -30,6 +30,20 @@ public interface QualityFunction {
 	 */
 	public double getAdditionAffinity(MutableNodeSet nodeSet, int index);
 	
+	/**
+	 * Returns an upper bound on the addition affinity of external nodes with a given
+	 * internal weight or less.
+	 * 
+	 * Growth processes may use this bound to skip external nodes that cannot be
+	 * better than the best candidate found so far. Implementations that know no
+	 * such bound should return positive infinity.
+	 * 
+	 * @param   nodeSet         the nodeset being checked
+	 * @param   internalWeight  the total weight of edges between the node being added
+	 *                          and the nodeset
+	 */
+	public double getAdditionAffinityUpperBound(MutableNodeSet nodeSet, double internalWeight);
+	
 	/**
 	 * Returns the removal affinity of a node to this nodeset
 	 * 
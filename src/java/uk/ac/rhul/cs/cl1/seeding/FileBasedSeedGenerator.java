@@ -12,8 +12,6 @@ import java.util.TreeSet;
 import uk.ac.rhul.cs.cl1.MutableNodeSet;
 import uk.ac.rhul.cs.graph.Graph;
 
-import com.sosnoski.util.hashmap.StringIntHashMap;
-
 /**
  * Seed generator where seeds will be generated according to the contents of
  * a file.
@@ -79,9 +77,6 @@ public class FileBasedSeedGenerator extends SeedGenerator {
 		/** A mutable node set that contains no nodes */
 		MutableNodeSet emptyNodeSet;
 
-		/** A map mapping node names to indices */
-		StringIntHashMap namesToIndices = new StringIntHashMap();
-
 		/** Nodes that have not been used so far */
 		TreeSet<Integer> unusedNodes;
 		
@@ -92,12 +87,10 @@ public class FileBasedSeedGenerator extends SeedGenerator {
 			
 			File f = new File(filename);
 			
-			/* Populate the mapping from node names to node indices */
+			/* Node names are looked up in the name dictionary of the graph */
 			int n = graph.getNodeCount();
-			for (int i = 0; i < n; i++) {
-				namesToIndices.add(graph.getNodeName(i), i);
+			for (int i = 0; i < n; i++)
 				unusedNodes.add(i);
-			}
 			
 			try {
 				reader = new BufferedReader(new FileReader(f));
@@ -143,7 +136,7 @@ public class FileBasedSeedGenerator extends SeedGenerator {
 				/* Process current line */
 				while (st.hasMoreTokens()) {
 					String name = st.nextToken();
-					int idx = namesToIndices.get(name);
+					int idx = graph.getNodeIndex(name);
 					if (idx >= 0) {
 						currentNodeSet.add(idx);
 						unusedNodes.remove(idx);
@@ -1,23 +1,55 @@
 package uk.ac.rhul.cs.cl1.seeding;
 
-import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import uk.ac.rhul.cs.graph.BronKerboschMaximalCliqueFinder;
 import uk.ac.rhul.cs.graph.Graph;
-import uk.ac.rhul.cs.utils.BlockingQueueAdapter;
 
 /**
  * Seed generator that returns every maximal clique of a graph as a seed.
- * 
- * Maximal cliques are sought for in a separate thread; a blocking queue is
- * used to store the detected cliques. The contents of the queue is produced
- * by a {@link BronKerboschMaximalCliqueFinder} and consumed by the user of
- * the maximal clique seed generator via its iterator.
- * 
+ *
+ * Maximal cliques are sought for by a {@link BronKerboschMaximalCliqueFinder}
+ * running as a task on an executor shared by all the clique seed generators.
+ * The finder passes the cliques to the iterator through a bounded blocking
+ * queue, so it never runs too much ahead of the consumer. Closing the iterator
+ * stops the finder. If the finder fails, the iterator throws its exception
+ * after the last clique found.
+ *
  * @author ntamas
  */
 public class MaximalCliqueSeedGenerator extends SeedGenerator {
+	/**
+	 * The capacity of the queue between the clique finder and the iterator
+	 */
+	private static final int QUEUE_CAPACITY = 256;
+
+	/**
+	 * Marker that is put in the queue after the last clique
+	 */
+	private static final int[] END_OF_CLIQUES = new int[0];
+
+	/**
+	 * The executor that runs the clique finders of all the iterators
+	 */
+	private static ExecutorService executor = null;
+
+	/**
+	 * The size of the smallest clique that is returned as a seed
+	 */
+	private int minCliqueSize = 1;
+
+	/**
+	 * The number of threads used by the clique finder
+	 */
+	private int numThreads = 1;
+
 	/**
 	 * Constructs a maximal clique seed generator with no associated graph.
 	 */
@@ -32,6 +64,69 @@ public class MaximalCliqueSeedGenerator extends SeedGenerator {
 		super(graph);
 	}
 
+	/**
+	 * Constructs a maximal clique seed generator associated to the given graph
+	 * that returns only the cliques with at least the given number of nodes.
+	 */
+	public MaximalCliqueSeedGenerator(Graph graph, int minCliqueSize) {
+		super(graph);
+		setMinCliqueSize(minCliqueSize);
+	}
+
+	/**
+	 * Returns the executor that runs the clique finders, creating it if needed.
+	 *
+	 * The threads of the executor are daemon threads so they do not keep the
+	 * application alive.
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "maximal clique finder");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Returns the size of the smallest clique that is returned as a seed
+	 */
+	public int getMinCliqueSize() {
+		return minCliqueSize;
+	}
+
+	/**
+	 * Returns the number of threads used by the clique finder
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Sets the size of the smallest clique that is returned as a seed
+	 */
+	public void setMinCliqueSize(int minCliqueSize) {
+		this.minCliqueSize = Math.max(1, minCliqueSize);
+	}
+
+	/**
+	 * Sets the number of threads used by the clique finder.
+	 *
+	 * The cliques are returned in the same order regardless of the number of threads.
+	 *
+	 * @param  numThreads  the number of threads; zero or negative numbers mean one
+	 *                     thread per available processor
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		this.numThreads = Math.max(1, numThreads);
+	}
+
 	/**
 	 * Returns -1 as we cannot know in advance how many seeds there will be.
 	 */
@@ -45,62 +140,159 @@ public class MaximalCliqueSeedGenerator extends SeedGenerator {
 	public SeedIterator iterator() {
 		return new IteratorImpl();
 	}
-	
+
 	class IteratorImpl extends SeedIterator {
 		/**
 		 * A maximal clique finder we will use
 		 */
 		BronKerboschMaximalCliqueFinder cliqueFinder;
-		
+
 		/**
 		 * A blocking queue in which the clique finder stores the cliques.
 		 */
-		ArrayBlockingQueue<List<Integer>> cliques =
-			new ArrayBlockingQueue<List<Integer>>(100);
-		
+		BlockingQueue<int[]> cliques = new ArrayBlockingQueue<int[]>(QUEUE_CAPACITY);
+
+		/**
+		 * The task in which the clique finder runs
+		 */
+		Future<?> cliqueFinderTask;
+
+		/**
+		 * The clique that will be returned by the next call to next(), or null
+		 * if it has not been taken from the queue yet
+		 */
+		int[] nextClique = null;
+
+		/**
+		 * The number of cliques put in the queue by the clique finder
+		 */
+		volatile int numFoundCliques = 0;
+
 		/**
-		 * The thread in which the clique finder runs
+		 * Whether the clique finder has finished
 		 */
-		Thread cliqueFinderThread = null;
+		volatile boolean finished = false;
+
+		/**
+		 * Whether the iterator was closed
+		 */
+		volatile boolean closed = false;
 
 		public IteratorImpl() {
-			cliqueFinder = new BronKerboschMaximalCliqueFinder();
-			cliqueFinder.setGraph(graph);
-			
-			cliqueFinderThread = new Thread(new Runnable() {
+			cliqueFinder = new BronKerboschMaximalCliqueFinder(graph);
+			cliqueFinder.setMinCliqueSize(minCliqueSize);
+			cliqueFinder.setNumThreads(numThreads);
+
+			/* The finder calls add() on its own thread; the cliques are dropped
+			 * once the iterator has been closed */
+			final BronKerboschMaximalCliqueFinder.CliqueCollector collector =
+				new BronKerboschMaximalCliqueFinder.CliqueCollector() {
+					public void add(int[] clique) {
+						if (closed)
+							return;
+						/* Count the clique first so the count never lags behind the
+						 * number of cliques taken by the consumer */
+						numFoundCliques++;
+						try {
+							cliques.put(clique);
+						} catch (InterruptedException ex) {
+							cliqueFinder.halt();
+						}
+					}
+				};
+
+			cliqueFinderTask = getExecutor().submit(new Runnable() {
 				public void run() {
-					BlockingQueueAdapter<List<Integer>> cliqueCollection =
-						new BlockingQueueAdapter<List<Integer>>(cliques);
-					cliqueFinder.collectMaximalCliques(cliqueCollection);
+					try {
+						cliqueFinder.findMaximalCliques(collector);
+					} finally {
+						finished = true;
+						if (!closed) {
+							try {
+								cliques.put(END_OF_CLIQUES);
+							} catch (InterruptedException ex) {
+								/* The iterator was closed in the meanwhile */
+							}
+						}
+					}
 				}
 			});
-			cliqueFinderThread.start();
 		}
-		
+
+		/**
+		 * Stops the clique finder.
+		 */
+		@Override
+		public void close() {
+			if (closed)
+				return;
+			closed = true;
+			cliqueFinder.halt();
+			cliqueFinderTask.cancel(true);
+			cliques.clear();
+		}
+
+		/**
+		 * Estimates the number of cliques from the number of cliques found so far
+		 * and the progress of the clique finder.
+		 *
+		 * The estimate is exact once the clique finder has finished, and it is always
+		 * larger than the number of cliques found until then.
+		 */
+		@Override
+		public int getEstimatedLength() {
+			int found = numFoundCliques;
+			if (finished)
+				return found;
+
+			double progress = cliqueFinder.getProgress();
+			int estimate = (progress > 0) ? (int) Math.min(Integer.MAX_VALUE - 1, found / progress) : 0;
+			return Math.max(estimate, found) + 1;
+		}
+
 		public boolean hasNext() {
-			if (cliques.isEmpty()) {
-				/* Queue is empty. Is the thread still running? */
-				return (cliqueFinderThread.isAlive() &&
-					!cliqueFinderThread.isInterrupted());
+			if (nextClique == null) {
+				if (closed)
+					return false;
+				try {
+					nextClique = cliques.take();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					close();
+					return false;
+				}
+				if (nextClique == END_OF_CLIQUES)
+					checkCliqueFinder();
 			}
-			return true;
+			return nextClique != END_OF_CLIQUES;
 		}
 
-		public Seed next() {
-			List<Integer> clique;
-
+		/**
+		 * Waits for the clique finder task to terminate and rethrows its exception
+		 * if it failed.
+		 */
+		private void checkCliqueFinder() {
 			try {
-				clique = cliques.take();
+				cliqueFinderTask.get();
 			} catch (InterruptedException ex) {
-				return null;
+				Thread.currentThread().interrupt();
+				close();
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new RuntimeException(cause);
 			}
+		}
 
-			int[] members = new int[clique.size()];
-			int i = 0;
-			for (int node: clique) {
-				members[i++] = node;
-			}
+		public Seed next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
 
+			int[] members = nextClique;
+			nextClique = null;
 			return new Seed(graph, members);
 		}
 	}
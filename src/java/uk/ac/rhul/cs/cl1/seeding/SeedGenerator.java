@@ -62,6 +62,8 @@ implements Iterable<Seed>, Serializable {
 	 * <li><tt>nodes</tt> - generates a singleton seed for each node of the graph</li>
 	 * <li><tt>edges</tt> - generates a seed containing the two endpoints for each edge of the graph</li>
 	 * <li><tt>cliques</tt> - generates a seed for every maximal clique in the graph</li>
+	 * <li><tt>cliques(<i>k</i>)</tt> - generates a seed for every maximal clique in the
+	 *     graph that has at least <i>k</i> nodes</li>
 	 * <li><tt>stdin</tt> - reads seeds from the standard input. Each line in the standard
 	 *     input must contain node names spearated by spaces.
 	 * <li><tt>file(<i>filename.txt</i>)</tt> - opens <tt>filename.txt</tt> and interprets
@@ -87,6 +89,15 @@ implements Iterable<Seed>, Serializable {
 		if (specification.equals("cliques"))
 			return new MaximalCliqueSeedGenerator(graph);
 		
+		if (specification.startsWith("cliques(") && specification.endsWith(")")) {
+			String minSize = StringUtils.substring(specification, 8, -1);
+			try {
+				return new MaximalCliqueSeedGenerator(graph, Integer.parseInt(minSize.trim()));
+			} catch (NumberFormatException ex) {
+				throw new InstantiationException("invalid minimum clique size: "+minSize);
+			}
+		}
+		
 		if (specification.equals("stdin"))
 			return new StreamBasedSeedGenerator(graph, System.in);
 		
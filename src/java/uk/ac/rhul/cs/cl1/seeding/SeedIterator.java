@@ -32,6 +32,17 @@ t	 * @return   the number of seeds that the iterator will generate
 		return -1;
 	}
 	
+	/**
+	 * Releases the resources held by the iterator.
+	 *
+	 * This must be called when the iteration is abandoned before the iterator is
+	 * exhausted, e.g., when the algorithm using the seeds is cancelled. Iterators
+	 * that generate seeds in the background stop doing so. It does nothing by
+	 * default.
+	 */
+	public void close() {
+	}
+	
 	/**
 	 * Removals are not supported in seed iterators by default.
 	 */
@@ -0,0 +1,208 @@
+package uk.ac.rhul.cs.cl1.support;
+
+/**
+ * Adaptive limit on the number of seeds that may be grown ahead of the cluster that
+ * is accepted or rejected next, with counters that keep track of the wasted work.
+ *
+ * <p>When seeds consisting of used nodes only are rejected, the seeds being grown in
+ * parallel are speculative: a cluster grown from a seed is discarded if the clusters
+ * accepted before it have used up all the nodes of its seed in the meantime. A sequential
+ * run would not have grown these seeds at all. The more seeds are in flight, the more
+ * likely it is that their clusters are discarded, so the window shrinks when the ratio
+ * of discarded clusters rises and grows back when it falls.</p>
+ *
+ * <p>The ratio is evaluated in rounds; a round ends when the number of clusters decided
+ * since the previous round reaches the current size of the window (but at least
+ * {@link #MIN_ROUND_LENGTH}). The window is halved if more than {@link #SHRINK_RATIO}
+ * of the clusters in the round were discarded and it is grown by a quarter if less
+ * than {@link #GROW_RATIO} were discarded.</p>
+ *
+ * <p>The class is not thread-safe; it should be used by the thread that accepts or
+ * rejects the clusters.</p>
+ */
+public class LookAheadWindow {
+    /**
+     * The ratio of discarded clusters in a round above which the window is shrunk.
+     */
+    public static final double SHRINK_RATIO = 0.25;
+
+    /**
+     * The ratio of discarded clusters in a round below which the window is grown.
+     */
+    public static final double GROW_RATIO = 0.05;
+
+    /**
+     * The minimum number of clusters that must be decided before the size is adjusted.
+     */
+    public static final int MIN_ROUND_LENGTH = 16;
+
+    /**
+     * The minimum size of the window.
+     */
+    private int minSize;
+
+    /**
+     * The maximum size of the window.
+     */
+    private int maxSize;
+
+    /**
+     * The current size of the window.
+     */
+    private int size;
+
+    /**
+     * Whether the size of the window is adjusted according to the ratio of discarded clusters.
+     */
+    private boolean adaptive;
+
+    /**
+     * The number of clusters that were accepted so far.
+     */
+    private int numAccepted = 0;
+
+    /**
+     * The number of clusters that were grown but discarded so far.
+     */
+    private int numDiscarded = 0;
+
+    /**
+     * The number of seeds that yielded no cluster at all so far.
+     */
+    private int numEmpty = 0;
+
+    /**
+     * The number of clusters accepted in the current round.
+     */
+    private int roundAccepted = 0;
+
+    /**
+     * The number of clusters discarded in the current round.
+     */
+    private int roundDiscarded = 0;
+
+    /**
+     * Constructs a new window that starts at its maximum size.
+     *
+     * @param  minSize   the minimum size of the window
+     * @param  maxSize   the maximum size of the window
+     * @param  adaptive  whether to adjust the size of the window. Non-adaptive windows
+     *                   keep their maximum size and only count the clusters.
+     */
+    public LookAheadWindow(int minSize, int maxSize, boolean adaptive) {
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.size = this.maxSize;
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Returns the number of clusters that were accepted so far.
+     */
+    public int getNumAccepted() {
+        return numAccepted;
+    }
+
+    /**
+     * Returns the number of clusters that were grown but discarded so far because
+     * all the nodes of their seeds had been used by the time they were decided.
+     */
+    public int getNumDiscarded() {
+        return numDiscarded;
+    }
+
+    /**
+     * Returns the number of seeds that yielded no cluster at all so far.
+     */
+    public int getNumEmpty() {
+        return numEmpty;
+    }
+
+    /**
+     * Returns the current size of the window.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the ratio of the discarded clusters among all the clusters that were
+     * accepted or discarded so far.
+     */
+    public double getWasteRatio() {
+        int total = numAccepted + numDiscarded;
+        return total == 0 ? 0.0 : numDiscarded / (double) total;
+    }
+
+    /**
+     * Returns whether the size of the window is adjusted according to the ratio of
+     * discarded clusters.
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Returns whether another seed may be started when the given number of seeds
+     * are in flight.
+     *
+     * @param  numSeedsInFlight  the number of seeds that were started but whose
+     *                           clusters were not accepted or rejected yet
+     */
+    public boolean isOpen(int numSeedsInFlight) {
+        return numSeedsInFlight < size;
+    }
+
+    /**
+     * Records that a cluster was accepted.
+     */
+    public void recordAccepted() {
+        numAccepted++;
+        roundAccepted++;
+        adjustSizeIfNeeded();
+    }
+
+    /**
+     * Records that a cluster was grown but discarded because all the nodes of its
+     * seed had been used by the clusters accepted before it.
+     */
+    public void recordDiscarded() {
+        numDiscarded++;
+        roundDiscarded++;
+        adjustSizeIfNeeded();
+    }
+
+    /**
+     * Records that a seed yielded no cluster at all.
+     */
+    public void recordEmpty() {
+        numEmpty++;
+    }
+
+    @Override
+    public String toString() {
+        return numAccepted + " accepted, " + numDiscarded + " discarded (" +
+                String.format("%.1f", 100.0 * getWasteRatio()) + "% wasted), " +
+                numEmpty + " empty, window size " + size;
+    }
+
+    /**
+     * Adjusts the size of the window at the end of a round.
+     */
+    private void adjustSizeIfNeeded() {
+        int roundLength = roundAccepted + roundDiscarded;
+        if (roundLength < Math.max(size, MIN_ROUND_LENGTH))
+            return;
+
+        if (adaptive) {
+            double ratio = roundDiscarded / (double) roundLength;
+            if (ratio > SHRINK_RATIO)
+                size = Math.max(minSize, size / 2);
+            else if (ratio < GROW_RATIO)
+                size = Math.min(maxSize, size + Math.max(1, size / 4));
+        }
+
+        roundAccepted = 0;
+        roundDiscarded = 0;
+    }
+}
@@ -22,8 +22,6 @@ import uk.ac.rhul.cs.graph.FruchtermanReingoldLayoutAlgorithm;
 import uk.ac.rhul.cs.graph.Graph;
 import uk.ac.rhul.cs.graph.GraphLayoutAlgorithm;
 
-import com.sosnoski.util.hashmap.ObjectIntHashMap;
-
 /**
  * Table model that can be used to show a list of {@link NodeSet} objects
  * in a JTable.
@@ -260,7 +258,6 @@ public class NodeSetTableModel extends AbstractTableModel {
 		for (ValuedNodeSet nodeSet: nodeSets) {
 			HashMap<Integer, Color> subgraphColorMap = new HashMap<Integer, Color>();
 			Graph subgraph = nodeSet.getSubgraph();
-			ObjectIntHashMap nodeNameIndex = subgraph.getNodeNameHashMap();
 			
 			boolean onlyCores = true;
 			for (int nodeIndex: nodeSet)
@@ -272,8 +269,8 @@ public class NodeSetTableModel extends AbstractTableModel {
 			if (!onlyCores) {
 				for (int nodeIndex: nodeSet) {
 					if (nodeSet.getValue(nodeIndex) == 1) {
-						int id = nodeNameIndex.get(Integer.toString(nodeIndex));
-						if (id != ObjectIntHashMap.DEFAULT_NOT_FOUND)
+						int id = subgraph.getNodeIndex(Integer.toString(nodeIndex));
+						if (id >= 0)
 							subgraphColorMap.put(id, DARK_RED);
 					}
 				}
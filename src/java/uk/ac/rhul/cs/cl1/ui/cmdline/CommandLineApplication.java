@@ -1,9 +1,12 @@
 package uk.ac.rhul.cs.cl1.ui.cmdline;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collection;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -15,12 +18,16 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 
 import uk.ac.rhul.cs.cl1.*;
+import uk.ac.rhul.cs.cl1.io.BinaryGraphReader;
+import uk.ac.rhul.cs.cl1.io.BinaryGraphWriter;
 import uk.ac.rhul.cs.cl1.io.ClusteringWriter;
 import uk.ac.rhul.cs.cl1.io.CSVClusteringWriter;
 import uk.ac.rhul.cs.cl1.io.ClusteringWriterFactory;
+import uk.ac.rhul.cs.cl1.io.EdgeListReader;
 import uk.ac.rhul.cs.cl1.io.GraphReader;
 import uk.ac.rhul.cs.cl1.io.GraphReaderFactory;
 import uk.ac.rhul.cs.cl1.io.GraphReaderFactory.Format;
+import uk.ac.rhul.cs.cl1.io.PipedGZIPInputStream;
 import uk.ac.rhul.cs.cl1.ui.ConsoleTaskMonitor;
 import uk.ac.rhul.cs.graph.Graph;
 
@@ -38,6 +45,12 @@ public class CommandLineApplication {
 	/// Task monitor that shows the progress of the algorithm on the console
 	protected TaskMonitor taskMonitor = new ConsoleTaskMonitor();
 
+	/// The interaction types to keep from SIF files, null means all of them
+	protected Collection<String> sifInteractionTypes = null;
+
+	/// The index of the weight column in SIF files, -1 means that there are no weights
+	protected int sifWeightColumn = -1;
+
 	/// Constructor of the command line entry point to ClusterONE
 	public CommandLineApplication() {
 		initOptions();
@@ -123,6 +136,14 @@ public class CommandLineApplication {
 					params.setNumThreads(Integer.parseInt(numThreadsValue));
 				}
 			}
+			if (cmd.hasOption("seed-batch-size"))
+				params.setSeedBatchSize(Integer.parseInt(cmd.getOptionValue("seed-batch-size")));
+			if (cmd.hasOption("incremental-growth"))
+				params.setIncrementalGrowth(true);
+			if (cmd.hasOption("sif-interaction-types"))
+				sifInteractionTypes = Arrays.asList(cmd.getOptionValue("sif-interaction-types").split(","));
+			if (cmd.hasOption("sif-weight-column"))
+				sifWeightColumn = Integer.parseInt(cmd.getOptionValue("sif-weight-column"));
 		} catch (ParseException ex) {
 			System.err.println("Failed to parse command line options. Reason: " + ex.getMessage());
 			return 1;
@@ -153,6 +174,11 @@ public class CommandLineApplication {
 				return 1;
 			}
 		
+		if (sifWeightColumn == 0 || sifWeightColumn == 1) {
+			System.err.println("The weight column of a SIF file cannot be the source node or the interaction type");
+			return 1;
+		}
+		
 		if (outputFormatSpec != null) {
 			try {
 				outputFormat = ClusteringWriterFactory.Format.valueOf(outputFormatSpec.toUpperCase());
@@ -169,6 +195,7 @@ public class CommandLineApplication {
 			((CSVClusteringWriter)outputWriter).setQualityFunction(
 					params.getQualityFunction()
 			);
+			((CSVClusteringWriter)outputWriter).setNumThreads(params.getNumThreads());
 		}
 
 		// Pause if profiling
@@ -178,7 +205,8 @@ public class CommandLineApplication {
 		Graph graph;
 		long startTime = System.currentTimeMillis();
 		try {
-			graph = loadGraph(cmd.getArgs()[0], inputFormat);
+			// The graph will not change any more, so switch to the compact representation
+			graph = loadGraph(cmd.getArgs()[0], inputFormat, params.getNumThreads()).freeze();
 		} catch (IOException ex) {
 			System.err.println("IO error while reading input file: "+ex.getMessage());
 			return 1;
@@ -188,6 +216,16 @@ public class CommandLineApplication {
 			System.err.println("Loading took " + (System.currentTimeMillis() - startTime) + " ms");
 		}
 
+		// Save the snapshot if needed
+		if (cmd.hasOption("save-snapshot")) {
+			try {
+				new BinaryGraphWriter().writeGraph(graph, cmd.getOptionValue("save-snapshot"));
+			} catch (IOException ex) {
+				System.err.println("IO error while saving the snapshot: "+ex.getMessage());
+				return 1;
+			}
+		}
+
 		// Pause if profiling
 		pauseDuringProfiling("Press Enter to start the algorithm...");
 
@@ -204,6 +242,8 @@ public class CommandLineApplication {
 		}
 		
 		System.err.println("Detected "+algorithm.getResults().size()+" complexes");
+		if (debugMode)
+			System.err.println("Speculative growth: " + algorithm.getLookAheadWindow());
 		
 		try {
 			outputWriter.writeClustering(algorithm.getResults(), System.out);
@@ -229,9 +269,24 @@ public class CommandLineApplication {
 		
 		/* input format override option */
 		options.addOption(OptionBuilder.withLongOpt("input-format")
-				.withDescription("specifies the format of the input file (sif or edge_list)")
+				.withDescription("specifies the format of the input file (sif, edge_list or binary)")
 				.withType(String.class).hasArg().create("f"));
 		
+		/* binary snapshot option */
+		options.addOption(OptionBuilder.withLongOpt("save-snapshot")
+				.withDescription("saves the input graph as a binary snapshot (.cl1g) that loads faster")
+				.withType(String.class).hasArg().create());
+		
+		/* SIF interaction type filter */
+		options.addOption(OptionBuilder.withLongOpt("sif-interaction-types")
+				.withDescription("reads only the given comma-separated interaction types from SIF files (e.g. pp,pd)")
+				.withType(String.class).hasArg().create());
+		
+		/* SIF weight column */
+		options.addOption(OptionBuilder.withLongOpt("sif-weight-column")
+				.withDescription("takes the edge weights from the given column of SIF files, counted from zero (the source and the interaction type are columns 0 and 1)")
+				.withType(Integer.class).hasArg().create());
+		
 		/* output format override option */
 		options.addOption(OptionBuilder.withLongOpt("output-format")
 				.withDescription("specifies the format of the output file (plain, genepro or csv)")
@@ -289,7 +344,7 @@ public class CommandLineApplication {
 		
 		/* merging method option (advanced) */
 		options.addOption(OptionBuilder.withLongOpt("merge-method")
-				 .withDescription("specifies the cluster merging method to use (single or multi)")
+				 .withDescription("specifies the cluster merging method to use (single, multi or lsh)")
 				 .withType(String.class).hasArg().create());
 		
 		/* seeding method option (advanced) */
@@ -320,6 +375,16 @@ public class CommandLineApplication {
 				.withDescription("specifies the number of threads to use during the growth process (default=auto)")
 				.withType(String.class).hasArg().create());
 
+		/* seed batch size (advanced) */
+		options.addOption(OptionBuilder.withLongOpt("seed-batch-size")
+				.withDescription("lets the threads take this many seeds at once directly from the seed generator (default=0, seeds are distributed one by one)")
+				.withType(Integer.class).hasArg().create());
+
+		/* incremental candidate enumeration (advanced) */
+		options.addOption(OptionBuilder.withLongOpt("incremental-growth")
+				.withDescription("keeps the cluster boundaries ordered to skip hopeless candidates during growth (same result, faster for large boundaries)")
+				.withType(Boolean.class).create());
+
 		/* skip the merging phase (useful for debugging only) */
 		options.addOption(OptionBuilder.withLongOpt("no-merge")
 				.withDescription("don't merge highly overlapping clusters")
@@ -348,29 +413,82 @@ public class CommandLineApplication {
 	 * @param format    the format of the file, null means autodetection based on extension
 	 */
 	public Graph loadGraph(String filename, Format format) throws IOException {
+		return loadGraph(filename, format, 1);
+	}
+
+	/**
+	 * Loads a graph from an input file, using multiple threads if the reader supports it
+	 * 
+	 * Edge lists read from an uncompressed file (not from the standard input) are parsed
+	 * in parallel chunks by {@link EdgeListReader#readGraph(File)}. Files with a
+	 * <tt>.gz</tt> extension are decompressed on a separate thread while being parsed.
+	 * SIF files are read with the interaction types and the weight column given in
+	 * {@link #sifInteractionTypes} and {@link #sifWeightColumn}.
+	 * 
+	 * @param filename    name of the file to be loaded, "-" means the standard input
+	 * @param format      the format of the file, null means autodetection based on extension
+	 * @param numThreads  the number of threads to use, zero means one per available processor
+	 */
+	public Graph loadGraph(String filename, Format format, int numThreads) throws IOException {
 		GraphReader reader;
 		InputStream stream;
 		
 		if (format == null) {
 			if ("-".equals(filename)) {
-				reader = GraphReaderFactory.fromFormat(Format.EDGE_LIST);
+				format = Format.EDGE_LIST;
 			} else {
-				reader = GraphReaderFactory.fromFilename(filename);
+				format = Format.fromFilename(filename);
 			}
-		} else {
-			reader = GraphReaderFactory.fromFormat(format);
 		}
+		reader = GraphReaderFactory.fromFormat(format, sifInteractionTypes, sifWeightColumn);
 		
-		if ("-".equals(filename))
+		if (reader instanceof TaskMonitorSupport) {
+			((TaskMonitorSupport)reader).setTaskMonitor(taskMonitor);
+		}
+
+		if ("-".equals(filename)) {
 			stream = System.in;
-		else
+		} else if (GraphReaderFactory.isCompressed(filename)) {
+			/* Decompress on a separate thread while the reader is parsing */
+			FileInputStream fileStream = new FileInputStream(filename);
+			try {
+				stream = new PipedGZIPInputStream(fileStream);
+			} catch (IOException ex) {
+				fileStream.close();
+				throw ex;
+			}
+		} else {
+			if (reader instanceof BinaryGraphReader)
+				return ((BinaryGraphReader)reader).readGraph(new File(filename));
+			if (reader instanceof EdgeListReader) {
+				EdgeListReader edgeListReader = (EdgeListReader)reader;
+				edgeListReader.setNumThreads(numThreads);
+				return edgeListReader.readGraph(new File(filename));
+			}
 			stream = new FileInputStream(filename);
+		}
 
-		if (reader instanceof TaskMonitorSupport) {
-			((TaskMonitorSupport)reader).setTaskMonitor(taskMonitor);
+		long startTime = System.currentTimeMillis();
+		Graph result;
+		try {
+			if (reader instanceof BinaryGraphReader)
+				result = ((BinaryGraphReader)reader).readGraph(stream);
+			else
+				result = reader.readGraph(new InputStreamReader(stream, "utf-8"));
+		} finally {
+			if (stream != System.in)
+				stream.close();
+		}
+
+		if (profilingMode && stream instanceof PipedGZIPInputStream) {
+			PipedGZIPInputStream gzipStream = (PipedGZIPInputStream)stream;
+			long elapsed = System.currentTimeMillis() - startTime;
+			System.err.println("Decompression took " + gzipStream.getDecompressionTime() +
+					" ms, parsing took " + (elapsed - gzipStream.getWaitingTime()) +
+					" ms (plus " + gzipStream.getWaitingTime() + " ms waiting for data)");
 		}
 
-		return reader.readGraph(new InputStreamReader(stream, "utf-8"));
+		return result;
 	}
 
 	/**
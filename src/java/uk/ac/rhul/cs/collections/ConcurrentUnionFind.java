@@ -0,0 +1,86 @@
+package uk.ac.rhul.cs.collections;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint set forest over the integers from zero to n-1.
+ *
+ * Sets are always linked so that the root of a set is its smallest element,
+ * so {@link #find(int)} returns the smallest element of the set containing
+ * the given element once all the unions are done. Unions and finds may be
+ * called concurrently from multiple threads; roots are linked with
+ * compare-and-set and paths are compressed by halving, which is harmless
+ * even if another thread races with it.
+ */
+public class ConcurrentUnionFind {
+	/**
+	 * The parent of each element; roots are their own parents.
+	 */
+	private AtomicIntegerArray parents;
+
+	/**
+	 * Creates a new disjoint set forest where each element is in its own set.
+	 *
+	 * @param  n  the number of elements
+	 */
+	public ConcurrentUnionFind(int n) {
+		parents = new AtomicIntegerArray(n);
+		for (int i = 0; i < n; i++)
+			parents.set(i, i);
+	}
+
+	/**
+	 * Returns the root of the set containing the given element.
+	 *
+	 * When called concurrently with {@link #union(int, int)}, the result may
+	 * already be out of date when the method returns.
+	 */
+	public int find(int element) {
+		int parent = parents.get(element);
+		while (parent != element) {
+			int grandparent = parents.get(parent);
+			if (grandparent != parent)
+				parents.compareAndSet(element, parent, grandparent);
+			element = parent;
+			parent = parents.get(element);
+		}
+		return element;
+	}
+
+	/**
+	 * Returns whether the two elements are known to be in the same set.
+	 */
+	public boolean isSameSet(int element1, int element2) {
+		return find(element1) == find(element2);
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int size() {
+		return parents.length();
+	}
+
+	/**
+	 * Merges the sets containing the two elements.
+	 *
+	 * @return  true if the two elements were in different sets, false otherwise
+	 */
+	public boolean union(int element1, int element2) {
+		while (true) {
+			int root1 = find(element1);
+			int root2 = find(element2);
+			if (root1 == root2)
+				return false;
+
+			/* Always link the larger root under the smaller one */
+			if (root1 < root2) {
+				int tmp = root1;
+				root1 = root2;
+				root2 = tmp;
+			}
+			if (parents.compareAndSet(root1, root1, root2))
+				return true;
+		}
+	}
+}
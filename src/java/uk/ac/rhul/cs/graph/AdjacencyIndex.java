@@ -0,0 +1,219 @@
+package uk.ac.rhul.cs.graph;
+
+import java.util.Arrays;
+
+/**
+ * Index that answers whether two nodes of a graph are connected without
+ * scanning their adjacency lists.
+ *
+ * The index keeps the distinct outgoing neighbors of each node in a sorted
+ * array (all the neighbors for undirected graphs). Low-degree nodes are looked
+ * up by a short scan and medium-degree nodes by binary search in this array.
+ * Nodes whose degree reaches {@link #DEFAULT_HUB_DEGREE_THRESHOLD} also get
+ * an open addressing hash table of their neighbors, so queries on hubs take
+ * constant time.
+ *
+ * The index is a snapshot of the graph at the time it was built; it is not
+ * updated when edges are added to the graph afterwards. Instances are
+ * immutable and may be shared between threads. Use {@link Graph#getAdjacencyIndex()}
+ * to obtain an index that the graph discards when it is modified.
+ *
+ * @author tamas
+ */
+public class AdjacencyIndex {
+	/**
+	 * The default degree from which a node gets a hash table of its neighbors
+	 */
+	public static final int DEFAULT_HUB_DEGREE_THRESHOLD = 128;
+
+	/**
+	 * Nodes with at most this many neighbors are looked up by a linear scan
+	 */
+	private static final int LINEAR_SCAN_THRESHOLD = 32;
+
+	/**
+	 * Marker of empty slots in the hash tables
+	 */
+	private static final int EMPTY = -1;
+
+	/**
+	 * The number of nodes in the indexed graph
+	 */
+	private final int numNodes;
+
+	/**
+	 * Offsets of the neighbor lists in <code>neighbors</code>. The neighbors of node
+	 * i occupy the range from <code>offsets[i]</code> (inclusive) to
+	 * <code>offsets[i+1]</code> (exclusive).
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The distinct neighbors of each node in increasing order, concatenated
+	 */
+	private final int[] neighbors;
+
+	/**
+	 * Hash tables of the neighbors of the hubs; null for the other nodes
+	 */
+	private final int[][] hubTables;
+
+	/**
+	 * Builds an index for the given graph with the default hub degree threshold.
+	 *
+	 * @param  graph  the graph to be indexed
+	 */
+	public AdjacencyIndex(Graph graph) {
+		this(graph, DEFAULT_HUB_DEGREE_THRESHOLD);
+	}
+
+	/**
+	 * Builds an index for the given graph.
+	 *
+	 * @param  graph               the graph to be indexed
+	 * @param  hubDegreeThreshold  nodes with at least this many distinct neighbors
+	 *                             get a hash table of their neighbors
+	 */
+	public AdjacencyIndex(Graph graph, int hubDegreeThreshold) {
+		int i, j, numNodes = graph.getNodeCount();
+		int[][] lists = new int[numNodes][];
+		int total = 0;
+
+		this.numNodes = numNodes;
+
+		/* Sort the neighbor list of each node and remove the duplicates */
+		for (i = 0; i < numNodes; i++) {
+			int[] neis = graph.getAdjacentNodeIndicesArray(i, Directedness.OUT);
+			int k = 0;
+
+			Arrays.sort(neis);
+			for (j = 0; j < neis.length; j++) {
+				if (k == 0 || neis[k - 1] != neis[j])
+					neis[k++] = neis[j];
+			}
+
+			lists[i] = (k == neis.length) ? neis : Arrays.copyOf(neis, k);
+			total += k;
+		}
+
+		offsets = new int[numNodes + 1];
+		neighbors = new int[total];
+		hubTables = new int[numNodes][];
+		for (i = 0; i < numNodes; i++) {
+			int[] neis = lists[i];
+			System.arraycopy(neis, 0, neighbors, offsets[i], neis.length);
+			offsets[i + 1] = offsets[i] + neis.length;
+			if (neis.length >= hubDegreeThreshold)
+				hubTables[i] = createHashTable(neis);
+			lists[i] = null;
+		}
+	}
+
+	/**
+	 * Returns whether the two given nodes are connected.
+	 *
+	 * @param  source   the source node
+	 * @param  target   the target node
+	 */
+	public boolean areConnected(int source, int target) {
+		int start = offsets[source], end = offsets[source + 1];
+
+		/* The degree is checked first so that the hash tables are not touched
+		 * for low-degree nodes */
+		if (end - start <= LINEAR_SCAN_THRESHOLD) {
+			for (int i = start; i < end; i++) {
+				int nei = neighbors[i];
+				if (nei >= target)
+					return nei == target;
+			}
+			return false;
+		}
+
+		int[] table = hubTables[source];
+		if (table != null)
+			return containsInHashTable(table, target);
+
+		return Arrays.binarySearch(neighbors, start, end, target) >= 0;
+	}
+
+	/**
+	 * Returns the number of distinct neighbors of the given node
+	 *
+	 * @param  nodeIndex  the index of the node
+	 */
+	public int getDistinctDegree(int nodeIndex) {
+		return offsets[nodeIndex + 1] - offsets[nodeIndex];
+	}
+
+	/**
+	 * Returns the distinct neighbors of the given node in increasing order
+	 *
+	 * @param  nodeIndex  the index of the node
+	 */
+	public int[] getDistinctNeighbors(int nodeIndex) {
+		return Arrays.copyOfRange(neighbors, offsets[nodeIndex], offsets[nodeIndex + 1]);
+	}
+
+	/**
+	 * Returns the number of nodes in the indexed graph
+	 */
+	public int getNodeCount() {
+		return numNodes;
+	}
+
+	/**
+	 * Returns whether the given node has a hash table of its neighbors
+	 *
+	 * @param  nodeIndex  the index of the node
+	 */
+	public boolean isHub(int nodeIndex) {
+		return hubTables[nodeIndex] != null;
+	}
+
+	/**
+	 * Creates an open addressing hash table that contains the given node indices.
+	 *
+	 * The size of the table is a power of two and at least twice the number of
+	 * the indices, so lookups need few probes.
+	 */
+	private static int[] createHashTable(int[] values) {
+		int capacity = Integer.highestOneBit(Math.max(values.length, 2) * 2 - 1) << 1;
+		int mask = capacity - 1;
+		int[] table = new int[capacity];
+
+		Arrays.fill(table, EMPTY);
+		for (int value: values) {
+			int slot = hash(value) & mask;
+			while (table[slot] != EMPTY)
+				slot = (slot + 1) & mask;
+			table[slot] = value;
+		}
+
+		return table;
+	}
+
+	/**
+	 * Checks whether the given hash table contains the given node index.
+	 */
+	private static boolean containsInHashTable(int[] table, int value) {
+		int mask = table.length - 1;
+		int slot = hash(value) & mask;
+		int current;
+
+		while ((current = table[slot]) != EMPTY) {
+			if (current == value)
+				return true;
+			slot = (slot + 1) & mask;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Scrambles the bits of a node index, since neighbor indices are often clustered.
+	 */
+	private static int hash(int value) {
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
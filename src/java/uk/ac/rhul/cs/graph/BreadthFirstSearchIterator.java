@@ -81,10 +81,11 @@ public class BreadthFirstSearchIterator implements Iterator<Integer> {
 		int result = q.remove();
 		distance = q.remove();
 		
-		int[] neighbors = graph.getAdjacentNodeIndicesArray(result, Directedness.OUT);
+		int i, n = graph.getDegree(result, Directedness.OUT);
 		
 		/* Check all the neighbors and add the nodes not visited to the queue */
-		for (int neighbor: neighbors) {
+		for (i = 0; i < n; i++) {
+			int neighbor = graph.getAdjacentNodeIndex(result, i, Directedness.OUT);
 			if (!visited.contains(neighbor)) {
 				pushNode(neighbor, distance + 1);
 			}
@@ -1,75 +1,104 @@
 package uk.ac.rhul.cs.graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import uk.ac.rhul.cs.utils.IntegerRange;
+import com.sosnoski.util.array.IntArray;
 
 /**
  * Finds all the maximal cliques in a graph using the Bron-Kerbosch algorithm.
- * 
- * This implementation is based on the implementation found in the JGraphT
- * library, but it is adapted to our {@link Graph} data type and uses more
- * efficient data structures.
- * 
+ *
+ * This implementation follows the variant of Eppstein, Loeffler and Strash:
+ * the vertices are processed in a degeneracy ordering, and the cliques
+ * containing a given vertex and some of its later neighbors are enumerated
+ * by the Bron-Kerbosch algorithm with the pivoting rule of Tomita et al.
+ * The sets of the recursion are bitsets over the neighborhood of the outer
+ * vertex, so the size of each set is bounded by the degree of that vertex.
+ *
+ * The outer loop may be run on multiple threads. The cliques are reported
+ * in the same order regardless of the number of threads: first the cliques
+ * of the first vertex in the degeneracy ordering, then the cliques of the
+ * second one and so on. The members of each clique are sorted.
+ *
+ * Edge directions, loop edges and multiple edges are ignored.
+ *
  * @author ntamas
  */
 public class BronKerboschMaximalCliqueFinder extends GraphAlgorithm {
 	/**
-	 * Internal method for finding maximal cliques.
-	 * 
-	 * @param  result  a collection in which the cliques are collected
-	 * @param  potentialClique  a potential clique being built during the
-	 *                          algorithm
-	 * @param  candidates  candidate vertices with which we can extend the
-	 *                     potential clique
-	 * @param  alreadyFound  the set of vertices already found
-	 */
-	protected void findCliques(Collection<List<Integer>> result,
-			              HashSet<Integer> potentialClique,
-			              HashSet<Integer> candidates,
-			              HashSet<Integer> alreadyFound) {
-		if (isAnyConnectedToAllCandidates(alreadyFound, candidates))
-			return;
-		
-		Graph graph = this.getGraph();
-		Iterator<Integer> it = candidates.iterator();
-		
-		while (it.hasNext()) {
-			Integer candidate = it.next();
-			
-			// create newCandidates and newAlreadyFound
-			HashSet<Integer> newCandidates = new HashSet<Integer>();
-			HashSet<Integer> newAlreadyFound = new HashSet<Integer>();
-			
-			// move candidate node to potentialClique
-			potentialClique.add(candidate);
-			it.remove();
-			
-			// create newCandidates by removing nodes in candidates that are
-			// not connected to the candidate node
-			int[] neis = graph.getAdjacentNodeIndicesArray(candidate, Directedness.ALL);
-			for (int nei: neis) {
-				if (candidates.contains(nei))
-					newCandidates.add(nei);
-				if (alreadyFound.contains(nei))
-					newAlreadyFound.add(nei);
-			}
-			
-			if (newCandidates.isEmpty() && newAlreadyFound.isEmpty()) {
-				// this is a maximal clique
-				result.add(new ArrayList<Integer>(potentialClique));
-			} else {
-				// recursive call
-				findCliques(result, potentialClique, newCandidates, newAlreadyFound);
-			}
-			
-			alreadyFound.add(candidate);
-			potentialClique.remove(candidate);
-		}
+	 * The number of vertices processed by a single task when running on multiple
+	 * threads
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	/**
+	 * Interface for objects that receive the cliques found by the algorithm
+	 */
+	public interface CliqueCollector {
+		/** Receives a clique whose members are sorted */
+		void add(int[] clique);
+	}
+
+	/**
+	 * The number of threads used by the enumeration
+	 */
+	private int numThreads = 1;
+
+	/**
+	 * The size of the smallest clique that is reported
+	 */
+	private int minCliqueSize = 1;
+
+	/**
+	 * The amount of work done so far; see {@link #getProgress()}
+	 */
+	private volatile long processedWork = 0;
+
+	/**
+	 * The total amount of work; see {@link #getProgress()}
+	 */
+	private volatile long totalWork = 0;
+
+	/**
+	 * The sorted neighbor lists of the vertices without loops and multiple edges
+	 */
+	private int[][] neighbors;
+
+	/**
+	 * The vertices in degeneracy order
+	 */
+	private int[] order;
+
+	/**
+	 * The position of each vertex in the degeneracy order
+	 */
+	private int[] positions;
+
+	/**
+	 * The number of neighbors of each vertex that come later in the degeneracy order
+	 */
+	private int[] laterDegrees;
+
+	/**
+	 * Creates a clique finder with no associated graph
+	 */
+	public BronKerboschMaximalCliqueFinder() {
+		super();
+	}
+
+	/**
+	 * Creates a clique finder that will run on the given graph
+	 */
+	public BronKerboschMaximalCliqueFinder(Graph graph) {
+		super(graph);
 	}
 
 	/**
@@ -77,13 +106,42 @@ public class BronKerboschMaximalCliqueFinder extends GraphAlgorithm {
 	 *
 	 * @param  result  the collection in which the result will be stored
 	 */
-	public void collectMaximalCliques(Collection<List<Integer>> result) {
-		HashSet<Integer> potentialClique = new HashSet<Integer>();
-		HashSet<Integer> candidates = new HashSet<Integer>();
-		HashSet<Integer> alreadyFound = new HashSet<Integer>();
+	public void collectMaximalCliques(final Collection<List<Integer>> result) {
+		findCliques(new CliqueCollector() {
+			public void add(int[] clique) {
+				List<Integer> list = new ArrayList<Integer>(clique.length);
+				for (int node: clique)
+					list.add(node);
+				result.add(list);
+			}
+		});
+	}
+
+	/**
+	 * Finds all maximal cliques and stores them in the given collection as sorted
+	 * arrays of node indices.
+	 *
+	 * @param  result  the collection in which the result will be stored
+	 */
+	public void collectMaximalCliqueArrays(final Collection<int[]> result) {
+		findCliques(new CliqueCollector() {
+			public void add(int[] clique) {
+				result.add(clique);
+			}
+		});
+	}
 
-		candidates.addAll(new IntegerRange(graph.getNodeCount()));
-		findCliques(result, potentialClique, candidates, alreadyFound);
+	/**
+	 * Finds all maximal cliques and passes them to the given collector one by one.
+	 *
+	 * The collector is always called from the calling thread, even if the
+	 * enumeration runs on multiple threads. It may call {@link #halt()} to stop
+	 * the enumeration.
+	 *
+	 * @param  collector  the collector that receives the cliques
+	 */
+	public void findMaximalCliques(CliqueCollector collector) {
+		findCliques(collector);
 	}
 
 	/**
@@ -96,36 +154,553 @@ public class BronKerboschMaximalCliqueFinder extends GraphAlgorithm {
 	}
 
 	/**
-	 * Checks whether at least one node of the given node array is connected
-	 * to all the candidates.
-	 * 
-	 * @param  nodes       the nodes being checked
-	 * @param  candidates  the list of candidates
-	 * @return  true if at least one node is connected to all the candidates,
-	 *          false otherwise
-	 */
-	protected boolean isAnyConnectedToAllCandidates(HashSet<Integer> nodes,
-			HashSet<Integer> candidates) {
-		Graph graph = this.getGraph();
-		HashSet<Integer> neiSet = new HashSet<Integer>();
-		
-		for (int node: nodes) {
-			int[] neis = graph.getAdjacentNodeIndicesArray(node, Directedness.ALL);
-			
-			if (neis.length < candidates.size())
-				continue;
-			
-			neiSet.clear();
-			for (int nei: neis)
-				neiSet.add(nei);
-			if (neiSet.size() < candidates.size())
-				continue;
-			
-			neiSet.retainAll(candidates);
-			if (neiSet.size() == candidates.size())
-				return true;
-		}
-		
-		return false;
+	 * Returns the size of the smallest clique that is reported
+	 */
+	public int getMinCliqueSize() {
+		return minCliqueSize;
+	}
+
+	/**
+	 * Returns the number of threads used by the enumeration
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Returns the fraction of the enumeration that has been done.
+	 *
+	 * Each vertex of the outer loop is weighted by one plus the number of its
+	 * later neighbors, since vertices with more later neighbors are more likely to
+	 * take part in cliques. The progress refers to the cliques that have been
+	 * passed to the result already, and it may be queried from any thread.
+	 *
+	 * @return  a number between zero and one
+	 */
+	public double getProgress() {
+		long total = totalWork;
+		return (total == 0) ? 0.0 : ((double) processedWork / total);
+	}
+
+	/**
+	 * Sets the size of the smallest clique that is reported.
+	 *
+	 * Smaller cliques are not only filtered from the result; branches of the
+	 * search that cannot lead to a large enough clique are not explored at all.
+	 *
+	 * @param  minCliqueSize  the size of the smallest clique
+	 */
+	public void setMinCliqueSize(int minCliqueSize) {
+		this.minCliqueSize = Math.max(1, minCliqueSize);
+	}
+
+	/**
+	 * Sets the number of threads used by the enumeration
+	 *
+	 * @param  numThreads  the number of threads; zero or negative numbers mean one
+	 *                     thread per available processor
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Runs the algorithm and passes the cliques to the given collector.
+	 *
+	 * The collector is always called from the calling thread.
+	 */
+	private void findCliques(CliqueCollector collector) {
+		shouldStop = false;
+		processedWork = 0;
+		totalWork = 0;
+		prepare();
+
+		int n = order.length;
+		long total = n;
+		for (int i = 0; i < n; i++)
+			total += laterDegrees[i];
+		totalWork = total;
+
+		if (numThreads == 1 || n <= BATCH_SIZE) {
+			Enumerator enumerator = new Enumerator(collector);
+			for (int i = 0; i < n && !shouldStop; i++) {
+				enumerator.process(order[i]);
+				processedWork += 1 + laterDegrees[order[i]];
+			}
+		} else {
+			findCliquesInParallel(collector);
+		}
+
+		/* Release the memory used by the preprocessed graph */
+		neighbors = null;
+		order = null;
+		positions = null;
+		laterDegrees = null;
+	}
+
+	/**
+	 * Runs the outer loop of the algorithm on multiple threads.
+	 *
+	 * The vertices are processed in batches; each batch collects its cliques in a
+	 * buffer and the buffers are passed to the collector in the order of the
+	 * batches. Only a limited number of batches are queued at the same time so the
+	 * buffers do not pile up if the collector is slow.
+	 */
+	private void findCliquesInParallel(CliqueCollector collector) {
+		final ThreadLocal<Enumerator> enumerators = new ThreadLocal<Enumerator>() {
+			protected Enumerator initialValue() {
+				return new Enumerator(null);
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		LinkedList<Future<IntArray>> futures = new LinkedList<Future<IntArray>>();
+		int n = order.length, next = 0, done = 0;
+
+		try {
+			while (next < n || !futures.isEmpty()) {
+				while (next < n && futures.size() < 4 * numThreads) {
+					final int from = next, to = Math.min(n, next + BATCH_SIZE);
+					futures.add(executor.submit(new Callable<IntArray>() {
+						public IntArray call() {
+							return enumerators.get().processBatch(from, to);
+						}
+					}));
+					next = to;
+				}
+
+				IntArray buffer = getBatch(futures.removeFirst());
+				if (buffer == null || shouldStop)
+					break;
+
+				for (int i = 0, size = buffer.size(); i < size; ) {
+					int[] clique = new int[buffer.get(i++)];
+					for (int j = 0; j < clique.length; j++)
+						clique[j] = buffer.get(i++);
+					collector.add(clique);
+				}
+
+				long work = processedWork;
+				for (int to = Math.min(n, done + BATCH_SIZE); done < to; done++)
+					work += 1 + laterDegrees[order[done]];
+				processedWork = work;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for the result of a batch.
+	 *
+	 * @return  the result or null if the calling thread was interrupted
+	 */
+	private IntArray getBatch(Future<IntArray> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			shouldStop = true;
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Builds the sorted neighbor lists and the degeneracy ordering of the graph.
+	 */
+	private void prepare() {
+		int i, j, n = graph.getNodeCount();
+
+		/* Sorted neighbor lists without loops and multiple edges */
+		neighbors = new int[n][];
+		for (i = 0; i < n; i++) {
+			int[] nei = graph.getAdjacentNodeIndicesArray(i, Directedness.ALL);
+			Arrays.sort(nei);
+			int k = 0;
+			for (j = 0; j < nei.length; j++) {
+				if (nei[j] != i && (k == 0 || nei[k - 1] != nei[j]))
+					nei[k++] = nei[j];
+			}
+			neighbors[i] = (k == nei.length) ? nei : Arrays.copyOf(nei, k);
+		}
+
+		/* Degeneracy ordering with the bucket-based algorithm of Batagelj and
+		 * Zaversnik: the vertices are sorted by degree and the vertex with the
+		 * smallest remaining degree is removed repeatedly */
+		int maxDegree = 0;
+		int[] degrees = new int[n];
+		for (i = 0; i < n; i++) {
+			degrees[i] = neighbors[i].length;
+			maxDegree = Math.max(maxDegree, degrees[i]);
+		}
+
+		int[] bins = new int[maxDegree + 1];
+		for (i = 0; i < n; i++)
+			bins[degrees[i]]++;
+		for (i = 0, j = 0; i <= maxDegree; i++) {
+			int count = bins[i];
+			bins[i] = j;
+			j += count;
+		}
+
+		order = new int[n];
+		positions = new int[n];
+		for (i = 0; i < n; i++) {
+			positions[i] = bins[degrees[i]]++;
+			order[positions[i]] = i;
+		}
+		for (i = maxDegree; i > 0; i--)
+			bins[i] = bins[i - 1];
+		bins[0] = 0;
+
+		for (i = 0; i < n; i++) {
+			int v = order[i];
+			for (int u: neighbors[v]) {
+				if (degrees[u] > degrees[v]) {
+					int du = degrees[u], pu = positions[u], pw = bins[du], w = order[pw];
+					if (u != w) {
+						positions[u] = pw; order[pw] = u;
+						positions[w] = pu; order[pu] = w;
+					}
+					bins[du]++;
+					degrees[u]--;
+				}
+			}
+		}
+
+		/* The remaining degree of each vertex at the time of its removal is the
+		 * number of its later neighbors */
+		laterDegrees = degrees;
+	}
+
+	/**
+	 * Enumerates the maximal cliques whose earliest vertex in the degeneracy order
+	 * is a given vertex.
+	 *
+	 * The neighbors of the vertex are given local indices: the later neighbors
+	 * (the candidates) come first, followed by the earlier ones (the vertices that
+	 * were already processed). The candidate and processed sets of the recursion
+	 * are bitsets over these local indices. Each enumerator keeps its buffers
+	 * between vertices, so it must not be shared between threads.
+	 */
+	private class Enumerator {
+		/** The collector of the cliques; null if the cliques are buffered */
+		private CliqueCollector collector;
+
+		/** The buffer that collects the cliques of a batch */
+		private IntArray buffer;
+
+		/** The local index of each vertex, or -1 if it is not a neighbor of the current vertex */
+		private int[] localIndices;
+
+		/** The vertex belonging to each local index */
+		private int[] vertices = new int[16];
+
+		/** The number of candidates and the number of all neighbors of the current vertex */
+		private int numCandidates, numNeighbors;
+
+		/** The number of words in a bitset of candidates and in a bitset of all neighbors */
+		private int candidateWords, neighborWords;
+
+		/** The candidates adjacent to each neighbor of the current vertex */
+		private long[][] candidateRows = new long[0][];
+
+		/** The neighbors adjacent to each candidate of the current vertex */
+		private long[][] neighborRows = new long[0][];
+
+		/** The candidate, processed and branching sets at each level of the recursion */
+		private long[][] candidateSets = new long[0][], processedSets = new long[0][], branchSets = new long[0][];
+
+		/** The clique being built, in local indices */
+		private int[] clique = new int[16];
+
+		Enumerator(CliqueCollector collector) {
+			this.collector = collector;
+			this.localIndices = new int[neighbors.length];
+			Arrays.fill(localIndices, -1);
+		}
+
+		/**
+		 * Processes the vertices between the given positions of the degeneracy order
+		 * and returns the cliques in a buffer. Each clique is stored as its size
+		 * followed by its members.
+		 */
+		IntArray processBatch(int from, int to) {
+			buffer = new IntArray();
+			for (int i = from; i < to && !shouldStop; i++)
+				process(order[i]);
+			IntArray result = buffer;
+			buffer = null;
+			return result;
+		}
+
+		/**
+		 * Finds the maximal cliques whose earliest vertex is the given one.
+		 */
+		void process(int v) {
+			int[] nei = neighbors[v];
+			int i, position = positions[v];
+
+			numNeighbors = nei.length;
+			numCandidates = 0;
+			for (int u: nei)
+				if (positions[u] > position)
+					numCandidates++;
+
+			if (numCandidates + 1 < minCliqueSize)
+				return;
+
+			if (numCandidates == 0) {
+				/* The vertex is a maximal clique on its own if it is isolated */
+				if (numNeighbors == 0)
+					emit(v, 0);
+				return;
+			}
+
+			/* Assign the local indices */
+			if (vertices.length < numNeighbors)
+				vertices = new int[numNeighbors];
+			int nextCandidate = 0, nextProcessed = numCandidates;
+			for (int u: nei) {
+				int index = (positions[u] > position) ? nextCandidate++ : nextProcessed++;
+				localIndices[u] = index;
+				vertices[index] = u;
+			}
+
+			candidateWords = (numCandidates + 63) >>> 6;
+			neighborWords = (numNeighbors + 63) >>> 6;
+			buildRows();
+
+			/* Set up the first level of the recursion */
+			ensureDepth(1);
+			long[] candidates = candidateSets[0], processed = processedSets[0];
+			Arrays.fill(candidates, 0, candidateWords, 0);
+			Arrays.fill(processed, 0, neighborWords, 0);
+			for (i = 0; i < numCandidates; i++)
+				candidates[i >>> 6] |= 1L << i;
+			for (i = numCandidates; i < numNeighbors; i++)
+				processed[i >>> 6] |= 1L << i;
+
+			clique[0] = v;
+			expand(0, 1);
+
+			for (int u: nei)
+				localIndices[u] = -1;
+		}
+
+		/**
+		 * Fills the adjacency bitsets of the neighborhood of the current vertex.
+		 *
+		 * Every neighbor needs to know which candidates it is adjacent to (for the
+		 * choice of the pivot), but only the candidates need to know which
+		 * processed vertices they are adjacent to.
+		 */
+		private void buildRows() {
+			if (candidateRows.length < numNeighbors)
+				candidateRows = new long[Math.max(numNeighbors, 2 * candidateRows.length)][];
+			if (neighborRows.length < numCandidates)
+				neighborRows = new long[Math.max(numCandidates, 2 * neighborRows.length)][];
+
+			for (int u = 0; u < numNeighbors; u++) {
+				boolean isCandidate = u < numCandidates;
+				int limit = isCandidate ? numNeighbors : numCandidates;
+				long[] candidateRow = candidateRows[u] = clearRow(candidateRows[u], candidateWords);
+				long[] neighborRow = null;
+				if (isCandidate)
+					neighborRow = neighborRows[u] = clearRow(neighborRows[u], neighborWords);
+
+				int[] nei = neighbors[vertices[u]];
+				if (nei.length <= limit) {
+					/* Scan the neighbor list of the vertex */
+					for (int w: nei) {
+						int index = localIndices[w];
+						if (index < 0 || index >= limit)
+							continue;
+						if (index < numCandidates)
+							candidateRow[index >>> 6] |= 1L << index;
+						if (isCandidate)
+							neighborRow[index >>> 6] |= 1L << index;
+					}
+				} else {
+					/* The vertex is a hub; look up the local vertices in its
+					 * neighbor list instead */
+					for (int index = 0; index < limit; index++) {
+						if (Arrays.binarySearch(nei, vertices[index]) < 0)
+							continue;
+						if (index < numCandidates)
+							candidateRow[index >>> 6] |= 1L << index;
+						if (isCandidate)
+							neighborRow[index >>> 6] |= 1L << index;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns a cleared bitset with at least the given number of words,
+		 * reusing the given one if possible.
+		 */
+		private long[] clearRow(long[] row, int words) {
+			if (row == null || row.length < words)
+				return new long[words];
+			Arrays.fill(row, 0, words, 0);
+			return row;
+		}
+
+		/**
+		 * Makes sure that the sets of the given number of recursion levels are
+		 * allocated and large enough for the current neighborhood.
+		 */
+		private void ensureDepth(int depth) {
+			if (candidateSets.length < depth) {
+				int length = Math.max(depth, 2 * candidateSets.length);
+				candidateSets = Arrays.copyOf(candidateSets, length);
+				processedSets = Arrays.copyOf(processedSets, length);
+				branchSets = Arrays.copyOf(branchSets, length);
+			}
+			for (int i = 0; i < depth; i++) {
+				if (candidateSets[i] == null || candidateSets[i].length < neighborWords) {
+					candidateSets[i] = new long[neighborWords];
+					processedSets[i] = new long[neighborWords];
+					branchSets[i] = new long[neighborWords];
+				}
+			}
+		}
+
+		/**
+		 * The recursive step of the Bron-Kerbosch algorithm with Tomita pivoting.
+		 *
+		 * @param  depth  the level of the recursion
+		 * @param  size   the size of the clique being built
+		 */
+		private void expand(int depth, int size) {
+			long[] candidates = candidateSets[depth], processed = processedSets[depth];
+			int i, numWords = candidateWords;
+
+			int numCandidateBits = 0;
+			for (i = 0; i < numWords; i++)
+				numCandidateBits += Long.bitCount(candidates[i]);
+
+			/* No clique found from here can be large enough */
+			if (size + numCandidateBits < minCliqueSize)
+				return;
+
+			if (numCandidateBits == 0) {
+				boolean maximal = true;
+				for (i = 0; i < neighborWords && maximal; i++)
+					maximal = (processed[i] == 0);
+				if (maximal)
+					emit(clique[0], size);
+				return;
+			}
+
+			/* Choose the pivot with the most neighbors among the candidates */
+			int pivot = choosePivot(candidates, numCandidateBits, candidates, candidateWords, -1);
+			pivot = choosePivot(candidates, numCandidateBits, processed, neighborWords, pivot);
+
+			/* Branch on the candidates not adjacent to the pivot */
+			long[] branches = branchSets[depth];
+			long[] pivotRow = candidateRows[pivot];
+			for (i = 0; i < numWords; i++)
+				branches[i] = candidates[i] & ~pivotRow[i];
+
+			ensureDepth(depth + 2);
+			long[] nextCandidates = candidateSets[depth + 1], nextProcessed = processedSets[depth + 1];
+
+			for (i = 0; i < numWords; i++) {
+				long word = branches[i];
+				while (word != 0) {
+					if (shouldStop)
+						return;
+
+					int u = (i << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+
+					long[] candidateRow = candidateRows[u], neighborRow = neighborRows[u];
+					for (int j = 0; j < numWords; j++)
+						nextCandidates[j] = candidates[j] & candidateRow[j];
+					for (int j = 0; j < neighborWords; j++)
+						nextProcessed[j] = processed[j] & neighborRow[j];
+
+					clique[size] = u;
+					expand(depth + 1, size + 1);
+
+					candidates[i] &= ~(1L << u);
+					processed[i] |= 1L << u;
+				}
+			}
+		}
+
+		/**
+		 * Finds the vertex of the given set with the most neighbors among the
+		 * candidates.
+		 *
+		 * @param  candidates  the candidate set
+		 * @param  numCandidateBits  the number of candidates
+		 * @param  set  the set in which the pivot is sought
+		 * @param  numWords  the number of words in the set
+		 * @param  best  the best pivot found so far or -1
+		 * @return  the best pivot
+		 */
+		private int choosePivot(long[] candidates, int numCandidateBits, long[] set,
+				int numWords, int best) {
+			int bestCount = (best < 0) ? -1 : intersectionSize(candidates, candidateRows[best]);
+
+			for (int i = 0; i < numWords; i++) {
+				long word = set[i];
+				while (word != 0) {
+					int u = (i << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+
+					int count = intersectionSize(candidates, candidateRows[u]);
+					if (count > bestCount) {
+						best = u;
+						bestCount = count;
+						if (count == numCandidateBits)
+							return best;
+					}
+				}
+			}
+
+			return best;
+		}
+
+		/**
+		 * Returns the number of candidates in the given row.
+		 */
+		private int intersectionSize(long[] candidates, long[] row) {
+			int count = 0;
+			for (int i = 0; i < candidateWords; i++)
+				count += Long.bitCount(candidates[i] & row[i]);
+			return count;
+		}
+
+		/**
+		 * Reports the clique consisting of the given vertex and the given number of
+		 * local vertices in the clique being built.
+		 */
+		private void emit(int v, int size) {
+			int[] result = new int[Math.max(size, 1)];
+			result[0] = v;
+			for (int i = 1; i < size; i++)
+				result[i] = vertices[clique[i]];
+			Arrays.sort(result);
+
+			if (collector != null) {
+				collector.add(result);
+			} else {
+				buffer.add(result.length);
+				for (int node: result)
+					buffer.add(node);
+			}
+		}
 	}
 }
@@ -239,18 +239,14 @@ public class DepthFirstSearchIterator implements Iterator<Integer> {
         public int parentIndex;
 
         /**
-         * Array containing integers that define the neighbors of the node. Each integer must be looked up
-         * in the <code>indexToAllowedNodeMapping</code> if the iterator is restricted.
-         */
-        int[] neighborIndexes;
-
-        /**
-         * Index pointer into the neighborIndexes array defining the next neighbor of the node to visit.
+         * Position in the adjacency list of the node in the graph that defines the next neighbor
+         * of the node to visit.
          */
         int neighborIndexesReadPtr;
 
         /**
-         * The number of neighbors of this node.
+         * The number of neighbors of this node in the graph, including the ones that are not
+         * allowed if the iterator is restricted.
          */
         int numNeighbors;
 
@@ -277,15 +273,23 @@ public class DepthFirstSearchIterator implements Iterator<Integer> {
                 }
             }
 
-            this.neighborIndexes = getAdjacentNodeIndicesArray(node, Directedness.ALL);
             this.neighborIndexesReadPtr = 0;
-            this.numNeighbors = this.neighborIndexes.length;
+            this.numNeighbors = graph.getDegree(node, Directedness.ALL);
         }
 
         /**
          * Returns whether this node has more neighbor nodes to visit
          */
         public boolean hasNext() {
+            if (allowedNodeToIndexMapping != null) {
+                // Skip the neighbors that we are not allowed to visit
+                while (neighborIndexesReadPtr < numNeighbors &&
+                        allowedNodeToIndexMapping.get(
+                                graph.getAdjacentNodeIndex(node, neighborIndexesReadPtr, Directedness.ALL)
+                        ) == IntIntHashMap.DEFAULT_NOT_FOUND) {
+                    neighborIndexesReadPtr++;
+                }
+            }
             return neighborIndexesReadPtr < numNeighbors;
         }
 
@@ -296,31 +300,12 @@ public class DepthFirstSearchIterator implements Iterator<Integer> {
          * is restricted.
          */
         public int next() {
-            int nextNeighbor = neighborIndexes[neighborIndexesReadPtr];
+            int nextNeighbor = graph.getAdjacentNodeIndex(node, neighborIndexesReadPtr, Directedness.ALL);
             neighborIndexesReadPtr++;
-            return nextNeighbor;
-        }
-
-        /**
-         * Returns the <em>array indices</em> of the nodes adjacent to the given node.
-         */
-        private int[] getAdjacentNodeIndicesArray(int node, Directedness mode) {
-            if (allowedNodeToIndexMapping == null) {
-                // Every node is allowed, so we query the graph directly
-                return graph.getAdjacentNodeIndicesArray(node, Directedness.ALL);
-            }
-
-            int[] edges = graph.getAdjacentEdgeIndicesArray(node, mode);
-            IntArray nodes = new IntArray(edges.length);
-            for (int edge: edges) {
-                int otherNode = graph.getEdgeEndpoint(edge, node);
-                otherNode = allowedNodeToIndexMapping.get(otherNode);
-                if (otherNode != IntIntHashMap.DEFAULT_NOT_FOUND) {
-                    nodes.add(otherNode);
-                }
+            if (allowedNodeToIndexMapping != null) {
+                nextNeighbor = allowedNodeToIndexMapping.get(nextNeighbor);
             }
-
-            return nodes.toArray();
+            return nextNeighbor;
         }
     }
 
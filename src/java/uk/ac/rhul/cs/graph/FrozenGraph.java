@@ -0,0 +1,447 @@
+package uk.ac.rhul.cs.graph;
+
+import java.util.Arrays;
+
+import com.sosnoski.util.array.DoubleArray;
+import com.sosnoski.util.array.IntArray;
+
+/**
+ * Immutable graph that stores its adjacency lists in compressed sparse row (CSR) format.
+ *
+ * A frozen graph is created from an ordinary {@link Graph} by calling {@link Graph#freeze()}.
+ * Instead of keeping a separate growable array for the incident edges of each node, the
+ * adjacency lists of all the nodes are concatenated into two flat arrays: one for the
+ * incident edge indices and one for the neighbor indices. A separate offset array tells
+ * where the adjacency list of each node starts in the flat arrays. This saves an object
+ * header and some slack capacity per node and keeps the neighborhood of a node in a
+ * contiguous block of memory, which is friendlier to the CPU cache when the clustering
+ * algorithm scans the neighbors of a node.
+ *
+ * The order of edges in the adjacency lists is the same as in the original graph, therefore
+ * every algorithm yields exactly the same result on the frozen graph as on the original one.
+ *
+ * Frozen graphs cannot be modified; all the methods that would add new nodes or edges throw
+ * an {@link UnsupportedOperationException}.
+ *
+ * @author tamas
+ */
+public class FrozenGraph extends Graph {
+	/**
+	 * Offsets of the outgoing adjacency lists in <code>outEdges</code> and
+	 * <code>outNeighbors</code>. The adjacency list of node i occupies the range from
+	 * <code>outOffsets[i]</code> (inclusive) to <code>outOffsets[i+1]</code> (exclusive).
+	 */
+	protected int[] outOffsets;
+
+	/**
+	 * Indices of the outgoing edges of each node, concatenated
+	 */
+	protected int[] outEdges;
+
+	/**
+	 * The other endpoints of the outgoing edges of each node, concatenated
+	 */
+	protected int[] outNeighbors;
+
+	/**
+	 * Offsets of the incoming adjacency lists. Same as <code>outOffsets</code> for undirected graphs.
+	 */
+	protected int[] inOffsets;
+
+	/**
+	 * Indices of the incoming edges of each node. Same as <code>outEdges</code> for undirected graphs.
+	 */
+	protected int[] inEdges;
+
+	/**
+	 * The other endpoints of the incoming edges of each node. Same as <code>outNeighbors</code>
+	 * for undirected graphs.
+	 */
+	protected int[] inNeighbors;
+
+	/**
+	 * Constructs a frozen copy of the given graph.
+	 *
+	 * @param  graph  the graph to be frozen
+	 */
+	public FrozenGraph(Graph graph) {
+		super(graph.isDirected());
+
+		int i, numNodes = graph.getNodeCount(), numEdges = graph.getEdgeCount();
+
+		numberOfNodes = numNodes;
+
+		/* Copy the node names and the edge arrays without any slack capacity */
+		nodeNames = new NodeNameDictionary(graph.nodeNames);
+
+		edgesOut = new IntArray(Math.max(numEdges, 1));
+		edgesIn = new IntArray(Math.max(numEdges, 1));
+		weights = new DoubleArray(Math.max(numEdges, 1));
+		for (i = 0; i < numEdges; i++) {
+			edgesOut.add(graph.edgesOut.get(i));
+			edgesIn.add(graph.edgesIn.get(i));
+			weights.add(graph.weights.get(i));
+		}
+
+		buildAdjacencyLists();
+	}
+
+	/**
+	 * Constructs a frozen graph directly from its node names and edge arrays.
+	 *
+	 * This is meant for graph readers that collect all the edges before building the
+	 * graph; it is faster and needs less memory than creating the edges of a mutable
+	 * graph one by one and freezing it. The graph takes ownership of the given arrays.
+	 *
+	 * @param  directed   whether the graph is directed
+	 * @param  nodeNames  the names of the nodes; the number of nodes is the size of this dictionary
+	 * @param  edgesOut   the source node of each edge
+	 * @param  edgesIn    the target node of each edge
+	 * @param  weights    the weight of each edge
+	 */
+	public FrozenGraph(boolean directed, NodeNameDictionary nodeNames, IntArray edgesOut,
+			IntArray edgesIn, DoubleArray weights) {
+		super(directed);
+
+		if (edgesOut.size() != edgesIn.size() || edgesOut.size() != weights.size())
+			throw new IllegalArgumentException("edge arrays must have the same size");
+
+		this.numberOfNodes = nodeNames.size();
+		this.nodeNames = nodeNames;
+		this.edgesOut = edgesOut;
+		this.edgesIn = edgesIn;
+		this.weights = weights;
+
+		buildAdjacencyLists();
+	}
+
+	/**
+	 * Constructs a frozen graph directly from its edge arrays and compressed adjacency lists.
+	 *
+	 * This is meant for readers of graph snapshots that store the adjacency lists as well,
+	 * so nothing has to be rebuilt. The adjacency lists must be the same as the ones that
+	 * the other constructors would build from the edge arrays; this is not checked here.
+	 * The graph takes ownership of all the given arrays.
+	 *
+	 * @param  directed      whether the graph is directed
+	 * @param  nodeNames     the names of the nodes; the number of nodes is the size of this dictionary
+	 * @param  edgesOut      the source node of each edge
+	 * @param  edgesIn       the target node of each edge
+	 * @param  weights       the weight of each edge
+	 * @param  outOffsets    the offsets of the outgoing adjacency lists
+	 * @param  outEdges      the outgoing edges of each node, concatenated
+	 * @param  outNeighbors  the other endpoints of the outgoing edges of each node, concatenated
+	 * @param  inOffsets     the offsets of the incoming adjacency lists; ignored for undirected graphs
+	 * @param  inEdges       the incoming edges of each node; ignored for undirected graphs
+	 * @param  inNeighbors   the other endpoints of the incoming edges; ignored for undirected graphs
+	 */
+	public FrozenGraph(boolean directed, NodeNameDictionary nodeNames, int[] edgesOut,
+			int[] edgesIn, double[] weights, int[] outOffsets, int[] outEdges,
+			int[] outNeighbors, int[] inOffsets, int[] inEdges, int[] inNeighbors) {
+		super(directed);
+
+		int numNodes = nodeNames.size(), numEdges = edgesOut.length;
+		if (edgesIn.length != numEdges || weights.length != numEdges)
+			throw new IllegalArgumentException("edge arrays must have the same size");
+		if (outOffsets.length != numNodes + 1 || outEdges.length != outNeighbors.length ||
+				outEdges.length != (directed ? numEdges : 2 * numEdges))
+			throw new IllegalArgumentException("outgoing adjacency lists have the wrong size");
+		if (directed && (inOffsets.length != numNodes + 1 || inEdges.length != numEdges ||
+				inNeighbors.length != numEdges))
+			throw new IllegalArgumentException("incoming adjacency lists have the wrong size");
+
+		this.numberOfNodes = numNodes;
+		this.nodeNames = nodeNames;
+		this.edgesOut = new WrappedIntArray(edgesOut);
+		this.edgesIn = new WrappedIntArray(edgesIn);
+		this.weights = new WrappedDoubleArray(weights);
+
+		this.outOffsets = outOffsets;
+		this.outEdges = outEdges;
+		this.outNeighbors = outNeighbors;
+		if (directed) {
+			this.inOffsets = inOffsets;
+			this.inEdges = inEdges;
+			this.inNeighbors = inNeighbors;
+		} else {
+			this.inOffsets = outOffsets;
+			this.inEdges = outEdges;
+			this.inNeighbors = outNeighbors;
+		}
+	}
+
+	/**
+	 * Growable integer array that uses an existing Java array as its storage
+	 */
+	private static class WrappedIntArray extends IntArray {
+		WrappedIntArray(int[] values) {
+			super(0);
+			setArray(values);
+			m_countLimit = values.length;
+			m_countPresent = values.length;
+		}
+	}
+
+	/**
+	 * Growable double array that uses an existing Java array as its storage
+	 */
+	private static class WrappedDoubleArray extends DoubleArray {
+		WrappedDoubleArray(double[] values) {
+			super(0);
+			setArray(values);
+			m_countLimit = values.length;
+			m_countPresent = values.length;
+		}
+	}
+
+	/**
+	 * Builds the compressed adjacency lists from the edge arrays.
+	 */
+	private void buildAdjacencyLists() {
+		int i, numNodes = numberOfNodes, numEdges = edgesOut.size();
+
+		if (directed) {
+			outOffsets = new int[numNodes + 1];
+			inOffsets = new int[numNodes + 1];
+			for (i = 0; i < numEdges; i++) {
+				outOffsets[edgesOut.get(i) + 1]++;
+				inOffsets[edgesIn.get(i) + 1]++;
+			}
+			cumulate(outOffsets);
+			cumulate(inOffsets);
+
+			outEdges = new int[numEdges];
+			outNeighbors = new int[numEdges];
+			inEdges = new int[numEdges];
+			inNeighbors = new int[numEdges];
+
+			int[] outPtr = Arrays.copyOf(outOffsets, numNodes);
+			int[] inPtr = Arrays.copyOf(inOffsets, numNodes);
+			for (i = 0; i < numEdges; i++) {
+				int source = edgesOut.get(i), target = edgesIn.get(i);
+				store(outEdges, outNeighbors, outPtr[source]++, i, target);
+				store(inEdges, inNeighbors, inPtr[target]++, i, source);
+			}
+		} else {
+			/* Each edge appears in the adjacency list of both endpoints; loop edges
+			 * appear twice in the adjacency list of their only endpoint, just like in
+			 * the original graph */
+			outOffsets = new int[numNodes + 1];
+			for (i = 0; i < numEdges; i++) {
+				outOffsets[edgesOut.get(i) + 1]++;
+				outOffsets[edgesIn.get(i) + 1]++;
+			}
+			cumulate(outOffsets);
+
+			outEdges = new int[2 * numEdges];
+			outNeighbors = new int[2 * numEdges];
+
+			int[] ptr = Arrays.copyOf(outOffsets, numNodes);
+			for (i = 0; i < numEdges; i++) {
+				int source = edgesOut.get(i), target = edgesIn.get(i);
+				store(outEdges, outNeighbors, ptr[source]++, i, target);
+				store(outEdges, outNeighbors, ptr[target]++, i, source);
+			}
+
+			inOffsets = outOffsets;
+			inEdges = outEdges;
+			inNeighbors = outNeighbors;
+		}
+	}
+
+	/**
+	 * Turns an array of counts into an array of offsets in-place.
+	 */
+	private static void cumulate(int[] offsets) {
+		for (int i = 1; i < offsets.length; i++)
+			offsets[i] += offsets[i-1];
+	}
+
+	/**
+	 * Stores an entry of an adjacency list in the given arrays.
+	 */
+	private static void store(int[] edges, int[] neighbors, int position, int edge, int neighbor) {
+		edges[position] = edge;
+		neighbors[position] = neighbor;
+	}
+
+	/**
+	 * Returns whether the two given nodes are connected.
+	 *
+	 * @param  source   the source node
+	 * @param  target   the target node
+	 */
+	@Override
+	public boolean areConnected(int source, int target) {
+		AdjacencyIndex index = adjacencyIndex;
+		if (index != null)
+			return index.areConnected(source, target);
+
+		int i, n = outOffsets[source + 1];
+		for (i = outOffsets[source]; i < n; i++) {
+			if (outNeighbors[i] == target)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Frozen graphs cannot be modified.
+	 *
+	 * @throws UnsupportedOperationException  always
+	 */
+	@Override
+	public int createNode(String name) {
+		throw new UnsupportedOperationException("frozen graphs cannot be modified");
+	}
+
+	/**
+	 * Frozen graphs cannot be modified.
+	 *
+	 * @throws UnsupportedOperationException  always
+	 */
+	@Override
+	public int[] createNodes(int new_node_count) {
+		throw new UnsupportedOperationException("frozen graphs cannot be modified");
+	}
+
+	/**
+	 * Frozen graphs cannot be modified.
+	 *
+	 * @throws UnsupportedOperationException  always
+	 */
+	@Override
+	public int createEdge(int src, int dest, double weight) {
+		throw new UnsupportedOperationException("frozen graphs cannot be modified");
+	}
+
+	/**
+	 * Returns this graph since it is frozen already.
+	 */
+	@Override
+	public FrozenGraph freeze() {
+		return this;
+	}
+
+	/**
+	 * Returns the indices of all nodes adjacent to the node at the specified index
+	 *
+	 * If a node is connected to the query node by multiple edges, the node will
+	 * be returned multiple times.
+	 *
+	 * @param   nodeIndex  the index of the query node
+	 * @param   mode       directedness mode. Ignored if the graph is undirected.
+	 */
+	@Override
+	public int[] getAdjacentNodeIndicesArray(int nodeIndex, Directedness mode) {
+		return concatenate(outNeighbors, inNeighbors, nodeIndex, mode);
+	}
+
+	/**
+	 * Returns the indices of all edges adjacent to the node at the specified index
+	 *
+	 * @param   nodeIndex  the index of the node
+	 * @param   mode       directedness mode. Ignored if the graph is undirected.
+	 */
+	@Override
+	public int[] getAdjacentEdgeIndicesArray(int nodeIndex, Directedness mode) {
+		return concatenate(outEdges, inEdges, nodeIndex, mode);
+	}
+
+	/**
+	 * Returns the index of an edge from the adjacency list of a given node
+	 *
+	 * @param   nodeIndex  the index of the node
+	 * @param   position   the position of the edge in the adjacency list
+	 * @param   mode       directedness mode. Ignored if the graph is undirected.
+	 */
+	@Override
+	public int getAdjacentEdgeIndex(int nodeIndex, int position, Directedness mode) {
+		if (!directed || mode == Directedness.OUT)
+			return outEdges[outOffsets[nodeIndex] + position];
+		if (mode == Directedness.IN)
+			return inEdges[inOffsets[nodeIndex] + position];
+
+		int outDegree = outOffsets[nodeIndex + 1] - outOffsets[nodeIndex];
+		if (position < outDegree)
+			return outEdges[outOffsets[nodeIndex] + position];
+		return inEdges[inOffsets[nodeIndex] + position - outDegree];
+	}
+
+	/**
+	 * Returns the index of a node from the adjacency list of a given node
+	 *
+	 * @param   nodeIndex  the index of the node
+	 * @param   position   the position of the neighbor in the adjacency list
+	 * @param   mode       directedness mode. Ignored if the graph is undirected.
+	 */
+	@Override
+	public int getAdjacentNodeIndex(int nodeIndex, int position, Directedness mode) {
+		if (!directed || mode == Directedness.OUT)
+			return outNeighbors[outOffsets[nodeIndex] + position];
+		if (mode == Directedness.IN)
+			return inNeighbors[inOffsets[nodeIndex] + position];
+
+		int outDegree = outOffsets[nodeIndex + 1] - outOffsets[nodeIndex];
+		if (position < outDegree)
+			return outNeighbors[outOffsets[nodeIndex] + position];
+		return inNeighbors[inOffsets[nodeIndex] + position - outDegree];
+	}
+
+	/**
+	 * Returns the number of distinct in/outedges incident on the node with the given index
+	 */
+	@Override
+	public int getDegree(int nodeIndex, Directedness mode) {
+		int outDegree = outOffsets[nodeIndex + 1] - outOffsets[nodeIndex];
+		if (!directed || mode == Directedness.OUT)
+			return outDegree;
+
+		int inDegree = inOffsets[nodeIndex + 1] - inOffsets[nodeIndex];
+		if (mode == Directedness.IN)
+			return inDegree;
+		return outDegree + inDegree;
+	}
+
+	/**
+	 * Returns the total weight of in/outedges incident on the node with the given index
+	 */
+	@Override
+	public double getStrength(int nodeIndex, Directedness mode) {
+		int i, n;
+		double result = 0.0;
+
+		if (!directed || mode != Directedness.IN) {
+			n = outOffsets[nodeIndex + 1];
+			for (i = outOffsets[nodeIndex]; i < n; i++)
+				result += weights.get(outEdges[i]);
+		}
+
+		if (directed && mode == Directedness.IN) {
+			n = inOffsets[nodeIndex + 1];
+			for (i = inOffsets[nodeIndex]; i < n; i++)
+				result += weights.get(inEdges[i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Copies the outgoing and/or incoming part of an adjacency list into a new array
+	 * according to the given directedness mode.
+	 */
+	private int[] concatenate(int[] outArray, int[] inArray, int nodeIndex, Directedness mode) {
+		if (!directed || mode == Directedness.OUT)
+			return Arrays.copyOfRange(outArray, outOffsets[nodeIndex], outOffsets[nodeIndex + 1]);
+
+		if (mode == Directedness.IN)
+			return Arrays.copyOfRange(inArray, inOffsets[nodeIndex], inOffsets[nodeIndex + 1]);
+
+		int outStart = outOffsets[nodeIndex], outLength = outOffsets[nodeIndex + 1] - outStart;
+		int inStart = inOffsets[nodeIndex], inLength = inOffsets[nodeIndex + 1] - inStart;
+		int[] result = new int[outLength + inLength];
+		System.arraycopy(outArray, outStart, result, 0, outLength);
+		System.arraycopy(inArray, inStart, result, outLength, inLength);
+		return result;
+	}
+}
@@ -7,7 +7,6 @@ import java.util.List;
 
 import com.sosnoski.util.array.DoubleArray;
 import com.sosnoski.util.array.IntArray;
-import com.sosnoski.util.array.StringArray;
 import com.sosnoski.util.hashmap.ObjectIntHashMap;
 
 /**
@@ -27,9 +26,19 @@ public class Graph implements Iterable<Edge> {
 	protected int numberOfNodes = 0;
 	
 	/**
-	 * The list of names for each node in this graph
+	 * The names of the nodes in this graph
 	 */
-	protected StringArray nodeNames = new StringArray();
+	protected NodeNameDictionary nodeNames = new NodeNameDictionary();
+	
+	/**
+	 * Cached hash map from node names to node indices; see {@link #getNodeNameHashMap()}
+	 */
+	private ObjectIntHashMap nodeNameHashMap = null;
+	
+	/**
+	 * Cached adjacency index; see {@link #getAdjacencyIndex()}
+	 */
+	protected volatile AdjacencyIndex adjacencyIndex = null;
 	
 	/**
 	 * The list of source nodes for each edge in this graph. The maximum growth limit of the array is overridden
@@ -103,15 +112,22 @@ public class Graph implements Iterable<Edge> {
 	/**
 	 * Returns whether the two given nodes are connected.
 	 * 
+	 * The adjacency list of the source node is scanned unless an adjacency index
+	 * has been built by {@link #getAdjacencyIndex()}.
+	 * 
 	 * @param  source   the source node
 	 * @param  target   the target node
 	 */
 	public boolean areConnected(int source, int target) {
+		AdjacencyIndex index = adjacencyIndex;
+		if (index != null)
+			return index.areConnected(source, target);
+		
 		IntArray edges = outEdgeAdjacencyLists.get(source);
 		int i, n = edges.size();
 		for (i = 0; i < n; i++) {
 			int edge = edges.get(i);
-			if (edgesIn.get(edge) == target)
+			if (getEdgeEndpoint(edge, source) == target)
 				return true;
 		}
 		return false;
@@ -134,9 +150,23 @@ public class Graph implements Iterable<Edge> {
 		outEdgeAdjacencyLists.add(new IntArray());
 		inEdgeAdjacencyLists.add(new IntArray());
 		nodeNames.add(name);
+		nodeNameHashMap = null;
+		adjacencyIndex = null;
 		return numberOfNodes-1;
 	}
 
+	/**
+	 * Returns the index of the node with the given name, creating the node if needed
+	 * 
+	 * @param   name   the name of the node
+	 */
+	public int getOrCreateNode(String name) {
+		int index = nodeNames.indexOf(name);
+		if (index < 0)
+			index = this.createNode(name);
+		return index;
+	}
+	
 	/**
 	 * Create some new nodes in the graph.
 	 * 
@@ -152,6 +182,8 @@ public class Graph implements Iterable<Edge> {
 			result[i] = n+i;
 		}
 		numberOfNodes += new_node_count;
+		nodeNameHashMap = null;
+		adjacencyIndex = null;
 		return result;
 	}
 	
@@ -192,9 +224,21 @@ public class Graph implements Iterable<Edge> {
 			outEdgeAdjacencyLists.get(dest).add(edgeID);
 			inEdgeAdjacencyLists.get(src).add(edgeID);
 		}
+		adjacencyIndex = null;
 		return edgeID;
 	}
 
+	/**
+	 * Freezes the graph (i.e. converts it to an immutable {@link FrozenGraph})
+	 *
+	 * The frozen graph stores the adjacency lists in a compressed format that needs
+	 * less memory and is faster to traverse. Modifications made to this graph after
+	 * freezing are not reflected in the frozen graph.
+	 */
+	public FrozenGraph freeze() {
+		return new FrozenGraph(this);
+	}
+
 	/**
 	 * Returns the number of nodes in the graph
 	 */
@@ -260,7 +304,72 @@ public class Graph implements Iterable<Edge> {
 		}
 		return result;
 	}
-	
+
+	/**
+	 * Returns the index of an edge from the adjacency list of a given node
+	 *
+	 * Unlike {@link #getAdjacentEdgeIndicesArray(int, Directedness)}, this method
+	 * does not copy the adjacency list, so it is suitable for tight loops:
+	 *
+	 * <pre>
+	 * int n = graph.getDegree(node, mode);
+	 * for (int i = 0; i < n; i++) {
+	 *     int edge = graph.getAdjacentEdgeIndex(node, i, mode);
+	 *     ...
+	 * }
+	 * </pre>
+	 *
+	 * The edges are enumerated in the same order as they appear in the array
+	 * returned by {@link #getAdjacentEdgeIndicesArray(int, Directedness)}.
+	 *
+	 * @param   nodeIndex  the index of the node
+	 * @param   position   the position of the edge in the adjacency list; must be
+	 *                     less than the degree of the node with the same mode
+	 * @param   mode       directedness mode. Ignored if the graph is undirected.
+	 */
+	public int getAdjacentEdgeIndex(int nodeIndex, int position, Directedness mode) {
+		if (!directed || mode == Directedness.OUT)
+			return outEdgeAdjacencyLists.get(nodeIndex).get(position);
+		if (mode == Directedness.IN)
+			return inEdgeAdjacencyLists.get(nodeIndex).get(position);
+
+		IntArray outEdges = outEdgeAdjacencyLists.get(nodeIndex);
+		int outDegree = outEdges.size();
+		if (position < outDegree)
+			return outEdges.get(position);
+		return inEdgeAdjacencyLists.get(nodeIndex).get(position - outDegree);
+	}
+
+	/**
+	 * Returns the index of a node from the adjacency list of a given node
+	 *
+	 * This is the other endpoint of the edge returned by
+	 * {@link #getAdjacentEdgeIndex(int, int, Directedness)} for the same arguments.
+	 *
+	 * @param   nodeIndex  the index of the node
+	 * @param   position   the position of the neighbor in the adjacency list; must be
+	 *                     less than the degree of the node with the same mode
+	 * @param   mode       directedness mode. Ignored if the graph is undirected.
+	 */
+	public int getAdjacentNodeIndex(int nodeIndex, int position, Directedness mode) {
+		return getEdgeEndpoint(getAdjacentEdgeIndex(nodeIndex, position, mode), nodeIndex);
+	}
+
+	/**
+	 * Returns the weight of an edge from the adjacency list of a given node
+	 *
+	 * This is the weight of the edge returned by
+	 * {@link #getAdjacentEdgeIndex(int, int, Directedness)} for the same arguments.
+	 *
+	 * @param   nodeIndex  the index of the node
+	 * @param   position   the position of the edge in the adjacency list; must be
+	 *                     less than the degree of the node with the same mode
+	 * @param   mode       directedness mode. Ignored if the graph is undirected.
+	 */
+	public double getAdjacentEdgeWeight(int nodeIndex, int position, Directedness mode) {
+		return weights.get(getAdjacentEdgeIndex(nodeIndex, position, mode));
+	}
+
 	/**
 	 * Returns the name of a given node
 	 * 
@@ -274,17 +383,72 @@ public class Graph implements Iterable<Edge> {
 	public String[] getNodeNames() { return this.nodeNames.toArray(); }
 	
 	/**
-	 * Returns a hash mapping node names to node indices
+	 * Returns an index that tells whether two nodes are connected in constant or
+	 * logarithmic time
+	 * 
+	 * The index is built on the first call and reused until the graph is modified.
+	 * While it exists, {@link #areConnected(int, int)} uses it as well, so it is
+	 * worth building before checking many node pairs, e.g. when filtering edges
+	 * or looking for triangles.
+	 */
+	public synchronized AdjacencyIndex getAdjacencyIndex() {
+		AdjacencyIndex index = adjacencyIndex;
+		if (index == null) {
+			index = new AdjacencyIndex(this);
+			adjacencyIndex = index;
+		}
+		return index;
+	}
+	
+	/**
+	 * Discards the adjacency index built by {@link #getAdjacencyIndex()} to free
+	 * the memory it occupies
 	 */
-	public ObjectIntHashMap getNodeNameHashMap() {
-		ObjectIntHashMap map = new ObjectIntHashMap();
-		String[] nodeNames = this.getNodeNames();
-		for (int i = 0; i < this.numberOfNodes; i++)
-			map.add(nodeNames[i], i);
+	public synchronized void discardAdjacencyIndex() {
+		adjacencyIndex = null;
+	}
+	
+	/**
+	 * Returns the dictionary that stores the names of the nodes
+	 * 
+	 * The dictionary must not be modified directly; use {@link #createNode(String)}
+	 * or {@link #getOrCreateNode(String)} instead.
+	 */
+	public NodeNameDictionary getNodeNameDictionary() { return this.nodeNames; }
+	
+	/**
+	 * Returns a hash mapping node names to node indices
+	 * 
+	 * The hash is built on the first call and reused until a new node is created,
+	 * so it must not be modified by the caller.
+	 * 
+	 * @deprecated  the hash map holds a separate copy of every name; use
+	 *              {@link #getNodeIndex(String)} instead, which looks up the
+	 *              names in the dictionary of the graph.
+	 */
+	@Deprecated
+	public synchronized ObjectIntHashMap getNodeNameHashMap() {
+		if (nodeNameHashMap == null) {
+			ObjectIntHashMap map = new ObjectIntHashMap();
+			String[] nodeNames = this.getNodeNames();
+			for (int i = 0; i < this.numberOfNodes; i++)
+				if (nodeNames[i] != null)
+					map.add(nodeNames[i], i);
+			nodeNameHashMap = map;
+		}
 		
-		return map;
+		return nodeNameHashMap;
 	}
 	
+	/**
+	 * Returns the index of the node with the given name
+	 * 
+	 * @param   name   the name of the node
+	 * @return  the index of the first node with the given name, or -1 if there is
+	 *          no such node
+	 */
+	public int getNodeIndex(String name) { return this.nodeNames.indexOf(name); }
+	
 	/**
 	 * Returns the weight of a given edge
 	 * 
@@ -362,17 +526,18 @@ public class Graph implements Iterable<Edge> {
 	public double getStrength(int nodeIndex, Directedness mode) {
 		IntArray neis = null;
 		double result = 0.0;
-		
+		int i, n;
+
 		if (!directed || mode != Directedness.IN) {
 			neis = outEdgeAdjacencyLists.get(nodeIndex);
-			for (int eidx: neis.toArray())
-				result += weights.get(eidx);
+			for (i = 0, n = neis.size(); i < n; i++)
+				result += weights.get(neis.get(i));
 		}
-		
+
 		if (directed && mode == Directedness.IN) {
 			neis = inEdgeAdjacencyLists.get(nodeIndex);
-			for (int eidx: neis.toArray())
-				result += weights.get(eidx);
+			for (i = 0, n = neis.size(); i < n; i++)
+				result += weights.get(neis.get(i));
 		}
 		
 		return result;
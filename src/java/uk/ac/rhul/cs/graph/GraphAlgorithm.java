@@ -13,7 +13,7 @@ public abstract class GraphAlgorithm {
 	protected Graph graph = null;
 
 	/** Marks whether the algorithm should be stopped at the earliest possible occasion */
-	protected boolean shouldStop = false;
+	protected volatile boolean shouldStop = false;
 	
 	/**
 	 * Creates an algorithm with no associated graph
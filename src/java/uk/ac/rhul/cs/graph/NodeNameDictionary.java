@@ -0,0 +1,459 @@
+package uk.ac.rhul.cs.graph;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact storage for the names of the nodes of a graph.
+ *
+ * The names are not kept as {@link String} objects; they are encoded in UTF-8 and
+ * concatenated in a single byte array (the arena), and an offset array tells where
+ * the name of each node starts. An open addressing hash table that refers back to
+ * the arena maps the names to node indices, so there is no separate map with its
+ * own copies of the names either. For typical database identifiers this needs
+ * less than half of the memory of a string array and a hash map.
+ *
+ * Names are decoded into a new {@link String} whenever {@link #get(int)} is called,
+ * so callers that need the same name often should keep the string themselves.
+ * Nodes may have no name at all ({@link #get(int)} returns null for them); such
+ * nodes are not in the hash table. If several nodes have the same name, the hash
+ * table maps the name to the first one. Dictionaries that are loaded in bulk with
+ * {@link #NodeNameDictionary(byte[], int[])} build their hash table when the first
+ * name is looked up.
+ *
+ * The dictionary is not thread-safe for modifications, but any number of threads
+ * may read it concurrently once it is not modified any more.
+ *
+ * @author tamas
+ */
+public class NodeNameDictionary {
+	/**
+	 * The charset of the arena
+	 */
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	/**
+	 * The encoded names, concatenated
+	 */
+	private byte[] arena;
+
+	/**
+	 * The number of bytes used in the arena
+	 */
+	private int arenaSize = 0;
+
+	/**
+	 * The offset of the name of each node in the arena; the name of node i occupies
+	 * the range from <code>offsets[i]</code> to <code>offsets[i+1]</code>.
+	 */
+	private int[] offsets;
+
+	/**
+	 * The number of names in the dictionary
+	 */
+	private int size = 0;
+
+	/**
+	 * The nodes that have no name
+	 */
+	private BitSet unnamed = new BitSet();
+
+	/**
+	 * Open addressing hash table that maps names to node indices plus one; zero marks
+	 * an empty slot. The length is always a power of two. Null if the table has not
+	 * been built yet; see {@link #getTable()}.
+	 */
+	private volatile int[] table;
+
+	/**
+	 * The number of names in the hash table
+	 */
+	private int tableSize = 0;
+
+	/**
+	 * Constructs an empty dictionary
+	 */
+	public NodeNameDictionary() {
+		this(16);
+	}
+
+	/**
+	 * Constructs an empty dictionary with room for the given number of names
+	 *
+	 * @param  capacity  the expected number of names
+	 */
+	public NodeNameDictionary(int capacity) {
+		capacity = Math.min(Math.max(capacity, 1), 1 << 26);
+		arena = new byte[capacity * 8];
+		offsets = new int[capacity + 1];
+		table = new int[Integer.highestOneBit(capacity * 2 + 1) * 2];
+	}
+
+	/**
+	 * Constructs a copy of the given dictionary without any slack capacity
+	 *
+	 * @param  other  the dictionary to copy
+	 */
+	public NodeNameDictionary(NodeNameDictionary other) {
+		arena = Arrays.copyOf(other.arena, Math.max(other.arenaSize, 1));
+		arenaSize = other.arenaSize;
+		offsets = Arrays.copyOf(other.offsets, other.size + 1);
+		size = other.size;
+		unnamed = (BitSet)other.unnamed.clone();
+		int[] otherTable = other.table;
+		table = (otherTable == null) ? null : otherTable.clone();
+		tableSize = other.tableSize;
+	}
+
+	/**
+	 * Constructs a dictionary from UTF-8 encoded names concatenated in an array
+	 *
+	 * The array becomes the arena of the dictionary as it is, so loading many names
+	 * at once does not copy them one by one, and the hash table is only built when
+	 * the first name is looked up. The dictionary takes ownership of the array.
+	 *
+	 * @param  arena    the encoded names, concatenated
+	 * @param  lengths  the length of each encoded name in bytes, or -1 if the node
+	 *                  has no name
+	 * @throws IllegalArgumentException  if the lengths do not add up to the length
+	 *                                   of the array
+	 */
+	public NodeNameDictionary(byte[] arena, int[] lengths) {
+		int i, n = lengths.length;
+
+		this.arena = arena;
+		offsets = new int[n + 1];
+		for (i = 0; i < n; i++) {
+			int length = lengths[i];
+			if (length < 0) {
+				unnamed.set(i);
+				length = 0;
+			} else if (length > arena.length - offsets[i]) {
+				throw new IllegalArgumentException("names are longer than the arena");
+			}
+			offsets[i + 1] = offsets[i] + length;
+		}
+		if (offsets[n] != arena.length)
+			throw new IllegalArgumentException("names are shorter than the arena");
+		arenaSize = arena.length;
+		size = n;
+	}
+
+	/**
+	 * Adds a new name to the dictionary, even if the same name is there already
+	 *
+	 * @param  name  the name; null means that the node has no name
+	 * @return the index of the new name
+	 */
+	public int add(String name) {
+		if (name == null)
+			return addUnnamed();
+
+		byte[] bytes = name.getBytes(UTF8);
+		return add(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Adds a new UTF-8 encoded name to the dictionary, even if the same name is
+	 * there already
+	 *
+	 * @param  bytes   the array containing the encoded name
+	 * @param  offset  the offset of the name in the array
+	 * @param  length  the length of the encoded name
+	 * @return the index of the new name
+	 */
+	public int add(byte[] bytes, int offset, int length) {
+		int hash = hash(bytes, offset, length);
+		boolean known = find(bytes, offset, length, hash) >= 0;
+		int id = append(bytes, offset, length);
+		if (!known)
+			insert(id, hash);
+		return id;
+	}
+
+	/**
+	 * Returns the index of the given name, adding the name if it is not in the
+	 * dictionary yet
+	 *
+	 * @param  name  the name
+	 * @return the index of the name
+	 */
+	public int getOrAdd(String name) {
+		byte[] bytes = name.getBytes(UTF8);
+		return getOrAdd(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Returns the index of the given UTF-8 encoded name, adding the name if it is
+	 * not in the dictionary yet
+	 *
+	 * @param  bytes   the array containing the encoded name
+	 * @param  offset  the offset of the name in the array
+	 * @param  length  the length of the encoded name
+	 * @return the index of the name
+	 */
+	public int getOrAdd(byte[] bytes, int offset, int length) {
+		int hash = hash(bytes, offset, length);
+		int id = find(bytes, offset, length, hash);
+		if (id >= 0)
+			return id;
+
+		id = append(bytes, offset, length);
+		insert(id, hash);
+		return id;
+	}
+
+	/**
+	 * Returns the name with the given index
+	 *
+	 * @param  index  the index of the name
+	 * @return the name or null if the node has no name
+	 */
+	public String get(int index) {
+		if (index < 0 || index >= size)
+			throw new ArrayIndexOutOfBoundsException(index);
+		if (unnamed.get(index))
+			return null;
+		return new String(arena, offsets[index], offsets[index + 1] - offsets[index], UTF8);
+	}
+
+	/**
+	 * Returns the UTF-8 encoding of the name with the given index
+	 *
+	 * @param  index  the index of the name
+	 * @return the encoded name or null if the node has no name
+	 */
+	public byte[] getBytes(int index) {
+		if (index < 0 || index >= size)
+			throw new ArrayIndexOutOfBoundsException(index);
+		if (unnamed.get(index))
+			return null;
+		return Arrays.copyOfRange(arena, offsets[index], offsets[index + 1]);
+	}
+
+	/**
+	 * Returns the index of the given name
+	 *
+	 * @param  name  the name we are looking for
+	 * @return the index of the first node with the given name or -1 if there is
+	 *         no such node
+	 */
+	public int indexOf(String name) {
+		if (name == null)
+			return -1;
+
+		/* ASCII names (the vast majority) are looked up without encoding them */
+		int hash = 0, length = name.length();
+		for (int i = 0; i < length; i++) {
+			char c = name.charAt(i);
+			if (c >= 0x80) {
+				byte[] bytes = name.getBytes(UTF8);
+				return find(bytes, 0, bytes.length, hash(bytes, 0, bytes.length));
+			}
+			hash = 31 * hash + c;
+		}
+		hash ^= hash >>> 16;
+
+		int[] table = getTable();
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != 0) {
+			int id = table[slot] - 1;
+			if (equalsAt(id, name))
+				return id;
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the number of names in the dictionary, including the unnamed nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns all the names in an array
+	 */
+	public String[] toArray() {
+		String[] result = new String[size];
+		for (int i = 0; i < size; i++)
+			result[i] = get(i);
+		return result;
+	}
+
+	/**
+	 * Returns an estimate of the memory used by the dictionary in bytes
+	 */
+	public long getMemoryUsage() {
+		int[] table = this.table;
+		return arena.length + 4L * offsets.length + (table == null ? 0 : 4L * table.length) +
+			unnamed.size() / 8;
+	}
+
+	/**
+	 * Adds a node without a name
+	 */
+	private int addUnnamed() {
+		int id = append(null, 0, 0);
+		unnamed.set(id);
+		return id;
+	}
+
+	/**
+	 * Appends an encoded name to the arena without touching the hash table
+	 */
+	private int append(byte[] bytes, int offset, int length) {
+		if (arenaSize + length > arena.length) {
+			long newLength = Math.max(arena.length * 3L / 2 + 1, (long)arenaSize + length);
+			if (newLength > Integer.MAX_VALUE - 8)
+				throw new IllegalStateException("too many node names");
+			arena = Arrays.copyOf(arena, (int)newLength);
+		}
+		if (size + 2 > offsets.length)
+			offsets = Arrays.copyOf(offsets, offsets.length * 3 / 2 + 2);
+
+		if (length > 0)
+			System.arraycopy(bytes, offset, arena, arenaSize, length);
+		arenaSize += length;
+		size++;
+		offsets[size] = arenaSize;
+		return size - 1;
+	}
+
+	/**
+	 * Finds a name in the hash table and returns its index or -1 if it is not there
+	 */
+	private int find(byte[] bytes, int offset, int length, int hash) {
+		int[] table = getTable();
+		int mask = table.length - 1;
+		int slot = hash & mask;
+
+		while (table[slot] != 0) {
+			int id = table[slot] - 1;
+			if (equalsAt(id, bytes, offset, length))
+				return id;
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the hash table, building it first if needed
+	 */
+	private int[] getTable() {
+		int[] result = table;
+		if (result != null)
+			return result;
+
+		synchronized (this) {
+			if (table == null)
+				buildTable();
+			return table;
+		}
+	}
+
+	/**
+	 * Builds the hash table from all the names in the arena
+	 */
+	private void buildTable() {
+		int[] newTable = new int[Integer.highestOneBit(Math.max(size, 1) * 2 + 1) * 2];
+		int mask = newTable.length - 1, count = 0;
+
+		for (int id = 0; id < size; id++) {
+			if (unnamed.get(id))
+				continue;
+
+			int offset = offsets[id], length = offsets[id + 1] - offset;
+			int slot = hash(arena, offset, length) & mask;
+			boolean known = false;
+			while (newTable[slot] != 0 && !known) {
+				known = equalsAt(newTable[slot] - 1, arena, offset, length);
+				slot = (slot + 1) & mask;
+			}
+			if (!known) {
+				newTable[slot] = id + 1;
+				count++;
+			}
+		}
+
+		tableSize = count;
+		table = newTable;
+	}
+
+	/**
+	 * Inserts a name that is not in the hash table yet
+	 */
+	private void insert(int id, int hash) {
+		/* Keep the load factor below one half */
+		if (2 * (tableSize + 1) > table.length)
+			rehash();
+
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != 0)
+			slot = (slot + 1) & mask;
+		table[slot] = id + 1;
+		tableSize++;
+	}
+
+	/**
+	 * Doubles the size of the hash table
+	 */
+	private void rehash() {
+		int[] newTable = new int[table.length * 2];
+		int mask = newTable.length - 1;
+
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] == 0)
+				continue;
+			int id = table[i] - 1;
+			int slot = hash(arena, offsets[id], offsets[id + 1] - offsets[id]) & mask;
+			while (newTable[slot] != 0)
+				slot = (slot + 1) & mask;
+			newTable[slot] = table[i];
+		}
+
+		table = newTable;
+	}
+
+	/**
+	 * Checks whether the name with the given index is equal to the given encoded name
+	 */
+	private boolean equalsAt(int id, byte[] bytes, int offset, int length) {
+		int start = offsets[id];
+		if (offsets[id + 1] - start != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (arena[start + i] != bytes[offset + i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Checks whether the name with the given index is equal to the given ASCII name
+	 */
+	private boolean equalsAt(int id, String name) {
+		int start = offsets[id], length = name.length();
+		if (offsets[id + 1] - start != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (arena[start + i] != name.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Calculates the hash code of an encoded name
+	 */
+	private static int hash(byte[] bytes, int offset, int length) {
+		int hash = 0;
+		for (int i = offset, end = offset + length; i < end; i++)
+			hash = 31 * hash + bytes[i];
+		return hash ^ (hash >>> 16);
+	}
+}
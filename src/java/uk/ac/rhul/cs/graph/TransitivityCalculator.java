@@ -1,5 +1,16 @@
 package uk.ac.rhul.cs.graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import uk.ac.rhul.cs.cl1.NullTaskMonitor;
 import uk.ac.rhul.cs.cl1.TaskMonitor;
 import uk.ac.rhul.cs.cl1.TaskMonitorSupport;
@@ -7,10 +18,22 @@ import uk.ac.rhul.cs.cl1.TaskMonitorSupport;
 /**
  * Calculates the transitivity (i.e. clustering coefficient) of a given graph
  * or a given set of nodes in a graph.
- * 
+ *
+ * Triangles are counted with the forward algorithm: the nodes are ranked by
+ * degree, every edge is oriented towards the node with the higher rank, and
+ * each triangle is found exactly once by intersecting the sorted forward
+ * neighbor lists of the endpoints of its lowest ranked edge. This needs
+ * O(m<sup>1.5</sup>) steps even on graphs with hubs. The nodes are split into
+ * chunks that may be processed on multiple threads.
+ *
  * @author tamas
  */
 public class TransitivityCalculator extends GraphAlgorithm implements TaskMonitorSupport {
+	/**
+	 * The number of nodes in a chunk processed by a thread at once
+	 */
+	private static final int CHUNK_SIZE = 256;
+
 	public TransitivityCalculator() {
 		super();
 	}
@@ -22,64 +45,122 @@ public class TransitivityCalculator extends GraphAlgorithm implements TaskMonito
 	/** A task monitor where the algorithm will report its progress */
 	protected TaskMonitor monitor = new NullTaskMonitor();
 
+	/** The number of threads used by the calculation */
+	private int numThreads = 1;
+
+	/**
+	 * The neighbors of each node with a higher rank, sorted by index
+	 */
+	private int[][] forwardNeighbors;
+
+	/**
+	 * The number of edges between each node and its forward neighbors
+	 */
+	private int[][] multiplicities;
+
+	/**
+	 * The number of distinct neighbors of each node, not counting the node itself
+	 */
+	private int[] simpleDegrees;
+
+	/**
+	 * The result of counting the triangles in a range of nodes
+	 */
+	private static class TriangleCount {
+		/** The number of triangles, weighted like in {@link TransitivityCalculator#getGlobalTransitivity()} */
+		long weightedCount = 0;
+
+		/** The number of triangles each node takes part in; null if not needed */
+		int[] localCounts = null;
+	}
+
 	/**
 	 * Returns the average local transitivity of the graph.
-	 * 
-	 * @todo  not implemented yet
+	 *
+	 * The local transitivity of a node is the fraction of the pairs of its neighbors
+	 * that are connected. Nodes with less than two neighbors are left out of the
+	 * average. Loop edges and multiple edges are ignored.
+	 *
+	 * @return  the average local transitivity, zero if no node has two neighbors,
+	 *          or null if the calculation was interrupted
 	 */
 	public Double getAverageLocalTransitivity() {
-		// TODO
-		throw new RuntimeException("average local transitivity not implemented yet");
+		double[] values = getLocalTransitivity();
+		if (values == null)
+			return null;
+
+		double sum = 0.0;
+		int count = 0;
+		for (double value: values) {
+			if (!Double.isNaN(value)) {
+				sum += value;
+				count++;
+			}
+		}
+
+		return (count == 0) ? 0.0 : (sum / count);
 	}
-	
+
 	/**
 	 * Returns the global transitivity of the graph.
-	 * 
+	 *
 	 * Global transitivity is defined as three times the number of triangles (or,
 	 * simply the number of closed triplets) divided by the number of connected
-	 * triplets.
-	 * 
+	 * triplets. Multiple edges count as separate edges in both numbers.
+	 *
 	 * @return  the transitivity or null if the calculation was interrupted
 	 */
 	public Double getGlobalTransitivity() {
-		long triangles = 0;
+		TriangleCount count = countTriangles(false);
+		if (count == null)
+			return null;
+
 		long triplets = 0;
 		int nodeCount = graph.getNodeCount();
-		int i;
-		
-		shouldStop = false;
+		for (int i = 0; i < nodeCount; i++) {
+			long degree = graph.getDegree(i, Directedness.ALL);
+			triplets += (degree * (degree - 1)) / 2;
+		}
 
-		monitor.setPercentCompleted(0);
+		return (triplets == 0) ? 0 : (3.0 * count.weightedCount / triplets);
+	}
 
-		for (i = 0; i < nodeCount; i++) {
-			if (shouldStop)
-				return null;
-			
-			int[] neis = graph.getAdjacentNodeIndicesArray(i, Directedness.ALL);
-			for (int j: neis) {
-				if (j <= i)
-					continue;
-				
-				for (int k: neis) {
-					if (j < k && graph.areConnected(j, k))
-						triangles++;
-				}
-			}
-			triplets += (neis.length * (neis.length - 1)) / 2;
+	/**
+	 * Returns the local transitivity of each node in the graph.
+	 *
+	 * Loop edges and multiple edges are ignored.
+	 *
+	 * @return  the local transitivity of each node, NaN for nodes with less than two
+	 *          neighbors, or null if the calculation was interrupted
+	 */
+	public double[] getLocalTransitivity() {
+		TriangleCount count = countTriangles(true);
+		if (count == null)
+			return null;
 
-			// TODO: this is not entirely exact here because each node should be
-			// weighted by the square of its degree
-			monitor.setPercentCompleted((int)(i * 100.0 / nodeCount));
+		int nodeCount = simpleDegrees.length;
+		double[] result = new double[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			long degree = simpleDegrees[i];
+			if (degree < 2)
+				result[i] = Double.NaN;
+			else
+				result[i] = count.localCounts[i] / (degree * (degree - 1) / 2.0);
 		}
 
-		monitor.setPercentCompleted(100);
+		return result;
+	}
 
-		return (triplets == 0) ? 0 : (3.0 * triangles / triplets);
+	/**
+	 * Returns the number of threads used by the calculation
+	 */
+	public int getNumThreads() {
+		return numThreads;
 	}
-	
+
 	/**
 	 * Sets the graph that the calculation will run on.
-	 * 
+	 *
 	 * This method throws an <code>UnsupportedOperationException</code> for
 	 * directed graphs.
 	 */
@@ -89,10 +170,22 @@ public class TransitivityCalculator extends GraphAlgorithm implements TaskMonito
 			throw new UnsupportedOperationException(
 					"transitivity calculation works for undirected graphs only"
 			);
-		
+
 		super.setGraph(graph);
 	}
 
+	/**
+	 * Sets the number of threads used by the calculation
+	 *
+	 * @param  numThreads  the number of threads; zero or negative numbers mean one
+	 *                     thread per available processor
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		this.numThreads = Math.max(1, numThreads);
+	}
+
 	/**
 	 * Sets the task monitor where the algorithm will report its progress
 	 *
@@ -101,4 +194,201 @@ public class TransitivityCalculator extends GraphAlgorithm implements TaskMonito
 	public void setTaskMonitor(TaskMonitor monitor) {
 		this.monitor = monitor;
 	}
+
+	/**
+	 * Counts the triangles of the graph.
+	 *
+	 * @param  needLocalCounts  whether the number of triangles of each node is needed
+	 * @return the counts or null if the calculation was interrupted
+	 */
+	private TriangleCount countTriangles(final boolean needLocalCounts) {
+		shouldStop = false;
+		monitor.setPercentCompleted(0);
+		prepare();
+
+		final int numChunks = (simpleDegrees.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final AtomicInteger nextChunk = new AtomicInteger(0);
+		TriangleCount result;
+
+		if (numThreads == 1 || numChunks < 2) {
+			result = countTriangles(nextChunk, numChunks, needLocalCounts, true);
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+			List<Future<TriangleCount>> futures = new ArrayList<Future<TriangleCount>>();
+
+			try {
+				for (int i = 0; i < numThreads; i++) {
+					futures.add(executor.submit(new Callable<TriangleCount>() {
+						public TriangleCount call() {
+							return countTriangles(nextChunk, numChunks, needLocalCounts, false);
+						}
+					}));
+				}
+				executor.shutdown();
+
+				/* Report progress until the workers terminate */
+				while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+					monitor.setPercentCompleted((int)(Math.min(nextChunk.get(), numChunks) * 100.0 / numChunks));
+				}
+
+				result = new TriangleCount();
+				if (needLocalCounts)
+					result.localCounts = new int[simpleDegrees.length];
+				for (Future<TriangleCount> future: futures) {
+					TriangleCount count = future.get();
+					result.weightedCount += count.weightedCount;
+					if (needLocalCounts) {
+						for (int i = 0; i < result.localCounts.length; i++)
+							result.localCounts[i] += count.localCounts[i];
+					}
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				shouldStop = true;
+				result = null;
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new RuntimeException(cause);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		forwardNeighbors = null;
+		multiplicities = null;
+		if (shouldStop)
+			return null;
+
+		monitor.setPercentCompleted(100);
+		return result;
+	}
+
+	/**
+	 * Counts the triangles whose lowest ranked node is in one of the chunks taken
+	 * from the given counter.
+	 *
+	 * Each triangle is weighted by the product of the multiplicities of the two
+	 * edges incident on its node with the smallest index, which gives the same
+	 * count as enumerating the pairs of edges at that node.
+	 *
+	 * @param  nextChunk        the counter of the next chunk to process
+	 * @param  numChunks        the number of chunks
+	 * @param  needLocalCounts  whether the number of triangles of each node is needed
+	 * @param  reportProgress   whether to report progress to the task monitor
+	 */
+	private TriangleCount countTriangles(AtomicInteger nextChunk, int numChunks,
+			boolean needLocalCounts, boolean reportProgress) {
+		TriangleCount result = new TriangleCount();
+		int nodeCount = forwardNeighbors.length;
+		int chunk;
+
+		if (needLocalCounts)
+			result.localCounts = new int[nodeCount];
+
+		while (!shouldStop && (chunk = nextChunk.getAndIncrement()) < numChunks) {
+			int end = Math.min(nodeCount, (chunk + 1) * CHUNK_SIZE);
+			for (int u = chunk * CHUNK_SIZE; u < end; u++) {
+				int[] uNeis = forwardNeighbors[u], uMults = multiplicities[u];
+
+				for (int a = 0; a < uNeis.length; a++) {
+					int v = uNeis[a];
+					int[] vNeis = forwardNeighbors[v], vMults = multiplicities[v];
+
+					/* Merge the two sorted lists to find the common forward neighbors */
+					int x = 0, y = 0;
+					while (x < uNeis.length && y < vNeis.length) {
+						int w1 = uNeis[x], w2 = vNeis[y];
+						if (w1 < w2) {
+							x++;
+						} else if (w1 > w2) {
+							y++;
+						} else {
+							long uv = uMults[a], uw = uMults[x], vw = vMults[y];
+							if (u < v && u < w1)
+								result.weightedCount += uv * uw;
+							else if (v < w1)
+								result.weightedCount += uv * vw;
+							else
+								result.weightedCount += uw * vw;
+
+							if (needLocalCounts) {
+								result.localCounts[u]++;
+								result.localCounts[v]++;
+								result.localCounts[w1]++;
+							}
+							x++;
+							y++;
+						}
+					}
+				}
+			}
+
+			if (reportProgress)
+				monitor.setPercentCompleted((int)((chunk + 1) * 100.0 / numChunks));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Builds the forward neighbor lists of the graph.
+	 */
+	private void prepare() {
+		int i, j, nodeCount = graph.getNodeCount();
+		int[][] neighbors = new int[nodeCount][];
+		int[][] counts = new int[nodeCount][];
+
+		/* Sorted neighbor lists without the node itself, with the number of edges
+		 * to each neighbor */
+		simpleDegrees = new int[nodeCount];
+		for (i = 0; i < nodeCount; i++) {
+			int[] neis = graph.getAdjacentNodeIndicesArray(i, Directedness.ALL);
+			int[] mults = new int[neis.length];
+			int k = 0;
+
+			Arrays.sort(neis);
+			for (j = 0; j < neis.length; j++) {
+				if (neis[j] == i)
+					continue;
+				if (k > 0 && neis[k - 1] == neis[j]) {
+					mults[k - 1]++;
+				} else {
+					neis[k] = neis[j];
+					mults[k] = 1;
+					k++;
+				}
+			}
+
+			neighbors[i] = neis;
+			counts[i] = mults;
+			simpleDegrees[i] = k;
+		}
+
+		/* Keep only the neighbors with a higher rank; nodes are ranked by degree
+		 * first and by index second */
+		forwardNeighbors = new int[nodeCount][];
+		multiplicities = new int[nodeCount][];
+		for (i = 0; i < nodeCount; i++) {
+			int[] neis = neighbors[i], mults = counts[i];
+			int k = 0, degree = simpleDegrees[i];
+
+			for (j = 0; j < degree; j++) {
+				int other = neis[j], otherDegree = simpleDegrees[other];
+				if (otherDegree > degree || (otherDegree == degree && other > i)) {
+					neis[k] = other;
+					mults[k] = mults[j];
+					k++;
+				}
+			}
+
+			forwardNeighbors[i] = Arrays.copyOf(neis, k);
+			multiplicities[i] = Arrays.copyOf(mults, k);
+			neighbors[i] = null;
+			counts[i] = null;
+		}
+	}
 }
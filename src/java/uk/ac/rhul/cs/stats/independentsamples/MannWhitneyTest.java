@@ -1,11 +1,8 @@
 package uk.ac.rhul.cs.stats.independentsamples;
 
-import java.util.Arrays;
-
 import uk.ac.rhul.cs.stats.StatsUtils;
 import uk.ac.rhul.cs.stats.tests.H1;
 import uk.ac.rhul.cs.stats.tests.SignificanceTest;
-import uk.ac.rhul.cs.utils.ArrayUtils;
 
 /**
  * Implementation of the Mann-Whitney U test.
@@ -23,9 +20,29 @@ import uk.ac.rhul.cs.utils.ArrayUtils;
  * library, but it is reimplemented from scratch to avoid license restrictions.
  * (JSC is not licensed under the GNU GPL).
  * 
+ * The joined samples are sorted only once; the ranks and the tie correction are
+ * both derived from the groups of tied values in the sorted order. The scratch
+ * arrays of the calculation are kept per thread and reused by later tests on
+ * the same thread, so the tests of many small samples (e.g., the significance
+ * of each cluster in a clustering) do not allocate temporary arrays.
+ * 
  * @author tamas
  */
 public class MannWhitneyTest implements SignificanceTest {
+	/**
+	 * Runs shorter than this are sorted by insertion sort in {@link #sortIndices}
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	
+	/**
+	 * Scratch arrays used by the constructor; each thread has its own
+	 */
+	private static final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+	
 	/**
 	 * Size of sample A
 	 */
@@ -89,16 +106,46 @@ public class MannWhitneyTest implements SignificanceTest {
 	public MannWhitneyTest(double[] xA, double[] xB, H1 alternative, double tolerance) {
 		nA = xA.length; nB = xB.length;
 		
-		int i, n = nA+nB;
-		double[] joined = new double[n];
+		int i, j, n = nA+nB;
+		Workspace workspace = workspaces.get();
 		double uA, uB;
 		
+		workspace.ensureCapacity(n);
+		
+		double[] joined = workspace.joined;
+		double[] ranks = workspace.ranks;
+		int[] order = workspace.order;
+		
 		/* Join the two arrays */
 		System.arraycopy(xA, 0, joined, 0, nA);
 		System.arraycopy(xB, 0, joined, nA, nB);
 		
-		/* Get the rank vector of the array */
-		double[] ranks = ArrayUtils.getRanks(joined, tolerance);
+		/* Sort the indices of the joined array by value. The sort is stable, so
+		 * values closer than the tolerance to each other end up in the same
+		 * order as with a stable sort of the values themselves. */
+		for (i = 0; i < n; i++)
+			order[i] = i;
+		sortIndices(order, workspace.buffer, joined, n);
+		
+		/* Assign the average rank to each group of tied values; a value is tied
+		 * with the previous one if they are closer than the tolerance. Groups of
+		 * tied values also contribute to the tie correction. */
+		int sumRanks = 0, dupCount = 1;
+		tieCorrection = 0;
+		for (i = 1; i <= n; i++) {
+			if (i < n && Math.abs(joined[order[i]] - joined[order[i-1]]) < tolerance) {
+				dupCount++;
+				sumRanks += i;
+			} else {
+				double rank = (double)sumRanks / dupCount + 1;
+				for (j = i - dupCount; j < i; j++)
+					ranks[order[j]] = rank;
+				if (dupCount > 1)
+					tieCorrection += dupCount * (dupCount * dupCount - 1);
+				dupCount = 1;
+				sumRanks = i;
+			}
+		}
 		
 		/* Calculate uA and uB */
 		uA = uB = nA * nB;
@@ -114,23 +161,10 @@ public class MannWhitneyTest implements SignificanceTest {
 			U = uA;
 		
 		/* Calculate tie correction value */
-		Arrays.sort(ranks);
-		if (n < 2) {
+		if (n < 2)
 			tieCorrection = 1.0;
-		} else {
-			tieCorrection = 0;
-			for (i = 0; i < n-1; i++) {
-				if (ranks[i] == ranks[i+1]) {
-					int nties = 1;
-					while (i < n-1 && ranks[i] == ranks[i+1]) {
-						nties++;
-						i++;
-					}
-					tieCorrection += nties * (nties * nties - 1);
-				}
-			}
+		else
 			tieCorrection = 1.0 - tieCorrection / n / (n * n - 1);
-		}
 		
 		this.alternative = alternative;
 	}
@@ -181,6 +215,86 @@ public class MannWhitneyTest implements SignificanceTest {
 		return U;
 	}
 	
+	/**
+	 * Sorts the first n elements of an index array by the values they refer to.
+	 * 
+	 * This is a stable merge sort that uses insertion sort for short runs. Values
+	 * are compared like {@link Double#compare(double, double)} does.
+	 * 
+	 * @param  indices  the indices to sort
+	 * @param  buffer   scratch array with at least n elements
+	 * @param  values   the values the indices refer to
+	 * @param  n        the number of indices to sort
+	 */
+	private static void sortIndices(int[] indices, int[] buffer, double[] values, int n) {
+		int i, j, start, width;
+		
+		for (start = 0; start < n; start += INSERTION_SORT_THRESHOLD) {
+			int end = Math.min(n, start + INSERTION_SORT_THRESHOLD);
+			for (i = start + 1; i < end; i++) {
+				int index = indices[i];
+				double value = values[index];
+				for (j = i - 1; j >= start && Double.compare(values[indices[j]], value) > 0; j--)
+					indices[j + 1] = indices[j];
+				indices[j + 1] = index;
+			}
+		}
+		
+		int[] source = indices, target = buffer;
+		for (width = INSERTION_SORT_THRESHOLD; width < n; width *= 2) {
+			for (start = 0; start < n; start += 2 * width) {
+				int mid = Math.min(n, start + width), end = Math.min(n, start + 2 * width);
+				int k = start;
+				
+				i = start; j = mid;
+				while (i < mid && j < end) {
+					if (Double.compare(values[source[i]], values[source[j]]) <= 0)
+						target[k++] = source[i++];
+					else
+						target[k++] = source[j++];
+				}
+				System.arraycopy(source, i, target, k, mid - i);
+				System.arraycopy(source, j, target, k + mid - i, end - j);
+			}
+			
+			int[] tmp = source; source = target; target = tmp;
+		}
+		
+		if (source != indices)
+			System.arraycopy(source, 0, indices, 0, n);
+	}
+	
+	/**
+	 * Scratch arrays of the calculation that are reused between tests
+	 */
+	private static class Workspace {
+		/** The two samples joined */
+		double[] joined = new double[0];
+		
+		/** The ranks of the values in the joined array */
+		double[] ranks = new double[0];
+		
+		/** The indices of the joined array in increasing order of the values */
+		int[] order = new int[0];
+		
+		/** Scratch array for sorting the indices */
+		int[] buffer = new int[0];
+		
+		/**
+		 * Makes sure that the arrays can hold at least n elements
+		 */
+		void ensureCapacity(int n) {
+			if (joined.length >= n)
+				return;
+			
+			int capacity = Math.max(n, 2 * joined.length);
+			joined = new double[capacity];
+			ranks = new double[capacity];
+			order = new int[capacity];
+			buffer = new int[capacity];
+		}
+	}
+	
 	/**
 	 * Returns the size of the first sample
 	 */
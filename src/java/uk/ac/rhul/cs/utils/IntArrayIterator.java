@@ -0,0 +1,65 @@
+package uk.ac.rhul.cs.utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the elements of a primitive integer array.
+ *
+ * @author tamas
+ */
+public class IntArrayIterator implements Iterator<Integer> {
+	/**
+	 * The array being iterated over
+	 */
+	private int[] array;
+
+	/**
+	 * The index of the next element to return
+	 */
+	private int index;
+
+	/**
+	 * The index of the end of the iterated range, exclusive
+	 */
+	private int end;
+
+	/**
+	 * Constructs an iterator over all the elements of the given array.
+	 *
+	 * @param  array  the array to iterate over
+	 */
+	public IntArrayIterator(int[] array) {
+		this(array, 0, array.length);
+	}
+
+	/**
+	 * Constructs an iterator over the given range of the given array.
+	 *
+	 * @param  array  the array to iterate over
+	 * @param  start  the start of the range, inclusive
+	 * @param  end    the end of the range, exclusive
+	 */
+	public IntArrayIterator(int[] array, int start, int end) {
+		this.array = array;
+		this.index = start;
+		this.end = end;
+	}
+
+	public boolean hasNext() {
+		return index < end;
+	}
+
+	public Integer next() {
+		if (index >= end)
+			throw new NoSuchElementException();
+		return array[index++];
+	}
+
+	/**
+	 * Removal is not supported.
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,92 @@
+package uk.ac.rhul.cs.utils;
+
+/**
+ * Immutable set of non-negative integers stored as a bitmap.
+ *
+ * Only the words between the smallest and the largest element are stored, so
+ * the bitmap is compact when the elements are close to each other even if
+ * they are large. The intersection size of two bitmaps is calculated by a
+ * bitwise AND and a population count of the overlapping words.
+ *
+ * @author tamas
+ */
+public class IntBitmap {
+	/**
+	 * The index of the first stored word
+	 */
+	private final int firstWord;
+
+	/**
+	 * The stored words; bit j of word i is set if
+	 * <code>64 * (firstWord + i) + j</code> is in the set
+	 */
+	private final long[] words;
+
+	/**
+	 * Creates a bitmap from a sorted array of non-negative integers.
+	 *
+	 * @param   values   the elements of the set in ascending order
+	 */
+	public IntBitmap(int[] values) {
+		if (values.length == 0) {
+			firstWord = 0;
+			words = new long[0];
+			return;
+		}
+
+		firstWord = values[0] >>> 6;
+		words = new long[(values[values.length-1] >>> 6) - firstWord + 1];
+		for (int value: values)
+			words[(value >>> 6) - firstWord] |= 1L << value;
+	}
+
+	/**
+	 * Returns whether it is worth building a bitmap for the given sorted array.
+	 *
+	 * A bitmap is worth building if the array is large enough and the bitmap
+	 * needs at most half as many words as there are elements.
+	 *
+	 * @param   values   the elements of the set in ascending order
+	 */
+	public static boolean isWorthBuilding(int[] values) {
+		if (values.length < 128)
+			return false;
+		long numWords = (values[values.length-1] >>> 6) - (values[0] >>> 6) + 1;
+		return 2 * numWords <= values.length;
+	}
+
+	/**
+	 * Returns whether the given integer is in the set.
+	 */
+	public boolean contains(int value) {
+		int index = (value >>> 6) - firstWord;
+		if (index < 0 || index >= words.length)
+			return false;
+		return (words[index] & (1L << value)) != 0;
+	}
+
+	/**
+	 * Returns how many elements of the given array are in the set.
+	 */
+	public int countContained(int[] values) {
+		int result = 0;
+		for (int value: values)
+			if (contains(value))
+				result++;
+		return result;
+	}
+
+	/**
+	 * Returns the number of elements that are present in both bitmaps.
+	 */
+	public int getIntersectionSize(IntBitmap other) {
+		int start = Math.max(firstWord, other.firstWord);
+		int end = Math.min(firstWord + words.length, other.firstWord + other.words.length);
+		int result = 0;
+
+		for (int i = start; i < end; i++)
+			result += Long.bitCount(words[i - firstWord] & other.words[i - other.firstWord]);
+
+		return result;
+	}
+}
@@ -0,0 +1,118 @@
+package uk.ac.rhul.cs.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.rhul.cs.cl1.TaskMonitor;
+
+/**
+ * Utility functions for running a task on multiple threads.
+ *
+ * @author tamas
+ */
+public class ParallelUtils {
+	/**
+	 * A task that processes a contiguous range of items; see {@link ParallelUtils#runInChunks}.
+	 */
+	public interface RangeTask {
+		/**
+		 * Processes the items from <code>from</code> (inclusive) to <code>to</code>
+		 * (exclusive). Different ranges may be processed concurrently.
+		 */
+		public void run(int from, int to);
+	}
+
+	/**
+	 * Runs a task on the items from zero (inclusive) to n (exclusive) using the
+	 * given number of threads.
+	 *
+	 * The items are split into chunks of the given size and the threads take the
+	 * chunks one by one, so the work is balanced even if the cost of the items varies.
+	 * The calling thread also works on the chunks and reports the progress to the
+	 * task monitor (if any).
+	 *
+	 * @param  n           the number of items
+	 * @param  chunkSize   the number of items in a chunk
+	 * @param  numThreads  the number of threads to use, including the calling thread.
+	 *                     Zero or negative numbers mean one thread per available
+	 *                     processor.
+	 * @param  task        the task to run on the chunks
+	 * @param  monitor     the task monitor to report the progress to; may be null
+	 * @throws CancellationException  if the calling thread was interrupted; the
+	 *                                interrupted status of the thread is kept and
+	 *                                the remaining chunks are not processed
+	 */
+	public static void runInChunks(final int n, final int chunkSize, int numThreads,
+			final RangeTask task, TaskMonitor monitor) {
+		final AtomicInteger nextChunkStart = new AtomicInteger(0);
+		final AtomicInteger numItemsDone = new AtomicInteger(0);
+		ExecutorService executor = null;
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		int numWorkers = Math.min(numThreads, (n + chunkSize - 1) / chunkSize);
+
+		Callable<Void> worker = new Callable<Void>() {
+			public Void call() {
+				int from;
+				while (!Thread.currentThread().isInterrupted() &&
+						(from = nextChunkStart.getAndAdd(chunkSize)) < n) {
+					int to = Math.min(n, from + chunkSize);
+					task.run(from, to);
+					numItemsDone.addAndGet(to - from);
+				}
+				return null;
+			}
+		};
+
+		if (numWorkers > 1) {
+			executor = Executors.newFixedThreadPool(numWorkers - 1);
+			for (int i = 1; i < numWorkers; i++)
+				futures.add(executor.submit(worker));
+		}
+
+		try {
+			int from;
+			while (!Thread.currentThread().isInterrupted() &&
+					(from = nextChunkStart.getAndAdd(chunkSize)) < n) {
+				int to = Math.min(n, from + chunkSize);
+				task.run(from, to);
+				numItemsDone.addAndGet(to - from);
+				if (monitor != null)
+					monitor.setPercentCompleted((int) (100.0 * numItemsDone.get() / n));
+			}
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException("interrupted while waiting for the other threads");
+
+			for (Future<Void> future: futures) {
+				try {
+					future.get();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new CancellationException("interrupted while waiting for the other threads");
+				} catch (ExecutionException ex) {
+					if (ex.getCause() instanceof RuntimeException)
+						throw (RuntimeException) ex.getCause();
+					throw new RuntimeException(ex.getCause());
+				}
+			}
+		} finally {
+			// Cancel the remaining chunks if we were interrupted or a task failed
+			for (Future<Void> future: futures)
+				future.cancel(true);
+			if (executor != null)
+				executor.shutdownNow();
+		}
+
+		if (monitor != null)
+			monitor.setPercentCompleted(100);
+	}
+}
@@ -0,0 +1,113 @@
+package uk.ac.rhul.cs.utils;
+
+/**
+ * Set operations on arrays of integers that are sorted in ascending order
+ * and contain no duplicates.
+ *
+ * @author tamas
+ */
+public class SortedIntArrays {
+	/**
+	 * Size ratio from which {@link #getIntersectionSize(int[], int[])} gallops
+	 * through the larger array instead of merging the two arrays
+	 */
+	public static final int GALLOPING_RATIO = 16;
+
+	/**
+	 * Returns the number of elements that are present in both arrays.
+	 *
+	 * Arrays of similar size are merged in linear time. When one of the arrays
+	 * is much larger than the other, the elements of the smaller array are
+	 * sought for in the larger one by galloping (exponential search), which
+	 * needs only a logarithmic number of steps per element.
+	 *
+	 * @param   a   the first array
+	 * @param   b   the second array
+	 * @return  the size of the intersection
+	 */
+	public static int getIntersectionSize(int[] a, int[] b) {
+		if (a.length > b.length) {
+			int[] tmp = a; a = b; b = tmp;
+		}
+
+		if (a.length == 0 || a[a.length-1] < b[0] || b[b.length-1] < a[0])
+			return 0;
+
+		if (b.length / a.length >= GALLOPING_RATIO)
+			return getIntersectionSizeByGalloping(a, b);
+
+		return getIntersectionSizeByMerging(a, b);
+	}
+
+	/**
+	 * Returns the number of elements that are present in both arrays by galloping
+	 * through the larger one.
+	 *
+	 * @param   smaller   the smaller array
+	 * @param   larger    the larger array
+	 * @return  the size of the intersection
+	 */
+	public static int getIntersectionSizeByGalloping(int[] smaller, int[] larger) {
+		int result = 0, lo = 0, n = larger.length;
+
+		for (int value: smaller) {
+			/* Find a range [lo, hi) of the larger array that must contain the value
+			 * if it is there at all, doubling the step size in each iteration */
+			int step = 1, hi = lo;
+			while (hi < n && larger[hi] < value) {
+				lo = hi + 1;
+				hi += step;
+				step <<= 1;
+			}
+			if (hi >= n) {
+				hi = n;
+				if (lo >= n)
+					break;
+			}
+
+			/* Binary search within the range; lo ends up at the first element
+			 * that is not smaller than the value */
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (larger[mid] < value)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+
+			if (lo < n && larger[lo] == value) {
+				result++;
+				lo++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of elements that are present in both arrays by merging
+	 * them.
+	 *
+	 * @param   a   the first array
+	 * @param   b   the second array
+	 * @return  the size of the intersection
+	 */
+	public static int getIntersectionSizeByMerging(int[] a, int[] b) {
+		int i = 0, j = 0, m = a.length, n = b.length, result = 0;
+
+		while (i < m && j < n) {
+			int x = a[i], y = b[j];
+			if (x < y) {
+				i++;
+			} else if (x > y) {
+				j++;
+			} else {
+				result++;
+				i++;
+				j++;
+			}
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,104 @@
+package uk.ac.rhul.cs.cl1;
+
+import java.util.Random;
+
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Compares the per-node breadth first search of {@link NodeSet#isCutVertex(int)} with
+ * the cached depth first search of {@link MutableNodeSet#isCutVertex(int)} when the
+ * cut vertex status of every member is queried once per growth step.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.cl1.CutVertexBenchmark
+ * -Dbenchmark.args="nodes edges"</code>
+ *
+ * @author tamas
+ */
+public class CutVertexBenchmark {
+	private static Graph createRandomGraph(int numNodes, int numEdges, long seed) {
+		Random random = new Random(seed);
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+		for (int i = 0; i < numEdges; i++)
+			graph.createEdge(random.nextInt(numNodes), random.nextInt(numNodes), 1.0);
+		return graph;
+	}
+
+	/**
+	 * Grows a connected nodeset of the given size from a random seed by adding random
+	 * external boundary nodes.
+	 */
+	private static MutableNodeSet createCluster(Graph graph, int size, Random random) {
+		MutableNodeSet nodeSet = new MutableNodeSet(graph);
+		nodeSet.add(random.nextInt(graph.getNodeCount()));
+		while (nodeSet.size() < size && nodeSet.getExternalBoundaryNodeCount() > 0) {
+			int i = random.nextInt(nodeSet.getExternalBoundaryNodeCount());
+			nodeSet.add(nodeSet.getExternalBoundaryNodeAt(i));
+		}
+		return nodeSet;
+	}
+
+	private static long queryWithBFS(MutableNodeSet[] clusters, int rounds) {
+		long count = 0;
+		for (int round = 0; round < rounds; round++) {
+			for (MutableNodeSet cluster: clusters) {
+				NodeSet nodeSet = new NodeSet(cluster.getGraph(), cluster.toArray());
+				for (int i = 0, n = cluster.size(); i < n; i++) {
+					if (nodeSet.isCutVertex(cluster.getMemberAt(i)))
+						count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static long queryWithCache(MutableNodeSet[] clusters, int rounds) {
+		long count = 0;
+		for (int round = 0; round < rounds; round++) {
+			for (MutableNodeSet cluster: clusters) {
+				/* Simulate a growth step that changes the membership */
+				int node = cluster.getMemberAt(0);
+				cluster.remove(node);
+				cluster.add(node);
+				for (int i = 0, n = cluster.size(); i < n; i++) {
+					if (cluster.isCutVertex(cluster.getMemberAt(i)))
+						count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	public static void main(String[] args) {
+		int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		Graph graph = createRandomGraph(numNodes, numEdges, 42).freeze();
+		Random random = new Random(42);
+
+		System.out.println("Random graph with " + numNodes + " nodes and " + numEdges + " edges");
+
+		for (int size: new int[] { 10, 30, 100, 300 }) {
+			MutableNodeSet[] clusters = new MutableNodeSet[20];
+			for (int i = 0; i < clusters.length; i++)
+				clusters[i] = createCluster(graph, size, random);
+
+			int rounds = Math.max(1, 3000 / size);
+
+			/* Warm up both code paths before timing */
+			queryWithBFS(clusters, 1);
+			queryWithCache(clusters, 1);
+
+			long start = System.nanoTime();
+			long bfsCount = queryWithBFS(clusters, rounds);
+			long bfsTime = (System.nanoTime() - start) / 1000000;
+
+			start = System.nanoTime();
+			long cacheCount = queryWithCache(clusters, rounds);
+			long cacheTime = (System.nanoTime() - start) / 1000000;
+
+			System.out.println("Cluster size " + size + ": per-node BFS " + bfsTime + " ms, " +
+					"cached DFS " + cacheTime + " ms (cut vertices: " + bfsCount + " / " +
+					cacheCount + ")");
+		}
+	}
+}
@@ -2,6 +2,8 @@ package uk.ac.rhul.cs.cl1;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 /**
@@ -20,6 +22,24 @@ public class MutableNodeSetTest extends NodeSetTest {
 		return new MutableNodeSet(graph, members);
 	}
 	
+	/**
+	 * Checks whether the unordered, allocation-free accessors of the nodeset are
+	 * consistent with the sorted arrays.
+	 */
+	private void assertIndexedAccessConsistent(MutableNodeSet nodeSet) {
+		int[] members = new int[nodeSet.size()];
+		for (int i = 0; i < members.length; i++)
+			members[i] = nodeSet.getMemberAt(i);
+		Arrays.sort(members);
+		assertArrayEquals(nodeSet.toArray(), members);
+
+		int[] boundary = new int[nodeSet.getExternalBoundaryNodeCount()];
+		for (int i = 0; i < boundary.length; i++)
+			boundary[i] = nodeSet.getExternalBoundaryNodeAt(i);
+		Arrays.sort(boundary);
+		assertArrayEquals(nodeSet.getExternalBoundaryNodes(), boundary);
+	}
+
 	@Test
 	public void testAdd() {
 		int[] members = { 0, 1, 4, 3, 3, 4 };
@@ -46,6 +66,7 @@ public class MutableNodeSetTest extends NodeSetTest {
 			assertEquals(boundaryEdgeWeights[i], nodeSet.getTotalBoundaryEdgeWeight(), 1e-6);
 			assertEquals(internalEdgeWeights[i], nodeSet.getTotalInternalEdgeWeight(), 1e-6);
 			assertArrayEquals(externalBoundaryNodes[i], nodeSet.getExternalBoundaryNodes());
+			assertIndexedAccessConsistent(nodeSet);
 		}
 	}
 
@@ -58,14 +79,107 @@ public class MutableNodeSetTest extends NodeSetTest {
 		assertEquals(0, nodeSet.size());
 		assertEquals(0.0, nodeSet.getTotalBoundaryEdgeWeight(), 1e-6);
 		assertEquals(0.0, nodeSet.getTotalInternalEdgeWeight(), 1e-6);
+		assertArrayEquals(new int[] {}, nodeSet.getExternalBoundaryNodes());
+
+		nodeSet.add(new int[] { 2, 5 });
+		assertArrayEquals(new int[] { 2, 5 }, nodeSet.toArray());
+		assertArrayEquals(new int[] { 0, 3, 6 }, nodeSet.getExternalBoundaryNodes());
+		assertIndexedAccessConsistent(nodeSet);
+	}
+
+	@Test
+	public void testClone() {
+		int[] members = { 1, 3, 4 };
+		MutableNodeSet nodeSet = (MutableNodeSet)createNewNodeSet(members);
+		MutableNodeSet copy = nodeSet.clone();
+
+		copy.remove(3);
+		copy.add(6);
+		assertArrayEquals(members, nodeSet.toArray());
+		assertArrayEquals(new int[] { 1, 4, 6 }, copy.toArray());
+		assertArrayEquals(new int[] { 0, 2, 5, 6 }, nodeSet.getExternalBoundaryNodes());
+		assertIndexedAccessConsistent(nodeSet);
+		assertIndexedAccessConsistent(copy);
 	}
 	
+	@Test
+	public void testWeightsAfterRemovalAndClear() {
+		int[] members = { 1, 3, 4 };
+		MutableNodeSet nodeSet = (MutableNodeSet)createNewNodeSet(members);
+		double totalWeight = nodeSet.getTotalWeight(6);
+
+		/* Node 6 is adjacent only to node 4 among the members */
+		nodeSet.remove(4);
+		assertEquals(0.0, nodeSet.getTotalAdjacentInternalWeight(6), 0.0);
+		assertEquals(totalWeight, nodeSet.getTotalWeight(6), 1e-6);
+
+		nodeSet.clear();
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			assertFalse(nodeSet.contains(i));
+			assertEquals(0.0, nodeSet.getTotalAdjacentInternalWeight(i), 0.0);
+		}
+
+		nodeSet.add(members);
+		MutableNodeSet fresh = (MutableNodeSet)createNewNodeSet(members);
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			assertEquals(fresh.getTotalAdjacentInternalWeight(i),
+					nodeSet.getTotalAdjacentInternalWeight(i), 1e-6);
+			assertEquals(fresh.getTotalWeight(i), nodeSet.getTotalWeight(i), 1e-6);
+		}
+		assertEquals(fresh.getTotalBoundaryEdgeWeight(), nodeSet.getTotalBoundaryEdgeWeight(), 1e-6);
+		assertEquals(fresh.getTotalInternalEdgeWeight(), nodeSet.getTotalInternalEdgeWeight(), 1e-6);
+	}
+
+	@Test
+	public void testCutVertices() {
+		int i, j, n = graph.getNodeCount();
+
+		/* Compare the cached cut vertices with the ones found by the non-mutable
+		 * nodeset for every subset of the nodes */
+		for (int mask = 0; mask < (1 << n); mask++) {
+			MutableNodeSet nodeSet = (MutableNodeSet)createNewNodeSet();
+			for (i = 0; i < n; i++) {
+				if ((mask & (1 << i)) != 0)
+					nodeSet.add(i);
+			}
+
+			NodeSet frozen = new NodeSet(graph, nodeSet.toArray());
+			assertEquals(frozen.isConnected(), nodeSet.isConnected());
+			for (j = 0; j < n; j++)
+				assertEquals("subset " + mask + ", node " + j,
+						frozen.isCutVertex(j), nodeSet.isCutVertex(j));
+		}
+	}
+
+	@Test
+	public void testCutVerticesAfterModification() {
+		MutableNodeSet nodeSet = (MutableNodeSet)createNewNodeSet(new int[] { 0, 1, 3, 4, 6 });
+		assertTrue(nodeSet.isCutVertex(4));
+		assertFalse(nodeSet.isCutVertex(6));
+
+		nodeSet.add(5);
+		assertFalse(nodeSet.isCutVertex(4));
+		assertTrue(nodeSet.isConnected());
+
+		/* Two components remain, {0, 1} and {4, 5, 6}; any removal keeps them apart */
+		nodeSet.remove(3);
+		assertFalse(nodeSet.isConnected());
+		assertTrue(nodeSet.isCutVertex(1));
+		assertTrue(nodeSet.isCutVertex(6));
+		assertTrue(nodeSet.isCutVertex(3));
+
+		/* Removing the isolated node 1 would leave a connected nodeset */
+		nodeSet.remove(0);
+		assertFalse(nodeSet.isCutVertex(1));
+		assertTrue(nodeSet.isCutVertex(5));
+	}
+
 	@Test
 	public void testFreeze() {
 		int[] members = { 1, 2, 3, 4 };
 		MutableNodeSet nodeSet = (MutableNodeSet)createNewNodeSet(members);
 		NodeSet frozenNodeSet = nodeSet.freeze();
-		assertEquals(nodeSet.members, frozenNodeSet.members);
+		assertEquals(nodeSet.getMembers(), frozenNodeSet.getMembers());
 		assertEquals(nodeSet.getTotalBoundaryEdgeWeight(), frozenNodeSet.getTotalBoundaryEdgeWeight(), 1e-6);
 		assertEquals(nodeSet.getTotalInternalEdgeWeight(), frozenNodeSet.getTotalInternalEdgeWeight(), 1e-6);
 		assertEquals(nodeSet.size(), frozenNodeSet.size());
@@ -101,6 +215,7 @@ public class MutableNodeSetTest extends NodeSetTest {
 			assertEquals(boundaryEdgeWeights[i], nodeSet.getTotalBoundaryEdgeWeight(), 1e-6);
 			assertEquals(internalEdgeWeights[i], nodeSet.getTotalInternalEdgeWeight(), 1e-6);
 			assertArrayEquals(externalBoundaryNodes[i], nodeSet.getExternalBoundaryNodes());
+			assertIndexedAccessConsistent(nodeSet);
 		}
 	}
 
@@ -2,6 +2,9 @@ package uk.ac.rhul.cs.cl1;
 
 import static junit.framework.Assert.*;
 
+import java.util.Random;
+import java.util.TreeSet;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -67,6 +70,48 @@ public class NodeSetTest {
 		assertEquals(false, nodeSet.contains(3));
 	}
 	
+	@Test
+	public void testUnsortedMembers() {
+		int[] members = { 6, 2, 0, 2 };
+		NodeSet nodeSet = createNewNodeSet(members);
+		
+		members[0] = 5;
+		assertTrue(java.util.Arrays.equals(new int[] { 0, 2, 6 }, nodeSet.toArray()));
+		assertTrue(java.util.Arrays.equals(new int[] { 0, 2, 6 }, nodeSet.getSortedMemberArray()));
+		assertFalse(nodeSet.contains(5));
+		
+		int i = 0;
+		for (int member: nodeSet)
+			assertEquals(nodeSet.toArray()[i++], member);
+		assertEquals(3, i);
+		
+		NodeSet other = new NodeSet(graph, new int[] { 2, 6, 0 });
+		assertEquals(other, nodeSet);
+		assertEquals(other.hashCode(), nodeSet.hashCode());
+		assertEquals(graph.hashCode() + new TreeSet<Integer>(other.getMembers()).hashCode(),
+				nodeSet.hashCode());
+		assertEquals(0, other.compareTo(nodeSet));
+		assertEquals(-1, other.compareTo(createNewNodeSet(new int[] { 0, 3 })));
+		assertEquals(1, other.compareTo(createNewNodeSet(new int[] { 0, 2 })));
+	}
+	
+	@Test
+	public void testDerivedValues() {
+		NodeSet nodeSet = createNewNodeSet(new int[] { 0, 1, 2 });
+		
+		for (int round = 0; round < 2; round++) {
+			int[] boundary = nodeSet.getExternalBoundaryNodes();
+			assertTrue(java.util.Arrays.equals(new int[] { 3 }, boundary));
+			boundary[0] = 4;
+		}
+		
+		assertEquals(0.5, nodeSet.getCommitment(0), 1e-8);
+		assertEquals(18.0, nodeSet.getInternalWeight(3), 1e-8);
+		assertEquals(2, nodeSet.getSubgraph().getEdgeCount());
+		assertEquals(new NodeSet(graph, new int[] { 1, 2 }),
+				nodeSet.getIntersectionWith(createNewNodeSet(new int[] { 1, 2, 5 })));
+	}
+	
 	@Test
 	public void testGetTotalBoundaryWeight() {
 		int[] members = { 0, 1, 2, 6, 6 };
@@ -97,4 +142,68 @@ public class NodeSetTest {
 			assertEquals(results[i], nodeSet.isConnected());
 		}
 	}
+	
+	@Test
+	public void testGetIntersectionSizeWith() {
+		int[][] members = { {}, { 0, 1, 2 }, { 2, 3, 4, 5 }, { 0, 1, 2, 3, 4, 5, 6 }, { 6 } };
+		int[][] expected = {
+				{ 0, 0, 0, 0, 0 }, { 0, 3, 1, 3, 0 }, { 0, 1, 4, 4, 0 },
+				{ 0, 3, 4, 7, 1 }, { 0, 0, 0, 1, 1 }
+		};
+		
+		for (int i = 0; i < members.length; i++) {
+			NodeSet nodeSet = createNewNodeSet(members[i]);
+			for (int j = 0; j < members.length; j++) {
+				NodeSet other = new NodeSet(graph, members[j]);
+				assertEquals(expected[i][j], nodeSet.getIntersectionSizeWith(other));
+				assertEquals(expected[i][j], other.getIntersectionSizeWith(nodeSet));
+				assertEquals(expected[i][j], nodeSet.getIntersectionSizeWith(createNewNodeSet(members[j])));
+			}
+		}
+	}
+	
+	@Test
+	public void testGetIntersectionSizeWithLargeNodeSets() {
+		Graph largeGraph = new Graph();
+		Random random = new Random(42);
+		int[][] sizesAndRanges = {
+				{ 10, 5000 }, { 2000, 5000 }, { 300, 400 }, { 500, 600 }, { 5, 400 }
+		};
+		
+		largeGraph.createNodes(5000);
+		for (int round = 0; round < 10; round++) {
+			NodeSet[] nodeSets = new NodeSet[2 * sizesAndRanges.length];
+			TreeSet<Integer>[] sets = createTreeSetArray(nodeSets.length);
+			
+			for (int i = 0; i < nodeSets.length; i++) {
+				int[] sizeAndRange = sizesAndRanges[i / 2];
+				int offset = random.nextInt(5000 - sizeAndRange[1] + 1);
+				while (sets[i].size() < sizeAndRange[0])
+					sets[i].add(offset + random.nextInt(sizeAndRange[1]));
+				
+				int[] array = new int[sets[i].size()];
+				int k = 0;
+				for (int member: sets[i])
+					array[k++] = member;
+				nodeSets[i] = (i % 2 == 0) ? new NodeSet(largeGraph, array) :
+					new MutableNodeSet(largeGraph, array);
+			}
+			
+			for (int i = 0; i < nodeSets.length; i++) {
+				for (int j = 0; j < nodeSets.length; j++) {
+					TreeSet<Integer> intersection = new TreeSet<Integer>(sets[i]);
+					intersection.retainAll(sets[j]);
+					assertEquals(intersection.size(), nodeSets[i].getIntersectionSizeWith(nodeSets[j]));
+				}
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static TreeSet<Integer>[] createTreeSetArray(int length) {
+		TreeSet<Integer>[] result = new TreeSet[length];
+		for (int i = 0; i < length; i++)
+			result[i] = new TreeSet<Integer>();
+		return result;
+	}
 }
@@ -0,0 +1,80 @@
+package uk.ac.rhul.cs.cl1;
+
+import java.util.Random;
+
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Measures how the growth phase of ClusterONE scales with the number of threads when
+ * the seeds are distributed one by one by the main thread and when the worker threads
+ * take batches of seeds directly from the seed generator.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.cl1.SeedPipelineBenchmark
+ * -Dbenchmark.args="nodes edges batchsize"</code>
+ *
+ * @author tamas
+ */
+public class SeedPipelineBenchmark {
+	/** Counters of accepted and discarded clusters of the last measurement */
+	private static String lastStatistics;
+
+	private static Graph createRandomGraph(int numNodes, int numEdges, long seed) {
+		Random random = new Random(seed);
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+		for (int i = 0; i < numEdges; i++)
+			graph.createEdge(random.nextInt(numNodes), random.nextInt(numNodes), random.nextDouble());
+		return graph;
+	}
+
+	private static long measure(Graph graph, int numThreads, int seedBatchSize)
+			throws ClusterONEException {
+		ClusterONEAlgorithmParameters params = new ClusterONEAlgorithmParameters();
+		params.setNumThreads(numThreads);
+		params.setSeedBatchSize(seedBatchSize);
+		params.setRejectSeedsWithOnlyUsedNodes(true);
+		params.setMergingMethodName("none");
+
+		ClusterONE algorithm = new ClusterONE(params);
+		long start = System.nanoTime();
+		algorithm.runOnGraph(graph);
+		lastStatistics = algorithm.getLookAheadWindow().toString();
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	public static void main(String[] args) throws ClusterONEException {
+		int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 150000;
+		int seedBatchSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		Graph graph = createRandomGraph(numNodes, numEdges, 42);
+
+		System.out.println("Random graph with " + numNodes + " nodes and " + numEdges + " edges, " +
+				maxThreads + " processor(s), seed batch size " + seedBatchSize);
+
+		/* Warm up both code paths before timing */
+		measure(graph, 1, 0);
+		measure(graph, 1, seedBatchSize);
+
+		long classicBase = 0, pipelineBase = 0;
+		for (int numThreads = 1; numThreads <= maxThreads; numThreads++) {
+			long classicTime = measure(graph, numThreads, 0);
+			String classicStatistics = lastStatistics;
+			long pipelineTime = measure(graph, numThreads, seedBatchSize);
+			String pipelineStatistics = lastStatistics;
+			if (numThreads == 1) {
+				classicBase = classicTime;
+				pipelineBase = pipelineTime;
+			}
+
+			System.out.println(numThreads + " thread(s): one by one " + classicTime + " ms (" +
+					numNodes * 1000L / Math.max(1, classicTime) + " seeds/s, speedup " +
+					String.format("%.2f", classicBase / (double) Math.max(1, classicTime)) + "), " +
+					"batched " + pipelineTime + " ms (" +
+					numNodes * 1000L / Math.max(1, pipelineTime) + " seeds/s, speedup " +
+					String.format("%.2f", pipelineBase / (double) Math.max(1, pipelineTime)) + ")");
+			System.out.println("    one by one: " + classicStatistics);
+			System.out.println("    batched: " + pipelineStatistics);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package uk.ac.rhul.cs.cl1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Test cases for the MutableNodeSet class when it uses sparse storage
+ * 
+ * @author tamas
+ */
+public class SparseMutableNodeSetTest extends MutableNodeSetTest {
+	@Override
+	public NodeSet createNewNodeSet() {
+		return new MutableNodeSet(graph, true);
+	}
+	
+	@Override
+	public NodeSet createNewNodeSet(int[] members) {
+		MutableNodeSet result = new MutableNodeSet(graph, true);
+		result.add(members);
+		return result;
+	}
+
+	@Test
+	public void testCopyIsSparse() {
+		MutableNodeSet nodeSet = (MutableNodeSet)createNewNodeSet(new int[] { 1, 3, 4 });
+		assertTrue(nodeSet.isSparse());
+		assertTrue(nodeSet.clone().isSparse());
+		assertTrue(new MutableNodeSet(nodeSet).isSparse());
+		assertFalse(new MutableNodeSet(nodeSet.freeze()).isSparse());
+	}
+
+	@Test
+	public void testLargeNeighborhood() {
+		Graph ring = new Graph();
+		int i, n = 100;
+
+		ring.createNodes(n);
+		for (i = 0; i < n; i++) {
+			ring.createEdge(i, (i + 1) % n, i + 1);
+			ring.createEdge(i, (i + 7) % n, 0.5);
+		}
+
+		MutableNodeSet sparse = new MutableNodeSet(ring, true);
+		MutableNodeSet dense = new MutableNodeSet(ring, false);
+		for (int round = 0; round < 2; round++) {
+			for (i = 0; i < n; i += 3) {
+				sparse.add(i);
+				dense.add(i);
+			}
+			for (i = 0; i < n; i += 9) {
+				sparse.remove(i);
+				dense.remove(i);
+			}
+
+			assertArrayEquals(dense.toArray(), sparse.toArray());
+			assertArrayEquals(dense.getExternalBoundaryNodes(), sparse.getExternalBoundaryNodes());
+			assertEquals(dense.getTotalInternalEdgeWeight(), sparse.getTotalInternalEdgeWeight(), 1e-6);
+			assertEquals(dense.getTotalBoundaryEdgeWeight(), sparse.getTotalBoundaryEdgeWeight(), 1e-6);
+			for (i = 0; i < n; i++) {
+				assertEquals(dense.getTotalAdjacentInternalWeight(i),
+						sparse.getTotalAdjacentInternalWeight(i), 1e-6);
+				assertEquals(dense.getTotalWeight(i), sparse.getTotalWeight(i), 1e-6);
+				assertEquals(dense.getCommitment(i), sparse.getCommitment(i), 1e-6);
+			}
+
+			sparse.clear();
+			dense.clear();
+		}
+	}
+}
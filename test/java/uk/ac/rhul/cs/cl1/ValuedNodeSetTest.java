@@ -0,0 +1,115 @@
+package uk.ac.rhul.cs.cl1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the ValuedNodeSet class
+ *
+ * @author tamas
+ */
+public class ValuedNodeSetTest extends NodeSetTest {
+	@Override
+	public NodeSet createNewNodeSet() {
+		return new ValuedNodeSet(graph);
+	}
+
+	@Override
+	public NodeSet createNewNodeSet(int[] members) {
+		return new ValuedNodeSet(graph, members);
+	}
+
+	@Test
+	public void testValues() {
+		ValuedNodeSet nodeSet = new ValuedNodeSet(graph, 6, 1, 3);
+
+		assertEquals(0, nodeSet.getValue(3));
+		assertEquals(-1, nodeSet.getValue(3, -1));
+		assertArrayEquals(new int[] { 7, 7, 7 }, nodeSet.getValueArray(7));
+
+		nodeSet.setValue(3, 5);
+		nodeSet.setValue(6, 2);
+		assertEquals(5, nodeSet.getValue(3));
+		assertEquals(2, nodeSet.getValue(6));
+		assertEquals(-1, nodeSet.getValue(1, -1));
+		assertEquals(-1, nodeSet.getValue(4, -1));
+		assertArrayEquals(new int[] { 0, 5, 2 }, nodeSet.getValueArray(0));
+
+		assertEquals(5, nodeSet.removeValue(3));
+		assertEquals(ValuedNodeSet.NO_VALUE, nodeSet.removeValue(3));
+		assertEquals(-1, nodeSet.getValue(3, -1));
+
+		try {
+			nodeSet.setValue(4, 1);
+			fail("setValue() must not accept non-members");
+		} catch (IllegalArgumentException ex) {
+			// this is okay
+		}
+	}
+
+	@Test
+	public void testBulkConstructor() {
+		int[] members = { 1, 3, 6 };
+		ValuedNodeSet nodeSet = new ValuedNodeSet(graph, members, new int[] { 4, 1, 2 });
+
+		assertArrayEquals(members, nodeSet.toArray());
+		assertEquals(new ValuedNodeSet(graph, 6, 3, 1), nodeSet);
+		assertEquals(4, nodeSet.getValue(1));
+		assertEquals(1, nodeSet.getValue(3));
+		assertEquals(2, nodeSet.getValue(6));
+
+		try {
+			new ValuedNodeSet(graph, new int[] { 3, 1 }, new int[] { 1, 1 });
+			fail("unsorted members must be rejected");
+		} catch (IllegalArgumentException ex) {
+			// this is okay
+		}
+
+		try {
+			new ValuedNodeSet(graph, members, new int[] { 1 });
+			fail("values of the wrong length must be rejected");
+		} catch (IllegalArgumentException ex) {
+			// this is okay
+		}
+	}
+
+	@Test
+	public void testCopyConstructors() {
+		ValuedNodeSet nodeSet = new ValuedNodeSet(graph, new int[] { 0, 2 }, new int[] { 3, 4 });
+		ValuedNodeSet copy = new ValuedNodeSet(nodeSet);
+
+		assertEquals(nodeSet, copy);
+		assertEquals(3, copy.getValue(0));
+		copy.setValue(0, 10);
+		assertEquals(3, nodeSet.getValue(0));
+
+		copy = new ValuedNodeSet(new NodeSet(graph, new int[] { 5, 2 }), 8);
+		assertArrayEquals(new int[] { 8, 8 }, copy.getValueArray(0));
+		assertEquals(1, new ValuedNodeSet(new NodeSet(graph, new int[] { 5 })).getValue(5));
+	}
+
+	@Test
+	public void testSignificances() {
+		for (int numThreads = 1; numThreads <= 4; numThreads += 3) {
+			ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+			for (int mask = 1; mask < 128; mask++) {
+				int[] members = new int[Integer.bitCount(mask)];
+				for (int i = 0, j = 0; i < 7; i++)
+					if ((mask & (1 << i)) != 0)
+						members[j++] = i;
+				nodeSets.add(new ValuedNodeSet(graph, members));
+			}
+
+			double[] significances = nodeSets.getSignificances(numThreads);
+			assertEquals(nodeSets.size(), significances.length);
+			for (int i = 0; i < significances.length; i++) {
+				NodeSet nodeSet = new NodeSet(graph, nodeSets.get(i).toArray());
+				assertEquals(Double.doubleToLongBits(nodeSet.getSignificance()),
+						Double.doubleToLongBits(significances[i]));
+			}
+		}
+
+		assertEquals(0, new ValuedNodeSetList().getSignificances(0).length);
+	}
+}
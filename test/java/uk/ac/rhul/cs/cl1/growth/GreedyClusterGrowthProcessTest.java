@@ -0,0 +1,145 @@
+package uk.ac.rhul.cs.cl1.growth;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.cl1.MutableNodeSet;
+import uk.ac.rhul.cs.cl1.quality.CohesivenessFunction;
+import uk.ac.rhul.cs.cl1.quality.QualityFunction;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Test cases for the GreedyClusterGrowthProcess class
+ *
+ * @author tamas
+ */
+public class GreedyClusterGrowthProcessTest {
+	/**
+	 * Creates the small weighted graph used by the nodeset tests
+	 */
+	private Graph createSmallGraph() {
+		int[] edges = { 0, 1, 1, 3, 3, 4, 4, 6, 6, 5, 5, 3, 3, 2, 2, 0, 0, 3 };
+		double[] weights = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+		Graph graph = new Graph();
+		graph.createNodes(7);
+		for (int i = 0; i < weights.length; i++)
+			graph.createEdge(edges[2*i], edges[2*i+1], weights[i]);
+
+		return graph;
+	}
+
+	/**
+	 * Creates a random graph with preferential attachment, so it has a few hubs
+	 * with large neighborhoods.
+	 */
+	private Graph createHubGraph(long seed, int numNodes, boolean weighted) {
+		Random random = new Random(seed);
+		int[] endpoints = new int[6 * numNodes];
+		int numEndpoints = 0;
+
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+		for (int i = 1; i < numNodes; i++) {
+			for (int j = 0; j < 3; j++) {
+				int other = (numEndpoints == 0 || random.nextBoolean()) ?
+						random.nextInt(i) : endpoints[random.nextInt(numEndpoints)];
+				graph.createEdge(i, other, weighted ? random.nextDouble() : 1.0);
+				endpoints[numEndpoints++] = i;
+				endpoints[numEndpoints++] = other;
+			}
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Grows a cluster from every node of the graph in both the incremental and the
+	 * non-incremental mode and checks that every suggested action is the same.
+	 */
+	private void assertIncrementalGrowthIsIdentical(Graph graph, double minDensity) {
+		QualityFunction qualityFunction = new CohesivenessFunction(2.0);
+		MutableNodeSet scanned = new MutableNodeSet(graph);
+		MutableNodeSet incremental = new MutableNodeSet(graph);
+
+		for (int seed = 0; seed < graph.getNodeCount(); seed++) {
+			scanned.clear();
+			scanned.add(seed);
+			incremental.clear();
+			incremental.add(seed);
+
+			GreedyClusterGrowthProcess scanProcess =
+				new GreedyClusterGrowthProcess(scanned, minDensity, qualityFunction);
+			GreedyClusterGrowthProcess incrementalProcess =
+				new GreedyClusterGrowthProcess(incremental, minDensity, qualityFunction);
+			incrementalProcess.setIncremental(true);
+
+			for (int step = 0; step < 1000; step++) {
+				ClusterGrowthAction expected = scanProcess.getSuggestedAction();
+				ClusterGrowthAction actual = incrementalProcess.getSuggestedAction();
+				assertEquals("seed " + seed + ", step " + step, expected.toString(), actual.toString());
+
+				if (expected.getType() == ClusterGrowthAction.Type.TERMINATE)
+					break;
+
+				expected.executeOn(scanned);
+				actual.executeOn(incremental);
+			}
+
+			assertArrayEquals(scanned.toArray(), incremental.toArray());
+		}
+	}
+
+	@Test
+	public void testIncrementalGrowthOnSmallGraph() {
+		Graph graph = createSmallGraph();
+		assertIncrementalGrowthIsIdentical(graph, 0.0);
+		assertIncrementalGrowthIsIdentical(graph, 0.3);
+	}
+
+	@Test
+	public void testIncrementalGrowthOnHubGraphs() {
+		for (long seed = 1; seed <= 3; seed++) {
+			Graph weighted = createHubGraph(seed, 300, true);
+			assertIncrementalGrowthIsIdentical(weighted, 0.0);
+			assertIncrementalGrowthIsIdentical(weighted, 0.2);
+
+			Graph unweighted = createHubGraph(seed, 300, false);
+			assertIncrementalGrowthIsIdentical(unweighted, 0.0);
+			assertIncrementalGrowthIsIdentical(unweighted, 0.2);
+		}
+	}
+
+	@Test
+	public void testBoundaryHeapOrder() {
+		Graph graph = createHubGraph(42, 200, true);
+
+		for (int sparse = 0; sparse < 2; sparse++) {
+			MutableNodeSet nodeSet = new MutableNodeSet(graph, sparse == 1);
+			nodeSet.add(new int[] { 1, 2, 3 });
+			nodeSet.setBoundaryOrdered(true);
+			assertHeapOrdered(nodeSet);
+
+			for (int i = 0; i < graph.getNodeCount(); i += 7) {
+				nodeSet.add(i);
+				assertHeapOrdered(nodeSet);
+			}
+			for (int i = 0; i < graph.getNodeCount(); i += 21) {
+				nodeSet.remove(i);
+				assertHeapOrdered(nodeSet);
+			}
+		}
+	}
+
+	private void assertHeapOrdered(MutableNodeSet nodeSet) {
+		int n = nodeSet.getExternalBoundaryNodeCount();
+		for (int i = 1; i < n; i++) {
+			double parentWeight = nodeSet.getTotalAdjacentInternalWeight(nodeSet.getExternalBoundaryNodeAt((i - 1) / 2));
+			double weight = nodeSet.getTotalAdjacentInternalWeight(nodeSet.getExternalBoundaryNodeAt(i));
+			assertTrue(parentWeight >= weight);
+		}
+	}
+}
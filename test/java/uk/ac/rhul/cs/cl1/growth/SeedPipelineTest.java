@@ -0,0 +1,196 @@
+package uk.ac.rhul.cs.cl1.growth;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.cl1.ClusterONE;
+import uk.ac.rhul.cs.cl1.ClusterONEAlgorithmParameters;
+import uk.ac.rhul.cs.cl1.ClusterONEException;
+import uk.ac.rhul.cs.cl1.MutableNodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.cl1.quality.CohesivenessFunction;
+import uk.ac.rhul.cs.cl1.quality.QualityFunction;
+import uk.ac.rhul.cs.cl1.seeding.EveryNodeSeedGenerator;
+import uk.ac.rhul.cs.cl1.seeding.Seed;
+import uk.ac.rhul.cs.cl1.support.LookAheadWindow;
+import uk.ac.rhul.cs.cl1.support.UsedNodeSet;
+import uk.ac.rhul.cs.graph.Graph;
+import uk.ac.rhul.cs.utils.Ordered;
+
+/**
+ * Test cases for the SeedPipeline class
+ *
+ * @author tamas
+ */
+public class SeedPipelineTest {
+	private Graph createRandomGraph(long seed, int numNodes, int numEdges) {
+		Random random = new Random(seed);
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+		for (int i = 0; i < numEdges; i++)
+			graph.createEdge(random.nextInt(numNodes), random.nextInt(numNodes), random.nextDouble());
+		return graph;
+	}
+
+	private List<ValuedNodeSet> runClusterONE(Graph graph, int numThreads, int seedBatchSize,
+			boolean merge) throws ClusterONEException {
+		ClusterONEAlgorithmParameters params = new ClusterONEAlgorithmParameters();
+		params.setNumThreads(numThreads);
+		params.setSeedBatchSize(seedBatchSize);
+		params.setRejectSeedsWithOnlyUsedNodes(true);
+		if (!merge)
+			params.setMergingMethodName("none");
+		return runClusterONE(graph, params);
+	}
+
+	private List<ValuedNodeSet> runClusterONE(Graph graph, ClusterONEAlgorithmParameters params)
+			throws ClusterONEException {
+		ClusterONE algorithm = new ClusterONE(params);
+		algorithm.runOnGraph(graph);
+		return algorithm.getResults();
+	}
+
+	private void assertSameClusters(List<ValuedNodeSet> expected, List<ValuedNodeSet> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertArrayEquals(expected.get(i).toArray(), actual.get(i).toArray());
+	}
+
+	/**
+	 * Checks that the clusters do not depend on the number of threads or the batch size
+	 * when the worker threads take the seeds directly from the seed generator.
+	 */
+	@Test
+	public void testResultIsIndependentOfBatching() throws ClusterONEException {
+		for (long seed = 1; seed <= 2; seed++) {
+			Graph graph = createRandomGraph(seed, 300, 900);
+			for (int merge = 0; merge < 2; merge++) {
+				List<ValuedNodeSet> expected = runClusterONE(graph, 1, 0, merge == 1);
+				assertTrue(expected.size() > 0);
+
+				assertSameClusters(expected, runClusterONE(graph, 4, 0, merge == 1));
+				assertSameClusters(expected, runClusterONE(graph, 1, 1, merge == 1));
+				assertSameClusters(expected, runClusterONE(graph, 2, 1, merge == 1));
+				assertSameClusters(expected, runClusterONE(graph, 3, 7, merge == 1));
+				assertSameClusters(expected, runClusterONE(graph, 4, 64, merge == 1));
+				assertSameClusters(expected, runClusterONE(graph, 2, 10000, merge == 1));
+			}
+		}
+	}
+
+	/**
+	 * Checks that incremental candidate enumeration can be turned on through the
+	 * algorithm parameters and that it does not change the clusters.
+	 */
+	@Test
+	public void testIncrementalGrowth() throws ClusterONEException {
+		for (long seed = 1; seed <= 2; seed++) {
+			Graph graph = createRandomGraph(seed, 300, 900);
+			List<ValuedNodeSet> expected = runClusterONE(graph, 1, 0, true);
+
+			for (int numThreads = 1; numThreads <= 2; numThreads++) {
+				ClusterONEAlgorithmParameters params = new ClusterONEAlgorithmParameters();
+				params.setNumThreads(numThreads);
+				params.setRejectSeedsWithOnlyUsedNodes(true);
+				params.setIncrementalGrowth(true);
+				assertSameClusters(expected, runClusterONE(graph, params));
+			}
+		}
+	}
+
+	/**
+	 * Checks that an exception thrown in a worker thread is rethrown by ClusterONE
+	 * in both modes instead of being ignored.
+	 */
+	@Test
+	public void testWorkerFailureIsPropagated() throws ClusterONEException {
+		Graph graph = createRandomGraph(1, 300, 900);
+		int[] seedBatchSizes = { 0, 8 };
+
+		for (int seedBatchSize: seedBatchSizes) {
+			for (int numThreads = 1; numThreads <= 3; numThreads += 2) {
+				ClusterONEAlgorithmParameters params = new ClusterONEAlgorithmParameters() {
+					@Override
+					public QualityFunction getQualityFunction() {
+						throw new IllegalStateException("broken quality function");
+					}
+				};
+				params.setNumThreads(numThreads);
+				params.setSeedBatchSize(seedBatchSize);
+
+				try {
+					runClusterONE(graph, params);
+					fail("exception of the worker not rethrown");
+				} catch (IllegalStateException expected) {
+					assertEquals("broken quality function", expected.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that halting ClusterONE while the clusters are being grown stops the
+	 * workers in both modes instead of leaving them waiting for seeds.
+	 */
+	@Test(timeout = 60000)
+	public void testHaltStopsWorkers() throws ClusterONEException {
+		Graph graph = createRandomGraph(1, 300, 900);
+		int[] seedBatchSizes = { 0, 8 };
+
+		for (int seedBatchSize: seedBatchSizes) {
+			for (int numThreads = 1; numThreads <= 3; numThreads += 2) {
+				final ClusterONE[] algorithm = new ClusterONE[1];
+				final AtomicInteger numCalls = new AtomicInteger(0);
+				ClusterONEAlgorithmParameters params = new ClusterONEAlgorithmParameters() {
+					@Override
+					public QualityFunction getQualityFunction() {
+						return new CohesivenessFunction() {
+							@Override
+							public double getAdditionAffinity(MutableNodeSet nodeSet, int index) {
+								if (numCalls.incrementAndGet() == 100)
+									algorithm[0].halt();
+								return super.getAdditionAffinity(nodeSet, index);
+							}
+						};
+					}
+				};
+				params.setNumThreads(numThreads);
+				params.setSeedBatchSize(seedBatchSize);
+
+				algorithm[0] = new ClusterONE(params);
+				algorithm[0].runOnGraph(graph);
+				assertNull(algorithm[0].getResults());
+			}
+		}
+	}
+
+	/**
+	 * Checks that a worker interrupted while waiting for the look-ahead window cancels
+	 * the pipeline and keeps its interrupted status.
+	 */
+	@Test
+	public void testInterruptedTakeBatch() {
+		Graph graph = createRandomGraph(1, 30, 90);
+		SeedPipeline pipeline = new SeedPipeline(new EveryNodeSeedGenerator(graph).iterator(),
+				new UsedNodeSet(graph), false, 4, new LookAheadWindow(4, 4, false));
+		List<Ordered<Seed>> batch = new ArrayList<Ordered<Seed>>();
+
+		assertTrue(pipeline.takeBatch(batch));
+		assertEquals(4, batch.size());
+
+		// The window is full now, so the next call has to wait
+		Thread.currentThread().interrupt();
+		try {
+			assertFalse(pipeline.takeBatch(batch));
+			assertTrue(pipeline.isCancelled());
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+	}
+}
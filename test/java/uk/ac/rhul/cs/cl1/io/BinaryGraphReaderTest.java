@@ -0,0 +1,182 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import static junit.framework.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.graph.Directedness;
+import uk.ac.rhul.cs.graph.Edge;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Round-trip test cases for the BinaryGraphWriter and BinaryGraphReader classes
+ *
+ * @author tamas
+ */
+public class BinaryGraphReaderTest {
+	/**
+	 * Checks whether two graphs are identical, including node and edge indices.
+	 */
+	private void assertSameGraph(Graph expected, Graph actual) {
+		assertEquals(expected.isDirected(), actual.isDirected());
+		assertEquals(expected.getNodeCount(), actual.getNodeCount());
+		assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+
+		for (int i = 0; i < expected.getNodeCount(); i++) {
+			assertEquals(expected.getNodeName(i), actual.getNodeName(i));
+			if (expected.getNodeName(i) != null)
+				assertEquals(expected.getNodeIndex(expected.getNodeName(i)),
+						actual.getNodeIndex(actual.getNodeName(i)));
+			for (Directedness mode: Directedness.values()) {
+				assertTrue(Arrays.equals(expected.getAdjacentEdgeIndicesArray(i, mode),
+						actual.getAdjacentEdgeIndicesArray(i, mode)));
+				assertTrue(Arrays.equals(expected.getAdjacentNodeIndicesArray(i, mode),
+						actual.getAdjacentNodeIndicesArray(i, mode)));
+			}
+		}
+
+		List<Edge> expectedEdges = expected.getEdgeList();
+		List<Edge> actualEdges = actual.getEdgeList();
+		for (int i = 0; i < expectedEdges.size(); i++) {
+			assertEquals(expectedEdges.get(i).source, actualEdges.get(i).source);
+			assertEquals(expectedEdges.get(i).target, actualEdges.get(i).target);
+			assertEquals(Double.doubleToLongBits(expectedEdges.get(i).weight),
+					Double.doubleToLongBits(actualEdges.get(i).weight));
+		}
+	}
+
+	/**
+	 * Writes a graph into a snapshot and reads it back both from a file and from a stream.
+	 */
+	private void assertRoundTripWorks(Graph graph) throws IOException {
+		File file = File.createTempFile("cl1-test", ".cl1g");
+		file.deleteOnExit();
+
+		new BinaryGraphWriter().writeGraph(graph, file);
+		assertSameGraph(graph, new BinaryGraphReader().readGraph(file));
+
+		FileInputStream stream = new FileInputStream(file);
+		try {
+			assertSameGraph(graph, new BinaryGraphReader().readGraph(stream));
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void testRoundTripEdgeList() throws IOException {
+		String input = "A B\nA C 2.5\nB C 0.125\nlonely\nC D -3e-2\n" +
+			"\u00e1rv\u00edzt\u0171r\u0151 t\u00fck\u00f6rf\u00far\u00f3g\u00e9p 0.1\n" +
+			"E E 1e300\nF G 4.9e-324\n";
+		assertRoundTripWorks(new EdgeListReader().readGraph(new StringReader(input)));
+		assertRoundTripWorks(new EdgeListReader().readGraph(new StringReader("")));
+	}
+
+	@Test
+	public void testRoundTripRandomEdgeList() throws IOException {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 5000; i++) {
+			sb.append("node").append(random.nextInt(1000)).append('\t');
+			sb.append("node").append(random.nextInt(1000)).append('\t');
+			sb.append(random.nextDouble()).append('\n');
+		}
+
+		Graph graph = new EdgeListReader().readGraph(new StringReader(sb.toString()));
+		assertRoundTripWorks(graph);
+		assertRoundTripWorks(graph.freeze());
+	}
+
+	@Test
+	public void testRoundTripDirectedUnnamed() throws IOException {
+		Graph graph = new Graph(true);
+		graph.createNodes(4);
+		graph.createNode("named");
+		graph.createEdge(0, 1, 0.5);
+		graph.createEdge(1, 0, 2);
+		graph.createEdge(2, 4, 3);
+		graph.createEdge(3, 3, 1);
+		assertRoundTripWorks(graph);
+	}
+
+	@Test
+	public void testInvalidSnapshot() throws IOException {
+		File file = File.createTempFile("cl1-test", ".cl1g");
+		file.deleteOnExit();
+
+		FileOutputStream stream = new FileOutputStream(file);
+		stream.write("A B 1.0\nB C 2.0\nC D 3.0\n".getBytes("utf-8"));
+		stream.close();
+
+		try {
+			new BinaryGraphReader().readGraph(file);
+			fail("IOException not thrown for a text file");
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void testTruncatedSnapshot() throws IOException {
+		Graph graph = new EdgeListReader().readGraph(new StringReader("A B\nB C\nC D\n"));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		new BinaryGraphWriter().writeGraph(graph, os);
+		byte[] bytes = os.toByteArray();
+
+		File file = File.createTempFile("cl1-test", ".cl1g");
+		file.deleteOnExit();
+		FileOutputStream stream = new FileOutputStream(file);
+		stream.write(bytes, 0, bytes.length - 2);
+		stream.close();
+
+		try {
+			new BinaryGraphReader().readGraph(file);
+			fail("IOException not thrown for a truncated snapshot");
+		} catch (IOException expected) {
+		}
+
+		try {
+			new BinaryGraphReader().readGraph(new ByteArrayInputStream(bytes, 0, bytes.length - 2));
+			fail("IOException not thrown for a truncated snapshot");
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void testCorruptedAdjacencyLists() throws IOException {
+		Graph graph = new EdgeListReader().readGraph(new StringReader("A B\nB C\nC D\n"));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		new BinaryGraphWriter().writeGraph(graph, os);
+		byte[] bytes = os.toByteArray();
+
+		/* The last neighbor in the adjacency lists (C, the neighbor of D) is right
+		 * before the name lengths of the four nodes and their one-byte names */
+		int pos = bytes.length - 4 * 4 - 4 - 1;
+		assertEquals(2, bytes[pos]);
+		bytes[pos] = 9;
+
+		try {
+			new BinaryGraphReader().readGraph(new ByteArrayInputStream(bytes));
+			fail("IOException not thrown for corrupted adjacency lists");
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void testFormatFromFilename() {
+		assertEquals(GraphReaderFactory.Format.BINARY,
+				GraphReaderFactory.Format.fromFilename("network.cl1g"));
+		assertTrue(GraphReaderFactory.fromFilename("network.cl1g") instanceof BinaryGraphReader);
+	}
+}
@@ -0,0 +1,111 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import static junit.framework.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Test cases for the streaming clustering writers
+ *
+ * @author tamas
+ */
+public class ClusteringWriterTest {
+	static Graph graph = null;
+	static List<NodeSet> clustering = null;
+
+	@BeforeClass
+	public static void setUpBefore() {
+		Random random = new Random(42);
+
+		graph = new Graph();
+		for (int i = 0; i < 100; i++)
+			graph.createNode("node " + i);
+		for (int i = 0; i < 400; i++)
+			graph.createEdge(random.nextInt(100), random.nextInt(100), random.nextDouble());
+
+		clustering = new ArrayList<NodeSet>();
+		for (int i = 0; i < 300; i++) {
+			int[] members = new int[2 + random.nextInt(8)];
+			for (int j = 0; j < members.length; j++)
+				members[j] = random.nextInt(100);
+			clustering.add(new NodeSet(graph, members));
+		}
+	}
+
+	private String writeAtOnce(ClusteringWriter writer) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		writer.writeClustering(clustering, os);
+		return os.toString();
+	}
+
+	private String writeIncrementally(StreamingClusteringWriter writer) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ClusteringSink sink = writer.open(os);
+		for (NodeSet nodeSet: clustering)
+			sink.add(nodeSet);
+		sink.close();
+		return os.toString();
+	}
+
+	@Test
+	public void testStreamingMatchesList() throws IOException {
+		StreamingClusteringWriter[] writers = {
+			new PlainTextClusteringWriter(), new GeneProClusteringWriter(), new CSVClusteringWriter()
+		};
+
+		for (StreamingClusteringWriter writer: writers)
+			assertEquals(writeAtOnce(writer), writeIncrementally(writer));
+	}
+
+	@Test
+	public void testPlainTextFormat() throws IOException {
+		String[] lines = writeAtOnce(new PlainTextClusteringWriter()).split("\r?\n");
+		assertEquals(clustering.size(), lines.length);
+		assertEquals(clustering.get(0).toString("\t"), lines[0]);
+	}
+
+	@Test
+	public void testParallelCSV() throws IOException {
+		CSVClusteringWriter writer = new CSVClusteringWriter();
+		String expected = writeAtOnce(writer);
+		String[] lines = expected.split("\r?\n");
+
+		assertEquals(clustering.size() + 1, lines.length);
+		assertTrue(lines[0].startsWith("Cluster,Size,Density"));
+		assertTrue(lines[1].startsWith("1," + clustering.get(0).size() + ","));
+		assertTrue(lines[300].startsWith("300,"));
+
+		for (int numThreads = 2; numThreads <= 5; numThreads++) {
+			writer.setNumThreads(numThreads);
+			assertEquals(expected, writeAtOnce(writer));
+			assertEquals(expected, writeIncrementally(writer));
+		}
+	}
+
+	@Test
+	public void testParallelCSVInterrupted() throws IOException {
+		CSVClusteringWriter writer = new CSVClusteringWriter();
+		writer.setNumThreads(2);
+
+		Thread.currentThread().interrupt();
+		try {
+			writeAtOnce(writer);
+			fail("InterruptedIOException not thrown");
+		} catch (InterruptedIOException expected) {
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+}
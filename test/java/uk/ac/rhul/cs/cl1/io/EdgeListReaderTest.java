@@ -0,0 +1,162 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import static junit.framework.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.graph.Directedness;
+import uk.ac.rhul.cs.graph.Edge;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Test cases for the EdgeListReader class
+ *
+ * @author tamas
+ */
+public class EdgeListReaderTest {
+	static final String TRICKY_INPUT =
+		"# comment line\n" +
+		"% another comment\n" +
+		"\n" +
+		"A B\n" +
+		"A\tC 2.5\n" +
+		"  B   C   0.125  \n" +
+		"lonely\n" +
+		"D \n" +
+		"C D -3e-2\r\n" +
+		"\u00e1rv\u00edzt\u0171r\u0151 t\u00fck\u00f6rf\u00far\u00f3g\u00e9p 1.000000000000000001\r\n" +
+		"E F 123456789.123456\n" +
+		"F G -0\n" +
+		"G H +.5\n" +
+		"H I 7.\n" +
+		"I J 1E3 \n" +
+		"J A 0.1\n" +
+		"%A J 17\n" +
+		"K L";
+
+	/**
+	 * Writes the given string into a temporary file in UTF-8 encoding.
+	 */
+	private File createTemporaryFile(String contents) throws IOException {
+		File file = File.createTempFile("cl1-test", ".txt");
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "utf-8");
+		writer.write(contents);
+		writer.close();
+		return file;
+	}
+
+	/**
+	 * Checks whether two graphs have the same nodes and edges in the same order.
+	 */
+	private void assertSameGraph(Graph expected, Graph actual) {
+		assertEquals(expected.getNodeCount(), actual.getNodeCount());
+		assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+
+		for (int i = 0; i < expected.getNodeCount(); i++)
+			assertEquals(expected.getNodeName(i), actual.getNodeName(i));
+
+		List<Edge> expectedEdges = expected.getEdgeList();
+		List<Edge> actualEdges = actual.getEdgeList();
+		for (int i = 0; i < expectedEdges.size(); i++) {
+			assertEquals(expectedEdges.get(i).source, actualEdges.get(i).source);
+			assertEquals(expectedEdges.get(i).target, actualEdges.get(i).target);
+			assertEquals(Double.doubleToLongBits(expectedEdges.get(i).weight),
+					Double.doubleToLongBits(actualEdges.get(i).weight));
+		}
+
+		for (int i = 0; i < expected.getNodeCount(); i++) {
+			int[] expectedNeighbors = expected.getAdjacentNodeIndicesArray(i, Directedness.ALL);
+			int[] actualNeighbors = actual.getAdjacentNodeIndicesArray(i, Directedness.ALL);
+			assertEquals(expectedNeighbors.length, actualNeighbors.length);
+		}
+	}
+
+	/**
+	 * Reads the given string both sequentially and in parallel chunks and compares the results.
+	 */
+	private void assertParallelReadingWorks(String contents) throws IOException {
+		EdgeListReader reader = new EdgeListReader();
+		Graph expected = reader.readGraph(new StringReader(contents));
+		File file = createTemporaryFile(contents);
+
+		int[] chunkSizes = { 0, 1, 7, 64 };
+		for (int chunkSize: chunkSizes) {
+			for (int numThreads = 1; numThreads <= 3; numThreads++) {
+				reader = new EdgeListReader();
+				reader.chunkSize = chunkSize;
+				reader.setNumThreads(numThreads);
+				assertSameGraph(expected, reader.readGraph(file));
+			}
+		}
+	}
+
+	@Test
+	public void testReadEmptyFile() throws IOException {
+		assertParallelReadingWorks("");
+		assertParallelReadingWorks("\n\n# nothing here\n");
+	}
+
+	@Test
+	public void testReadTrickyFile() throws IOException {
+		assertParallelReadingWorks(TRICKY_INPUT);
+		assertParallelReadingWorks(TRICKY_INPUT + "\n");
+	}
+
+	@Test
+	public void testReadRandomFile() throws IOException {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 2000; i++) {
+			sb.append("node").append(random.nextInt(300)).append('\t');
+			sb.append("node").append(random.nextInt(300));
+			switch (random.nextInt(4)) {
+				case 0:
+					break;
+				case 1:
+					sb.append('\t').append(random.nextDouble());
+					break;
+				case 2:
+					sb.append(' ').append(random.nextInt(1000) / 100.0);
+					break;
+				default:
+					sb.append(' ').append(random.nextGaussian() * 1e-7);
+			}
+			sb.append('\n');
+		}
+
+		assertParallelReadingWorks(sb.toString());
+	}
+
+	@Test(expected=NumberFormatException.class)
+	public void testInvalidWeight() throws IOException {
+		new EdgeListReader().readGraph(createTemporaryFile("A B 1.0\nB C x\n"));
+	}
+
+	@Test
+	public void testInterruptedRead() throws IOException {
+		File file = createTemporaryFile(TRICKY_INPUT);
+		EdgeListReader reader = new EdgeListReader();
+		reader.setNumThreads(2);
+
+		Thread.currentThread().interrupt();
+		try {
+			reader.readGraph(file);
+			fail("IOException not thrown");
+		} catch (IOException expected) {
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+}
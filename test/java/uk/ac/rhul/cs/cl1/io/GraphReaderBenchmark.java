@@ -0,0 +1,138 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Random;
+
+import uk.ac.rhul.cs.graph.Graph;
+import uk.ac.rhul.cs.utils.UniqueIDGenerator;
+
+/**
+ * Measures the throughput of the graph readers on a random SIF file and the
+ * equivalent edge list.
+ *
+ * The SIF reader is compared to the regular expression based tokenization it
+ * used to have; the edge list reader is run both on a character stream and
+ * directly on the file.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.cl1.io.GraphReaderBenchmark
+ * -Dbenchmark.args="lines"</code>
+ *
+ * @author tamas
+ */
+public class GraphReaderBenchmark {
+	private static final int ROUNDS = 3;
+
+	private interface Loader {
+		Graph load(File file) throws IOException;
+	}
+
+	private static Reader open(File file) throws IOException {
+		return new InputStreamReader(new FileInputStream(file), "utf-8");
+	}
+
+	/**
+	 * The SIF reader as it was before the hand-written tokenizer.
+	 */
+	private static Graph readSIFWithRegex(Reader reader) throws IOException {
+		Graph result = new Graph();
+		UniqueIDGenerator<String> nodeGen = new UniqueIDGenerator<String>(result);
+		BufferedReader bufferedReader = new BufferedReader(reader);
+		String line, separator = "\\s";
+		String[] parts;
+
+		while ((line = bufferedReader.readLine()) != null) {
+			if (line.length() == 0)
+				continue;
+			if (line.contains("\t"))
+				separator = "\\t";
+			parts = line.split(separator);
+			if (parts.length < 3)
+				continue;
+			int node1 = nodeGen.get(parts[0]);
+			for (int i = 2; i < parts.length; i++)
+				result.createEdge(node1, nodeGen.get(parts[i]), 1.0);
+		}
+
+		return result;
+	}
+
+	private static void measure(String label, File file, Loader loader) throws IOException {
+		double megabytes = file.length() / 1048576.0;
+		long best = Long.MAX_VALUE;
+		int numEdges = 0;
+
+		for (int round = 0; round < ROUNDS; round++) {
+			System.gc();
+			long start = System.nanoTime();
+			numEdges = loader.load(file).getEdgeCount();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		double seconds = best / 1e9;
+		System.out.println(String.format("%-24s %6d ms, %7.1f MB/s, %8.0f edges/s",
+				label, best / 1000000, megabytes / seconds, numEdges / seconds));
+	}
+
+	public static void main(String[] args) throws IOException {
+		int numLines = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int numNodes = Math.max(numLines / 10, 10);
+		Random random = new Random(42);
+
+		File sifFile = File.createTempFile("cl1-benchmark", ".sif");
+		File edgeListFile = File.createTempFile("cl1-benchmark", ".txt");
+		sifFile.deleteOnExit();
+		edgeListFile.deleteOnExit();
+
+		Writer sif = new OutputStreamWriter(new FileOutputStream(sifFile), "utf-8");
+		Writer edgeList = new OutputStreamWriter(new FileOutputStream(edgeListFile), "utf-8");
+		for (int i = 0; i < numLines; i++) {
+			String source = "YAL" + random.nextInt(numNodes);
+			int numTargets = 1 + random.nextInt(3);
+			sif.write(source);
+			sif.write("\tpp");
+			for (int j = 0; j < numTargets; j++) {
+				String target = "YBR" + random.nextInt(numNodes);
+				sif.write('\t');
+				sif.write(target);
+				edgeList.write(source + '\t' + target + '\t' + random.nextDouble() + '\n');
+			}
+			sif.write('\n');
+		}
+		sif.close();
+		edgeList.close();
+
+		System.out.println(numLines + " SIF lines, " + sifFile.length() / 1024 + " KiB SIF, " +
+				edgeListFile.length() / 1024 + " KiB edge list");
+
+		measure("SIF, regex split", sifFile, new Loader() {
+			public Graph load(File file) throws IOException {
+				return readSIFWithRegex(open(file));
+			}
+		});
+		measure("SIF, tokenizer", sifFile, new Loader() {
+			public Graph load(File file) throws IOException {
+				return new SIFReader().readGraph(open(file));
+			}
+		});
+		measure("Edge list, reader", edgeListFile, new Loader() {
+			public Graph load(File file) throws IOException {
+				return new EdgeListReader().readGraph(open(file));
+			}
+		});
+		measure("Edge list, mapped file", edgeListFile, new Loader() {
+			public Graph load(File file) throws IOException {
+				EdgeListReader reader = new EdgeListReader();
+				reader.setNumThreads(0);
+				return reader.readGraph(file);
+			}
+		});
+	}
+}
@@ -0,0 +1,175 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import static junit.framework.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Test cases for the PipedGZIPInputStream class and the handling of compressed files
+ *
+ * @author tamas
+ */
+public class PipedGZIPInputStreamTest {
+	private byte[] compress(byte[] data) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		GZIPOutputStream gzipStream = new GZIPOutputStream(os);
+		gzipStream.write(data);
+		gzipStream.close();
+		return os.toByteArray();
+	}
+
+	private byte[] readFully(InputStream stream) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int n;
+
+		/* Mix single-byte and bulk reads */
+		while (true) {
+			int b = stream.read();
+			if (b < 0)
+				break;
+			os.write(b);
+			if ((n = stream.read(buffer, 0, buffer.length)) < 0)
+				break;
+			os.write(buffer, 0, n);
+		}
+
+		return os.toByteArray();
+	}
+
+	@Test
+	public void testDecompression() throws IOException {
+		byte[] data = new byte[50000];
+		Random random = new Random(42);
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte)('a' + random.nextInt(4));
+		byte[] compressed = compress(data);
+
+		int[] blockSizes = { 1, 7, 4096, 1000000 };
+		for (int blockSize: blockSizes) {
+			PipedGZIPInputStream stream = new PipedGZIPInputStream(
+					new ByteArrayInputStream(compressed), blockSize, 2);
+			assertTrue(Arrays.equals(data, readFully(stream)));
+			assertEquals(-1, stream.read());
+			stream.close();
+		}
+
+		PipedGZIPInputStream stream = new PipedGZIPInputStream(
+				new ByteArrayInputStream(compress(new byte[0])));
+		assertEquals(-1, stream.read());
+		stream.close();
+	}
+
+	@Test
+	public void testInvalidInput() throws IOException {
+		try {
+			new PipedGZIPInputStream(new ByteArrayInputStream("A B\n".getBytes("utf-8")));
+			fail("IOException not thrown for uncompressed input");
+		} catch (IOException expected) {
+		}
+
+		byte[] compressed = compress(new byte[100000]);
+		compressed = Arrays.copyOf(compressed, compressed.length / 2);
+		PipedGZIPInputStream stream = new PipedGZIPInputStream(
+				new ByteArrayInputStream(compressed), 1024, 4);
+		try {
+			readFully(stream);
+			fail("IOException not thrown for truncated input");
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void testCompressedStreamClosedAtEnd() throws IOException {
+		final boolean[] closed = { false };
+		InputStream compressedStream = new ByteArrayInputStream(compress("some data".getBytes())) {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+				super.close();
+			}
+		};
+
+		PipedGZIPInputStream stream = new PipedGZIPInputStream(compressedStream);
+		assertEquals("some data", new String(readFully(stream)));
+		assertTrue(closed[0]);
+		stream.close();
+	}
+
+	@Test
+	public void testEarlyClose() throws IOException {
+		byte[] data = new byte[1000000];
+		PipedGZIPInputStream stream = new PipedGZIPInputStream(
+				new ByteArrayInputStream(compress(data)), 1024, 2);
+		assertEquals(0, stream.read());
+		stream.close();
+		assertEquals(-1, stream.read());
+	}
+
+	@Test
+	public void testInterruptedRead() throws IOException {
+		byte[] data = new byte[100000];
+		byte[] buffer = new byte[data.length];
+		PipedGZIPInputStream stream = new PipedGZIPInputStream(
+				new ByteArrayInputStream(compress(data)), 1024, 2);
+
+		/* Consume the first block so the next read has to wait for another one */
+		int length = stream.read(buffer, 0, buffer.length);
+		assertEquals(1024, length);
+
+		Thread.currentThread().interrupt();
+		try {
+			stream.read();
+			fail("InterruptedIOException not thrown");
+		} catch (InterruptedIOException expected) {
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+
+		/* The stream can still be read once the interrupt is cleared */
+		int n;
+		while ((n = stream.read(buffer, length, buffer.length - length)) > 0)
+			length += n;
+		assertEquals(data.length, length);
+		assertEquals(-1, stream.read());
+		stream.close();
+	}
+
+	@Test
+	public void testReadCompressedGraph() throws IOException {
+		String input = "A pp B C\nB pp C\nC pd D\n";
+		Graph expected = new SIFReader().readGraph(new StringReader(input));
+		Graph actual = new SIFReader().readGraph(new InputStreamReader(
+				new PipedGZIPInputStream(new ByteArrayInputStream(compress(input.getBytes("utf-8")))), "utf-8"));
+
+		assertEquals(expected.getNodeCount(), actual.getNodeCount());
+		assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+		assertTrue(Arrays.equals(expected.getNodeNames(), actual.getNodeNames()));
+	}
+
+	@Test
+	public void testFormatFromCompressedFilename() {
+		assertTrue(GraphReaderFactory.isCompressed("network.txt.gz"));
+		assertTrue(GraphReaderFactory.isCompressed("network.SIF.GZ"));
+		assertFalse(GraphReaderFactory.isCompressed("network.txt"));
+		assertFalse(GraphReaderFactory.isCompressed("gz"));
+
+		assertEquals(GraphReaderFactory.Format.SIF, GraphReaderFactory.Format.fromFilename("network.sif.gz"));
+		assertEquals(GraphReaderFactory.Format.EDGE_LIST, GraphReaderFactory.Format.fromFilename("network.txt.gz"));
+		assertEquals(GraphReaderFactory.Format.EDGE_LIST, GraphReaderFactory.Format.fromFilename("network.gz"));
+		assertEquals(GraphReaderFactory.Format.BINARY, GraphReaderFactory.Format.fromFilename("network.cl1g.gz"));
+	}
+}
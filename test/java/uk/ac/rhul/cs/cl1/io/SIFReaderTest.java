@@ -0,0 +1,128 @@
+package uk.ac.rhul.cs.cl1.io;
+
+import static junit.framework.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.graph.Edge;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Test cases for the SIFReader class
+ *
+ * @author tamas
+ */
+public class SIFReaderTest {
+	static final String TRICKY_INPUT =
+		"A pp B\n" +
+		"A pp C D E\n" +
+		"B  pp C\n" +
+		" C pp E\n" +
+		"D pd E F \n" +
+		"short line\n" +
+		"\n" +
+		"E pp F\fG\n" +
+		"F pp G\tpp\tH I\n" +
+		"H I\tpp\tJ K\n" +
+		"too\tshort\n" +
+		"J\tpd\tK\t\n" +
+		"K\tpp\t\tL\n" +
+		"L M\tpp\tN\n";
+
+	/**
+	 * Returns the edges of a graph as strings containing the names of the endpoints and the weight.
+	 */
+	private String[] getEdges(Graph graph) {
+		List<Edge> edges = graph.getEdgeList();
+		String[] result = new String[edges.size()];
+		for (int i = 0; i < result.length; i++) {
+			Edge edge = edges.get(i);
+			result[i] = graph.getNodeName(edge.source) + "|" +
+				graph.getNodeName(edge.target) + "|" + edge.weight;
+		}
+		return result;
+	}
+
+	@Test
+	public void testTokenizerMatchesSplit() {
+		String[] lines = TRICKY_INPUT.split("\n");
+		LineTokenizer tokenizer = new LineTokenizer();
+
+		for (String line: lines) {
+			for (int mode = 0; mode < 2; mode++) {
+				String[] expected = line.split(mode == 0 ? "\\s" : "\\t");
+				if (expected.length == 1 && expected[0].length() == 0)
+					expected = new String[0];
+
+				int n = tokenizer.split(line, mode == 1);
+				String[] actual = new String[n];
+				for (int i = 0; i < n; i++)
+					actual[i] = tokenizer.getToken(i);
+
+				assertTrue("tokenizing \"" + line + "\"", Arrays.equals(expected, actual));
+			}
+		}
+	}
+
+	@Test
+	public void testReadGraph() throws IOException {
+		Graph graph = new SIFReader().readGraph(new StringReader(TRICKY_INPUT));
+		String[] expected = {
+			"A|B|1.0", "A|C|1.0", "A|D|1.0", "A|E|1.0", "B|pp|1.0", "B|C|1.0",
+			"|pp|1.0", "|E|1.0", "D|E|1.0", "D|F|1.0", "E|F|1.0", "E|G|1.0",
+			"F pp G|H I|1.0", "H I|J K|1.0", "J|K|1.0", "K||1.0", "K|L|1.0", "L M|N|1.0"
+		};
+
+		assertTrue(Arrays.toString(getEdges(graph)), Arrays.equals(expected, getEdges(graph)));
+	}
+
+	@Test
+	public void testInteractionTypeFilter() throws IOException {
+		SIFReader reader = new SIFReader();
+		reader.setInteractionTypes(Arrays.asList("pd"));
+		Graph graph = reader.readGraph(new StringReader(TRICKY_INPUT));
+		String[] expected = { "D|E|1.0", "D|F|1.0", "J|K|1.0" };
+
+		assertTrue(Arrays.toString(getEdges(graph)), Arrays.equals(expected, getEdges(graph)));
+		assertEquals(5, graph.getNodeCount());
+	}
+
+	@Test
+	public void testWeightColumn() throws IOException {
+		SIFReader reader = new SIFReader();
+		reader.setWeightColumn(3);
+
+		String input = "A\tpp\tB\t0.5\nA\tpp\tC\t2\tD\nB\tpp\tD\n";
+		Graph graph = reader.readGraph(new StringReader(input));
+		String[] expected = { "A|B|0.5", "A|C|2.0", "A|D|2.0", "B|D|1.0" };
+
+		assertTrue(Arrays.toString(getEdges(graph)), Arrays.equals(expected, getEdges(graph)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidWeightColumn() {
+		new SIFReader().setWeightColumn(1);
+	}
+
+	@Test
+	public void testReaderFromFactory() throws IOException {
+		GraphReader reader = GraphReaderFactory.fromFormat(GraphReaderFactory.Format.SIF,
+				Arrays.asList("pp"), 3);
+		assertTrue(reader instanceof SIFReader);
+
+		String input = "A\tpp\tB\t0.5\nA\tpd\tC\t2\nB\tpp\tD\n";
+		Graph graph = reader.readGraph(new StringReader(input));
+		String[] expected = { "A|B|0.5", "B|D|1.0" };
+		assertTrue(Arrays.toString(getEdges(graph)), Arrays.equals(expected, getEdges(graph)));
+
+		/* The options are ignored for other formats */
+		reader = GraphReaderFactory.fromFormat(GraphReaderFactory.Format.EDGE_LIST,
+				Arrays.asList("pp"), 3);
+		assertTrue(reader instanceof EdgeListReader);
+	}
+}
@@ -0,0 +1,122 @@
+package uk.ac.rhul.cs.cl1.merging;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.cl1.similarity.MatchingScore;
+import uk.ac.rhul.cs.cl1.similarity.SimilarityFunction;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Compares the speed and the recall of {@link MinHashNodeSetMerger} to
+ * {@link SinglePassNodeSetMerger} on noisy copies of random complexes where
+ * some copies contain one of a few hub nodes.
+ *
+ * The recall is the fraction of the clusters found by the single-pass merger
+ * that the MinHash merger found as well.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.cl1.merging.MinHashNodeSetMergerBenchmark
+ * -Dbenchmark.args="clusters nodes hubFraction"</code>
+ *
+ * @author tamas
+ */
+public class MinHashNodeSetMergerBenchmark {
+	private static final int NUM_HUBS = 10;
+
+	/**
+	 * Creates random clusters similar to the raw clusters found by ClusterONE
+	 * before merging: each cluster is a noisy copy of one of the hidden complexes
+	 * of 5 to 20 nodes, where each node of the complex is left out with probability
+	 * 0.1 and up to two random nodes are added. The given fraction of the clusters
+	 * also contains a hub node.
+	 */
+	private static int[][] createRandomMemberLists(int numClusters, int numNodes,
+			double hubFraction, long seed) {
+		Random random = new Random(seed);
+		int[][] complexes = new int[Math.max(1, numClusters / 10)][];
+		for (int i = 0; i < complexes.length; i++) {
+			complexes[i] = new int[5 + random.nextInt(16)];
+			for (int j = 0; j < complexes[i].length; j++)
+				complexes[i][j] = NUM_HUBS + random.nextInt(numNodes - NUM_HUBS);
+		}
+
+		int[][] memberLists = new int[numClusters][];
+		int[] members = new int[23];
+		for (int i = 0; i < numClusters; i++) {
+			int[] complex = complexes[random.nextInt(complexes.length)];
+			int size = 0;
+			for (int node: complex)
+				if (random.nextDouble() >= 0.1)
+					members[size++] = node;
+			for (int extra = random.nextInt(3); extra > 0; extra--)
+				members[size++] = NUM_HUBS + random.nextInt(numNodes - NUM_HUBS);
+			if (random.nextDouble() < hubFraction)
+				members[size++] = random.nextInt(NUM_HUBS);
+			memberLists[i] = Arrays.copyOf(members, size);
+		}
+		return memberLists;
+	}
+
+	private static ValuedNodeSetList createNodeSets(Graph graph, int[][] memberLists) {
+		ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+		for (int[] members: memberLists)
+			nodeSets.add(new ValuedNodeSet(graph, members));
+		return nodeSets;
+	}
+
+	private static Set<String> toStrings(ValuedNodeSetList nodeSets) {
+		Set<String> result = new HashSet<String>();
+		for (ValuedNodeSet nodeSet: nodeSets)
+			result.add(Arrays.toString(nodeSet.toArray()));
+		return result;
+	}
+
+	public static void main(String[] args) {
+		int numClusters = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int numNodes = args.length > 1 ? Integer.parseInt(args[1]) : 400000;
+		double hubFraction = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+		SimilarityFunction<NodeSet> similarityFunc = new MatchingScore<NodeSet>();
+		double threshold = 0.8;
+
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+		int[][] memberLists = createRandomMemberLists(numClusters, numNodes, hubFraction, 42);
+
+		System.out.println(numClusters + " random clusters on " + numNodes + " nodes, " +
+				(int) (100 * hubFraction) + "% of them with one of " + NUM_HUBS + " hubs");
+
+		SinglePassNodeSetMerger exactMerger = new SinglePassNodeSetMerger();
+		MinHashNodeSetMerger merger = new MinHashNodeSetMerger();
+
+		/* Warm up both code paths before timing */
+		int[][] warmUp = createRandomMemberLists(numClusters / 10, numNodes, hubFraction, 1);
+		exactMerger.mergeOverlapping(createNodeSets(graph, warmUp), similarityFunc, threshold);
+		merger.mergeOverlapping(createNodeSets(graph, warmUp), similarityFunc, threshold);
+
+		long start = System.nanoTime();
+		ValuedNodeSetList expected = exactMerger.mergeOverlapping(
+				createNodeSets(graph, memberLists), similarityFunc, threshold);
+		long exactTime = (System.nanoTime() - start) / 1000000;
+		System.out.println("Single-pass:        " + exactTime + " ms, " + expected.size() + " clusters");
+		Set<String> expectedStrings = toStrings(expected);
+
+		for (double recall: new double[] { 0.9, 0.99, 0.999 }) {
+			merger.setRecall(recall);
+			start = System.nanoTime();
+			ValuedNodeSetList actual = merger.mergeOverlapping(
+					createNodeSets(graph, memberLists), similarityFunc, threshold);
+			long time = (System.nanoTime() - start) / 1000000;
+
+			Set<String> actualStrings = toStrings(actual);
+			actualStrings.retainAll(expectedStrings);
+			System.out.println(String.format("MinHash, p = %.3f: %d ms, %d clusters, " +
+					"%.2f%% of the single-pass clusters found", recall, time, actual.size(),
+					100.0 * actualStrings.size() / expectedStrings.size()));
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package uk.ac.rhul.cs.cl1.merging;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.cl1.similarity.DiceSimilarity;
+import uk.ac.rhul.cs.cl1.similarity.JaccardSimilarity;
+import uk.ac.rhul.cs.cl1.similarity.MatchingScore;
+import uk.ac.rhul.cs.cl1.similarity.SimilarityFunction;
+import uk.ac.rhul.cs.cl1.similarity.SimpsonCoefficient;
+import uk.ac.rhul.cs.graph.Graph;
+
+public class MinHashNodeSetMergerTest {
+	Graph graph = new Graph();
+	
+	/**
+	 * Creates random nodesets where nearby nodesets tend to overlap
+	 */
+	private int[][] createRandomMemberLists(int numNodeSets, int numNodes, long seed) {
+		Random random = new Random(seed);
+		int[][] memberLists = new int[numNodeSets][];
+		for (int i = 0; i < numNodeSets; i++) {
+			int start = random.nextInt(numNodes - 10);
+			memberLists[i] = new int[2 + random.nextInt(6)];
+			for (int j = 0; j < memberLists[i].length; j++)
+				memberLists[i][j] = start + random.nextInt(10);
+		}
+		return memberLists;
+	}
+	
+	private ValuedNodeSetList createNodeSets(int[][] memberLists) {
+		ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+		for (int[] members: memberLists)
+			nodeSets.add(new ValuedNodeSet(graph, members));
+		return nodeSets;
+	}
+	
+	private Set<String> toStrings(ValuedNodeSetList nodeSets) {
+		Set<String> result = new HashSet<String>();
+		for (ValuedNodeSet nodeSet: nodeSets)
+			result.add(Arrays.toString(nodeSet.toArray()));
+		return result;
+	}
+	
+	@Test
+	public void testFromString() throws InstantiationException {
+		assertTrue(AbstractNodeSetMerger.fromString("lsh") instanceof MinHashNodeSetMerger);
+		assertTrue(AbstractNodeSetMerger.fromString("minhash") instanceof MinHashNodeSetMerger);
+	}
+	
+	@Test
+	public void testGetJaccardLowerBound() {
+		assertEquals(0.8, MinHashNodeSetMerger.getJaccardLowerBound(
+				new MatchingScore<NodeSet>(), 0.8), 1e-9);
+		assertEquals(0.5, MinHashNodeSetMerger.getJaccardLowerBound(
+				new JaccardSimilarity<NodeSet>(), 0.5), 1e-9);
+		assertEquals(0.5, MinHashNodeSetMerger.getJaccardLowerBound(
+				new DiceSimilarity<NodeSet>(), 2 / 3.0), 1e-9);
+		assertEquals(0.0, MinHashNodeSetMerger.getJaccardLowerBound(
+				new SimpsonCoefficient<NodeSet>(), 0.8), 1e-9);
+	}
+	
+	@Test
+	public void testMerging() {
+		graph.createNodes(500);
+		
+		@SuppressWarnings("unchecked")
+		SimilarityFunction<NodeSet>[] funcs = new SimilarityFunction[] {
+				new MatchingScore<NodeSet>(), new JaccardSimilarity<NodeSet>(),
+				new DiceSimilarity<NodeSet>(), new SimpsonCoefficient<NodeSet>()
+		};
+		
+		for (long seed = 1; seed <= 3; seed++) {
+			int[][] memberLists = createRandomMemberLists(1000, graph.getNodeCount(), seed);
+			for (double threshold: new double[] { 0.0, 0.5, 0.8, 1.0 }) {
+				for (SimilarityFunction<NodeSet> similarityFunc: funcs) {
+					ValuedNodeSetList expected = new SinglePassNodeSetMerger().mergeOverlapping(
+							createNodeSets(memberLists), similarityFunc, threshold);
+					
+					MinHashNodeSetMerger merger = new MinHashNodeSetMerger();
+					merger.setRecall(0.999999);
+					for (int numThreads = 1; numThreads <= 2; numThreads++) {
+						merger.setNumThreads(numThreads);
+						ValuedNodeSetList actual = merger.mergeOverlapping(
+								createNodeSets(memberLists), similarityFunc, threshold);
+						assertEquals(toStrings(expected), toStrings(actual));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testMergedNodeSetsAreNeverTooLarge() {
+		graph.createNodes(500);
+		
+		int[][] memberLists = createRandomMemberLists(2000, graph.getNodeCount(), 42);
+		SimilarityFunction<NodeSet> similarityFunc = new MatchingScore<NodeSet>();
+		ValuedNodeSetList expected = new SinglePassNodeSetMerger().mergeOverlapping(
+				createNodeSets(memberLists), similarityFunc, 0.5);
+		
+		/* With a low recall, some clusters are not merged, but every merged
+		 * cluster must be part of an exact one */
+		MinHashNodeSetMerger merger = new MinHashNodeSetMerger();
+		merger.setRecall(0.3);
+		merger.setRowsPerBand(8);
+		ValuedNodeSetList actual = merger.mergeOverlapping(createNodeSets(memberLists), similarityFunc, 0.5);
+		
+		assertTrue(actual.size() >= expected.size());
+		for (ValuedNodeSet nodeSet: actual) {
+			boolean found = false;
+			for (ValuedNodeSet exactNodeSet: expected) {
+				if (exactNodeSet.getIntersectionSizeWith(nodeSet) == nodeSet.size()) {
+					found = true;
+					break;
+				}
+			}
+			assertTrue(found);
+		}
+	}
+	
+	@Test
+	public void testDisjointNodeSetsAreNotMergedAtZeroThreshold() {
+		graph.createNodes(6);
+		
+		int[][] memberLists = { { 0, 1 }, { 2, 3 }, { 3, 4 }, { 5 } };
+		ValuedNodeSetList actual = new MinHashNodeSetMerger().mergeOverlapping(
+				createNodeSets(memberLists), new MatchingScore<NodeSet>(), 0.0);
+		
+		assertEquals(3, actual.size());
+		assertArrayEquals(new int[] { 0, 1 }, actual.get(0).toArray());
+		assertArrayEquals(new int[] { 2, 3, 4 }, actual.get(1).toArray());
+		assertArrayEquals(new int[] { 5 }, actual.get(2).toArray());
+	}
+	
+	@Test
+	public void testManyDuplicates() {
+		graph.createNodes(500);
+		
+		/* Thousands of copies of a few nodesets end up in the same buckets */
+		int[][] memberLists = new int[20000][];
+		int[][] distinctLists = createRandomMemberLists(4, graph.getNodeCount(), 7);
+		for (int i = 0; i < memberLists.length; i++)
+			memberLists[i] = distinctLists[i % distinctLists.length];
+		
+		SimilarityFunction<NodeSet> similarityFunc = new MatchingScore<NodeSet>();
+		ValuedNodeSetList expected = new SinglePassNodeSetMerger().mergeOverlapping(
+				createNodeSets(memberLists), similarityFunc, 0.8);
+		ValuedNodeSetList actual = new MinHashNodeSetMerger().mergeOverlapping(
+				createNodeSets(memberLists), similarityFunc, 0.8);
+		
+		assertEquals(toStrings(expected), toStrings(actual));
+		for (ValuedNodeSet nodeSet: actual)
+			for (int member: nodeSet)
+				assertTrue(nodeSet.getValue(member) >= memberLists.length / distinctLists.length);
+	}
+}
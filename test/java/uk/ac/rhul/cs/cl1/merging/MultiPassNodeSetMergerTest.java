@@ -2,6 +2,12 @@ package uk.ac.rhul.cs.cl1.merging;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
 import org.junit.Test;
 
 import uk.ac.rhul.cs.cl1.NodeSet;
@@ -98,4 +104,75 @@ public class MultiPassNodeSetMergerTest {
 		assertTrue(mergedNodeSets.contains(new ValuedNodeSet(graph, 0, 1, 2, 3, 4, 5, 6, 7,
 				8, 9, 10, 11, 12, 13, 14, 15)));
 	}
+	
+	@Test
+	public void testMergeOverlappingInParallel() {
+		// Random nodesets, many of which overlap; the merger has to score only the
+		// overlapping pairs but the result must be the same with any number of threads
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++)
+			graph.createNode(Integer.toString(i));
+		
+		int[][] memberLists = new int[300][];
+		for (int i = 0; i < memberLists.length; i++) {
+			int start = random.nextInt(190);
+			memberLists[i] = new int[3 + random.nextInt(5)];
+			for (int j = 0; j < memberLists[i].length; j++)
+				memberLists[i][j] = start + random.nextInt(10);
+		}
+		
+		SimilarityFunction<NodeSet> similarityFunc = new JaccardSimilarity<NodeSet>();
+		double threshold = 0.5;
+		
+		List<String> expected = null;
+		for (int numThreads = 1; numThreads <= 4; numThreads++) {
+			MultiPassNodeSetMerger merger = new MultiPassNodeSetMerger();
+			merger.setVerificationMode(MultiPassNodeSetMerger.VerificationMode.VERIFY);
+			merger.setNumThreads(numThreads);
+			
+			// The merger may modify the values of the nodesets, so create them again
+			ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+			for (int[] members: memberLists)
+				nodeSets.add(new ValuedNodeSet(graph, members));
+			
+			List<String> result = new ArrayList<String>();
+			for (ValuedNodeSet nodeSet: merger.mergeOverlapping(nodeSets, similarityFunc, threshold)) {
+				StringBuilder sb = new StringBuilder();
+				for (int member: nodeSet)
+					sb.append(member).append(':').append(nodeSet.getValue(member)).append(' ');
+				result.add(sb.toString());
+			}
+			Collections.sort(result);
+			
+			if (expected == null) {
+				assertTrue(result.size() < memberLists.length);
+				expected = result;
+			} else {
+				assertEquals(expected, result);
+			}
+		}
+	}
+	
+	@Test
+	public void testInterruptedMerge() {
+		for (int i = 0; i < 200; i++)
+			graph.createNode(Integer.toString(i));
+		
+		ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+		for (int i = 0; i < 190; i++)
+			nodeSets.add(new ValuedNodeSet(graph, i, i+1, i+2, i+3, i+4));
+		
+		MultiPassNodeSetMerger merger = new MultiPassNodeSetMerger();
+		merger.setNumThreads(2);
+		
+		// A cancelled merge must stop and keep the interrupted status of the thread
+		Thread.currentThread().interrupt();
+		try {
+			merger.mergeOverlapping(nodeSets, new JaccardSimilarity<NodeSet>(), 0.5);
+			fail("merge was not aborted");
+		} catch (CancellationException expected) {
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+	}
 }
@@ -0,0 +1,83 @@
+package uk.ac.rhul.cs.cl1.merging;
+
+import java.util.Random;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.cl1.similarity.MatchingScore;
+import uk.ac.rhul.cs.cl1.similarity.SimilarityFunction;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Compares the sequential breadth first search of
+ * {@link SinglePassNodeSetMerger#mergeOverlappingNew} with the union-find based
+ * {@link SinglePassNodeSetMerger#mergeOverlappingParallel} on random clusters.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.cl1.merging.SinglePassNodeSetMergerBenchmark
+ * -Dbenchmark.args="clusters nodes"</code>
+ *
+ * @author tamas
+ */
+public class SinglePassNodeSetMergerBenchmark {
+	/**
+	 * Creates random clusters of 3 to 20 nodes where nearby clusters tend to overlap,
+	 * similarly to the raw clusters found by ClusterONE before merging.
+	 */
+	private static int[][] createRandomMemberLists(int numClusters, int numNodes, long seed) {
+		Random random = new Random(seed);
+		int[][] memberLists = new int[numClusters][];
+		for (int i = 0; i < numClusters; i++) {
+			int start = random.nextInt(numNodes - 30);
+			memberLists[i] = new int[3 + random.nextInt(18)];
+			for (int j = 0; j < memberLists[i].length; j++)
+				memberLists[i][j] = start + random.nextInt(30);
+		}
+		return memberLists;
+	}
+
+	private static ValuedNodeSetList createNodeSets(Graph graph, int[][] memberLists) {
+		ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+		for (int[] members: memberLists)
+			nodeSets.add(new ValuedNodeSet(graph, members));
+		return nodeSets;
+	}
+
+	public static void main(String[] args) {
+		int numClusters = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int numNodes = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		double threshold = 0.8;
+		SimilarityFunction<NodeSet> similarityFunc = new MatchingScore<NodeSet>();
+
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+		int[][] memberLists = createRandomMemberLists(numClusters, numNodes, 42);
+
+		System.out.println(numClusters + " random clusters on " + numNodes + " nodes, " +
+				maxThreads + " processor(s)");
+
+		SinglePassNodeSetMerger merger = new SinglePassNodeSetMerger();
+
+		/* Warm up both code paths before timing */
+		merger.mergeOverlappingNew(createNodeSets(graph, memberLists), similarityFunc, threshold);
+		merger.mergeOverlappingParallel(createNodeSets(graph, memberLists), similarityFunc, threshold);
+
+		ValuedNodeSetList nodeSets = createNodeSets(graph, memberLists);
+		long start = System.nanoTime();
+		int numMerged = merger.mergeOverlappingNew(nodeSets, similarityFunc, threshold).size();
+		long sequentialTime = (System.nanoTime() - start) / 1000000;
+		System.out.println("Sequential BFS: " + sequentialTime + " ms, " + numMerged + " clusters");
+
+		for (int numThreads = 1; numThreads <= maxThreads; numThreads++) {
+			merger.setNumThreads(numThreads);
+			nodeSets = createNodeSets(graph, memberLists);
+			start = System.nanoTime();
+			numMerged = merger.mergeOverlappingParallel(nodeSets, similarityFunc, threshold).size();
+			long parallelTime = (System.nanoTime() - start) / 1000000;
+			System.out.println("Union-find, " + numThreads + " thread(s): " + parallelTime + " ms, " +
+					numMerged + " clusters, speedup " +
+					String.format("%.2f", sequentialTime / (double) Math.max(1, parallelTime)));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package uk.ac.rhul.cs.cl1.merging;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.cl1.similarity.JaccardSimilarity;
+import uk.ac.rhul.cs.cl1.similarity.MatchingScore;
+import uk.ac.rhul.cs.cl1.similarity.SimilarityFunction;
+import uk.ac.rhul.cs.graph.Graph;
+
+public class SinglePassNodeSetMergerTest {
+	Graph graph = new Graph();
+	
+	/**
+	 * Creates random nodesets where nearby nodesets tend to overlap
+	 */
+	private int[][] createRandomMemberLists(int numNodeSets, int numNodes, long seed) {
+		Random random = new Random(seed);
+		int[][] memberLists = new int[numNodeSets][];
+		for (int i = 0; i < numNodeSets; i++) {
+			int start = random.nextInt(numNodes - 10);
+			memberLists[i] = new int[2 + random.nextInt(6)];
+			for (int j = 0; j < memberLists[i].length; j++)
+				memberLists[i][j] = start + random.nextInt(10);
+		}
+		return memberLists;
+	}
+	
+	private ValuedNodeSetList createNodeSets(int[][] memberLists) {
+		ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+		for (int[] members: memberLists)
+			nodeSets.add(new ValuedNodeSet(graph, members));
+		return nodeSets;
+	}
+	
+	private void assertSameNodeSets(ValuedNodeSetList expected, ValuedNodeSetList actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ValuedNodeSet expectedNodeSet = expected.get(i);
+			ValuedNodeSet actualNodeSet = actual.get(i);
+			assertArrayEquals(expectedNodeSet.toArray(), actualNodeSet.toArray());
+			for (int member: expectedNodeSet)
+				assertEquals(expectedNodeSet.getValue(member), actualNodeSet.getValue(member));
+		}
+	}
+	
+	@Test
+	public void testParallelMergingIsIdentical() {
+		graph.createNodes(500);
+		
+		SimilarityFunction<NodeSet> jaccard = new JaccardSimilarity<NodeSet>();
+		SimilarityFunction<NodeSet> matching = new MatchingScore<NodeSet>();
+		
+		for (long seed = 1; seed <= 3; seed++) {
+			int[][] memberLists = createRandomMemberLists(1000, graph.getNodeCount(), seed);
+			for (double threshold: new double[] { 0.0, 0.2, 0.5, 0.8, 1.0 }) {
+				for (SimilarityFunction<NodeSet> similarityFunc: new SimilarityFunction[] { jaccard, matching }) {
+					SinglePassNodeSetMerger merger = new SinglePassNodeSetMerger();
+					ValuedNodeSetList expected = merger.mergeOverlappingNew(
+							createNodeSets(memberLists), similarityFunc, threshold);
+					
+					for (int numThreads = 1; numThreads <= 4; numThreads++) {
+						merger.setNumThreads(numThreads);
+						ValuedNodeSetList actual = merger.mergeOverlappingParallel(
+								createNodeSets(memberLists), similarityFunc, threshold);
+						assertSameNodeSets(expected, actual);
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testDisjointNodeSetsAreNotMergedAtZeroThreshold() {
+		graph.createNodes(6);
+		
+		SimilarityFunction<NodeSet> matching = new MatchingScore<NodeSet>();
+		int[][] memberLists = { { 0, 1 }, { 2, 3 }, { 3, 4 }, { 5 } };
+		SinglePassNodeSetMerger merger = new SinglePassNodeSetMerger();
+		
+		ValuedNodeSetList expected = merger.mergeOverlappingNew(
+				createNodeSets(memberLists), matching, 0.0);
+		assertEquals(3, expected.size());
+		
+		for (int numThreads = 1; numThreads <= 2; numThreads++) {
+			merger.setNumThreads(numThreads);
+			ValuedNodeSetList actual = merger.mergeOverlappingParallel(
+					createNodeSets(memberLists), matching, 0.0);
+			assertSameNodeSets(expected, actual);
+			assertArrayEquals(new int[] { 2, 3, 4 }, actual.get(1).toArray());
+		}
+	}
+}
@@ -2,13 +2,18 @@ package uk.ac.rhul.cs.cl1.seeding;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import uk.ac.rhul.cs.cl1.MutableNodeSet;
 import uk.ac.rhul.cs.cl1.seeding.SeedGenerator;
+import uk.ac.rhul.cs.graph.Directedness;
 import uk.ac.rhul.cs.graph.Edge;
 import uk.ac.rhul.cs.graph.Graph;
 
@@ -64,4 +69,99 @@ public class SeedGeneratorTest {
 			assert(set.size() == 2);
 		}
 	}
+	
+	private List<String> collectSeeds(SeedIterator it) {
+		List<String> result = new ArrayList<String>();
+		while (it.hasNext())
+			result.add(Arrays.toString(it.next().members));
+		return result;
+	}
+	
+	@Test
+	public void testMaximalCliqueSeedGenerator() throws InstantiationException {
+		SeedIterator it = SeedGenerator.fromString("cliques", graph).iterator();
+		List<String> seeds = collectSeeds(it);
+		
+		assertEquals(6, seeds.size());
+		assertEquals(6, it.getEstimatedLength());
+		assertTrue(seeds.contains("[0, 1, 3]"));
+		assertTrue(seeds.contains("[0, 2, 3]"));
+		assertTrue(seeds.contains("[3, 4]"));
+		assertTrue(seeds.contains("[3, 5]"));
+		assertTrue(seeds.contains("[4, 6]"));
+		assertTrue(seeds.contains("[5, 6]"));
+		assertFalse(it.hasNext());
+		
+		it = SeedGenerator.fromString("cliques(3)", graph).iterator();
+		seeds = collectSeeds(it);
+		assertEquals(2, seeds.size());
+		assertTrue(seeds.contains("[0, 1, 3]"));
+		assertTrue(seeds.contains("[0, 2, 3]"));
+		
+		try {
+			SeedGenerator.fromString("cliques(large)", graph);
+			fail("InstantiationException not thrown");
+		} catch (InstantiationException expected) {
+		}
+	}
+	
+	@Test
+	public void testMaximalCliqueSeedGeneratorClose() {
+		Random random = new Random(42);
+		Graph graph = new Graph();
+		graph.createNodes(1000);
+		for (int i = 0; i < 5000; i++)
+			graph.createEdge(random.nextInt(1000), random.nextInt(1000));
+		
+		/* Many more cliques than the capacity of the queue */
+		SeedIterator it = new MaximalCliqueSeedGenerator(graph).iterator();
+		assertTrue(it.hasNext());
+		assertNotNull(it.next());
+		int estimate = it.getEstimatedLength();
+		assertTrue(estimate > 1);
+		
+		it.close();
+		assertFalse(it.hasNext());
+		
+		/* The full enumeration is not affected by the closed one */
+		it = new MaximalCliqueSeedGenerator(graph).iterator();
+		int count = collectSeeds(it).size();
+		assertTrue(count > 1000);
+		assertEquals(count, it.getEstimatedLength());
+	}
+	
+	@Test
+	public void testMaximalCliqueSeedGeneratorFailure() {
+		Graph brokenGraph = new Graph() {
+			@Override
+			public int[] getAdjacentNodeIndicesArray(int nodeIndex, Directedness mode) {
+				throw new IllegalStateException("broken graph");
+			}
+		};
+		brokenGraph.createNodes(3);
+		
+		SeedIterator it = new MaximalCliqueSeedGenerator(brokenGraph).iterator();
+		try {
+			it.hasNext();
+			fail("exception of the clique finder not rethrown");
+		} catch (IllegalStateException expected) {
+			assertEquals("broken graph", expected.getMessage());
+		} finally {
+			it.close();
+		}
+	}
+	
+	@Test
+	public void testMaximalCliqueSeedGeneratorNumThreads() {
+		MaximalCliqueSeedGenerator generator = new MaximalCliqueSeedGenerator(graph);
+		
+		generator.setNumThreads(3);
+		assertEquals(3, generator.getNumThreads());
+		
+		int numProcessors = Runtime.getRuntime().availableProcessors();
+		generator.setNumThreads(0);
+		assertEquals(numProcessors, generator.getNumThreads());
+		generator.setNumThreads(-2);
+		assertEquals(numProcessors, generator.getNumThreads());
+	}
 }
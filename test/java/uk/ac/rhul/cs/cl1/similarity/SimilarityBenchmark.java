@@ -0,0 +1,135 @@
+package uk.ac.rhul.cs.cl1.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import uk.ac.rhul.cs.cl1.NodeSet;
+import uk.ac.rhul.cs.graph.Graph;
+
+/**
+ * Compares each similarity function on nodesets that intersect through their
+ * sorted member arrays to the same functions on nodesets that intersect
+ * through their <code>TreeSet</code>s, like all nodesets did before.
+ *
+ * Three kinds of nodeset pairs are used: small overlapping clusters like the
+ * ones ClusterONE merges, a small nodeset against a large one (galloping), and
+ * two large nodesets whose members are close to each other (bitmaps).
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.cl1.similarity.SimilarityBenchmark
+ * -Dbenchmark.args="pairs"</code>
+ *
+ * @author tamas
+ */
+public class SimilarityBenchmark {
+	/**
+	 * Nodeset that calculates intersections the way all nodesets did before.
+	 */
+	private static class TreeSetNodeSet extends NodeSet {
+		private final TreeSet<Integer> memberSet = new TreeSet<Integer>();
+
+		TreeSetNodeSet(Graph graph, int[] members) {
+			super(graph, members);
+			for (int member: members)
+				memberSet.add(member);
+		}
+
+		@Override
+		public int getIntersectionSizeWith(NodeSet other) {
+			TreeSetNodeSet smaller = this, larger = (TreeSetNodeSet) other;
+			int result = 0;
+
+			if (smaller.size() >= larger.size()) {
+				smaller = larger;
+				larger = this;
+			}
+
+			for (int member: smaller.memberSet)
+				if (larger.memberSet.contains(member))
+					result++;
+
+			return result;
+		}
+	}
+
+	/**
+	 * Creates pairs of random member lists.
+	 *
+	 * @param  sizes   the minimum and maximum size of the two member lists
+	 * @param  range   the members of a pair are chosen from this many consecutive nodes
+	 */
+	private static int[][] createMemberLists(Random random, int numPairs, int numNodes,
+			int[] sizes, int range) {
+		int[][] result = new int[2 * numPairs][];
+		for (int i = 0; i < result.length; i += 2) {
+			int start = random.nextInt(numNodes - range);
+			for (int j = 0; j < 2; j++) {
+				int size = sizes[2 * j] + random.nextInt(sizes[2 * j + 1] - sizes[2 * j] + 1);
+				result[i + j] = new int[size];
+				for (int k = 0; k < size; k++)
+					result[i + j][k] = start + random.nextInt(range);
+			}
+		}
+		return result;
+	}
+
+	private static List<NodeSet> createNodeSets(Graph graph, int[][] memberLists, boolean treeSets) {
+		List<NodeSet> result = new ArrayList<NodeSet>(memberLists.length);
+		for (int[] members: memberLists)
+			result.add(treeSets ? new TreeSetNodeSet(graph, members) : new NodeSet(graph, members));
+		return result;
+	}
+
+	private static long run(SimilarityFunction<NodeSet> func, List<NodeSet> nodeSets, int repeats) {
+		double checksum = 0.0;
+		long start = System.nanoTime();
+
+		for (int r = 0; r < repeats; r++)
+			for (int i = 0; i < nodeSets.size(); i += 2)
+				checksum += func.getSimilarity(nodeSets.get(i), nodeSets.get(i + 1));
+
+		long elapsed = System.nanoTime() - start;
+		if (Double.isNaN(checksum))
+			throw new IllegalStateException();
+		return elapsed / (repeats * nodeSets.size() / 2);
+	}
+
+	public static void main(String[] args) {
+		int numPairs = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int numNodes = 100000;
+		Random random = new Random(42);
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+
+		@SuppressWarnings("unchecked")
+		SimilarityFunction<NodeSet>[] funcs = new SimilarityFunction[] {
+				new MatchingScore<NodeSet>(), new JaccardSimilarity<NodeSet>(),
+				new DiceSimilarity<NodeSet>(), new SimpsonCoefficient<NodeSet>()
+		};
+		String[] scenarios = { "3-20 vs 3-20 nodes", "5-10 vs 2000 nodes", "1000 vs 1000 nodes" };
+		int[][][] memberLists = {
+				createMemberLists(random, numPairs, numNodes, new int[] { 3, 20, 3, 20 }, 30),
+				createMemberLists(random, numPairs / 100, numNodes, new int[] { 5, 10, 2000, 2000 }, 20000),
+				createMemberLists(random, numPairs / 100, numNodes, new int[] { 1000, 1000, 1000, 1000 }, 3000)
+		};
+		int[] repeats = { 5, 20, 20 };
+
+		for (int s = 0; s < scenarios.length; s++) {
+			List<NodeSet> oldSets = createNodeSets(graph, memberLists[s], true);
+			List<NodeSet> newSets = createNodeSets(graph, memberLists[s], false);
+
+			System.out.println(scenarios[s] + ":");
+			for (SimilarityFunction<NodeSet> func: funcs) {
+				/* Warm-up */
+				run(func, oldSets, 1);
+				run(func, newSets, 1);
+
+				long oldTime = run(func, oldSets, repeats[s]);
+				long newTime = run(func, newSets, repeats[s]);
+				System.out.println(String.format("  %-20s TreeSet: %6d ns/pair, sorted arrays: %6d ns/pair",
+						func.getName(), oldTime, newTime));
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package uk.ac.rhul.cs.cl1.support;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class LookAheadWindowTest {
+    @Test
+    public void testCounters() {
+        LookAheadWindow window = new LookAheadWindow(1, 8, true);
+
+        window.recordAccepted();
+        window.recordAccepted();
+        window.recordAccepted();
+        window.recordDiscarded();
+        window.recordEmpty();
+
+        Assert.assertEquals(3, window.getNumAccepted());
+        Assert.assertEquals(1, window.getNumDiscarded());
+        Assert.assertEquals(1, window.getNumEmpty());
+        Assert.assertEquals(0.25, window.getWasteRatio(), 1e-9);
+    }
+
+    @Test
+    public void testShrinkAndGrow() {
+        LookAheadWindow window = new LookAheadWindow(1, 64, true);
+        Assert.assertEquals(64, window.getSize());
+        Assert.assertTrue(window.isOpen(63));
+        Assert.assertFalse(window.isOpen(64));
+
+        // Half of the clusters are discarded; the window should shrink to its minimum
+        for (int i = 0; i < 1000; i++) {
+            window.recordAccepted();
+            window.recordDiscarded();
+        }
+        Assert.assertEquals(1, window.getSize());
+        Assert.assertTrue(window.isOpen(0));
+        Assert.assertFalse(window.isOpen(1));
+
+        // No clusters are discarded; the window should grow back to its maximum
+        for (int i = 0; i < 1000; i++)
+            window.recordAccepted();
+        Assert.assertEquals(64, window.getSize());
+    }
+
+    @Test
+    public void testNonAdaptiveWindow() {
+        LookAheadWindow window = new LookAheadWindow(1, 8, false);
+        for (int i = 0; i < 1000; i++)
+            window.recordDiscarded();
+        Assert.assertEquals(8, window.getSize());
+        Assert.assertEquals(1000, window.getNumDiscarded());
+    }
+}
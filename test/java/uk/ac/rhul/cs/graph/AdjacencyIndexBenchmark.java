@@ -0,0 +1,106 @@
+package uk.ac.rhul.cs.graph;
+
+import java.util.Random;
+
+/**
+ * Compares {@link Graph#areConnected(int, int)} with and without an
+ * {@link AdjacencyIndex} on hub and leaf nodes.
+ *
+ * The graph is sparse with a few hubs attached to a large fraction of the
+ * nodes, like most protein interaction networks. Queries start either from a
+ * hub or from an ordinary node, and half of them ask about existing edges.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.graph.AdjacencyIndexBenchmark
+ * -Dbenchmark.args="nodes queries"</code>
+ *
+ * @author tamas
+ */
+public class AdjacencyIndexBenchmark {
+	private static final int NUM_HUBS = 20;
+
+	private static Graph createGraph(int numNodes, long seed) {
+		Random random = new Random(seed);
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+
+		for (int i = 0; i < 5 * numNodes; i++)
+			graph.createEdge(random.nextInt(numNodes), random.nextInt(numNodes));
+		for (int hub = 0; hub < NUM_HUBS; hub++)
+			for (int i = 0; i < numNodes / 5; i++)
+				graph.createEdge(hub, NUM_HUBS + random.nextInt(numNodes - NUM_HUBS));
+
+		return graph;
+	}
+
+	/**
+	 * Creates the query pairs; the first node of each pair is a hub or a leaf,
+	 * the second is a neighbor of the first one or a random node.
+	 */
+	private static int[] createQueries(Graph graph, int numQueries, boolean hubs, long seed) {
+		Random random = new Random(seed);
+		int numNodes = graph.getNodeCount();
+		int[] queries = new int[2 * numQueries];
+
+		for (int i = 0; i < numQueries; i++) {
+			int source = hubs ? random.nextInt(NUM_HUBS) : NUM_HUBS + random.nextInt(numNodes - NUM_HUBS);
+			int degree = graph.getDegree(source);
+			queries[2 * i] = source;
+			if (degree > 0 && random.nextBoolean())
+				queries[2 * i + 1] = graph.getAdjacentNodeIndex(source, random.nextInt(degree), Directedness.ALL);
+			else
+				queries[2 * i + 1] = random.nextInt(numNodes);
+		}
+
+		return queries;
+	}
+
+	private static void run(String label, Graph graph, int[] queries) {
+		int found = 0;
+		long start = System.nanoTime();
+
+		for (int i = 0; i < queries.length; i += 2)
+			if (graph.areConnected(queries[i], queries[i + 1]))
+				found++;
+
+		long elapsed = System.nanoTime() - start;
+		System.out.println(label + ": " + (elapsed / (queries.length / 2)) + " ns/query (" +
+				found + " connected pairs)");
+	}
+
+	public static void main(String[] args) {
+		int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int numQueries = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		Graph graph = createGraph(numNodes, 42);
+		FrozenGraph frozen = graph.freeze();
+
+		System.out.println("Graph with " + graph.getNodeCount() + " nodes, " +
+				graph.getEdgeCount() + " edges and " + NUM_HUBS + " hubs of degree ~" +
+				graph.getDegree(0));
+
+		for (int round = 0; round < 2; round++) {
+			boolean report = (round > 0);
+			for (boolean hubs: new boolean[] { false, true }) {
+				int[] queries = createQueries(graph, hubs ? numQueries / 20 : numQueries, hubs, round);
+				String kind = hubs ? "hub " : "leaf";
+
+				graph.discardAdjacencyIndex();
+				frozen.discardAdjacencyIndex();
+				if (report) {
+					run(kind + ", Graph, scan           ", graph, queries);
+					run(kind + ", FrozenGraph, scan     ", frozen, queries);
+				}
+
+				long start = System.nanoTime();
+				frozen.getAdjacencyIndex();
+				long buildTime = (System.nanoTime() - start) / 1000000;
+				graph.getAdjacencyIndex();
+				if (report) {
+					run(kind + ", Graph, indexed        ", graph, queries);
+					run(kind + ", FrozenGraph, indexed  ", frozen, queries);
+					if (!hubs)
+						System.out.println("Building the index took " + buildTime + " ms");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package uk.ac.rhul.cs.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AdjacencyIndexTest {
+	private Graph createRandomGraph(Random random, boolean directed, int numNodes, int numEdges) {
+		Graph graph = new Graph(directed);
+		graph.createNodes(numNodes);
+		
+		/* Node 0 is a hub, the rest of the edges are random, with some loops
+		 * and multiple edges */
+		for (int i = 1; i < numNodes; i += 2)
+			graph.createEdge(0, i);
+		for (int i = 0; i < numEdges; i++)
+			graph.createEdge(random.nextInt(numNodes), random.nextInt(numNodes));
+		graph.createEdge(3, 3);
+		graph.createEdge(4, 5);
+		graph.createEdge(4, 5);
+		
+		return graph;
+	}
+	
+	private void assertSameConnections(Graph graph, AdjacencyIndex index) {
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			for (int j = 0; j < graph.getNodeCount(); j++) {
+				boolean expected = false;
+				for (int nei: graph.getAdjacentNodeIndicesArray(i, Directedness.OUT))
+					if (nei == j)
+						expected = true;
+				assertEquals(expected, index.areConnected(i, j));
+			}
+		}
+	}
+	
+	@Test
+	public void testAreConnected() {
+		Random random = new Random(42);
+		
+		for (boolean directed: new boolean[] { false, true }) {
+			Graph graph = createRandomGraph(random, directed, 200, 600);
+			
+			assertSameConnections(graph, new AdjacencyIndex(graph));
+			assertSameConnections(graph, new AdjacencyIndex(graph, 1));
+			assertSameConnections(graph, new AdjacencyIndex(graph, Integer.MAX_VALUE));
+			assertSameConnections(graph, new AdjacencyIndex(graph.freeze()));
+		}
+	}
+	
+	@Test
+	public void testDistinctNeighbors() {
+		int[] edges = { 0, 3, 0, 1, 1, 0, 2, 2, 0, 2, 3, 0 };
+		Graph graph = GraphFactory.createFromEdgeList(edges);
+		AdjacencyIndex index = new AdjacencyIndex(graph, 3);
+		
+		assertEquals(4, index.getNodeCount());
+		assertArrayEquals(new int[] { 1, 2, 3 }, index.getDistinctNeighbors(0));
+		assertArrayEquals(new int[] { 0 }, index.getDistinctNeighbors(1));
+		assertArrayEquals(new int[] { 0, 2 }, index.getDistinctNeighbors(2));
+		assertEquals(3, index.getDistinctDegree(0));
+		assertTrue(index.isHub(0));
+		assertFalse(index.isHub(2));
+	}
+	
+	@Test
+	public void testGraphIndex() {
+		Graph graph = GraphFactory.createEmptyGraph(4, false);
+		graph.createEdge(0, 1);
+		
+		AdjacencyIndex index = graph.getAdjacencyIndex();
+		assertSame(index, graph.getAdjacencyIndex());
+		assertTrue(graph.areConnected(1, 0));
+		assertFalse(graph.areConnected(1, 2));
+		
+		/* Modifying the graph discards the index */
+		graph.createEdge(1, 2);
+		assertTrue(graph.areConnected(1, 2));
+		assertNotSame(index, graph.getAdjacencyIndex());
+		assertTrue(graph.getAdjacencyIndex().areConnected(2, 1));
+		
+		FrozenGraph frozen = graph.freeze();
+		frozen.getAdjacencyIndex();
+		assertTrue(frozen.areConnected(0, 1));
+		assertFalse(frozen.areConnected(0, 3));
+		frozen.discardAdjacencyIndex();
+		assertTrue(frozen.areConnected(2, 1));
+	}
+}
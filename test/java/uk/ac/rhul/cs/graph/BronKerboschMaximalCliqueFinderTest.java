@@ -3,8 +3,12 @@ package uk.ac.rhul.cs.graph;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -52,4 +56,100 @@ public class BronKerboschMaximalCliqueFinderTest {
 		assertTrue(currentClique.isEmpty());
 		assertEquals(6, cliques.size());
 	}
+	
+	/**
+	 * Finds the maximal cliques of a small graph by checking every subset of nodes
+	 */
+	private Set<List<Integer>> findMaximalCliquesByBruteForce(Graph graph) {
+		int n = graph.getNodeCount();
+		boolean[][] adj = new boolean[n][n];
+		for (Edge edge: graph) {
+			adj[edge.source][edge.target] = true;
+			adj[edge.target][edge.source] = true;
+		}
+		
+		Set<List<Integer>> result = new HashSet<List<Integer>>();
+		for (int mask = 1; mask < (1 << n); mask++) {
+			boolean isClique = true, isMaximal = true;
+			for (int i = 0; i < n && isClique; i++)
+				for (int j = i + 1; j < n && isClique; j++)
+					if ((mask & (1 << i)) != 0 && (mask & (1 << j)) != 0 && !adj[i][j])
+						isClique = false;
+			if (!isClique)
+				continue;
+			
+			for (int k = 0; k < n && isMaximal; k++) {
+				if ((mask & (1 << k)) != 0)
+					continue;
+				boolean extensible = true;
+				for (int i = 0; i < n && extensible; i++)
+					if ((mask & (1 << i)) != 0 && !adj[i][k])
+						extensible = false;
+				if (extensible)
+					isMaximal = false;
+			}
+			if (!isMaximal)
+				continue;
+			
+			List<Integer> clique = new ArrayList<Integer>();
+			for (int i = 0; i < n; i++)
+				if ((mask & (1 << i)) != 0)
+					clique.add(i);
+			result.add(clique);
+		}
+		
+		return result;
+	}
+	
+	@Test
+	public void testRandomGraphs() {
+		Random random = new Random(42);
+		
+		for (int round = 0; round < 50; round++) {
+			int n = 1 + random.nextInt(14);
+			double p = random.nextDouble();
+			Graph graph = new Graph(round % 2 == 0);
+			graph.createNodes(n);
+			for (int i = 0; i < n; i++)
+				for (int j = 0; j < n; j++)
+					if (random.nextDouble() < p / 2)
+						graph.createEdge(i, j);
+			
+			Set<List<Integer>> expected = findMaximalCliquesByBruteForce(graph);
+			BronKerboschMaximalCliqueFinder cfinder = new BronKerboschMaximalCliqueFinder(graph);
+			List<List<Integer>> cliques = cfinder.getMaximalCliques();
+			
+			assertEquals(expected.size(), cliques.size());
+			assertEquals(expected, new HashSet<List<Integer>>(cliques));
+		}
+	}
+	
+	@Test
+	public void testParallelEnumeration() {
+		Random random = new Random(42);
+		int n = 2000;
+		
+		Graph graph = new Graph();
+		graph.createNodes(n);
+		for (int i = 0; i < 20000; i++) {
+			/* Denser communities make larger cliques */
+			int community = random.nextInt(n / 20) * 20;
+			graph.createEdge(community + random.nextInt(20), community + random.nextInt(20));
+			graph.createEdge(random.nextInt(n), random.nextInt(n));
+		}
+		
+		BronKerboschMaximalCliqueFinder cfinder = new BronKerboschMaximalCliqueFinder(graph);
+		List<int[]> expected = new ArrayList<int[]>();
+		cfinder.collectMaximalCliqueArrays(expected);
+		assertTrue(expected.size() > n);
+		
+		for (int numThreads = 2; numThreads <= 4; numThreads++) {
+			cfinder.setNumThreads(numThreads);
+			List<int[]> cliques = new ArrayList<int[]>();
+			cfinder.collectMaximalCliqueArrays(cliques);
+			assertEquals(expected.size(), cliques.size());
+			for (int i = 0; i < cliques.size(); i++)
+				assertTrue(Arrays.equals(expected.get(i), cliques.get(i)));
+		}
+	}
 }
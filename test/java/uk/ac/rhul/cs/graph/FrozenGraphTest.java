@@ -0,0 +1,103 @@
+package uk.ac.rhul.cs.graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FrozenGraphTest {
+	private void assertIndexedAccessMatchesArrays(Graph graph, int node, Directedness mode) {
+		int[] edges = graph.getAdjacentEdgeIndicesArray(node, mode);
+		int[] neighbors = graph.getAdjacentNodeIndicesArray(node, mode);
+
+		assertEquals(edges.length, graph.getDegree(node, mode));
+		for (int i = 0; i < edges.length; i++) {
+			assertEquals(edges[i], graph.getAdjacentEdgeIndex(node, i, mode));
+			assertEquals(neighbors[i], graph.getAdjacentNodeIndex(node, i, mode));
+			assertEquals(graph.getEdgeWeight(edges[i]), graph.getAdjacentEdgeWeight(node, i, mode), 0.0);
+		}
+	}
+
+	private void assertSameAdjacency(Graph graph, Graph frozen) {
+		Directedness[] modes = { Directedness.OUT, Directedness.IN, Directedness.ALL };
+
+		assertEquals(graph.isDirected(), frozen.isDirected());
+		assertEquals(graph.getNodeCount(), frozen.getNodeCount());
+		assertEquals(graph.getEdgeCount(), frozen.getEdgeCount());
+		assertArrayEquals(graph.getNodeNames(), frozen.getNodeNames());
+
+		for (int i = 0; i < graph.getEdgeCount(); i++) {
+			assertEquals(graph.getEdgeWeight(i), frozen.getEdgeWeight(i), 0.0);
+			assertEquals(graph.getEdgeList().get(i).source, frozen.getEdgeList().get(i).source);
+			assertEquals(graph.getEdgeList().get(i).target, frozen.getEdgeList().get(i).target);
+		}
+
+		for (int i = 0; i < graph.getNodeCount(); i++) {
+			for (Directedness mode: modes) {
+				assertArrayEquals(graph.getAdjacentEdgeIndicesArray(i, mode),
+						frozen.getAdjacentEdgeIndicesArray(i, mode));
+				assertArrayEquals(graph.getAdjacentNodeIndicesArray(i, mode),
+						frozen.getAdjacentNodeIndicesArray(i, mode));
+				assertEquals(graph.getDegree(i, mode), frozen.getDegree(i, mode));
+				assertEquals(graph.getStrength(i, mode), frozen.getStrength(i, mode), 1e-9);
+				assertIndexedAccessMatchesArrays(graph, i, mode);
+				assertIndexedAccessMatchesArrays(frozen, i, mode);
+			}
+			for (int j = 0; j < graph.getNodeCount(); j++)
+				assertEquals(graph.areConnected(i, j), frozen.areConnected(i, j));
+		}
+	}
+
+	@Test
+	public void testUndirected() {
+		Graph graph = GraphFactory.createFamousGraph("zachary");
+		assertSameAdjacency(graph, graph.freeze());
+	}
+
+	@Test
+	public void testUndirectedWithLoopsAndMultiEdges() {
+		int[] edges = { 0, 1, 1, 1, 1, 2, 2, 0, 0, 1, 3, 3 };
+		double[] weights = { 1, 2, 3, 4, 5, 6 };
+		Graph graph = GraphFactory.createFromEdgeList(edges, weights);
+		graph.createNode("isolated");
+		assertSameAdjacency(graph, graph.freeze());
+	}
+
+	@Test
+	public void testDirected() {
+		Graph graph = GraphFactory.createFullGraph(5, true, true);
+		graph.createEdge(2, 4, 3.5);
+		assertSameAdjacency(graph, graph.freeze());
+	}
+
+	@Test
+	public void testFreezeIsIdempotent() {
+		FrozenGraph frozen = GraphFactory.createFamousGraph("zachary").freeze();
+		assertSame(frozen, frozen.freeze());
+	}
+
+	@Test
+	public void testImmutable() {
+		Graph frozen = GraphFactory.createFamousGraph("zachary").freeze();
+
+		try {
+			frozen.createNode();
+			fail("node creation should have failed");
+		} catch (UnsupportedOperationException ignored) {
+		}
+
+		try {
+			frozen.createEdge(0, 1);
+			fail("edge creation should have failed");
+		} catch (UnsupportedOperationException ignored) {
+		}
+	}
+
+	@Test
+	public void testIndependentOfOriginal() {
+		Graph graph = GraphFactory.createFamousGraph("zachary");
+		Graph frozen = graph.freeze();
+		graph.createEdge(0, 33);
+		assertEquals(78, frozen.getEdgeCount());
+		assertEquals(graph.getDegree(0) - 1, frozen.getDegree(0));
+	}
+}
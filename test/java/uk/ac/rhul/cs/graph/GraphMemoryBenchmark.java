@@ -0,0 +1,79 @@
+package uk.ac.rhul.cs.graph;
+
+import java.util.Random;
+
+/**
+ * Compares the memory footprint and the adjacency scan speed of an ordinary
+ * {@link Graph} and its {@link FrozenGraph} counterpart.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.graph.GraphMemoryBenchmark
+ * -Dbenchmark.args="nodes edges"</code>
+ *
+ * @author tamas
+ */
+public class GraphMemoryBenchmark {
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static Graph createRandomGraph(int numNodes, int numEdges, long seed) {
+		Random random = new Random(seed);
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+		for (int i = 0; i < numEdges; i++)
+			graph.createEdge(random.nextInt(numNodes), random.nextInt(numNodes), random.nextDouble());
+		return graph;
+	}
+
+	private static long scan(Graph graph, int rounds) {
+		long checksum = 0;
+		int n = graph.getNodeCount();
+		for (int round = 0; round < rounds; round++) {
+			for (int i = 0; i < n; i++) {
+				for (int j: graph.getAdjacentNodeIndicesArray(i, Directedness.ALL))
+					checksum += j;
+				checksum += (long)graph.getStrength(i);
+			}
+		}
+		return checksum;
+	}
+
+	private static void report(String label, Graph graph, long memory) {
+		long start = System.nanoTime();
+		long checksum = scan(graph, 10);
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		System.out.println(label + ": " + (memory / 1024) + " KiB, 10 adjacency scans took " +
+				elapsed + " ms (checksum: " + checksum + ")");
+	}
+
+	public static void main(String[] args) {
+		int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+		System.out.println("Random graph with " + numNodes + " nodes and " + numEdges + " edges");
+
+		long baseline = usedMemory();
+		Graph graph = createRandomGraph(numNodes, numEdges, 42);
+		long graphMemory = usedMemory() - baseline;
+
+		baseline = usedMemory();
+		Graph frozen = graph.freeze();
+		long frozenMemory = usedMemory() - baseline;
+
+		/* Warm up both code paths before timing */
+		scan(graph, 2);
+		scan(frozen, 2);
+
+		report("Graph      ", graph, graphMemory);
+		report("FrozenGraph", frozen, frozenMemory);
+	}
+}
@@ -0,0 +1,157 @@
+package uk.ac.rhul.cs.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.rhul.cs.utils.IntegerRange;
+
+/**
+ * Compares the pivoting, degeneracy-ordered {@link BronKerboschMaximalCliqueFinder}
+ * to the basic Bron-Kerbosch algorithm it replaced.
+ *
+ * The graph has dense overlapping communities and a few hubs, which is what
+ * makes the basic algorithm slow on protein interaction networks.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.graph.MaximalCliqueBenchmark
+ * -Dbenchmark.args="nodes threads"</code>
+ *
+ * @author tamas
+ */
+public class MaximalCliqueBenchmark {
+	/**
+	 * The Bron-Kerbosch algorithm without pivoting as it was before.
+	 */
+	private static class BasicFinder {
+		private Graph graph;
+
+		BasicFinder(Graph graph) {
+			this.graph = graph;
+		}
+
+		private void findCliques(Collection<List<Integer>> result, HashSet<Integer> potentialClique,
+				HashSet<Integer> candidates, HashSet<Integer> alreadyFound) {
+			if (isAnyConnectedToAllCandidates(alreadyFound, candidates))
+				return;
+
+			Iterator<Integer> it = candidates.iterator();
+			while (it.hasNext()) {
+				Integer candidate = it.next();
+				HashSet<Integer> newCandidates = new HashSet<Integer>();
+				HashSet<Integer> newAlreadyFound = new HashSet<Integer>();
+
+				potentialClique.add(candidate);
+				it.remove();
+
+				int i, n = graph.getDegree(candidate, Directedness.ALL);
+				for (i = 0; i < n; i++) {
+					int nei = graph.getAdjacentNodeIndex(candidate, i, Directedness.ALL);
+					if (candidates.contains(nei))
+						newCandidates.add(nei);
+					if (alreadyFound.contains(nei))
+						newAlreadyFound.add(nei);
+				}
+
+				if (newCandidates.isEmpty() && newAlreadyFound.isEmpty())
+					result.add(new ArrayList<Integer>(potentialClique));
+				else
+					findCliques(result, potentialClique, newCandidates, newAlreadyFound);
+
+				alreadyFound.add(candidate);
+				potentialClique.remove(candidate);
+			}
+		}
+
+		private boolean isAnyConnectedToAllCandidates(HashSet<Integer> nodes, HashSet<Integer> candidates) {
+			HashSet<Integer> neiSet = new HashSet<Integer>();
+
+			for (int node: nodes) {
+				int i, n = graph.getDegree(node, Directedness.ALL);
+				if (n < candidates.size())
+					continue;
+
+				neiSet.clear();
+				for (i = 0; i < n; i++)
+					neiSet.add(graph.getAdjacentNodeIndex(node, i, Directedness.ALL));
+				if (neiSet.size() < candidates.size())
+					continue;
+
+				neiSet.retainAll(candidates);
+				if (neiSet.size() == candidates.size())
+					return true;
+			}
+
+			return false;
+		}
+
+		List<List<Integer>> getMaximalCliques() {
+			List<List<Integer>> result = new ArrayList<List<Integer>>();
+			HashSet<Integer> candidates = new HashSet<Integer>();
+			candidates.addAll(new IntegerRange(graph.getNodeCount()));
+			findCliques(result, new HashSet<Integer>(), candidates, new HashSet<Integer>());
+			return result;
+		}
+	}
+
+	private static Graph createGraph(int numNodes, long seed) {
+		Random random = new Random(seed);
+		Graph graph = new Graph();
+		graph.createNodes(numNodes);
+
+		/* Overlapping communities of 10-30 nodes with 60% density */
+		for (int c = 0; c < numNodes / 10; c++) {
+			int size = 10 + random.nextInt(21);
+			int[] members = new int[size];
+			for (int i = 0; i < size; i++)
+				members[i] = random.nextInt(numNodes);
+			for (int i = 0; i < size; i++)
+				for (int j = i + 1; j < size; j++)
+					if (random.nextDouble() < 0.6)
+						graph.createEdge(members[i], members[j]);
+		}
+
+		/* A few hubs connected to a fifth of the nodes */
+		for (int h = 0; h < 5; h++) {
+			int hub = random.nextInt(numNodes);
+			for (int i = 0; i < numNodes / 5; i++)
+				graph.createEdge(hub, random.nextInt(numNodes));
+		}
+
+		return graph;
+	}
+
+	public static void main(String[] args) {
+		int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+		Graph graph = createGraph(numNodes, 42).freeze();
+		long start;
+
+		System.out.println("Graph with " + graph.getNodeCount() + " nodes and " +
+				graph.getEdgeCount() + " edges");
+
+		/* Warm-up */
+		new BronKerboschMaximalCliqueFinder(createGraph(500, 1)).getMaximalCliques();
+
+		start = System.nanoTime();
+		int count = new BasicFinder(graph).getMaximalCliques().size();
+		System.out.println("Basic Bron-Kerbosch:      " + count + " cliques, " +
+				(System.nanoTime() - start) / 1000000 + " ms");
+
+		BronKerboschMaximalCliqueFinder finder = new BronKerboschMaximalCliqueFinder(graph);
+		start = System.nanoTime();
+		List<int[]> cliques = new ArrayList<int[]>();
+		finder.collectMaximalCliqueArrays(cliques);
+		System.out.println("Pivoting, 1 thread:       " + cliques.size() + " cliques, " +
+				(System.nanoTime() - start) / 1000000 + " ms");
+
+		finder.setNumThreads(numThreads);
+		start = System.nanoTime();
+		cliques.clear();
+		finder.collectMaximalCliqueArrays(cliques);
+		System.out.println("Pivoting, " + finder.getNumThreads() + " thread(s):    " +
+				cliques.size() + " cliques, " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+}
@@ -0,0 +1,105 @@
+package uk.ac.rhul.cs.graph;
+
+import java.util.Random;
+
+import com.sosnoski.util.array.StringArray;
+import com.sosnoski.util.hashmap.ObjectIntHashMap;
+
+/**
+ * Compares the memory footprint and the lookup speed of a {@link NodeNameDictionary}
+ * to the string array and hash map pair that graphs and readers used to keep.
+ *
+ * The names look like UniProt accession numbers, which is what most protein
+ * interaction networks use.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.graph.NodeNameDictionaryBenchmark
+ * -Dbenchmark.args="names"</code>
+ *
+ * @author tamas
+ */
+public class NodeNameDictionaryBenchmark {
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static String[] createNames(int numNames, long seed) {
+		Random random = new Random(seed);
+		String[] names = new String[numNames];
+		String letters = "OPQ";
+		for (int i = 0; i < numNames; i++) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(letters.charAt(random.nextInt(letters.length())));
+			sb.append(random.nextInt(10));
+			for (int j = 0; j < 3; j++)
+				sb.append((char)('A' + random.nextInt(26)));
+			sb.append(random.nextInt(10));
+			sb.append('_').append(i);
+			names[i] = sb.toString();
+		}
+		return names;
+	}
+
+	private static void report(String label, long memory, long lookupTime, long checksum) {
+		System.out.println(label + ": " + (memory / 1024) + " KiB, lookups took " +
+				lookupTime + " ms (checksum: " + checksum + ")");
+	}
+
+	public static void main(String[] args) {
+		int numNames = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		String[] names = createNames(numNames, 42);
+		long start, checksum;
+
+		System.out.println(numNames + " UniProt-like node names");
+
+		/* The names are copied so that the measured structures do not share them
+		 * with the names array */
+		long baseline = usedMemory();
+		StringArray array = new StringArray();
+		ObjectIntHashMap map = new ObjectIntHashMap();
+		for (int i = 0; i < numNames; i++) {
+			String name = new String(names[i]);
+			array.add(name);
+			map.add(name, i);
+		}
+		long arrayMemory = usedMemory() - baseline;
+
+		baseline = usedMemory();
+		NodeNameDictionary dict = new NodeNameDictionary();
+		for (int i = 0; i < numNames; i++)
+			dict.add(names[i]);
+		long dictMemory = usedMemory() - baseline;
+
+		for (int round = 0; round < 2; round++) {
+			start = System.nanoTime();
+			checksum = 0;
+			for (int i = 0; i < numNames; i++)
+				checksum += map.get(names[(int)(i * 7919L % numNames)]);
+			if (round > 0)
+				report("StringArray + ObjectIntHashMap", arrayMemory,
+						(System.nanoTime() - start) / 1000000, checksum);
+
+			start = System.nanoTime();
+			checksum = 0;
+			for (int i = 0; i < numNames; i++)
+				checksum += dict.indexOf(names[(int)(i * 7919L % numNames)]);
+			if (round > 0)
+				report("NodeNameDictionary            ", dictMemory,
+						(System.nanoTime() - start) / 1000000, checksum);
+		}
+
+		System.out.println("Estimated size of the dictionary: " + dict.getMemoryUsage() / 1024 + " KiB");
+
+		/* Keep the structures reachable until the end */
+		if (array.size() != dict.size())
+			throw new IllegalStateException();
+	}
+}
@@ -0,0 +1,114 @@
+package uk.ac.rhul.cs.graph;
+
+import static junit.framework.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class NodeNameDictionaryTest {
+	@Test
+	public void testAddAndGet() {
+		NodeNameDictionary dict = new NodeNameDictionary();
+
+		assertEquals(0, dict.size());
+		assertEquals(0, dict.add("YAL001C"));
+		assertEquals(1, dict.add(null));
+		assertEquals(2, dict.add(""));
+		assertEquals(3, dict.add("\u00e1rv\u00edzt\u0171r\u0151"));
+		assertEquals(4, dict.size());
+
+		assertEquals("YAL001C", dict.get(0));
+		assertNull(dict.get(1));
+		assertNull(dict.getBytes(1));
+		assertEquals("", dict.get(2));
+		assertEquals("\u00e1rv\u00edzt\u0171r\u0151", dict.get(3));
+		assertTrue(Arrays.equals(new String[] { "YAL001C", null, "", "\u00e1rv\u00edzt\u0171r\u0151" },
+				dict.toArray()));
+
+		try {
+			dict.get(4);
+			fail("ArrayIndexOutOfBoundsException not thrown");
+		} catch (ArrayIndexOutOfBoundsException expected) {
+		}
+	}
+
+	@Test
+	public void testLookup() throws Exception {
+		NodeNameDictionary dict = new NodeNameDictionary();
+
+		dict.add("A");
+		dict.add(null);
+		dict.add("B");
+		dict.add("A");
+
+		assertEquals(0, dict.indexOf("A"));
+		assertEquals(2, dict.indexOf("B"));
+		assertEquals(-1, dict.indexOf("C"));
+		assertEquals(-1, dict.indexOf(null));
+		assertEquals("A", dict.get(3));
+
+		assertEquals(2, dict.getOrAdd("B"));
+		assertEquals(4, dict.getOrAdd("C"));
+		byte[] bytes = "xxCxx".getBytes("utf-8");
+		assertEquals(4, dict.getOrAdd(bytes, 2, 1));
+		assertEquals(5, dict.getOrAdd(bytes, 1, 3));
+		assertEquals("xCx", dict.get(5));
+		assertEquals(6, dict.size());
+	}
+
+	@Test
+	public void testGrowth() {
+		NodeNameDictionary dict = new NodeNameDictionary(1);
+		int n = 100000;
+
+		for (int i = 0; i < n; i++)
+			assertEquals(i, dict.getOrAdd("P" + (i * 7919)));
+		assertEquals(n, dict.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, dict.indexOf("P" + (i * 7919)));
+			assertEquals("P" + (i * 7919), dict.get(i));
+		}
+		assertEquals(-1, dict.indexOf("P1"));
+	}
+
+	@Test
+	public void testCopy() {
+		NodeNameDictionary dict = new NodeNameDictionary();
+		dict.add("A");
+		dict.add(null);
+		dict.add("B");
+
+		NodeNameDictionary copy = new NodeNameDictionary(dict);
+		dict.add("C");
+		assertEquals(3, copy.size());
+		assertEquals(-1, copy.indexOf("C"));
+		assertNull(copy.get(1));
+		assertEquals(2, copy.indexOf("B"));
+
+		assertEquals(3, copy.add("D"));
+		assertEquals(3, copy.indexOf("D"));
+		assertEquals("C", dict.get(3));
+	}
+
+	@Test
+	public void testGraphNodeNames() {
+		Graph graph = new Graph();
+
+		assertEquals(0, graph.getOrCreateNode("A"));
+		assertEquals(1, graph.getOrCreateNode("B"));
+		assertEquals(0, graph.getOrCreateNode("A"));
+		assertEquals(2, graph.createNode());
+		assertEquals(1, graph.getNodeNameHashMap().get("B"));
+		assertEquals(3, graph.createNode("C"));
+		assertEquals(3, graph.getNodeIndex("C"));
+		assertEquals(3, graph.getNodeNameHashMap().get("C"));
+		assertEquals(-1, graph.getNodeIndex("D"));
+
+		FrozenGraph frozen = graph.freeze();
+		assertEquals(4, frozen.getNodeCount());
+		assertEquals(1, frozen.getNodeIndex("B"));
+		assertEquals(1, frozen.getOrCreateNode("B"));
+		assertNull(frozen.getNodeName(2));
+	}
+}
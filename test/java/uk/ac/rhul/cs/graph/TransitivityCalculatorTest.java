@@ -2,6 +2,9 @@ package uk.ac.rhul.cs.graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+import java.util.TreeSet;
+
 import org.junit.Test;
 
 public class TransitivityCalculatorTest {
@@ -25,4 +28,113 @@ public class TransitivityCalculatorTest {
 		calc.setGraph(GraphFactory.createFamousGraph("zachary"));
 		assertEquals(0.2556818181818, calc.getGlobalTransitivity(), 1e-6);
 	}
+	
+	@Test
+	public void testGetGlobalTransitivityWithMultipleEdges() {
+		Random random = new Random(42);
+		
+		for (int round = 0; round < 20; round++) {
+			Graph g = createRandomGraph(random, 30, 150, true);
+			TransitivityCalculator calc = new TransitivityCalculator(g);
+			assertEquals(getGlobalTransitivityByPairs(g), calc.getGlobalTransitivity(), 1e-9);
+		}
+	}
+	
+	@Test
+	public void testGetLocalTransitivity() {
+		Graph g = GraphFactory.createEmptyGraph(5, false);
+		g.createEdge(0, 1); g.createEdge(0, 2); g.createEdge(3, 0);
+		g.createEdge(1, 2); g.createEdge(1, 2); g.createEdge(2, 2);
+		
+		TransitivityCalculator calc = new TransitivityCalculator(g);
+		double[] local = calc.getLocalTransitivity();
+		assertEquals(1 / 3.0, local[0], 1e-9);
+		assertEquals(1.0, local[1], 1e-9);
+		assertEquals(1.0, local[2], 1e-9);
+		assertTrue(Double.isNaN(local[3]));
+		assertTrue(Double.isNaN(local[4]));
+		assertEquals(7 / 9.0, calc.getAverageLocalTransitivity(), 1e-9);
+		
+		calc.setGraph(GraphFactory.createFamousGraph("zachary"));
+		assertEquals(0.5879306, calc.getAverageLocalTransitivity(), 1e-6);
+		
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			g = createRandomGraph(random, 30, 120, true);
+			calc.setGraph(g);
+			local = calc.getLocalTransitivity();
+			for (int i = 0; i < g.getNodeCount(); i++)
+				assertEquals(getLocalTransitivityByPairs(g, i), local[i], 1e-9);
+		}
+	}
+	
+	@Test
+	public void testMultipleThreads() {
+		Graph g = createRandomGraph(new Random(42), 3000, 30000, true);
+		TransitivityCalculator calc = new TransitivityCalculator(g);
+		
+		Double global = calc.getGlobalTransitivity();
+		double[] local = calc.getLocalTransitivity();
+		
+		calc.setNumThreads(4);
+		assertEquals(4, calc.getNumThreads());
+		assertEquals(global, calc.getGlobalTransitivity());
+		assertArrayEquals(local, calc.getLocalTransitivity(), 0.0);
+	}
+	
+	private static Graph createRandomGraph(Random random, int numNodes, int numEdges, boolean multiple) {
+		Graph g = GraphFactory.createEmptyGraph(numNodes, false);
+		for (int i = 0; i < numEdges; i++) {
+			int src = random.nextInt(numNodes), dest = random.nextInt(numNodes);
+			if (multiple || !g.areConnected(src, dest))
+				g.createEdge(src, dest);
+		}
+		return g;
+	}
+	
+	/**
+	 * Calculates the global transitivity by checking every pair of edges
+	 * incident on a node.
+	 */
+	private static double getGlobalTransitivityByPairs(Graph g) {
+		long triangles = 0, triplets = 0;
+		
+		for (int i = 0; i < g.getNodeCount(); i++) {
+			int[] neis = g.getAdjacentNodeIndicesArray(i, Directedness.ALL);
+			for (int a = 0; a < neis.length; a++) {
+				if (neis[a] <= i)
+					continue;
+				for (int b = 0; b < neis.length; b++) {
+					if (neis[a] < neis[b] && g.areConnected(neis[a], neis[b]))
+						triangles++;
+				}
+			}
+			triplets += (long) neis.length * (neis.length - 1) / 2;
+		}
+		
+		return (triplets == 0) ? 0 : (3.0 * triangles / triplets);
+	}
+	
+	/**
+	 * Calculates the local transitivity of a node by checking every pair of
+	 * its distinct neighbors.
+	 */
+	private static double getLocalTransitivityByPairs(Graph g, int node) {
+		TreeSet<Integer> neiSet = new TreeSet<Integer>();
+		for (int nei: g.getAdjacentNodeIndicesArray(node, Directedness.ALL))
+			if (nei != node)
+				neiSet.add(nei);
+		
+		Integer[] neis = neiSet.toArray(new Integer[0]);
+		if (neis.length < 2)
+			return Double.NaN;
+		
+		int connected = 0;
+		for (int a = 0; a < neis.length; a++)
+			for (int b = a + 1; b < neis.length; b++)
+				if (g.areConnected(neis[a], neis[b]))
+					connected++;
+		
+		return connected / (neis.length * (neis.length - 1) / 2.0);
+	}
 }
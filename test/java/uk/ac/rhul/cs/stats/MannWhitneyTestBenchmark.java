@@ -0,0 +1,180 @@
+package uk.ac.rhul.cs.stats;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import uk.ac.rhul.cs.cl1.ValuedNodeSet;
+import uk.ac.rhul.cs.cl1.ValuedNodeSetList;
+import uk.ac.rhul.cs.graph.Graph;
+import uk.ac.rhul.cs.stats.independentsamples.MannWhitneyTest;
+import uk.ac.rhul.cs.stats.tests.H1;
+import uk.ac.rhul.cs.utils.ArrayUtils;
+
+/**
+ * Compares the speed of {@link MannWhitneyTest} to the previous implementation
+ * that ranked the joined samples with {@link ArrayUtils#getRanks(double[], double)}
+ * and sorted the ranks again for the tie correction, and checks that both give
+ * bit-identical results. It also measures how
+ * {@link ValuedNodeSetList#getSignificances(int)} scales with the number of
+ * threads on random clusters of a random weighted graph.
+ *
+ * Usage: <code>ant benchmark -Dbenchmark=uk.ac.rhul.cs.stats.MannWhitneyTestBenchmark
+ * -Dbenchmark.args="tests clusters maxThreads"</code>
+ *
+ * @author tamas
+ */
+public class MannWhitneyTestBenchmark {
+	/**
+	 * Calculates the test statistic and the tie correction factor the way the
+	 * previous implementation did.
+	 */
+	private static double[] legacyTest(double[] xA, double[] xB, H1 alternative) {
+		int i, nA = xA.length, nB = xB.length, n = nA + nB;
+		double[] joined = new double[n];
+		double uA, uB, tieCorrection;
+
+		System.arraycopy(xA, 0, joined, 0, nA);
+		System.arraycopy(xB, 0, joined, nA, nB);
+
+		double[] ranks = ArrayUtils.getRanks(joined, 1e-10);
+		uA = uB = nA * nB;
+		for (i = 0; i < nA; i++)
+			uA -= ranks[i];
+		uA += (nA * (nA+1)) / 2;
+		if (alternative == H1.NOT_EQUAL) {
+			uB = uB - uA;
+			uA = Math.min(uA, uB);
+		}
+
+		Arrays.sort(ranks);
+		if (n < 2) {
+			tieCorrection = 1.0;
+		} else {
+			tieCorrection = 0;
+			for (i = 0; i < n-1; i++) {
+				if (ranks[i] == ranks[i+1]) {
+					int nties = 1;
+					while (i < n-1 && ranks[i] == ranks[i+1]) {
+						nties++;
+						i++;
+					}
+					tieCorrection += nties * (nties * nties - 1);
+				}
+			}
+			tieCorrection = 1.0 - tieCorrection / n / (n * n - 1);
+		}
+
+		return new double[] { uA, tieCorrection };
+	}
+
+	/**
+	 * Creates pairs of samples like the in- and out-weights of clusters: the
+	 * sizes are between 3 and 60 and the values are small integers, so there
+	 * are many ties.
+	 */
+	private static double[][] createSamples(int numPairs, long seed) {
+		Random random = new Random(seed);
+		double[][] samples = new double[2 * numPairs][];
+
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = new double[3 + random.nextInt(58)];
+			for (int j = 0; j < samples[i].length; j++)
+				samples[i][j] = random.nextInt(10);
+		}
+
+		return samples;
+	}
+
+	/**
+	 * Creates a random graph with integer edge weights and random clusters on it
+	 */
+	private static int[][] createClusters(Graph graph, int numClusters, Random random) {
+		int numNodes = graph.getNodeCount();
+		int[][] clusters = new int[numClusters][];
+
+		for (int i = 0; i < numClusters; i++) {
+			int[] members = new int[5 + random.nextInt(26)];
+			for (int j = 0; j < members.length; j++)
+				members[j] = random.nextInt(numNodes);
+			clusters[i] = members;
+		}
+
+		return clusters;
+	}
+
+	private static ValuedNodeSetList createNodeSets(Graph graph, int[][] clusters) {
+		ValuedNodeSetList nodeSets = new ValuedNodeSetList();
+		for (int[] members: clusters)
+			nodeSets.add(new ValuedNodeSet(graph, members));
+		return nodeSets;
+	}
+
+	public static void main(String[] args) {
+		int numTests = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int numClusters = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) :
+			Runtime.getRuntime().availableProcessors();
+		double[][] samples = createSamples(numTests, 42);
+		double checksum = 0;
+		long start;
+		int i;
+
+		/* Check that both implementations give the same results */
+		for (i = 0; i < numTests; i++) {
+			for (H1 alternative: H1.values()) {
+				MannWhitneyTest test = new MannWhitneyTest(samples[2*i], samples[2*i+1], alternative);
+				double[] expected = legacyTest(samples[2*i], samples[2*i+1], alternative);
+				if (Double.doubleToLongBits(expected[0]) != Double.doubleToLongBits(test.getTestStatistic()) ||
+						Double.doubleToLongBits(expected[1]) != Double.doubleToLongBits(test.getCorrectionFactor()))
+					throw new AssertionError("results differ for sample pair " + i);
+			}
+		}
+		System.out.println(numTests + " sample pairs: results are identical");
+
+		/* Time both implementations; the first round is a warm-up */
+		for (int round = 0; round < 2; round++) {
+			start = System.nanoTime();
+			for (i = 0; i < numTests; i++)
+				checksum += legacyTest(samples[2*i], samples[2*i+1], H1.LESS_THAN)[0];
+			long legacyTime = (System.nanoTime() - start) / 1000000;
+
+			start = System.nanoTime();
+			for (i = 0; i < numTests; i++)
+				checksum += new MannWhitneyTest(samples[2*i], samples[2*i+1], H1.LESS_THAN).getSP();
+			long time = (System.nanoTime() - start) / 1000000;
+
+			if (round > 0) {
+				System.out.println("Previous implementation: " + legacyTime + " ms");
+				System.out.println("Current implementation:  " + time + " ms");
+			}
+		}
+
+		/* Time the batch calculation on a random graph */
+		Random random = new Random(42);
+		Graph graph = new Graph();
+		int numNodes = numClusters;
+		graph.createNodes(numNodes);
+		for (i = 0; i < 5 * numNodes; i++)
+			graph.createEdge(random.nextInt(numNodes), random.nextInt(numNodes), 1 + random.nextInt(5));
+		int[][] clusters = createClusters(graph, numClusters, random);
+
+		createNodeSets(graph, clusters).getSignificances(maxThreads);
+		double[] expected = null;
+		for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+			ValuedNodeSetList nodeSets = createNodeSets(graph, clusters);
+			start = System.nanoTime();
+			double[] significances = nodeSets.getSignificances(numThreads);
+			long time = (System.nanoTime() - start) / 1000000;
+
+			if (expected == null)
+				expected = significances;
+			else if (!Arrays.equals(expected, significances))
+				throw new AssertionError("significances differ with " + numThreads + " threads");
+			System.out.println(numClusters + " cluster significances, " + numThreads +
+					" thread(s): " + time + " ms");
+		}
+
+		if (checksum == 42)
+			System.out.println();
+	}
+}
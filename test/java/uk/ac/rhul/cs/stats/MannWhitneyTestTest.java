@@ -2,10 +2,14 @@ package uk.ac.rhul.cs.stats;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.Test;
 
 import uk.ac.rhul.cs.stats.independentsamples.MannWhitneyTest;
 import uk.ac.rhul.cs.stats.tests.H1;
+import uk.ac.rhul.cs.utils.ArrayUtils;
 
 public class MannWhitneyTestTest {
 	static double[] xA = { 7, 3, 6, 2, 4, 3, 5, 5 };
@@ -64,6 +68,71 @@ public class MannWhitneyTestTest {
 		assertEquals(0.5, test.getSP(), 0.01);
 	}
 	
+	@Test
+	public void testMatchesRankBasedCalculation() {
+		Random random = new Random(42);
+		double[] tolerances = { 0.0, 1e-10, 0.5 };
+		
+		for (int iter = 0; iter < 500; iter++) {
+			double[] x = new double[random.nextInt(50)];
+			double[] y = new double[random.nextInt(50) + 1];
+			int numDistinct = random.nextInt(10) + 1;
+			
+			for (int i = 0; i < x.length; i++)
+				x[i] = random.nextInt(numDistinct) * 0.25;
+			for (int i = 0; i < y.length; i++)
+				y[i] = (iter % 2 == 0) ? random.nextInt(numDistinct) * 0.25 : random.nextGaussian();
+			
+			for (H1 alternative: H1.values()) {
+				for (double tolerance: tolerances) {
+					MannWhitneyTest test = new MannWhitneyTest(x, y, alternative, tolerance);
+					double[] expected = getStatisticAndCorrection(x, y, alternative, tolerance);
+					assertEquals(Double.doubleToLongBits(expected[0]),
+							Double.doubleToLongBits(test.getTestStatistic()));
+					assertEquals(Double.doubleToLongBits(expected[1]),
+							Double.doubleToLongBits(test.getCorrectionFactor()));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Calculates the test statistic and the tie correction factor of the test
+	 * from the rank vector of the joined samples.
+	 */
+	private static double[] getStatisticAndCorrection(double[] xA, double[] xB,
+			H1 alternative, double tolerance) {
+		int i, nA = xA.length, nB = xB.length, n = nA + nB;
+		double[] joined = new double[n];
+		double uA, tieCorrection = 0;
+		
+		System.arraycopy(xA, 0, joined, 0, nA);
+		System.arraycopy(xB, 0, joined, nA, nB);
+		
+		double[] ranks = ArrayUtils.getRanks(joined, tolerance);
+		uA = nA * nB;
+		for (i = 0; i < nA; i++)
+			uA -= ranks[i];
+		uA += (nA * (nA+1)) / 2;
+		if (alternative == H1.NOT_EQUAL)
+			uA = Math.min(uA, nA * nB - uA);
+		
+		Arrays.sort(ranks);
+		for (i = 0; i < n-1; i++) {
+			if (ranks[i] == ranks[i+1]) {
+				int nties = 1;
+				while (i < n-1 && ranks[i] == ranks[i+1]) {
+					nties++;
+					i++;
+				}
+				tieCorrection += nties * (nties * nties - 1);
+			}
+		}
+		tieCorrection = (n < 2) ? 1.0 : 1.0 - tieCorrection / n / (n * n - 1);
+		
+		return new double[] { uA, tieCorrection };
+	}
+	
 	@Test
 	public void testSize() {
 		MannWhitneyTest test = new MannWhitneyTest(xC, xD);
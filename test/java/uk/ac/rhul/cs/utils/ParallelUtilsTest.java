@@ -0,0 +1,52 @@
+package uk.ac.rhul.cs.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import uk.ac.rhul.cs.utils.ParallelUtils.RangeTask;
+
+public class ParallelUtilsTest {
+
+	@Test
+	public void testRunInChunks() {
+		final AtomicIntegerArray counts = new AtomicIntegerArray(1000);
+		RangeTask task = new RangeTask() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++)
+					counts.incrementAndGet(i);
+			}
+		};
+
+		for (int numThreads = 0; numThreads <= 4; numThreads++) {
+			ParallelUtils.runInChunks(counts.length(), 7, numThreads, task, null);
+			for (int i = 0; i < counts.length(); i++)
+				assertEquals(numThreads + 1, counts.get(i));
+		}
+
+		ParallelUtils.runInChunks(0, 7, 4, task, null);
+	}
+
+	@Test
+	public void testInterruptedRunInChunks() {
+		final AtomicIntegerArray counts = new AtomicIntegerArray(1000);
+		RangeTask task = new RangeTask() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++)
+					counts.incrementAndGet(i);
+			}
+		};
+
+		Thread.currentThread().interrupt();
+		try {
+			ParallelUtils.runInChunks(counts.length(), 7, 3, task, null);
+			fail("task was not aborted");
+		} catch (CancellationException expected) {
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package uk.ac.rhul.cs.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class SortedIntArraysTest {
+	private int[] createRandomSortedArray(Random random, int size, int range) {
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		while (set.size() < size)
+			set.add(random.nextInt(range));
+		
+		int i = 0;
+		int[] result = new int[size];
+		for (int value: set)
+			result[i++] = value;
+		return result;
+	}
+	
+	private int getIntersectionSizeBySets(int[] a, int[] b) {
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		for (int value: a)
+			set.add(value);
+		
+		int result = 0;
+		for (int value: b)
+			if (set.contains(value))
+				result++;
+		return result;
+	}
+	
+	@Test
+	public void testGetIntersectionSize() {
+		int[] empty = {};
+		int[] a = { 1, 3, 5, 7, 9 };
+		int[] b = { 2, 3, 4, 5, 10, 11 };
+		
+		assertEquals(0, SortedIntArrays.getIntersectionSize(empty, a));
+		assertEquals(0, SortedIntArrays.getIntersectionSize(a, empty));
+		assertEquals(2, SortedIntArrays.getIntersectionSize(a, b));
+		assertEquals(2, SortedIntArrays.getIntersectionSizeByGalloping(a, b));
+		assertEquals(2, SortedIntArrays.getIntersectionSizeByGalloping(b, a));
+		assertEquals(5, SortedIntArrays.getIntersectionSizeByGalloping(a, a));
+		assertEquals(0, SortedIntArrays.getIntersectionSize(a, new int[] { 20, 30 }));
+	}
+	
+	@Test
+	public void testRandomArrays() {
+		Random random = new Random(42);
+		int[][] sizes = { { 5, 5 }, { 10, 300 }, { 3, 1000 }, { 200, 250 }, { 1, 50 } };
+		
+		for (int round = 0; round < 50; round++) {
+			for (int[] size: sizes) {
+				int[] a = createRandomSortedArray(random, size[0], 2000);
+				int[] b = createRandomSortedArray(random, size[1], 2000);
+				int expected = getIntersectionSizeBySets(a, b);
+				
+				assertEquals(expected, SortedIntArrays.getIntersectionSize(a, b));
+				assertEquals(expected, SortedIntArrays.getIntersectionSize(b, a));
+				assertEquals(expected, SortedIntArrays.getIntersectionSizeByMerging(a, b));
+				assertEquals(expected, SortedIntArrays.getIntersectionSizeByGalloping(a, b));
+				
+				IntBitmap bitmapA = new IntBitmap(a), bitmapB = new IntBitmap(b);
+				assertEquals(expected, bitmapA.getIntersectionSize(bitmapB));
+				assertEquals(expected, bitmapB.getIntersectionSize(bitmapA));
+				assertEquals(expected, bitmapB.countContained(a));
+			}
+		}
+	}
+	
+	@Test
+	public void testIntBitmap() {
+		int[] values = { 70, 71, 130, 1000 };
+		IntBitmap bitmap = new IntBitmap(values);
+		
+		for (int value: values)
+			assertTrue(bitmap.contains(value));
+		assertFalse(bitmap.contains(0));
+		assertFalse(bitmap.contains(72));
+		assertFalse(bitmap.contains(1001));
+		assertFalse(bitmap.contains(5000));
+		
+		assertEquals(1, bitmap.getIntersectionSize(new IntBitmap(new int[] { 5, 1000, 2000 })));
+		assertEquals(0, bitmap.getIntersectionSize(new IntBitmap(new int[0])));
+		assertFalse(IntBitmap.isWorthBuilding(values));
+		
+		int[] dense = new int[200];
+		for (int i = 0; i < dense.length; i++)
+			dense[i] = 100000 + 3 * i;
+		assertTrue(IntBitmap.isWorthBuilding(dense));
+	}
+}